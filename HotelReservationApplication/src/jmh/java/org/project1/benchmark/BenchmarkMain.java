@@ -0,0 +1,33 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler always on, so every result comes with its allocation rate.
+ * <p>
+ * Takes the usual JMH command line, for example:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec -Djmh.args="LookupBenchmark -p rooms=1000 -p reservations=100000"
+ * mvn -P benchmarks test-compile exec:exec -Djmh.args="-l"
+ * </pre>
+ * The largest hotels need a big heap: pass {@code -jvmArgsAppend -Xmx16g} for ten million reservations.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.project1.model.Reservation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Successful bookings into a loaded hotel.
+ * <p>
+ * Every booking grows the hotel, so instead of running for a fixed time each iteration books a batch of
+ * {@value #BATCH} stays per thread into a freshly loaded hotel and reports the time the batch took. Threads book
+ * disjoint gaps, so the multi-threaded variant measures how bookings of different rooms scale, not conflicts; see
+ * {@link ContendedBookingBenchmark} for those.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = BookingBenchmark.BATCH)
+@Measurement(iterations = 5, batchSize = BookingBenchmark.BATCH)
+@Fork(1)
+public class BookingBenchmark {
+    static final int BATCH = 10_000;
+
+    /**
+     * Hotel reloaded before every iteration, so each batch books into the same amount of data.
+     */
+    @State(Scope.Benchmark)
+    public static class FreshHotel {
+        @Param({"in-memory"})
+        public String implementation;
+
+        @Param({"100", "1000", "10000", "100000"})
+        public int rooms;
+
+        @Param({"1000", "100000", "1000000", "10000000"})
+        public int reservations;
+
+        public HotelFixture fixture;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            fixture = new HotelFixture(implementation, rooms, reservations);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            fixture = null;
+        }
+    }
+
+    /**
+     * Next gap booked by a thread. Thread {@code i} of {@code n} books gaps {@code i, i + n, i + 2n, ...}.
+     */
+    @State(Scope.Thread)
+    public static class GapCursor {
+        private long next;
+        private int stride;
+
+        @Setup(Level.Iteration)
+        public void setUp(ThreadParams threads) {
+            next = threads.getThreadIndex();
+            stride = threads.getThreadCount();
+        }
+
+        private long next() {
+            long gap = next;
+            next += stride;
+            return gap;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Reservation reserveARoom(FreshHotel hotel, GapCursor cursor) {
+        return hotel.fixture.reserveGap(cursor.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Reservation reserveARoomConcurrently(FreshHotel hotel, GapCursor cursor) {
+        return hotel.fixture.reserveGap(cursor.next());
+    }
+}
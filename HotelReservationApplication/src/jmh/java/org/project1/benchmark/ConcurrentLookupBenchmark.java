@@ -0,0 +1,10 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Read paths of {@link LookupBenchmark} with one thread per available processor sharing the same hotel.
+ */
+@Threads(Threads.MAX)
+public class ConcurrentLookupBenchmark extends LookupBenchmark {
+}
@@ -0,0 +1,66 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bookings racing for the same few rooms, alone and mixed with searches.
+ * <p>
+ * All threads book stays of the {@value #HOT_ROOMS} first rooms within the next year. Those rooms fill up quickly,
+ * after which nearly every attempt is a conflict, so this measures the overlap check under lock contention, including
+ * the rejected bookings. The hot rooms can take at most a year of stays each, so the hotel cannot grow without bound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContendedBookingBenchmark {
+    private static final int HOT_ROOMS = 16;
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Reservation contendedReserve(HotelState hotel, ThreadCursor cursor) {
+        return tryReserve(hotel.fixture, cursor.next());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Collection<IRoom> mixedSearch(HotelState hotel, ThreadCursor cursor) {
+        int sample = cursor.next();
+        return hotel.fixture.getService().findRooms(hotel.fixture.sampleCheckIn(sample),
+                hotel.fixture.sampleCheckOut(sample));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Reservation mixedReserve(HotelState hotel, ThreadCursor cursor) {
+        return tryReserve(hotel.fixture, cursor.next());
+    }
+
+    private static Reservation tryReserve(HotelFixture fixture, int sample) {
+        IRoom room = fixture.getRoom(Math.floorMod(sample, Math.min(HOT_ROOMS, fixture.getRoomCount())));
+        try {
+            return fixture.getService().reserveARoom(fixture.sampleCustomer(sample), room,
+                    fixture.sampleCheckIn(sample), fixture.sampleCheckOut(sample));
+        } catch (IllegalArgumentException ex) {
+            // Already reserved for some of these nights
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.project1.benchmark;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.service.ReservationService;
+import org.project1.service.impl.ReservationServiceImpl;
+import org.project1.service.impl.ShardedReservationService;
+import org.project1.util.DateUtils;
+
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Deterministic hotel loaded into a {@link ReservationService} for the benchmarks.
+ * <p>
+ * Reservations are spread round-robin over the rooms. Every room gets stays of {@value #STAY_NIGHTS} nights every
+ * {@value #STAY_SPACING} days, shifted by the room number so the rooms are not all busy on the same nights. The
+ * stays of a room straddle today, half in the past and half in the future. The nights between two stays of a room are
+ * left free, so the booking benchmarks can fill them without conflicts.
+ */
+public class HotelFixture {
+    static final int STAY_NIGHTS = 2;
+    static final int STAY_SPACING = 4;
+    private static final int SEARCH_DAYS = 365;
+    private static final int MAX_CUSTOMERS = 10_000;
+    private static final int SAMPLES = 4096;
+
+    private final ReservationService service;
+    private final IRoom[] rooms;
+    private final Customer[] customers;
+    private final long firstDay;
+    private final Date[] sampleCheckIns;
+    private final Date[] sampleCheckOuts;
+    private final String[] sampleRoomNumbers;
+    private final Customer[] sampleCustomers;
+
+    /**
+     * Constructor of this class. Creates the service and books all reservations through it.
+     *
+     * @param implementation   name of the {@link ReservationService} implementation, see {@link #create(String)}
+     * @param roomCount        number of rooms
+     * @param reservationCount number of reservations booked before measuring
+     */
+    public HotelFixture(String implementation, int roomCount, int reservationCount) {
+        this(create(implementation), roomCount, reservationCount);
+    }
+
+    /**
+     * Constructor of this class. Books all reservations through the supplied service, which should be empty.
+     *
+     * @param service          service to load
+     * @param roomCount        number of rooms
+     * @param reservationCount number of reservations booked before measuring
+     */
+    public HotelFixture(ReservationService service, int roomCount, int reservationCount) {
+        this.service = service;
+        this.rooms = new IRoom[roomCount];
+        this.customers = new Customer[Math.max(1, Math.min(MAX_CUSTOMERS, reservationCount / 10))];
+        int staysPerRoom = (reservationCount + roomCount - 1) / roomCount;
+        this.firstDay = DateUtils.today() - (long) staysPerRoom * STAY_SPACING / 2;
+
+        RoomType[] roomTypes = {RoomType.SINGLE, RoomType.DOUBLE};
+        for (int i = 0; i < roomCount; i++) {
+            rooms[i] = new Room(String.valueOf(100 + i), 50.0 + i % 200, roomTypes[i % 2]);
+            service.addRoom(rooms[i]);
+        }
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("First" + i, "Last" + i, "customer" + i + "@hotel.com");
+        }
+        for (int i = 0; i < reservationCount; i++) {
+            long checkIn = stayStart(i % roomCount, i / roomCount);
+            service.reserveARoom(customers[i % customers.length], rooms[i % roomCount],
+                    DateUtils.fromEpochDay(checkIn), DateUtils.fromEpochDay(checkIn + STAY_NIGHTS));
+        }
+
+        Random random = new Random(42);
+        long today = DateUtils.today();
+        sampleCheckIns = new Date[SAMPLES];
+        sampleCheckOuts = new Date[SAMPLES];
+        sampleRoomNumbers = new String[SAMPLES];
+        sampleCustomers = new Customer[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long checkIn = today + random.nextInt(SEARCH_DAYS);
+            sampleCheckIns[i] = DateUtils.fromEpochDay(checkIn);
+            sampleCheckOuts[i] = DateUtils.fromEpochDay(checkIn + 1 + random.nextInt(3));
+            sampleRoomNumbers[i] = rooms[random.nextInt(roomCount)].getRoomNumber();
+            sampleCustomers[i] = customers[random.nextInt(customers.length)];
+        }
+    }
+
+    /**
+     * Creates an empty service of the named implementation. Add alternative implementations here to compare them
+     * side by side with {@code -p implementation=...}.
+     *
+     * @param implementation name of the implementation
+     * @return new, empty service
+     * @throws IllegalArgumentException if there is no implementation with the supplied name
+     */
+    public static ReservationService create(String implementation) {
+        switch (implementation) {
+            case "in-memory":
+                return new ReservationServiceImpl();
+            case "in-memory-parallel":
+                // Every search checks the inventory in parallel chunks, whatever the number of rooms
+                return new ReservationServiceImpl(1);
+            case "sharded":
+                return new ShardedReservationService(Runtime.getRuntime().availableProcessors(), 50_000);
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+
+    public ReservationService getService() {
+        return service;
+    }
+
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    public IRoom getRoom(int index) {
+        return rooms[index];
+    }
+
+    /**
+     * Check-in of a search sample: a stay of 1 to 3 nights starting within the next year.
+     */
+    public Date sampleCheckIn(int sample) {
+        return sampleCheckIns[sample & (SAMPLES - 1)];
+    }
+
+    public Date sampleCheckOut(int sample) {
+        return sampleCheckOuts[sample & (SAMPLES - 1)];
+    }
+
+    public String sampleRoomNumber(int sample) {
+        return sampleRoomNumbers[sample & (SAMPLES - 1)];
+    }
+
+    public Customer sampleCustomer(int sample) {
+        return sampleCustomers[sample & (SAMPLES - 1)];
+    }
+
+    /**
+     * Books the free nights after a loaded stay. Gaps are numbered like the loaded reservations, so every gap is
+     * booked without conflict the first time; gaps past the last loaded stay of a room are free as well.
+     *
+     * @param gap number of the gap
+     * @return reservation newly created
+     */
+    public Reservation reserveGap(long gap) {
+        long checkIn = stayStart((int) (gap % rooms.length), gap / rooms.length) + STAY_NIGHTS;
+        return service.reserveARoom(customers[(int) (gap % customers.length)], rooms[(int) (gap % rooms.length)],
+                DateUtils.fromEpochDay(checkIn), DateUtils.fromEpochDay(checkIn + STAY_SPACING - STAY_NIGHTS));
+    }
+
+    private long stayStart(int room, long stay) {
+        return firstDay + stay * STAY_SPACING + room % STAY_SPACING;
+    }
+}
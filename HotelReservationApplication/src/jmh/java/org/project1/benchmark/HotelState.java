@@ -0,0 +1,29 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hotel shared by all threads of a benchmark, loaded once per trial.
+ */
+@State(Scope.Benchmark)
+public class HotelState {
+    @Param({"in-memory"})
+    public String implementation;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int rooms;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int reservations;
+
+    public HotelFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new HotelFixture(implementation, rooms, reservations);
+    }
+}
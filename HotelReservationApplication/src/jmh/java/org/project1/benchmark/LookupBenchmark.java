@@ -0,0 +1,73 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project1.index.PriceIndex;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of the reservation service on a single thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class LookupBenchmark {
+    private static final int CHEAPEST_ROOMS = 10;
+
+    @Benchmark
+    public Collection<IRoom> findRooms(HotelState hotel, ThreadCursor cursor) {
+        int sample = cursor.next();
+        return hotel.fixture.getService().findRooms(hotel.fixture.sampleCheckIn(sample),
+                hotel.fixture.sampleCheckOut(sample));
+    }
+
+    @Benchmark
+    public List<IRoom> findCheapestRooms(HotelState hotel, ThreadCursor cursor) {
+        int sample = cursor.next();
+        return hotel.fixture.getService().findCheapestRooms(hotel.fixture.sampleCheckIn(sample),
+                hotel.fixture.sampleCheckOut(sample), null, null, CHEAPEST_ROOMS);
+    }
+
+    /**
+     * Baseline of {@link #findCheapestRooms}: all free rooms are found, then sorted by price.
+     */
+    @Benchmark
+    public List<IRoom> findRoomsSortedByPrice(HotelState hotel, ThreadCursor cursor) {
+        int sample = cursor.next();
+        List<IRoom> rooms = new ArrayList<>(hotel.fixture.getService().findRooms(hotel.fixture.sampleCheckIn(sample),
+                hotel.fixture.sampleCheckOut(sample)));
+        rooms.sort(PriceIndex.BY_PRICE);
+        return rooms.subList(0, Math.min(CHEAPEST_ROOMS, rooms.size()));
+    }
+
+    @Benchmark
+    public IRoom getARoom(HotelState hotel, ThreadCursor cursor) throws Exception {
+        return hotel.fixture.getService().getARoom(hotel.fixture.sampleRoomNumber(cursor.next()));
+    }
+
+    @Benchmark
+    public Collection<Reservation> getCustomersReservation(HotelState hotel, ThreadCursor cursor) {
+        return hotel.fixture.getService().getCustomersReservation(hotel.fixture.sampleCustomer(cursor.next()));
+    }
+
+    @Benchmark
+    public Date findMinAvailableDay(HotelState hotel) {
+        return hotel.fixture.getService().findMinAvailableDay();
+    }
+}
@@ -0,0 +1,169 @@
+package org.project1.benchmark;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.project1.Main;
+import org.project1.service.ReservationService;
+import org.project1.util.DateUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the availability search over HTTP.
+ * <p>
+ * Starts the application in this JVM on a random port, without console and persistence, loads a
+ * {@link HotelFixture} into it and lets a number of client threads call {@code GET /api/rooms/available} with
+ * keep-alive connections as fast as they can. After a warmup it reports requests per second and latency
+ * percentiles. Options are {@code key=value} pairs, defaults shown:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec -Dbenchmark.main=org.project1.benchmark.SearchLoadTest \
+ *     -Djmh.args="rooms=1000 reservations=100000 threads=16 warmup=10 seconds=30"
+ * </pre>
+ * On Java 9 or later add {@code -Dbenchmark.jvmArgs="--add-exports java.naming/com.sun.jndi.ldap=ALL-UNNAMED"}
+ * for the LDAP auto-configuration.
+ */
+public class SearchLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> options = new HashMap<>();
+        options.put("rooms", 1000);
+        options.put("reservations", 100_000);
+        options.put("threads", 16);
+        options.put("warmup", 10);
+        options.put("seconds", 30);
+        for (String anArg : args) {
+            String[] option = anArg.split("=", 2);
+            if (option.length != 2 || !options.containsKey(option[0])) {
+                throw new IllegalArgumentException("Unknown option " + anArg + ", expected one of "
+                        + options.keySet());
+            }
+            options.put(option[0], Integer.parseInt(option[1]));
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .run("--hotel.console.enabled=false", "--hotel.persistence.enabled=false", "--server.port=0",
+                        "--logging.level.root=WARN");
+        try {
+            HotelFixture fixture = new HotelFixture(context.getBean(ReservationService.class),
+                    options.get("rooms"), options.get("reservations"));
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            System.out.printf("Loaded %d rooms and %d reservations, %d client threads%n", options.get("rooms"),
+                    options.get("reservations"), options.get("threads"));
+            run(fixture, baseUrl, options.get("threads"), options.get("warmup"), false);
+            run(fixture, baseUrl, options.get("threads"), options.get("seconds"), true);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(HotelFixture fixture, String baseUrl, int threadCount, int seconds, boolean report)
+            throws Exception {
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(threadCount);
+        connections.setDefaultMaxPerRoute(threadCount);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+        List<Client> clients = new ArrayList<>();
+        try (CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connections).build()) {
+            for (int i = 0; i < threadCount; i++) {
+                Client client = new Client(httpClient, fixture, baseUrl, i, deadline, errors);
+                clients.add(client);
+                client.start();
+            }
+            for (Client aClient : clients) {
+                aClient.join();
+            }
+        }
+        if (!report) {
+            return;
+        }
+
+        int count = 0;
+        for (Client aClient : clients) {
+            count += aClient.count;
+        }
+        long[] latencies = new long[count];
+        int position = 0;
+        for (Client aClient : clients) {
+            System.arraycopy(aClient.latencies, 0, latencies, position, aClient.count);
+            position += aClient.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("Requests: %d in %d s, errors: %d%n", count, seconds, errors.get());
+        System.out.printf("Throughput: %.1f requests/s%n", (double) count / seconds);
+        System.out.printf("Latency ms: p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), count == 0 ? 0.0 : latencies[count - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Client thread searching random stays until the deadline, recording the latency of every successful request.
+     */
+    private static class Client extends Thread {
+        private final CloseableHttpClient httpClient;
+        private final HotelFixture fixture;
+        private final String baseUrl;
+        private final long deadline;
+        private final AtomicLong errors;
+        private int sample;
+        private long[] latencies = new long[1 << 16];
+        private int count;
+
+        private Client(CloseableHttpClient httpClient, HotelFixture fixture, String baseUrl, int index,
+                       long deadline, AtomicLong errors) {
+            super("load-client-" + index);
+            this.httpClient = httpClient;
+            this.fixture = fixture;
+            this.baseUrl = baseUrl;
+            this.sample = index * 997;
+            this.deadline = deadline;
+            this.errors = errors;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                int current = sample++;
+                HttpGet request = new HttpGet(baseUrl + "/api/rooms/available?checkIn="
+                        + LocalDate.ofEpochDay(DateUtils.toEpochDay(fixture.sampleCheckIn(current)))
+                        + "&checkOut=" + LocalDate.ofEpochDay(DateUtils.toEpochDay(fixture.sampleCheckOut(current))));
+                long start = System.nanoTime();
+                try {
+                    HttpResponse response = httpClient.execute(request);
+                    EntityUtils.consume(response.getEntity());
+                    if (response.getStatusLine().getStatusCode() != 200) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                } catch (Exception ex) {
+                    errors.incrementAndGet();
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.project1.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-thread position in the samples of a {@link HotelFixture}. Threads start at random positions so they do not
+ * query the same sample in lockstep.
+ */
+@State(Scope.Thread)
+public class ThreadCursor {
+    private int next;
+
+    @Setup
+    public void setUp() {
+        next = ThreadLocalRandom.current().nextInt();
+    }
+
+    public int next() {
+        return next++;
+    }
+}
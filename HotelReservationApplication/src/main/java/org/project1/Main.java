@@ -2,6 +2,7 @@ package org.project1;
 
 import org.project1.function.ApplicationFunction;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
@@ -13,12 +14,18 @@ public class Main implements ApplicationRunner {
     @Autowired
     private ApplicationFunction applicationFunction;
 
+    // Set to false to serve only the HTTP API, e.g. when there is no terminal attached
+    @Value("${hotel.console.enabled:true}")
+    private boolean consoleEnabled;
+
     public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
     }
 
     @Override
     public void run(ApplicationArguments args) {
-        applicationFunction.open();
+        if (consoleEnabled) {
+            applicationFunction.open();
+        }
     }
 }
\ No newline at end of file
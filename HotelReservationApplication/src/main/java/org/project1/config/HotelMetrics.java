@@ -0,0 +1,36 @@
+package org.project1.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.project1.service.CustomerService;
+import org.project1.service.ReservationService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges of the size of the hotel: recorded rooms, reservations and customers. They are read from the services each
+ * time the metrics are scraped, so they are right whichever service implementation is active.
+ */
+@Component
+public class HotelMetrics implements MeterBinder {
+    private final ReservationService reservationService;
+    private final CustomerService customerService;
+
+    public HotelMetrics(ReservationService reservationService, CustomerService customerService) {
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("hotel.rooms", reservationService, ReservationService::getRoomCount)
+                .description("Number of recorded rooms")
+                .register(registry);
+        Gauge.builder("hotel.reservations", reservationService, ReservationService::getReservationCount)
+                .description("Number of recorded reservations")
+                .register(registry);
+        Gauge.builder("hotel.customers", customerService, CustomerService::getCustomerCount)
+                .description("Number of registered customers")
+                .register(registry);
+    }
+}
@@ -0,0 +1,33 @@
+package org.project1.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+
+/**
+ * Registering, searching and booking under {@code /api} and the actuator health check are open. Everything else,
+ * including reading the data of a customer and cancelling or moving a stay, needs HTTP basic authentication of the
+ * ADMIN user set with the {@code spring.security.user.*} properties, as customers have no accounts of their own. The
+ * API is stateless.
+ */
+@Configuration
+public class SecurityConfig extends WebSecurityConfigurerAdapter {
+    private static final String CUSTOMER = "/api/customers/*/**";
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http.csrf().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .authorizeRequests()
+                .antMatchers("/api/admin/**").hasRole("ADMIN")
+                .antMatchers(CUSTOMER).hasRole("ADMIN")
+                .antMatchers("/api/**").permitAll()
+                .antMatchers("/actuator/health").permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
+                .anyRequest().authenticated()
+                .and()
+                .httpBasic();
+    }
+}
@@ -0,0 +1,229 @@
+package org.project1.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.project1.model.Customer;
+import org.project1.model.CustomerImportReport;
+import org.project1.model.IRoom;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomImportReport;
+import org.project1.resource.AdminResource;
+import org.project1.service.HotelEventStream;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * HTTP endpoints of the admin UI, restricted to administrators.
+ * <p>
+ * Listings are returned a page at a time together with the cursor of the next page; a full export of the
+ * reservations is streamed as one JSON object per line instead of being built in memory first. New rooms, customers
+ * and bookings can be followed as server-sent events.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AdminResource adminResource;
+    private final ObjectWriter reservationWriter;
+
+    public AdminController(AdminResource adminResource, ObjectMapper objectMapper) {
+        this.adminResource = adminResource;
+        this.reservationWriter = objectMapper.writerFor(ReservationView.class);
+    }
+
+    @GetMapping("/rooms")
+    public Page<RoomView> getRooms(@RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "100") int limit) {
+        return adminResource.getRooms(cursor, checkLimit(limit)).map(RoomView::new);
+    }
+
+    @GetMapping("/customers")
+    public Page<Customer> getCustomers(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "100") int limit) {
+        return adminResource.getCustomers(cursor, checkLimit(limit));
+    }
+
+    /**
+     * Returns one page of the reservations, optionally only those of one room or customer or overlapping a date
+     * range.
+     *
+     * @param cursor cursor returned with the previous page, none for the first page
+     * @param limit  largest number of reservations on the page
+     * @param room   room number to restrict the listing to
+     * @param email  customer email to restrict the listing to
+     * @param from   first night the stays should overlap
+     * @param to     date the stays should start before
+     * @return page of reservations
+     */
+    @GetMapping("/reservations")
+    public Page<ReservationView> getReservations(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String room,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return adminResource.getReservations(toFilter(room, email, from, to), cursor, checkLimit(limit))
+                .map(ReservationView::new);
+    }
+
+    /**
+     * Reports occupancy, room revenue, average daily rate and RevPAR over a period.
+     *
+     * @param from first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
+     */
+    @GetMapping("/reports/occupancy")
+    public OccupancyReportView getOccupancyReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return new OccupancyReportView(adminResource.getOccupancyReport(HotelController.toDate(from),
+                HotelController.toDate(to)));
+    }
+
+    /**
+     * Streams every reservation matching the filter as newline-delimited JSON. Reservations are read a page at a
+     * time from a snapshot while the response is written, so the export never holds more than one page and still
+     * shows all of them as they were when it started.
+     *
+     * @param room  room number to restrict the export to
+     * @param email customer email to restrict the export to
+     * @param from  first night the stays should overlap
+     * @param to    date the stays should start before
+     * @return response writing the reservations
+     */
+    @GetMapping("/reservations/stream")
+    public ResponseEntity<StreamingResponseBody> streamReservations(
+            @RequestParam(required = false) String room,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        ReservationFilter filter = toFilter(room, email, from, to);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try (Stream<Reservation> reservations = adminResource.streamReservations(filter)) {
+                Iterator<Reservation> iterator = reservations.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(reservationWriter.writeValueAsString(new ReservationView(iterator.next())));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Streams the events of new rooms, customers and reservations, from now on, as server-sent events named after
+     * the event type. The stream stays open until the client disconnects; events the client falls too far behind on
+     * are replaced by an {@code EVENTS_SKIPPED} event counting them.
+     *
+     * @return emitter writing the events
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        // No timeout, the stream is meant to stay open
+        SseEmitter emitter = new SseEmitter(0L);
+        adminResource.subscribeToEvents(new EventStreamSubscriber(emitter), HotelEventStream.Overflow.SKIP);
+        return emitter;
+    }
+
+    /**
+     * Records the supplied rooms.
+     *
+     * @param rooms rooms to record
+     * @return numbers of the rooms which were already recorded and so were skipped
+     */
+    @PostMapping("/rooms")
+    public List<String> addRooms(@RequestBody List<RoomView> rooms) {
+        List<IRoom> newRooms = new ArrayList<>(rooms.size());
+        for (RoomView aRoom : rooms) {
+            newRooms.add(aRoom.toRoom());
+        }
+        List<String> skipped = new ArrayList<>();
+        for (IRoom aRoom : adminResource.addRoom(newRooms)) {
+            skipped.add(aRoom.getRoomNumber());
+        }
+        return skipped;
+    }
+
+    /**
+     * Imports the rooms listed in the request body, CSV or newline-delimited JSON, while it is being read.
+     *
+     * @param request request whose body lists the rooms
+     * @return summary of the imported, skipped and rejected rooms
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/rooms/import", consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public RoomImportReport importRooms(HttpServletRequest request) throws IOException {
+        try (Reader reader = bodyReader(request)) {
+            return adminResource.importRooms(reader);
+        }
+    }
+
+    /**
+     * Registers the customers listed in the request body, CSV or newline-delimited JSON, while it is being read.
+     *
+     * @param request request whose body lists the customers
+     * @return summary of the imported, skipped and rejected customers, with the import throughput
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/customers/import",
+            consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public CustomerImportReport importCustomers(HttpServletRequest request) throws IOException {
+        try (Reader reader = bodyReader(request)) {
+            return adminResource.importCustomers(reader);
+        }
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size should be at most " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static Reader bodyReader(HttpServletRequest request) throws IOException {
+        Charset charset = request.getCharacterEncoding() == null
+                ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        return new InputStreamReader(request.getInputStream(), charset);
+    }
+
+    private static ReservationFilter toFilter(String room, String email, LocalDate from, LocalDate to) {
+        ReservationFilter filter = new ReservationFilter();
+        filter.setRoomNumber(room);
+        filter.setEmail(email);
+        filter.setFrom(from == null ? null : HotelController.toDate(from));
+        filter.setTo(to == null ? null : HotelController.toDate(to));
+        return filter;
+    }
+}
@@ -0,0 +1,18 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Body of a booking request.
+ */
+@Getter
+@Setter
+public class BookingRequest {
+    private String email;
+    private String roomNumber;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+}
@@ -0,0 +1,15 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Body of a request creating a customer account.
+ */
+@Getter
+@Setter
+public class CustomerRequest {
+    private String email;
+    private String firstName;
+    private String lastName;
+}
@@ -0,0 +1,55 @@
+package org.project1.controller;
+
+import org.project1.model.HotelEvent;
+import org.project1.service.HotelEventStream;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * Subscriber forwarding hotel events to an HTTP client as server-sent events. The next event is only requested once
+ * the previous one was written, so a slow client is held back by the event buffer instead of the server queueing
+ * without bound. It is meant to be added with {@link HotelEventStream.Overflow#SKIP}: when a bulk import outruns the
+ * client, the client gets an {@code EVENTS_SKIPPED} event counting the events it missed and the stream goes on.
+ */
+class EventStreamSubscriber implements HotelEventStream.Subscriber {
+    private final SseEmitter emitter;
+    private HotelEventStream.Subscription subscription;
+
+    EventStreamSubscriber(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void onSubscribe(HotelEventStream.Subscription subscription) {
+        this.subscription = subscription;
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(HotelEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.getSequence()))
+                    .name(event.getType().name())
+                    .data(new HotelEventView(event), MediaType.APPLICATION_JSON));
+            subscription.request(1);
+        } catch (IOException | IllegalStateException ex) {
+            // The client went away
+            subscription.cancel();
+        }
+    }
+
+    @Override
+    public void onError(Throwable failure) {
+        emitter.completeWithError(failure);
+    }
+
+    @Override
+    public void onComplete() {
+        emitter.complete();
+    }
+}
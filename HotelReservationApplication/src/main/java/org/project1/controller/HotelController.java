@@ -0,0 +1,211 @@
+package org.project1.controller;
+
+import org.project1.model.AvailableWindow;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.RoomType;
+import org.project1.resource.HotelResource;
+import org.project1.util.DateUtils;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * HTTP endpoints of the customer UI: search, booking, cancellation and customer accounts. Every call goes straight to
+ * the thread-safe services through {@link HotelResource}, so requests are served concurrently.
+ */
+@RestController
+@RequestMapping("/api")
+public class HotelController {
+    private static final int MAX_WINDOWS = 50;
+    private static final int MAX_CHEAPEST_ROOMS = 100;
+
+    private final HotelResource hotelResource;
+
+    public HotelController(HotelResource hotelResource) {
+        this.hotelResource = hotelResource;
+    }
+
+    /**
+     * Finds rooms available for every night from check-in to check-out.
+     *
+     * @param checkIn  date of check-in, ISO format
+     * @param checkOut date of check-out, ISO format
+     * @return list of available rooms
+     */
+    @GetMapping("/rooms/available")
+    public List<RoomView> findRooms(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        return toRoomViews(hotelResource.findARoom(toDate(checkIn), toDate(checkOut)));
+    }
+
+    /**
+     * Finds the cheapest rooms available for every night from check-in to check-out.
+     *
+     * @param checkIn  date of check-in, ISO format
+     * @param checkOut date of check-out, ISO format
+     * @param roomType type of the rooms, any type if missing
+     * @param maxPrice highest accepted price, any price if missing
+     * @param count    largest number of rooms returned
+     * @return list of available rooms ordered by price and then by room number
+     */
+    @GetMapping("/rooms/cheapest")
+    public List<RoomView> findCheapestRooms(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(required = false) RoomType roomType,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "10") int count) {
+        if (count > MAX_CHEAPEST_ROOMS) {
+            throw new IllegalArgumentException("Number of rooms should be at most " + MAX_CHEAPEST_ROOMS);
+        }
+        return toRoomViews(hotelResource.findCheapestRooms(toDate(checkIn), toDate(checkOut), roomType, maxPrice,
+                count));
+    }
+
+    /**
+     * Finds the earliest check-in days, from the supplied date on, on which some room is free for the whole stay.
+     *
+     * @param from     earliest date of check-in, ISO format
+     * @param nights   number of nights of the stay
+     * @param roomType type of the rooms, any type if missing
+     * @param count    largest number of windows returned
+     * @return list of windows ordered by check-in, each with the rooms free for it
+     */
+    @GetMapping("/rooms/windows")
+    public List<WindowView> findWindows(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam int nights,
+                                        @RequestParam(required = false) RoomType roomType,
+                                        @RequestParam(defaultValue = "5") int count) {
+        if (count > MAX_WINDOWS) {
+            throw new IllegalArgumentException("Number of windows should be at most " + MAX_WINDOWS);
+        }
+        List<WindowView> views = new ArrayList<>();
+        for (AvailableWindow aWindow : hotelResource.findAvailableWindows(toDate(from), nights, roomType, count)) {
+            views.add(new WindowView(aWindow));
+        }
+        return views;
+    }
+
+    @GetMapping("/rooms/{roomNumber}")
+    public RoomView getRoom(@PathVariable String roomNumber) throws Exception {
+        return new RoomView(hotelResource.getRoom(roomNumber));
+    }
+
+    /**
+     * Books a room for a registered customer.
+     *
+     * @param request email of the customer, room number and dates of the stay
+     * @return reservation newly created
+     */
+    @PostMapping("/reservations")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ReservationView bookARoom(@RequestBody BookingRequest request) throws Exception {
+        if (request.getCheckIn() == null || request.getCheckOut() == null) {
+            throw new IllegalArgumentException("Check-in and check-out dates are required");
+        }
+        if (hotelResource.getCustomer(request.getEmail()) == null) {
+            throw new IllegalArgumentException("There is no customer with email " + request.getEmail());
+        }
+        IRoom room = hotelResource.getRoom(request.getRoomNumber());
+        return new ReservationView(hotelResource.bookARoom(request.getEmail(), room, toDate(request.getCheckIn()),
+                toDate(request.getCheckOut())));
+    }
+
+    @PostMapping("/customers")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Customer createACustomer(@RequestBody CustomerRequest request) {
+        if (request.getEmail() == null) {
+            throw new IllegalArgumentException("Email is invalid format!");
+        }
+        hotelResource.createACustomer(request.getEmail(), request.getFirstName(), request.getLastName());
+        return hotelResource.getCustomer(request.getEmail());
+    }
+
+    @GetMapping("/customers/{email:.+}")
+    public ResponseEntity<Customer> getCustomer(@PathVariable String email) {
+        Customer customer = hotelResource.getCustomer(email);
+        if (customer == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(customer);
+    }
+
+    @GetMapping("/customers/{email:.+}/reservations")
+    public List<ReservationView> getCustomersReservations(@PathVariable String email) {
+        return toReservationViews(hotelResource.getCustomersReservations(email));
+    }
+
+    /**
+     * Cancels the reservation of a customer in a room checking in on the supplied date.
+     *
+     * @param email      email of the customer
+     * @param roomNumber number of the reserved room
+     * @param checkIn    date of check-in of the reservation, ISO format
+     * @return reservation cancelled
+     */
+    @DeleteMapping("/customers/{email:.+}/reservations/{roomNumber}/{checkIn}")
+    public ReservationView cancelReservation(@PathVariable String email, @PathVariable String roomNumber,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn) throws Exception {
+        IRoom room = hotelResource.getRoom(roomNumber);
+        return new ReservationView(hotelResource.cancelReservation(email, room, toDate(checkIn)));
+    }
+
+    /**
+     * Moves the reservation of a customer in a room checking in on the supplied date to new dates.
+     *
+     * @param email      email of the customer
+     * @param roomNumber number of the reserved room
+     * @param checkIn    date of check-in of the reservation, ISO format
+     * @param request    new dates of the stay
+     * @return reservation with the new dates
+     */
+    @PutMapping("/customers/{email:.+}/reservations/{roomNumber}/{checkIn}")
+    public ReservationView changeReservation(@PathVariable String email, @PathVariable String roomNumber,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestBody StayChangeRequest request) throws Exception {
+        if (request.getCheckIn() == null || request.getCheckOut() == null) {
+            throw new IllegalArgumentException("Check-in and check-out dates are required");
+        }
+        IRoom room = hotelResource.getRoom(roomNumber);
+        return new ReservationView(hotelResource.changeReservation(email, room, toDate(checkIn),
+                toDate(request.getCheckIn()), toDate(request.getCheckOut())));
+    }
+
+    static Date toDate(LocalDate date) {
+        return DateUtils.fromEpochDay(date.toEpochDay());
+    }
+
+    static List<RoomView> toRoomViews(Collection<IRoom> rooms) {
+        List<RoomView> views = new ArrayList<>(rooms.size());
+        for (IRoom aRoom : rooms) {
+            views.add(new RoomView(aRoom));
+        }
+        return views;
+    }
+
+    static List<ReservationView> toReservationViews(Collection<Reservation> reservations) {
+        List<ReservationView> views = new ArrayList<>(reservations.size());
+        for (Reservation aReservation : reservations) {
+            views.add(new ReservationView(aReservation));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,34 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import org.project1.model.HotelEvent;
+
+import java.util.Date;
+
+/**
+ * JSON representation of an event of the hotel; only the parts the event type describes are filled in.
+ */
+@Getter
+public class HotelEventView {
+    private final long sequence;
+    private final HotelEvent.Type type;
+    private final Date time;
+    private final RoomView room;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final ReservationView reservation;
+    private final Long skippedEvents;
+
+    public HotelEventView(HotelEvent event) {
+        this.sequence = event.getSequence();
+        this.type = event.getType();
+        this.time = event.getTime();
+        this.room = event.getRoom() == null ? null : new RoomView(event.getRoom());
+        this.email = event.getCustomer() == null ? null : event.getCustomer().getEmail();
+        this.firstName = event.getCustomer() == null ? null : event.getCustomer().getFirstName();
+        this.lastName = event.getCustomer() == null ? null : event.getCustomer().getLastName();
+        this.reservation = event.getReservation() == null ? null : new ReservationView(event.getReservation());
+        this.skippedEvents = event.getType() == HotelEvent.Type.EVENTS_SKIPPED ? event.getSkippedEvents() : null;
+    }
+}
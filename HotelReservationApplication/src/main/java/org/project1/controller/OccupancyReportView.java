@@ -0,0 +1,35 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import org.project1.model.OccupancyReport;
+import org.project1.util.DateUtils;
+
+import java.time.LocalDate;
+
+/**
+ * JSON representation of an occupancy report, with plain calendar dates instead of timestamps.
+ */
+@Getter
+public class OccupancyReportView {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long nights;
+    private final long rooms;
+    private final long occupiedRoomNights;
+    private final double occupancy;
+    private final double revenue;
+    private final double averageDailyRate;
+    private final double revenuePerAvailableRoom;
+
+    public OccupancyReportView(OccupancyReport report) {
+        this.from = LocalDate.ofEpochDay(DateUtils.toEpochDay(report.getFrom()));
+        this.to = LocalDate.ofEpochDay(DateUtils.toEpochDay(report.getTo()));
+        this.nights = report.getNights();
+        this.rooms = report.getRooms();
+        this.occupiedRoomNights = report.getOccupiedRoomNights();
+        this.occupancy = report.getOccupancy();
+        this.revenue = report.getRevenue();
+        this.averageDailyRate = report.getAverageDailyRate();
+        this.revenuePerAvailableRoom = report.getRevenuePerAvailableRoom();
+    }
+}
@@ -0,0 +1,25 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+
+import java.time.LocalDate;
+
+/**
+ * JSON representation of a reservation, with plain calendar dates instead of timestamps.
+ */
+@Getter
+public class ReservationView {
+    private final String email;
+    private final RoomView room;
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+
+    public ReservationView(Reservation reservation) {
+        this.email = reservation.getCustomer() == null ? null : reservation.getCustomer().getEmail();
+        this.room = new RoomView(reservation.getRoom());
+        this.checkIn = LocalDate.ofEpochDay(DateUtils.toEpochDay(reservation.getCheckInDate()));
+        this.checkOut = LocalDate.ofEpochDay(DateUtils.toEpochDay(reservation.getCheckOutDate()));
+    }
+}
@@ -0,0 +1,46 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.project1.model.FreeRoom;
+import org.project1.model.IRoom;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+
+/**
+ * JSON representation of a room.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RoomView {
+    private String roomNumber;
+    private RoomType roomType;
+    private Double price;
+
+    public RoomView(IRoom room) {
+        this.roomNumber = room.getRoomNumber();
+        this.roomType = room.getRoomType();
+        this.price = room.getRoomPrice();
+    }
+
+    /**
+     * Builds the room object described by this view.
+     *
+     * @return iRoom with the number, type and price of this view
+     * @throws IllegalArgumentException if the number or type is missing
+     */
+    public IRoom toRoom() {
+        if (roomNumber == null || roomType == null) {
+            throw new IllegalArgumentException("A room needs a room number and a room type");
+        }
+        if (RoomType.FREE.equals(roomType)) {
+            return new FreeRoom(roomNumber, roomType);
+        }
+        if (price == null) {
+            throw new IllegalArgumentException("A room which is not free needs a price");
+        }
+        return new Room(roomNumber, price, roomType);
+    }
+}
@@ -0,0 +1,16 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Body of a request moving a reservation to new dates.
+ */
+@Getter
+@Setter
+public class StayChangeRequest {
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+}
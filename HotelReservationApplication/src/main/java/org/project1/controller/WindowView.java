@@ -0,0 +1,24 @@
+package org.project1.controller;
+
+import lombok.Getter;
+import org.project1.model.AvailableWindow;
+import org.project1.util.DateUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JSON representation of an available window: the dates of the stay and the rooms free for it.
+ */
+@Getter
+public class WindowView {
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+    private final List<RoomView> rooms;
+
+    public WindowView(AvailableWindow window) {
+        this.checkIn = LocalDate.ofEpochDay(DateUtils.toEpochDay(window.getCheckInDate()));
+        this.checkOut = LocalDate.ofEpochDay(DateUtils.toEpochDay(window.getCheckOutDate()));
+        this.rooms = HotelController.toRoomViews(window.getRooms());
+    }
+}
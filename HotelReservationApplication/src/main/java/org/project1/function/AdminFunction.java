@@ -34,6 +34,15 @@ public class AdminFunction {
                         adminService.addARoom();
                         break;
                     case 5:
+                        adminService.importRooms();
+                        break;
+                    case 6:
+                        adminService.importCustomers();
+                        break;
+                    case 7:
+                        adminService.showOccupancyReport();
+                        break;
+                    case 8:
                         System.out.println("Returning to the main menu");
                         keepRunning = false;
                         break;
@@ -32,12 +32,15 @@ public class ApplicationFunction {
                         menuService.showCustomersReservations();
                         break;
                     case 3:
-                        menuService.createNewAccount();
+                        menuService.cancelOrChangeReservation();
                         break;
                     case 4:
+                        menuService.createNewAccount();
+                        break;
+                    case 5:
                         goToAdminMenu();
                         break;
-                    case 5: {
+                    case 6: {
                         System.out.println("Exiting the app");
                         keepRunning = false;
                         scanner.close();
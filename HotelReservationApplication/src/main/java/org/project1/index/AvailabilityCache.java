@@ -0,0 +1,180 @@
+package org.project1.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.project1.model.IRoom;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of room search results keyed by the searched stay, as half-open epoch day ranges.
+ * <p>
+ * The cache holds at most a fixed number of room references over all results and evicts the least recently used
+ * results first. A booking only invalidates the cached stays sharing a night with it, so popular searches, such as
+ * upcoming weekends, stay cached while bookings for other dates keep coming. Searches that run while an overlapping
+ * booking is made are answered but not cached, so a result computed before the booking is never stored after it.
+ * <p>
+ * The cached stays are also kept sorted by check-in, so a booking finds those it overlaps without visiting the others:
+ * they check in before its check-out and no earlier than the longest cached stay before its check-in.
+ */
+public class AvailabilityCache {
+    /**
+     * Number of most recent invalidations remembered to decide whether a freshly computed result may be stored.
+     */
+    private static final int RECENT_INVALIDATIONS = 64;
+
+    private final Cache<Stay, List<IRoom>> results;
+    private final NavigableSet<Stay> cachedStays;
+    private final long[] recentFromDays;
+    private final long[] recentToDays;
+    private long invalidations;
+    private volatile long longestStay;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param maxRooms largest number of room references held over all cached results
+     */
+    public AvailabilityCache(long maxRooms) {
+        this.cachedStays = new ConcurrentSkipListSet<>();
+        this.results = CacheBuilder.newBuilder()
+                .maximumWeight(maxRooms)
+                .weigher((Stay stay, List<IRoom> rooms) -> rooms.size() + 1)
+                .<Stay, List<IRoom>>removalListener(removal -> unindex(removal.getKey()))
+                .build();
+        this.recentFromDays = new long[RECENT_INVALIDATIONS];
+        this.recentToDays = new long[RECENT_INVALIDATIONS];
+    }
+
+    /**
+     * Returns the cached rooms free for the supplied stay, computing and caching them on a miss.
+     *
+     * @param fromDay epoch day of check-in
+     * @param toDay   epoch day of check-out
+     * @param search  computes the free rooms
+     * @return unmodifiable list of the free rooms
+     */
+    public List<IRoom> get(long fromDay, long toDay, Supplier<List<IRoom>> search) {
+        Stay stay = new Stay(fromDay, toDay);
+        List<IRoom> cached = results.getIfPresent(stay);
+        if (cached != null) {
+            return cached;
+        }
+        long invalidationsBefore = invalidationCount();
+        List<IRoom> rooms = Collections.unmodifiableList(search.get());
+        synchronized (this) {
+            if (!invalidatedSince(invalidationsBefore, fromDay, toDay)) {
+                longestStay = Math.max(longestStay, toDay - fromDay);
+                cachedStays.add(stay);
+                results.put(stay, rooms);
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Drops the cached results of the stays sharing at least one night with the supplied stay.
+     *
+     * @param fromDay epoch day of check-in of the booked stay
+     * @param toDay   epoch day of check-out of the booked stay
+     */
+    public void invalidate(long fromDay, long toDay) {
+        remember(fromDay, toDay);
+        Stay earliest = new Stay(fromDay - longestStay + 1, Long.MIN_VALUE);
+        for (Stay aStay : cachedStays.subSet(earliest, new Stay(toDay, Long.MIN_VALUE))) {
+            if (aStay.toDay > fromDay) {
+                results.invalidate(aStay);
+            }
+        }
+    }
+
+    /**
+     * Drops all cached results, for changes affecting every stay such as a new room.
+     */
+    public void invalidateAll() {
+        remember(Long.MIN_VALUE, Long.MAX_VALUE);
+        results.invalidateAll();
+    }
+
+    public long size() {
+        return results.size();
+    }
+
+    /**
+     * Takes a stay whose result was removed out of the index, unless the result was replaced or cached again, as a
+     * removal may be reported after that.
+     */
+    private synchronized void unindex(Stay stay) {
+        if (!results.asMap().containsKey(stay)) {
+            cachedStays.remove(stay);
+        }
+    }
+
+    private synchronized void remember(long fromDay, long toDay) {
+        int slot = (int) (invalidations % RECENT_INVALIDATIONS);
+        recentFromDays[slot] = fromDay;
+        recentToDays[slot] = toDay;
+        invalidations++;
+    }
+
+    private synchronized long invalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Checks if an invalidation overlapping the supplied stay happened after the supplied count. If too many
+     * happened to still be remembered, it assumes one did.
+     */
+    private boolean invalidatedSince(long invalidationsBefore, long fromDay, long toDay) {
+        if (invalidations - invalidationsBefore > RECENT_INVALIDATIONS) {
+            return true;
+        }
+        for (long i = invalidationsBefore; i < invalidations; i++) {
+            int slot = (int) (i % RECENT_INVALIDATIONS);
+            if (recentFromDays[slot] < toDay && recentToDays[slot] > fromDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Key of a cached result: the searched nights, ordered by check-in then check-out.
+     */
+    private static final class Stay implements Comparable<Stay> {
+        private final long fromDay;
+        private final long toDay;
+
+        private Stay(long fromDay, long toDay) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        public int compareTo(Stay other) {
+            int byFromDay = Long.compare(fromDay, other.fromDay);
+            return byFromDay != 0 ? byFromDay : Long.compare(toDay, other.toDay);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Stay)) {
+                return false;
+            }
+            Stay stay = (Stay) o;
+            return fromDay == stay.fromDay && toDay == stay.toDay;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fromDay) * 31 + Long.hashCode(toDay);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.project1.index;
+
+import org.project1.model.Customer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Secondary index from customer email to the stays of that customer, ordered by check-in day.
+ * <p>
+ * Each customer gets a compact id, which the room schedules store instead of a reference to the customer. A stay is
+ * indexed as one long, its check-in epoch day in the high half and the ordinal of its room in the low half, kept in a
+ * sorted array per customer. Updates and lookups only touch the entry of one customer.
+ * <p>
+ * Once stays are archived, their keys are read from the {@link StayArchive} and dropped from the heap entries.
+ */
+public class CustomerReservationIndex {
+    private static final long[] NO_KEYS = new long[0];
+
+    private final ConcurrentMap<String, Entry> entriesByEmail;
+    private volatile Entry[] entriesById;
+    private volatile StayArchive archive;
+    private int entryCount;
+
+    public CustomerReservationIndex() {
+        this.entriesByEmail = new ConcurrentHashMap<>();
+        this.entriesById = new Entry[16];
+    }
+
+    /**
+     * Builds the key of a stay.
+     *
+     * @param roomOrdinal ordinal of the room of the stay
+     * @param checkInDay  epoch day of check-in
+     * @return key ordered by check-in day, then room ordinal
+     */
+    public static long key(int roomOrdinal, long checkInDay) {
+        return checkInDay << 32 | (roomOrdinal & 0xffffffffL);
+    }
+
+    public static long checkInDay(long key) {
+        return key >> 32;
+    }
+
+    public static int roomOrdinal(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Returns the id of the supplied customer, assigning one on first use. Customers are told apart by email.
+     *
+     * @param customer customer to look up
+     * @return id of the customer, -1 if customer is null
+     */
+    public int idOf(Customer customer) {
+        if (customer == null) {
+            return -1;
+        }
+        Entry entry = entriesByEmail.get(customer.getEmail());
+        if (entry != null) {
+            return entry.id;
+        }
+        synchronized (this) {
+            entry = entriesByEmail.get(customer.getEmail());
+            if (entry == null) {
+                Entry[] entries = entriesById;
+                if (entryCount == entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+                entry = new Entry(entryCount, customer);
+                entries[entryCount++] = entry;
+                // Published before the id can be handed out
+                entriesById = entries;
+                entriesByEmail.put(customer.getEmail(), entry);
+            }
+            return entry.id;
+        }
+    }
+
+    /**
+     * Returns the customer with the supplied id.
+     *
+     * @param id id returned by {@link #idOf(Customer)}
+     * @return customer or null if no customer has that id
+     */
+    public Customer customer(int id) {
+        Entry[] entries = entriesById;
+        if (id < 0 || id >= entries.length || entries[id] == null) {
+            return null;
+        }
+        return entries[id].customer;
+    }
+
+    /**
+     * Records a stay under the customer with the supplied id.
+     *
+     * @param customerId  id of the customer, negative for none
+     * @param roomOrdinal ordinal of the room of the stay
+     * @param checkInDay  epoch day of check-in
+     */
+    public void add(int customerId, int roomOrdinal, long checkInDay) {
+        if (customerId < 0) {
+            return;
+        }
+        entriesById[customerId].add(key(roomOrdinal, checkInDay));
+    }
+
+    /**
+     * Removes a stay from the stays of the customer with the supplied id. A key of an archived stay stays in the
+     * archive until the next one is written; looking it up finds no stay of that customer.
+     *
+     * @param customerId  id of the customer, negative for none
+     * @param roomOrdinal ordinal of the room of the stay
+     * @param checkInDay  epoch day of check-in
+     */
+    public void remove(int customerId, int roomOrdinal, long checkInDay) {
+        if (customerId < 0) {
+            return;
+        }
+        entriesById[customerId].remove(key(roomOrdinal, checkInDay));
+    }
+
+    /**
+     * Records the stays from the histories of the supplied schedules under their customers. The stays are appended
+     * first and every touched entry is sorted once, so a customer with many stays is indexed in O(n log n).
+     *
+     * @param schedules schedules whose history is indexed
+     */
+    public void addAll(Collection<RoomSchedule> schedules) {
+        Set<Entry> touched = new HashSet<>();
+        for (RoomSchedule aSchedule : schedules) {
+            StayHistory history = aSchedule.getHistory();
+            for (int i = 0; i < history.size(); i++) {
+                int customerId = idOf(history.customerAt(i));
+                if (customerId >= 0) {
+                    Entry entry = entriesById[customerId];
+                    entry.append(key(aSchedule.getOrdinal(), history.checkInDay(i)));
+                    touched.add(entry);
+                }
+            }
+        }
+        for (Entry anEntry : touched) {
+            anEntry.sort();
+        }
+    }
+
+    /**
+     * Reads the keys of archived stays from the supplied archive and drops them from the heap entries. Keys briefly
+     * present in both are returned once.
+     *
+     * @param newArchive archive holding all stays archived so far
+     */
+    public void setArchive(StayArchive newArchive) {
+        archive = newArchive;
+        for (Entry anEntry : entriesByEmail.values()) {
+            anEntry.removeAll(newArchive.keys(anEntry.id, Long.MIN_VALUE));
+        }
+    }
+
+    /**
+     * Returns the keys of the stays of the customer with the supplied email which check in on or after the supplied
+     * day.
+     *
+     * @param email   string with the customer's email
+     * @param fromDay epoch day of check-in to start with, {@link Long#MIN_VALUE} for all stays
+     * @return copy of the keys ordered by check-in day, then room ordinal, empty if there are none
+     */
+    public long[] getFrom(String email, long fromDay) {
+        Entry entry = email == null ? null : entriesByEmail.get(email);
+        if (entry == null) {
+            return NO_KEYS;
+        }
+        long fromKey = fromDay == Long.MIN_VALUE ? Long.MIN_VALUE : key(0, fromDay);
+        long[] booked = entry.keysFrom(fromKey);
+        StayArchive current = archive;
+        long[] archived = current == null ? NO_KEYS : current.keys(entry.id, fromKey);
+        return archived.length == 0 ? booked : union(booked, archived);
+    }
+
+    /**
+     * Merges two sorted arrays of keys, keeping keys found in both once.
+     */
+    private static long[] union(long[] first, long[] second) {
+        long[] keys = new long[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            long next;
+            if (j == second.length || (i < first.length && first[i] <= second[j])) {
+                next = first[i++];
+            } else {
+                next = second[j++];
+            }
+            if (size == 0 || keys[size - 1] != next) {
+                keys[size++] = next;
+            }
+        }
+        return size == keys.length ? keys : Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Stays of one customer as a sorted array of keys, the first size entries are used.
+     */
+    private static final class Entry {
+        private final int id;
+        private final Customer customer;
+        private long[] keys;
+        private int size;
+
+        private Entry(int id, Customer customer) {
+            this.id = id;
+            this.customer = customer;
+            this.keys = NO_KEYS;
+        }
+
+        private synchronized void add(long key) {
+            int index = indexOf(key);
+            if (index < size && keys[index] == key) {
+                return;
+            }
+            append(key);
+            System.arraycopy(keys, index, keys, index + 1, size - 1 - index);
+            keys[index] = key;
+        }
+
+        private synchronized void remove(long key) {
+            int index = indexOf(key);
+            if (index < size && keys[index] == key) {
+                System.arraycopy(keys, index + 1, keys, index, size - 1 - index);
+                size--;
+            }
+        }
+
+        private synchronized void append(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(4, size + (size >> 1)));
+            }
+            keys[size++] = key;
+        }
+
+        private synchronized void sort() {
+            Arrays.sort(keys, 0, size);
+        }
+
+        /**
+         * Removes the supplied keys, given in ascending order.
+         */
+        private synchronized void removeAll(long[] removed) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < removed.length && removed[j] < keys[i]) {
+                    j++;
+                }
+                if (j == removed.length || removed[j] != keys[i]) {
+                    keys[kept++] = keys[i];
+                }
+            }
+            size = kept;
+            if (size == 0) {
+                keys = NO_KEYS;
+            } else if (size < keys.length / 2) {
+                keys = Arrays.copyOf(keys, size);
+            }
+        }
+
+        private synchronized long[] keysFrom(long fromKey) {
+            return Arrays.copyOfRange(keys, indexOf(fromKey), size);
+        }
+
+        /**
+         * Returns the number of keys smaller than the supplied key.
+         */
+        private int indexOf(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
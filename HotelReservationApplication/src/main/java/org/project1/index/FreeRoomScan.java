@@ -0,0 +1,99 @@
+package org.project1.index;
+
+import org.project1.model.IRoom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the rooms free for every night of a stay by checking the schedule of each room.
+ * <p>
+ * A large inventory is split in halves until each part holds at most {@value #CHUNK_ROOMS} schedules, and the parts
+ * are checked on the common fork-join pool. Checking a room only reads its schedule, so the parts need no
+ * coordination. Each part leaves its free rooms in its own slot and the slots are concatenated once at the end, in
+ * schedule order, the same order a sequential scan returns.
+ */
+public final class FreeRoomScan extends RecursiveAction {
+    private static final int CHUNK_ROOMS = 4096;
+
+    private final RoomSchedule[] schedules;
+    private final List<IRoom>[] chunks;
+    private final int fromChunk;
+    private final int toChunk;
+    private final long fromDay;
+    private final long toDay;
+
+    private FreeRoomScan(RoomSchedule[] schedules, List<IRoom>[] chunks, int fromChunk, int toChunk, long fromDay,
+            long toDay) {
+        this.schedules = schedules;
+        this.chunks = chunks;
+        this.fromChunk = fromChunk;
+        this.toChunk = toChunk;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+    }
+
+    /**
+     * Returns the rooms free for the supplied nights, checking the schedules one after another.
+     *
+     * @param schedules schedules of the rooms, null entries are skipped
+     * @param fromDay   epoch day of the first night
+     * @param toDay     epoch day after the last night
+     * @return list of the free rooms in schedule order
+     */
+    public static List<IRoom> sequential(RoomSchedule[] schedules, long fromDay, long toDay) {
+        return scan(schedules, 0, schedules.length, fromDay, toDay);
+    }
+
+    /**
+     * Returns the rooms free for the supplied nights, checking chunks of the schedules in parallel.
+     *
+     * @param schedules schedules of the rooms, null entries are skipped
+     * @param fromDay   epoch day of the first night
+     * @param toDay     epoch day after the last night
+     * @return list of the free rooms in schedule order
+     */
+    @SuppressWarnings("unchecked")
+    public static List<IRoom> parallel(RoomSchedule[] schedules, long fromDay, long toDay) {
+        if (schedules.length <= CHUNK_ROOMS) {
+            return sequential(schedules, fromDay, toDay);
+        }
+        List<IRoom>[] chunks = new List[(schedules.length + CHUNK_ROOMS - 1) / CHUNK_ROOMS];
+        ForkJoinPool.commonPool().invoke(new FreeRoomScan(schedules, chunks, 0, chunks.length, fromDay, toDay));
+        int count = 0;
+        for (List<IRoom> chunk : chunks) {
+            count += chunk.size();
+        }
+        List<IRoom> freeRooms = new ArrayList<>(count);
+        for (List<IRoom> chunk : chunks) {
+            freeRooms.addAll(chunk);
+        }
+        return freeRooms;
+    }
+
+    @Override
+    protected void compute() {
+        if (toChunk - fromChunk == 1) {
+            int from = fromChunk * CHUNK_ROOMS;
+            chunks[fromChunk] = scan(schedules, from, Math.min(from + CHUNK_ROOMS, schedules.length), fromDay, toDay);
+            return;
+        }
+        int middle = (fromChunk + toChunk) >>> 1;
+        invokeAll(new FreeRoomScan(schedules, chunks, fromChunk, middle, fromDay, toDay),
+                new FreeRoomScan(schedules, chunks, middle, toChunk, fromDay, toDay));
+    }
+
+    private static List<IRoom> scan(RoomSchedule[] schedules, int from, int to, long fromDay, long toDay) {
+        List<IRoom> freeRooms = new ArrayList<>();
+        // Nights inside the horizon are answered by the occupancy bitmaps, others by the interval index
+        for (int i = from; i < to; i++) {
+            RoomSchedule schedule = schedules[i];
+            if (schedule != null && schedule.isFree(fromDay, toDay)) {
+                freeRooms.add(schedule.getRoom());
+            }
+        }
+        return freeRooms;
+    }
+}
@@ -0,0 +1,57 @@
+package org.project1.index;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+
+import java.util.List;
+
+/**
+ * {@link StayHistory} over reservation objects already in memory, such as stays loaded from the database.
+ */
+public class ListStayHistory implements StayHistory {
+    private final List<Reservation> stays;
+    private final long[] checkInDays;
+    private final long[] checkOutDays;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param stays non-overlapping stays of one room ordered by check-in
+     */
+    public ListStayHistory(List<Reservation> stays) {
+        this.stays = stays;
+        this.checkInDays = new long[stays.size()];
+        this.checkOutDays = new long[stays.size()];
+        for (int i = 0; i < stays.size(); i++) {
+            checkInDays[i] = DateUtils.toEpochDay(stays.get(i).getCheckInDate());
+            checkOutDays[i] = DateUtils.toEpochDay(stays.get(i).getCheckOutDate());
+        }
+    }
+
+    @Override
+    public int size() {
+        return stays.size();
+    }
+
+    @Override
+    public long checkInDay(int index) {
+        return checkInDays[index];
+    }
+
+    @Override
+    public long checkOutDay(int index) {
+        return checkOutDays[index];
+    }
+
+    @Override
+    public Customer customerAt(int index) {
+        return stays.get(index).getCustomer();
+    }
+
+    @Override
+    public Reservation toReservation(int index, IRoom room) {
+        return stays.get(index);
+    }
+}
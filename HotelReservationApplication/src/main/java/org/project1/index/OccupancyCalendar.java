@@ -0,0 +1,195 @@
+package org.project1.index;
+
+import java.util.Arrays;
+
+/**
+ * One bit per night of a single room over a rolling horizon of nights.
+ * <p>
+ * Nights are identified by their epoch day. The calendar covers {@code [firstDay, firstDay + horizon)} and stores the
+ * bits in a ring of {@code long} words, so moving the horizon forward only clears the words of the nights that fall
+ * out of it. Checking a window of nights masks and tests whole words, which makes a 7 night lookup one or two word
+ * reads.
+ */
+public class OccupancyCalendar {
+    private final int horizon;
+    private final long[] words;
+    private long firstDay;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param firstDay epoch day of the first night covered
+     * @param horizon  number of nights covered, rounded up to a multiple of 64
+     */
+    public OccupancyCalendar(long firstDay, int horizon) {
+        this.horizon = (horizon + 63) & ~63;
+        this.words = new long[this.horizon >>> 6];
+        this.firstDay = firstDay;
+    }
+
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Returns the epoch day right after the last night covered.
+     *
+     * @return exclusive end of the horizon
+     */
+    public long getEndDay() {
+        return firstDay + horizon;
+    }
+
+    /**
+     * Checks if all nights of the supplied window are inside the horizon.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     * @return true if the window can be answered by this calendar
+     */
+    public boolean covers(long fromDay, long toDay) {
+        return fromDay >= firstDay && toDay <= getEndDay();
+    }
+
+    /**
+     * Checks if no night of the supplied window is occupied. The window must be {@link #covers(long, long) covered}.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     * @return true if every night of the window is free
+     */
+    public boolean isFree(long fromDay, long toDay) {
+        if (fromDay >= toDay) {
+            return true;
+        }
+        int from = position(fromDay);
+        int length = (int) (toDay - fromDay);
+        if (from + length <= horizon) {
+            return !anySet(from, from + length);
+        }
+        return !anySet(from, horizon) && !anySet(0, from + length - horizon);
+    }
+
+    /**
+     * Finds the first night, on or after the supplied day, which is occupied or free as requested. Whole words are
+     * skipped at a time, so a run of 64 nights costs one word read.
+     *
+     * @param fromDay  epoch day to search from
+     * @param occupied true to find an occupied night, false to find a free one
+     * @return epoch day of the night found, or the end of the horizon if there is none inside it
+     */
+    public long nextDay(long fromDay, boolean occupied) {
+        long day = Math.max(fromDay, firstDay);
+        long endDay = getEndDay();
+        while (day < endDay) {
+            int position = position(day);
+            long word = occupied ? words[position >>> 6] : ~words[position >>> 6];
+            word &= -1L << position;
+            if (word != 0) {
+                // Bits past the end of the horizon belong to its first nights, so clamp to the end
+                return Math.min(endDay, day + Long.numberOfTrailingZeros(word) - (position & 63));
+            }
+            day += 64 - (position & 63);
+        }
+        return endDay;
+    }
+
+    /**
+     * Marks the nights of the supplied window as occupied. Nights outside the horizon are ignored.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     */
+    public void occupy(long fromDay, long toDay) {
+        update(fromDay, toDay, true);
+    }
+
+    /**
+     * Marks the nights of the supplied window as free. Nights outside the horizon are ignored.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     */
+    public void release(long fromDay, long toDay) {
+        update(fromDay, toDay, false);
+    }
+
+    /**
+     * Moves the horizon forward so that it starts at the supplied day. Nights that fall out of the horizon are
+     * cleared; nights that come into it are free until occupied again.
+     *
+     * @param newFirstDay epoch day of the new first night
+     */
+    public void advanceTo(long newFirstDay) {
+        if (newFirstDay <= firstDay) {
+            return;
+        }
+        if (newFirstDay - firstDay >= horizon) {
+            Arrays.fill(words, 0L);
+        } else {
+            // Nights leaving the horizon share their positions with the nights coming in
+            update(firstDay, newFirstDay, false);
+        }
+        firstDay = newFirstDay;
+    }
+
+    private void update(long fromDay, long toDay, boolean occupied) {
+        long from = Math.max(fromDay, firstDay);
+        long to = Math.min(toDay, getEndDay());
+        if (from >= to) {
+            return;
+        }
+        int start = position(from);
+        int length = (int) (to - from);
+        if (start + length <= horizon) {
+            setRange(start, start + length, occupied);
+        } else {
+            setRange(start, horizon, occupied);
+            setRange(0, start + length - horizon, occupied);
+        }
+    }
+
+    private int position(long day) {
+        return (int) Math.floorMod(day, (long) horizon);
+    }
+
+    private boolean anySet(int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (firstWord == lastWord) {
+            return (words[firstWord] & firstMask & lastMask) != 0;
+        }
+        if ((words[firstWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            if (words[i] != 0) {
+                return true;
+            }
+        }
+        return (words[lastWord] & lastMask) != 0;
+    }
+
+    private void setRange(int from, int to, boolean occupied) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        for (int i = firstWord; i <= lastWord; i++) {
+            long mask = -1L;
+            if (i == firstWord) {
+                mask &= firstMask;
+            }
+            if (i == lastWord) {
+                mask &= lastMask;
+            }
+            if (occupied) {
+                words[i] |= mask;
+            } else {
+                words[i] &= ~mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.project1.index;
+
+import org.project1.model.IRoom;
+import org.project1.model.RoomType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Schedules of all rooms ordered by price, cheapest first, and by room number among rooms of the same price.
+ * <p>
+ * Prices and room types sit in primitive arrays next to the schedules, so a search for the cheapest free rooms walks
+ * the arrays from the start, compares plain doubles and bytes, and stops as soon as it has found enough free rooms or
+ * reached the price limit. The index is immutable; it is built again once rooms were added.
+ */
+public final class PriceIndex {
+    /**
+     * Orders rooms the way the index does, by price and then by room number.
+     */
+    public static final Comparator<IRoom> BY_PRICE = Comparator.comparingDouble(RoomCatalog::priceOf)
+            .thenComparing(IRoom::getRoomNumber);
+    private static final byte NO_TYPE = -1;
+
+    private final double[] prices;
+    private final byte[] types;
+    private final RoomSchedule[] schedules;
+
+    private PriceIndex(double[] prices, byte[] types, RoomSchedule[] schedules) {
+        this.prices = prices;
+        this.types = types;
+        this.schedules = schedules;
+    }
+
+    /**
+     * Builds the index of the supplied rooms.
+     *
+     * @param rooms      rooms to index, in any order
+     * @param scheduleOf function returning the schedule of a room, or null for a room which has none yet
+     * @return index of the rooms which have a schedule
+     */
+    public static PriceIndex build(Collection<IRoom> rooms, Function<IRoom, RoomSchedule> scheduleOf) {
+        IRoom[] ordered = rooms.toArray(new IRoom[0]);
+        Arrays.sort(ordered, BY_PRICE);
+        double[] prices = new double[ordered.length];
+        byte[] types = new byte[ordered.length];
+        RoomSchedule[] schedules = new RoomSchedule[ordered.length];
+        int size = 0;
+        for (IRoom aRoom : ordered) {
+            RoomSchedule schedule = scheduleOf.apply(aRoom);
+            if (schedule != null) {
+                prices[size] = RoomCatalog.priceOf(aRoom);
+                types[size] = aRoom.getRoomType() == null ? NO_TYPE : (byte) aRoom.getRoomType().ordinal();
+                schedules[size++] = schedule;
+            }
+        }
+        return new PriceIndex(Arrays.copyOf(prices, size), Arrays.copyOf(types, size),
+                Arrays.copyOf(schedules, size));
+    }
+
+    /**
+     * Finds the cheapest rooms free for every night of a stay.
+     *
+     * @param fromDay  epoch day of the first night
+     * @param toDay    epoch day after the last night
+     * @param roomType type of the rooms, null for any type
+     * @param maxPrice highest accepted price
+     * @param count    largest number of rooms returned
+     * @return list of at most count free rooms, cheapest first
+     */
+    public List<IRoom> findCheapest(long fromDay, long toDay, RoomType roomType, double maxPrice, int count) {
+        int end = upperBound(maxPrice);
+        byte type = roomType == null ? NO_TYPE : (byte) roomType.ordinal();
+        List<IRoom> cheapestRooms = new ArrayList<>(Math.min(count, end));
+        for (int i = 0; i < end && cheapestRooms.size() < count; i++) {
+            if ((type == NO_TYPE || types[i] == type) && schedules[i].isFree(fromDay, toDay)) {
+                cheapestRooms.add(schedules[i].getRoom());
+            }
+        }
+        return cheapestRooms;
+    }
+
+    /**
+     * Returns the position of the first room priced above the supplied price.
+     */
+    private int upperBound(double maxPrice) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prices[middle] <= maxPrice) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,154 @@
+package org.project1.index;
+
+import org.project1.model.IRoom;
+import org.project1.model.RoomType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Catalog of all recorded rooms.
+ * <p>
+ * Rooms are keyed by room number, so looking a room up is a single hash probe. Secondary indexes by {@link RoomType}
+ * and by price let "all rooms of a type" and "rooms up to a price" return just the matching rooms without scanning
+ * the whole inventory. Room numbers are also kept sorted, so listings can be paged through in room number order.
+ */
+public class RoomCatalog {
+    private static final Comparator<IRoom> BY_NUMBER = Comparator.comparing(IRoom::getRoomNumber);
+
+    private final ConcurrentMap<String, IRoom> roomsByNumber;
+    private final Map<RoomType, Set<IRoom>> roomsByType;
+    private final ConcurrentNavigableMap<Double, Set<IRoom>> roomsByPrice;
+    private final NavigableSet<String> roomNumbers;
+
+    public RoomCatalog() {
+        this.roomsByNumber = new ConcurrentHashMap<>();
+        this.roomsByType = new EnumMap<>(RoomType.class);
+        for (RoomType roomType : RoomType.values()) {
+            roomsByType.put(roomType, ConcurrentHashMap.newKeySet());
+        }
+        this.roomsByPrice = new ConcurrentSkipListMap<>();
+        this.roomNumbers = new ConcurrentSkipListSet<>();
+    }
+
+    /**
+     * Records the supplied room if no room with the same number was recorded yet.
+     *
+     * @param room iRoom to record
+     * @return true if the room was recorded, false if its number is already taken
+     */
+    public boolean add(IRoom room) {
+        if (roomsByNumber.putIfAbsent(room.getRoomNumber(), room) != null) {
+            return false;
+        }
+        if (room.getRoomType() != null) {
+            roomsByType.get(room.getRoomType()).add(room);
+        }
+        roomsByPrice.computeIfAbsent(priceOf(room), price -> new ConcurrentSkipListSet<>(BY_NUMBER)).add(room);
+        roomNumbers.add(room.getRoomNumber());
+        return true;
+    }
+
+    /**
+     * Returns the room with the supplied number.
+     *
+     * @param roomNumber string with the room number
+     * @return iRoom with the supplied number or null if there is none
+     */
+    public IRoom get(String roomNumber) {
+        if (roomNumber == null) {
+            return null;
+        }
+        return roomsByNumber.get(roomNumber);
+    }
+
+    /**
+     * Returns all rooms of the supplied type.
+     *
+     * @param roomType type of the rooms
+     * @return unmodifiable view of the rooms of that type
+     */
+    public Collection<IRoom> getByType(RoomType roomType) {
+        return Collections.unmodifiableSet(roomsByType.get(roomType));
+    }
+
+    /**
+     * Returns all rooms whose price is at most the supplied price, cheapest first and then by room number.
+     *
+     * @param maxPrice highest accepted price
+     * @return list of matching rooms
+     */
+    public List<IRoom> getByMaxPrice(double maxPrice) {
+        List<IRoom> matchingRooms = new ArrayList<>();
+        for (Set<IRoom> samePriceRooms : roomsByPrice.headMap(maxPrice, true).values()) {
+            matchingRooms.addAll(samePriceRooms);
+        }
+        return matchingRooms;
+    }
+
+    /**
+     * Returns all recorded rooms.
+     *
+     * @return unmodifiable view of all rooms
+     */
+    public Collection<IRoom> getAll() {
+        return Collections.unmodifiableCollection(roomsByNumber.values());
+    }
+
+    /**
+     * Returns the rooms whose number sorts after the supplied number, in room number order.
+     *
+     * @param afterNumber string with the room number to start after, null to start with the first room
+     * @param limit       largest number of rooms returned
+     * @return list of at most limit rooms
+     */
+    public List<IRoom> getAfter(String afterNumber, int limit) {
+        List<IRoom> rooms = new ArrayList<>(Math.min(limit, 1024));
+        for (String aNumber : getNumbersFrom(afterNumber, false)) {
+            if (rooms.size() == limit) {
+                break;
+            }
+            rooms.add(roomsByNumber.get(aNumber));
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the room numbers sorting after, or from, the supplied number in ascending order.
+     *
+     * @param fromNumber string with the first room number, null for all numbers
+     * @param inclusive  true to include fromNumber itself
+     * @return unmodifiable live view of the room numbers
+     */
+    public NavigableSet<String> getNumbersFrom(String fromNumber, boolean inclusive) {
+        NavigableSet<String> numbers = fromNumber == null ? roomNumbers : roomNumbers.tailSet(fromNumber, inclusive);
+        return Collections.unmodifiableNavigableSet(numbers);
+    }
+
+    public int size() {
+        return roomsByNumber.size();
+    }
+
+    /**
+     * Returns the price the supplied room is ordered by, 0 for a room without a price.
+     *
+     * @param room iRoom whose price is returned
+     * @return price of the room
+     */
+    public static double priceOf(IRoom room) {
+        Double price = room.getRoomPrice();
+        return price == null ? 0.0 : price;
+    }
+}
@@ -0,0 +1,21 @@
+package org.project1.index;
+
+import org.project1.model.IRoom;
+
+/**
+ * Free gaps between the stays of one room, searched forward from a day.
+ */
+public interface RoomGaps {
+    IRoom getRoom();
+
+    /**
+     * Finds the earliest free gap, starting on or after the supplied day, long enough for a stay of the supplied
+     * number of nights.
+     *
+     * @param fromDay epoch day the stay may check in on at the earliest
+     * @param nights  number of nights of the stay
+     * @return the first and the last epoch day a stay can check in on within that gap, the last being
+     * {@link Long#MAX_VALUE} if no stay follows the gap
+     */
+    long[] nextFit(long fromDay, int nights);
+}
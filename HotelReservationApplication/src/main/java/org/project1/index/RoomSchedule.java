@@ -0,0 +1,911 @@
+package org.project1.index;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * Interval index of the stays booked for a single room.
+ * <p>
+ * Stays are treated as half-open intervals {@code [checkIn, checkOut)}: a guest checking out on a day does not block
+ * a guest checking in on the same day. They never overlap and are kept sorted by check-in, in a read-only
+ * {@link StayHistory} plus parallel arrays of the stays booked since; nights inside the horizon are also mirrored in
+ * an {@link OccupancyCalendar}. Each schedule has its own lock, and every change takes a version from the shared
+ * {@link VersionClock} so that open snapshots keep seeing the stays as they were.
+ */
+public class RoomSchedule implements RoomGaps {
+    /**
+     * Returned by {@link #cancel} and {@link #tryMove} when no stay of the customer checks in on the supplied day.
+     */
+    public static final long NO_STAY = Long.MIN_VALUE;
+    /**
+     * Returned by {@link #tryMove} when another stay overlaps the new nights.
+     */
+    public static final long CONFLICT = Long.MAX_VALUE;
+    private static final int[] NO_STAYS = new int[0];
+
+    private final IRoom room;
+    private final int ordinal;
+    private final IntFunction<Customer> customers;
+    private final OccupancyCalendar calendar;
+    private final StampedLock lock;
+    private final VersionClock clock;
+    private final long createdVersion;
+    private StayHistory history;
+    // Positions of the cancelled stays of the history, null if there are none
+    private BitSet cancelledHistory;
+    private int cancelledCount;
+    private volatile boolean calendarFilled;
+    // Stays held on the heap, sorted by check-in; the first stayCount entries are used
+    private int[] checkInDays;
+    private int[] checkOutDays;
+    private int[] customerIds;
+    private int stayCount;
+    // No stay has a night on or after this day
+    private long lastCheckOutDay;
+    // Version of the last change of the stays, and the stays as they were before it, newest first
+    private long version;
+    private Stays pastStays;
+
+    /**
+     * Constructor of a schedule which is only searched, never booked.
+     *
+     * @param room     iRoom whose stays are indexed
+     * @param firstDay epoch day of the first night of the calendar horizon
+     * @param horizon  number of nights mirrored in the calendar
+     * @param history  stays already recorded for the room
+     */
+    public RoomSchedule(IRoom room, long firstDay, int horizon, StayHistory history) {
+        this(room, 0, firstDay, horizon, history, customerId -> null, null);
+    }
+
+    /**
+     * Constructor of this class.
+     *
+     * @param room      iRoom whose stays are indexed
+     * @param ordinal   number identifying the room in compact references to its stays
+     * @param firstDay  epoch day of the first night of the calendar horizon
+     * @param horizon   number of nights mirrored in the calendar
+     * @param history   stays already recorded for the room
+     * @param customers returns the customer with the supplied id
+     * @param clock     version counter of the changes of the stays, null for a schedule which is never changed
+     */
+    public RoomSchedule(IRoom room, int ordinal, long firstDay, int horizon, StayHistory history,
+                        IntFunction<Customer> customers, VersionClock clock) {
+        this.room = room;
+        this.ordinal = ordinal;
+        this.customers = customers;
+        this.calendar = new OccupancyCalendar(firstDay, horizon);
+        this.history = history;
+        this.lock = new StampedLock();
+        this.calendarFilled = history.size() == 0;
+        this.checkInDays = NO_STAYS;
+        this.checkOutDays = NO_STAYS;
+        this.customerIds = NO_STAYS;
+        this.lastCheckOutDay = history.size() == 0 ? Long.MIN_VALUE : history.checkOutDay(history.size() - 1);
+        this.clock = clock;
+        this.createdVersion = clock == null ? 0L : clock.next();
+        this.version = createdVersion;
+    }
+
+    @Override
+    public IRoom getRoom() {
+        return room;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Returns the version at which the room was recorded; snapshots of earlier versions do not know it.
+     *
+     * @return version of the creation of this schedule
+     */
+    public long getCreatedVersion() {
+        return createdVersion;
+    }
+
+    public StayHistory getHistory() {
+        long stamp = lock.readLock();
+        try {
+            return history;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Records a stay for the supplied nights if no recorded stay overlaps them, together with its key in the customer
+     * index. The check and the insert are one atomic step with respect to other bookings of this room.
+     *
+     * @param fromDay       epoch day of check-in
+     * @param toDay         epoch day of check-out
+     * @param customerId    id of the customer of the stay, negative for none
+     * @param customerIndex index the stay is registered in
+     * @param whileLocked   called with the check-out day once the stay is recorded, before the lock is released
+     * @return true if the stay was recorded, false if it conflicts with a recorded stay
+     */
+    public boolean tryAdd(long fromDay, long toDay, int customerId, CustomerReservationIndex customerIndex,
+                          LongConsumer whileLocked) {
+        long stamp = lock.writeLock();
+        try {
+            fillCalendarLocked();
+            if (!isFreeLocked(fromDay, toDay)) {
+                return false;
+            }
+            changeLocked();
+            insertLocked(countBookedStartingBefore(fromDay), fromDay, toDay, customerId);
+            calendar.occupy(fromDay, toDay);
+            lastCheckOutDay = Math.max(lastCheckOutDay, toDay);
+            customerIndex.add(customerId, ordinal, fromDay);
+            whileLocked.accept(toDay);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the stay of the supplied customer checking in on the supplied day, together with its key in the
+     * customer index. The stay is found by binary search; a stay of the history is only marked as cancelled.
+     *
+     * @param checkInDay    epoch day of check-in of the stay
+     * @param customerId    id of the customer of the stay, negative for none
+     * @param customerIndex index the stay is registered in
+     * @param whileLocked   called with the check-out day once the stay is cancelled, before the lock is released
+     * @return epoch day of check-out of the cancelled stay, {@link #NO_STAY} if the customer has no stay checking in
+     * on that day
+     */
+    public long cancel(long checkInDay, int customerId, CustomerReservationIndex customerIndex,
+                       LongConsumer whileLocked) {
+        long stamp = lock.writeLock();
+        try {
+            fillCalendarLocked();
+            long checkOutDay = removeLocked(checkInDay, customerId);
+            if (checkOutDay != NO_STAY) {
+                customerIndex.remove(customerId, ordinal, checkInDay);
+                whileLocked.accept(checkOutDay);
+            }
+            return checkOutDay;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Moves the stay of the supplied customer checking in on the supplied day to new nights if no other stay overlaps
+     * them. Removing the stay, checking the new nights and inserting it again is one atomic step with respect to
+     * other bookings of this room; on a conflict the stay is left as it was.
+     *
+     * @param checkInDay    epoch day of check-in of the stay
+     * @param customerId    id of the customer of the stay, negative for none
+     * @param newFromDay    epoch day of the new check-in
+     * @param newToDay      epoch day of the new check-out
+     * @param customerIndex index the stay is registered in
+     * @param whileLocked   called with the former check-out day once the stay is moved, before the lock is released
+     * @return epoch day of the former check-out of the stay, {@link #NO_STAY} if the customer has no stay checking in
+     * on that day, {@link #CONFLICT} if another stay overlaps the new nights
+     */
+    public long tryMove(long checkInDay, int customerId, long newFromDay, long newToDay,
+                        CustomerReservationIndex customerIndex, LongConsumer whileLocked) {
+        long stamp = lock.writeLock();
+        try {
+            fillCalendarLocked();
+            int bookedIndex = bookedIndexOf(checkInDay, customerId);
+            int historyIndex = bookedIndex < 0 ? historyIndexOf(checkInDay, customerId) : -1;
+            if (bookedIndex < 0 && historyIndex < 0) {
+                return NO_STAY;
+            }
+            long checkOutDay = removeLocked(checkInDay, customerId);
+            if (!isFreeLocked(newFromDay, newToDay)) {
+                // Put the stay back where it was
+                if (bookedIndex >= 0) {
+                    insertLocked(bookedIndex, checkInDay, checkOutDay, customerId);
+                } else {
+                    cancelledHistory.clear(historyIndex);
+                    cancelledCount--;
+                }
+                calendar.occupy(checkInDay, checkOutDay);
+                return CONFLICT;
+            }
+            insertLocked(countBookedStartingBefore(newFromDay), newFromDay, newToDay, customerId);
+            calendar.occupy(newFromDay, newToDay);
+            lastCheckOutDay = Math.max(lastCheckOutDay, newToDay);
+            customerIndex.remove(customerId, ordinal, checkInDay);
+            customerIndex.add(customerId, ordinal, newFromDay);
+            whileLocked.accept(checkOutDay);
+            return checkOutDay;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks if no recorded stay overlaps the supplied nights.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     * @return true if the room is free for every night
+     */
+    public boolean isFree(long fromDay, long toDay) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L && calendarFilled && calendar.covers(fromDay, toDay)) {
+            boolean isFree = calendar.isFree(fromDay, toDay);
+            if (lock.validate(stamp)) {
+                return isFree;
+            }
+        }
+        if (!calendarFilled) {
+            stamp = lock.writeLock();
+            try {
+                fillCalendarLocked();
+                return isFreeLocked(fromDay, toDay);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return isFreeLocked(fromDay, toDay);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the earliest free gap long enough for the stay, never day by day. Inside the horizon it hops between
+     * runs of free and occupied nights in the calendar, beyond it from stay to stay in the interval index.
+     *
+     * @param fromDay epoch day the stay may check in on at the earliest
+     * @param nights  number of nights of the stay
+     * @return the first and the last epoch day a stay can check in on within that gap
+     */
+    @Override
+    public long[] nextFit(long fromDay, int nights) {
+        if (!calendarFilled) {
+            long stamp = lock.writeLock();
+            try {
+                fillCalendarLocked();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            long day = fromDay;
+            while (calendar.covers(day, day + 1)) {
+                long freeDay = calendar.nextDay(day, false);
+                long occupiedDay = calendar.nextDay(freeDay, true);
+                if (occupiedDay == calendar.getEndDay()) {
+                    // The gap may go on past the horizon
+                    day = freeDay;
+                    break;
+                }
+                if (occupiedDay - freeDay >= nights) {
+                    return new long[]{freeDay, occupiedDay - nights};
+                }
+                day = occupiedDay;
+            }
+            while (day < lastCheckOutDay) {
+                long[] stay = firstStayEndingAfterLocked(day);
+                if (stay == null) {
+                    return new long[]{day, Long.MAX_VALUE};
+                }
+                if (stay[0] >= day + nights) {
+                    return new long[]{day, stay[0] - nights};
+                }
+                day = stay[1];
+            }
+            return new long[]{day, Long.MAX_VALUE};
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the stays overlapping the supplied dates which check in after the supplied day, at most limit of them.
+     * Only the returned stays are looked at, so paging through the stays of a room costs O(log n + page size).
+     *
+     * @param checkIn  date object of check-in, null for no lower bound
+     * @param checkOut date object of check-out, null for no upper bound
+     * @param afterDay epoch day the stays must check in after, {@link Long#MIN_VALUE} for no bound
+     * @param limit    largest number of stays returned
+     * @return list of reservations ordered by check-in
+     */
+    public List<Reservation> stays(Date checkIn, Date checkOut, long afterDay, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return collectStays(currentStays(), checkIn, checkOut, afterDay, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the stays as they were at the supplied version, like {@link #stays(Date, Date, long, int)}.
+     *
+     * @param atVersion version of an open snapshot, not before the creation of this schedule
+     * @param checkIn   date object of check-in, null for no lower bound
+     * @param checkOut  date object of check-out, null for no upper bound
+     * @param afterDay  epoch day the stays must check in after, {@link Long#MIN_VALUE} for no bound
+     * @param limit     largest number of stays returned
+     * @return list of reservations ordered by check-in
+     * @throws IllegalStateException if the stays of that version were not kept, as no snapshot reads them
+     */
+    public List<Reservation> stays(long atVersion, Date checkIn, Date checkOut, long afterDay, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return collectStays(staysAt(atVersion), checkIn, checkOut, afterDay, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of stays as they were at the supplied version.
+     *
+     * @param atVersion version of an open snapshot, not before the creation of this schedule
+     * @return number of stays
+     * @throws IllegalStateException if the stays of that version were not kept, as no snapshot reads them
+     */
+    public int size(long atVersion) {
+        long stamp = lock.readLock();
+        try {
+            return staysAt(atVersion).size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the stay of this room checking in on the supplied day.
+     *
+     * @param checkInDay epoch day of check-in
+     * @return reservation of the stay or null if no stay checks in on that day
+     */
+    public Reservation stayCheckingInOn(long checkInDay) {
+        long stamp = lock.readLock();
+        try {
+            int bookedIndex = countBookedStartingBefore(checkInDay);
+            if (bookedIndex < stayCount && checkInDays[bookedIndex] == checkInDay) {
+                return bookedReservation(bookedIndex);
+            }
+            int historyIndex = countStartingBefore(checkInDay);
+            if (historyIndex < history.size() && history.checkInDay(historyIndex) == checkInDay
+                    && !isCancelledLocked(historyIndex)) {
+                return history.toReservation(historyIndex, room);
+            }
+            return null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the earliest check-out day of the stays of this room. Stays never overlap, so it is the check-out of
+     * the first stay.
+     *
+     * @return epoch day of the earliest check-out or {@link Long#MAX_VALUE} if there are no stays
+     */
+    public long firstCheckOutDay() {
+        long stamp = lock.readLock();
+        try {
+            int firstIndex = cancelledHistory == null ? 0 : cancelledHistory.nextClearBit(0);
+            long firstDay = firstIndex >= history.size() ? Long.MAX_VALUE : history.checkOutDay(firstIndex);
+            return stayCount == 0 ? firstDay : Math.min(firstDay, checkOutDays[0]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of stays recorded for this room.
+     *
+     * @return number of stays
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return history.size() - cancelledCount + stayCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns all stays of this room, including those from its history.
+     *
+     * @return list of reservations ordered by check-in
+     */
+    public List<Reservation> stays() {
+        return stays(null, null, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the stays checking out on or before the supplied day to the archive being written and makes its slice
+     * the history of this room. All other stays, including those of the old history, stay in the booked arrays; the
+     * ones coming from the old history are added to the customer index.
+     *
+     * @param cutoffDay     epoch day on or before which archived stays check out
+     * @param writer        writer of the new archive
+     * @param customerIndex index the customers of the stays are registered in
+     */
+    public void archive(long cutoffDay, StayArchive.Writer writer, CustomerReservationIndex customerIndex) {
+        long stamp = lock.writeLock();
+        try {
+            int total = history.size() + stayCount;
+            int[] activeCheckIns = new int[total];
+            int[] activeCheckOuts = new int[total];
+            int[] activeCustomers = new int[total];
+            int active = 0;
+            int historyIndex = 0;
+            int bookedIndex = 0;
+            writer.beginRoom();
+            while (historyIndex < history.size() || bookedIndex < stayCount) {
+                boolean fromHistory = bookedIndex == stayCount || (historyIndex < history.size()
+                        && history.checkInDay(historyIndex) < checkInDays[bookedIndex]);
+                long checkInDay;
+                long checkOutDay;
+                int customerId;
+                if (fromHistory && isCancelledLocked(historyIndex)) {
+                    historyIndex++;
+                    continue;
+                }
+                if (fromHistory) {
+                    checkInDay = history.checkInDay(historyIndex);
+                    checkOutDay = history.checkOutDay(historyIndex);
+                    customerId = history instanceof StayArchive.RoomStays
+                            ? ((StayArchive.RoomStays) history).customerId(historyIndex)
+                            : customerIndex.idOf(history.customerAt(historyIndex));
+                    historyIndex++;
+                } else {
+                    checkInDay = checkInDays[bookedIndex];
+                    checkOutDay = checkOutDays[bookedIndex];
+                    customerId = customerIds[bookedIndex];
+                    bookedIndex++;
+                }
+                if (checkOutDay <= cutoffDay) {
+                    writer.write(customerId, checkInDay, checkOutDay);
+                } else {
+                    if (fromHistory) {
+                        customerIndex.add(customerId, ordinal, checkInDay);
+                    }
+                    activeCheckIns[active] = (int) checkInDay;
+                    activeCheckOuts[active] = (int) checkOutDay;
+                    activeCustomers[active] = customerId;
+                    active++;
+                }
+            }
+            history = writer.endRoom(ordinal, customers);
+            cancelledHistory = null;
+            cancelledCount = 0;
+            checkInDays = active == 0 ? NO_STAYS : Arrays.copyOf(activeCheckIns, active);
+            checkOutDays = active == 0 ? NO_STAYS : Arrays.copyOf(activeCheckOuts, active);
+            customerIds = active == 0 ? NO_STAYS : Arrays.copyOf(activeCustomers, active);
+            stayCount = active;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Writes the history again without its cancelled stays, as a slice of the archive being written. Does nothing if
+     * no stay of the history was cancelled.
+     *
+     * @param writer        writer of the slices of the compacted histories
+     * @param customerIndex index the customers of the stays are registered in
+     * @return number of cancelled stays dropped
+     */
+    public int compact(StayArchive.Writer writer, CustomerReservationIndex customerIndex) {
+        long stamp = lock.writeLock();
+        try {
+            if (cancelledCount == 0) {
+                return 0;
+            }
+            writer.beginRoom();
+            for (int i = 0; i < history.size(); i++) {
+                if (!cancelledHistory.get(i)) {
+                    int customerId = history instanceof StayArchive.RoomStays
+                            ? ((StayArchive.RoomStays) history).customerId(i)
+                            : customerIndex.idOf(history.customerAt(i));
+                    writer.write(customerId, history.checkInDay(i), history.checkOutDay(i));
+                }
+            }
+            history = writer.endRoom(ordinal, customers);
+            int dropped = cancelledCount;
+            cancelledHistory = null;
+            cancelledCount = 0;
+            return dropped;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of stays of the history which were cancelled since it was last written.
+     *
+     * @return number of tombstones
+     */
+    public int getCancelledCount() {
+        long stamp = lock.readLock();
+        try {
+            return cancelledCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Moves the calendar horizon forward and fills the nights coming into it from the interval index.
+     *
+     * @param newFirstDay epoch day of the new first night of the horizon
+     */
+    public void advanceCalendarTo(long newFirstDay) {
+        long stamp = lock.writeLock();
+        try {
+            long oldEndDay = calendar.getEndDay();
+            calendar.advanceTo(newFirstDay);
+            if (calendarFilled) {
+                occupyCalendar(Math.max(oldEndDay, calendar.getFirstDay()), calendar.getEndDay());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes the version of a change of the stays about to be made. The stays as they are now are kept if an open
+     * snapshot may read them, and the stays kept for snapshots closed since are dropped.
+     */
+    private void changeLocked() {
+        if (clock == null) {
+            return;
+        }
+        long changeVersion = clock.next();
+        Stays newest = null;
+        if (clock.isRead(version, changeVersion)) {
+            // The history is never written in place, the tombstones and the heap arrays are
+            newest = new Stays(version, changeVersion, history,
+                    cancelledHistory == null ? null : (BitSet) cancelledHistory.clone(), cancelledCount,
+                    Arrays.copyOf(checkInDays, stayCount), Arrays.copyOf(checkOutDays, stayCount),
+                    Arrays.copyOf(customerIds, stayCount), stayCount);
+        }
+        Stays oldest = newest;
+        for (Stays past = pastStays; past != null; past = past.older) {
+            if (clock.isRead(past.fromVersion, past.toVersion)) {
+                if (oldest == null) {
+                    newest = past;
+                } else {
+                    oldest.older = past;
+                }
+                oldest = past;
+            }
+        }
+        if (oldest != null) {
+            oldest.older = null;
+        }
+        pastStays = newest;
+        version = changeVersion;
+    }
+
+    /**
+     * Returns the current stays, sharing the arrays of this schedule, so only to be read under the lock.
+     */
+    private Stays currentStays() {
+        return new Stays(version, Long.MAX_VALUE, history, cancelledHistory, cancelledCount, checkInDays,
+                checkOutDays, customerIds, stayCount);
+    }
+
+    private Stays staysAt(long atVersion) {
+        if (atVersion >= version) {
+            return currentStays();
+        }
+        for (Stays past = pastStays; past != null; past = past.older) {
+            if (past.fromVersion <= atVersion) {
+                if (atVersion < past.toVersion) {
+                    return past;
+                }
+                break;
+            }
+        }
+        throw new IllegalStateException("Stays of room " + room.getRoomNumber() + " at version " + atVersion
+                + " were not kept");
+    }
+
+    /**
+     * Finds the stays overlapping the supplied dates which check in after the supplied day, at most limit of them.
+     */
+    private List<Reservation> collectStays(Stays stays, Date checkIn, Date checkOut, long afterDay, int limit) {
+        long fromDay = checkIn == null ? Long.MIN_VALUE : DateUtils.toEpochDay(checkIn);
+        long toDay = checkOut == null ? Long.MAX_VALUE : DateUtils.toEpochDay(checkOut);
+        StayHistory pastHistory = stays.history;
+        List<Reservation> found = new ArrayList<>();
+        // The first stay which can overlap the dates is the last one checking in on or before the first night
+        int historyIndex = 0;
+        int bookedIndex = 0;
+        if (fromDay != Long.MIN_VALUE) {
+            historyIndex = Math.max(0, countStartingBefore(pastHistory, fromDay + 1) - 1);
+            bookedIndex = Math.max(0, countStartingBefore(stays.checkInDays, stays.stayCount, fromDay + 1) - 1);
+        }
+        if (afterDay != Long.MIN_VALUE) {
+            historyIndex = Math.max(historyIndex, countStartingBefore(pastHistory, afterDay + 1));
+            bookedIndex = Math.max(bookedIndex, countStartingBefore(stays.checkInDays, stays.stayCount,
+                    afterDay + 1));
+        }
+
+        // Both sources are sorted by check-in and never overlap each other, so merging them keeps the order
+        while (found.size() < limit) {
+            while (historyIndex < pastHistory.size()
+                    && (pastHistory.checkOutDay(historyIndex) <= fromDay || stays.isCancelled(historyIndex))) {
+                historyIndex++;
+            }
+            while (bookedIndex < stays.stayCount && stays.checkOutDays[bookedIndex] <= fromDay) {
+                bookedIndex++;
+            }
+            boolean historyLeft = historyIndex < pastHistory.size() && pastHistory.checkInDay(historyIndex) < toDay;
+            boolean bookedLeft = bookedIndex < stays.stayCount && stays.checkInDays[bookedIndex] < toDay;
+            if (historyLeft && (!bookedLeft
+                    || pastHistory.checkInDay(historyIndex) < stays.checkInDays[bookedIndex])) {
+                found.add(pastHistory.toReservation(historyIndex++, room));
+            } else if (bookedLeft) {
+                found.add(toReservation(stays.checkInDays[bookedIndex], stays.checkOutDays[bookedIndex],
+                        stays.customerIds[bookedIndex]));
+                bookedIndex++;
+            } else {
+                break;
+            }
+        }
+        return found;
+    }
+
+    private void fillCalendarLocked() {
+        if (!calendarFilled) {
+            occupyCalendar(calendar.getFirstDay(), calendar.getEndDay());
+            calendarFilled = true;
+        }
+    }
+
+    /**
+     * Copies the nights of the stays overlapping the supplied window into the calendar.
+     */
+    private void occupyCalendar(long fromDay, long toDay) {
+        if (fromDay >= toDay) {
+            return;
+        }
+        for (int i = Math.max(0, countStartingBefore(fromDay + 1) - 1);
+             i < history.size() && history.checkInDay(i) < toDay; i++) {
+            if (!isCancelledLocked(i)) {
+                calendar.occupy(history.checkInDay(i), history.checkOutDay(i));
+            }
+        }
+        for (int i = Math.max(0, countBookedStartingBefore(fromDay + 1) - 1);
+             i < stayCount && checkInDays[i] < toDay; i++) {
+            calendar.occupy(checkInDays[i], checkOutDays[i]);
+        }
+    }
+
+    private boolean isFreeLocked(long fromDay, long toDay) {
+        if (calendar.covers(fromDay, toDay)) {
+            return calendar.isFree(fromDay, toDay);
+        }
+        int lastHistoryBefore = countStartingBefore(toDay) - 1;
+        while (lastHistoryBefore >= 0 && isCancelledLocked(lastHistoryBefore)) {
+            lastHistoryBefore--;
+        }
+        if (lastHistoryBefore >= 0 && history.checkOutDay(lastHistoryBefore) > fromDay) {
+            return false;
+        }
+        int lastBookedBefore = countBookedStartingBefore(toDay) - 1;
+        return lastBookedBefore < 0 || checkOutDays[lastBookedBefore] <= fromDay;
+    }
+
+    /**
+     * Returns the check-in and check-out day of the earliest stay which still has a night on or after the supplied
+     * day, or null if there is none. Stays never overlap, so it is either the stay covering the day or the first one
+     * checking in after it.
+     */
+    private long[] firstStayEndingAfterLocked(long day) {
+        long[] first = null;
+        int historyIndex = countStartingBefore(day + 1) - 1;
+        if (historyIndex < 0 || history.checkOutDay(historyIndex) <= day) {
+            historyIndex++;
+        }
+        while (historyIndex < history.size() && isCancelledLocked(historyIndex)) {
+            historyIndex++;
+        }
+        if (historyIndex < history.size()) {
+            first = new long[]{history.checkInDay(historyIndex), history.checkOutDay(historyIndex)};
+        }
+        int bookedIndex = countBookedStartingBefore(day + 1) - 1;
+        if (bookedIndex < 0 || checkOutDays[bookedIndex] <= day) {
+            bookedIndex++;
+        }
+        if (bookedIndex < stayCount && (first == null || checkInDays[bookedIndex] < first[0])) {
+            first = new long[]{checkInDays[bookedIndex], checkOutDays[bookedIndex]};
+        }
+        return first;
+    }
+
+    /**
+     * Removes the stay of the supplied customer checking in on the supplied day from the booked arrays, or marks it
+     * as cancelled in the history, and frees its nights in the calendar.
+     *
+     * @return epoch day of check-out of the stay, {@link #NO_STAY} if there is none
+     */
+    private long removeLocked(long checkInDay, int customerId) {
+        long checkOutDay;
+        int bookedIndex = bookedIndexOf(checkInDay, customerId);
+        if (bookedIndex >= 0) {
+            changeLocked();
+            checkOutDay = checkOutDays[bookedIndex];
+            int moved = stayCount - bookedIndex - 1;
+            System.arraycopy(checkInDays, bookedIndex + 1, checkInDays, bookedIndex, moved);
+            System.arraycopy(checkOutDays, bookedIndex + 1, checkOutDays, bookedIndex, moved);
+            System.arraycopy(customerIds, bookedIndex + 1, customerIds, bookedIndex, moved);
+            stayCount--;
+        } else {
+            int historyIndex = historyIndexOf(checkInDay, customerId);
+            if (historyIndex < 0) {
+                return NO_STAY;
+            }
+            changeLocked();
+            checkOutDay = history.checkOutDay(historyIndex);
+            if (cancelledHistory == null) {
+                cancelledHistory = new BitSet(history.size());
+            }
+            cancelledHistory.set(historyIndex);
+            cancelledCount++;
+        }
+        // No other stay shares a night with it, so its nights are free now
+        calendar.release(checkInDay, checkOutDay);
+        return checkOutDay;
+    }
+
+    /**
+     * Returns the position in the booked arrays of the stay of the supplied customer checking in on the supplied day,
+     * or -1 if there is none.
+     */
+    private int bookedIndexOf(long checkInDay, int customerId) {
+        int index = countBookedStartingBefore(checkInDay);
+        return index < stayCount && checkInDays[index] == checkInDay && customerIds[index] == customerId ? index : -1;
+    }
+
+    /**
+     * Returns the position in the history of the stay of the supplied customer checking in on the supplied day, or
+     * -1 if there is none or it was cancelled. Customers are told apart by email, as histories may not know their ids.
+     */
+    private int historyIndexOf(long checkInDay, int customerId) {
+        int index = countStartingBefore(checkInDay);
+        if (index == history.size() || history.checkInDay(index) != checkInDay || isCancelledLocked(index)) {
+            return -1;
+        }
+        Customer expected = customerId < 0 ? null : customers.apply(customerId);
+        Customer actual = history.customerAt(index);
+        boolean sameCustomer = expected == null
+                ? actual == null
+                : actual != null && expected.getEmail().equals(actual.getEmail());
+        return sameCustomer ? index : -1;
+    }
+
+    private boolean isCancelledLocked(int historyIndex) {
+        return cancelledHistory != null && cancelledHistory.get(historyIndex);
+    }
+
+    /**
+     * Returns the number of history stays whose check-in is before the supplied day.
+     */
+    private int countStartingBefore(long day) {
+        return countStartingBefore(history, day);
+    }
+
+    private static int countStartingBefore(StayHistory history, long day) {
+        int low = 0;
+        int high = history.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (history.checkInDay(middle) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of stays held on the heap whose check-in is before the supplied day.
+     */
+    private int countBookedStartingBefore(long day) {
+        return countStartingBefore(checkInDays, stayCount, day);
+    }
+
+    private static int countStartingBefore(int[] checkInDays, int stayCount, long day) {
+        int low = 0;
+        int high = stayCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (checkInDays[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insertLocked(int index, long fromDay, long toDay, int customerId) {
+        if (stayCount == checkInDays.length) {
+            int capacity = Math.max(4, stayCount + (stayCount >> 1));
+            checkInDays = Arrays.copyOf(checkInDays, capacity);
+            checkOutDays = Arrays.copyOf(checkOutDays, capacity);
+            customerIds = Arrays.copyOf(customerIds, capacity);
+        }
+        int moved = stayCount - index;
+        System.arraycopy(checkInDays, index, checkInDays, index + 1, moved);
+        System.arraycopy(checkOutDays, index, checkOutDays, index + 1, moved);
+        System.arraycopy(customerIds, index, customerIds, index + 1, moved);
+        checkInDays[index] = (int) fromDay;
+        checkOutDays[index] = (int) toDay;
+        customerIds[index] = customerId;
+        stayCount++;
+    }
+
+    private Reservation bookedReservation(int index) {
+        return toReservation(checkInDays[index], checkOutDays[index], customerIds[index]);
+    }
+
+    private Reservation toReservation(int checkInDay, int checkOutDay, int customerId) {
+        Customer customer = customerId < 0 ? null : customers.apply(customerId);
+        return new Reservation(customer, room, DateUtils.fromEpochDay(checkInDay), DateUtils.fromEpochDay(checkOutDay));
+    }
+
+    /**
+     * Stays of the room from one version up to, not including, another: the history with its tombstones and the
+     * stays held on the heap.
+     */
+    private static final class Stays {
+        private final long fromVersion;
+        private final long toVersion;
+        private final StayHistory history;
+        private final BitSet cancelledHistory;
+        private final int cancelledCount;
+        private final int[] checkInDays;
+        private final int[] checkOutDays;
+        private final int[] customerIds;
+        private final int stayCount;
+        // Stays of the versions before these, newest first
+        private Stays older;
+
+        private Stays(long fromVersion, long toVersion, StayHistory history, BitSet cancelledHistory,
+                      int cancelledCount, int[] checkInDays, int[] checkOutDays, int[] customerIds, int stayCount) {
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.history = history;
+            this.cancelledHistory = cancelledHistory;
+            this.cancelledCount = cancelledCount;
+            this.checkInDays = checkInDays;
+            this.checkOutDays = checkOutDays;
+            this.customerIds = customerIds;
+            this.stayCount = stayCount;
+        }
+
+        private int size() {
+            return history.size() - cancelledCount + stayCount;
+        }
+
+        private boolean isCancelled(int historyIndex) {
+            return cancelledHistory != null && cancelledHistory.get(historyIndex);
+        }
+    }
+}
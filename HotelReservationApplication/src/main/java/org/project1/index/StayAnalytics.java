@@ -0,0 +1,126 @@
+package org.project1.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Occupied room-nights and room revenue per day, kept up to date as stays are booked and cancelled.
+ * <p>
+ * Each counter is a pair of Fenwick trees over the days, supporting "add to every night of a stay" and "sum over a
+ * date range" in O(log days) each. The trees are {@link AtomicLongArray}s updated without a lock, as additions
+ * commute. Revenue is counted in cents. Days are epoch days from 1970 to 2149; nights outside that range are not
+ * counted.
+ */
+public final class StayAnalytics {
+    private static final int DAYS = 1 << 16;
+
+    private final AtomicLongArray nights;
+    private final AtomicLongArray weightedNights;
+    private final AtomicLongArray revenue;
+    private final AtomicLongArray weightedRevenue;
+
+    public StayAnalytics() {
+        this.nights = new AtomicLongArray(DAYS + 1);
+        this.weightedNights = new AtomicLongArray(DAYS + 1);
+        this.revenue = new AtomicLongArray(DAYS + 1);
+        this.weightedRevenue = new AtomicLongArray(DAYS + 1);
+    }
+
+    /**
+     * Counts every night of a stay as one occupied room-night earning the supplied price.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     * @param price   price of one night
+     */
+    public void addStay(long fromDay, long toDay, double price) {
+        addToNights(fromDay, toDay, 1, Math.round(price * 100));
+    }
+
+    /**
+     * Takes a cancelled stay, added before with the same price, off the counters.
+     *
+     * @param fromDay epoch day of the first night
+     * @param toDay   epoch day after the last night
+     * @param price   price of one night
+     */
+    public void removeStay(long fromDay, long toDay, double price) {
+        addToNights(fromDay, toDay, -1, -Math.round(price * 100));
+    }
+
+    /**
+     * Returns the number of occupied room-nights in the supplied period.
+     *
+     * @param fromDay epoch day of the first night of the period
+     * @param toDay   epoch day after the last night of the period
+     * @return sum of the rooms occupied each night
+     */
+    public long getRoomNights(long fromDay, long toDay) {
+        return rangeSum(nights, weightedNights, fromDay, toDay);
+    }
+
+    /**
+     * Returns the room revenue of the supplied period, counting each occupied night at the price of its room.
+     *
+     * @param fromDay epoch day of the first night of the period
+     * @param toDay   epoch day after the last night of the period
+     * @return revenue in cents
+     */
+    public long getRevenueCents(long fromDay, long toDay) {
+        return rangeSum(revenue, weightedRevenue, fromDay, toDay);
+    }
+
+    /**
+     * Adds to the counters of every night from fromDay to toDay. Night d is at position d + 1 of the trees, which
+     * hold the differences between consecutive nights: the stay adds at its first night and takes away after its
+     * last one.
+     */
+    private void addToNights(long fromDay, long toDay, long roomNights, long cents) {
+        int first = position(fromDay);
+        int afterLast = position(toDay);
+        if (first >= afterLast) {
+            return;
+        }
+        add(nights, weightedNights, first, roomNights);
+        add(nights, weightedNights, afterLast, -roomNights);
+        add(revenue, weightedRevenue, first, cents);
+        add(revenue, weightedRevenue, afterLast, -cents);
+    }
+
+    private static void add(AtomicLongArray tree, AtomicLongArray weightedTree, int position, long difference) {
+        long weighted = difference * position;
+        for (int i = position; i <= DAYS; i += i & -i) {
+            tree.addAndGet(i, difference);
+            weightedTree.addAndGet(i, weighted);
+        }
+    }
+
+    private static long rangeSum(AtomicLongArray tree, AtomicLongArray weightedTree, long fromDay, long toDay) {
+        int first = position(fromDay);
+        int afterLast = position(toDay);
+        if (first >= afterLast) {
+            return 0;
+        }
+        return prefixSum(tree, weightedTree, afterLast - 1) - prefixSum(tree, weightedTree, first - 1);
+    }
+
+    /**
+     * Returns the sum of the values at positions 1 to last. With d the differences, the value at position p is the
+     * sum of d[j] for j up to p, so the prefix sum is (last + 1) * sum(d[j]) - sum(d[j] * j).
+     */
+    private static long prefixSum(AtomicLongArray tree, AtomicLongArray weightedTree, int last) {
+        long sum = 0;
+        long weightedSum = 0;
+        for (int i = last; i > 0; i -= i & -i) {
+            sum += tree.get(i);
+            weightedSum += weightedTree.get(i);
+        }
+        return (last + 1) * sum - weightedSum;
+    }
+
+    /**
+     * Returns the tree position of the night of the supplied day, clamped to the days the trees cover.
+     */
+    private static int position(long day) {
+        return (int) Math.max(1, Math.min(DAYS, day + 1));
+    }
+}
@@ -0,0 +1,270 @@
+package org.project1.index;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Off-heap store of past stays in direct buffers, so that a long booking history adds nothing for the garbage
+ * collector to trace.
+ * <p>
+ * Stays are fixed-width records of 12 bytes: customer id, check-in epoch day and check-out epoch day. The stays of
+ * one room are contiguous and sorted by check-in, and the room reads them through a {@link StayHistory} view of its
+ * slice. The stays of each customer are indexed as {@link CustomerReservationIndex} keys, grouped by customer id in a
+ * second buffer and located through a buffer of offsets. Only the views, one per room, live on the heap.
+ * <p>
+ * An archive is immutable once written. Archiving again writes a new one, and the buffers of the old one are
+ * released once no room reads from it anymore.
+ */
+public class StayArchive {
+    static final int STAY_SIZE = 12;
+    /**
+     * Number of stays per direct buffer; a room with more stays gets a buffer of its own.
+     */
+    private static final int CHUNK_STAYS = 1 << 20;
+    private static final long[] NO_KEYS = new long[0];
+
+    private final IntBuffer customerOffsets;
+    private final LongBuffer customerKeys;
+    private final int customerCount;
+    private final long stayCount;
+    private final long byteSize;
+
+    private StayArchive(IntBuffer customerOffsets, LongBuffer customerKeys, int customerCount, long stayCount,
+                        long byteSize) {
+        this.customerOffsets = customerOffsets;
+        this.customerKeys = customerKeys;
+        this.customerCount = customerCount;
+        this.stayCount = stayCount;
+        this.byteSize = byteSize;
+    }
+
+    public long getStayCount() {
+        return stayCount;
+    }
+
+    /**
+     * Returns the number of bytes allocated outside the heap for this archive.
+     *
+     * @return size in bytes
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    /**
+     * Returns the keys of the archived stays of the supplied customer, starting with the supplied key.
+     *
+     * @param customerId id of the customer
+     * @param fromKey    smallest key returned
+     * @return copy of the keys in ascending order, empty if there are none
+     */
+    public long[] keys(int customerId, long fromKey) {
+        if (customerId < 0 || customerId >= customerCount) {
+            return NO_KEYS;
+        }
+        int low = customerOffsets.get(customerId);
+        int end = customerOffsets.get(customerId + 1);
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (customerKeys.get(middle) < fromKey) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long[] keys = new long[end - low];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = customerKeys.get(low + i);
+        }
+        return keys;
+    }
+
+    /**
+     * Writes a new archive room by room: {@link #beginRoom()}, the stays of the room in check-in order, then
+     * {@link #endRoom(int, IntFunction)}, and {@link #finish()} once all rooms are written.
+     */
+    public static class Writer {
+        private final List<RoomStays> rooms;
+        private final int chunkStays;
+        private ByteBuffer chunk;
+        private int roomStart;
+        private int roomSize;
+        private long byteSize;
+
+        public Writer() {
+            this(CHUNK_STAYS);
+        }
+
+        /**
+         * Constructor of a writer for a known, typically small, number of stays.
+         *
+         * @param chunkStays number of stays per direct buffer
+         */
+        public Writer(int chunkStays) {
+            this.rooms = new ArrayList<>();
+            this.chunkStays = Math.max(1, chunkStays);
+        }
+
+        public void beginRoom() {
+            roomStart = chunk == null ? 0 : chunk.position();
+            roomSize = 0;
+        }
+
+        public void write(int customerId, long checkInDay, long checkOutDay) {
+            if (chunk == null || chunk.remaining() < STAY_SIZE) {
+                newChunk();
+            }
+            chunk.putInt(customerId).putInt((int) checkInDay).putInt((int) checkOutDay);
+            roomSize++;
+        }
+
+        /**
+         * Closes the slice of the current room.
+         *
+         * @param roomOrdinal ordinal of the room
+         * @param customers   returns the customer with the supplied id
+         * @return view of the stays written for the room
+         */
+        public StayHistory endRoom(int roomOrdinal, IntFunction<Customer> customers) {
+            if (roomSize == 0) {
+                return StayHistory.EMPTY;
+            }
+            RoomStays stays = new RoomStays(chunk, roomStart, roomSize, roomOrdinal, customers);
+            rooms.add(stays);
+            return stays;
+        }
+
+        /**
+         * Builds the customer index over all written stays.
+         *
+         * @return the archive
+         */
+        public StayArchive finish() {
+            int customerCount = 0;
+            long stayCount = 0L;
+            for (RoomStays aRoom : rooms) {
+                for (int i = 0; i < aRoom.size; i++) {
+                    customerCount = Math.max(customerCount, aRoom.customerId(i) + 1);
+                }
+                stayCount += aRoom.size;
+            }
+
+            // Counting sort by customer id, then each customer's keys are sorted in place
+            int[] starts = new int[customerCount + 1];
+            for (RoomStays aRoom : rooms) {
+                for (int i = 0; i < aRoom.size; i++) {
+                    if (aRoom.customerId(i) >= 0) {
+                        starts[aRoom.customerId(i) + 1]++;
+                    }
+                }
+            }
+            for (int i = 0; i < customerCount; i++) {
+                starts[i + 1] += starts[i];
+            }
+            int keyCount = starts[customerCount];
+            IntBuffer offsets = ByteBuffer.allocateDirect((customerCount + 1) * 4).asIntBuffer();
+            offsets.put(starts);
+            LongBuffer keys = ByteBuffer.allocateDirect(Math.multiplyExact(keyCount, 8)).asLongBuffer();
+            int[] next = Arrays.copyOf(starts, customerCount);
+            for (RoomStays aRoom : rooms) {
+                for (int i = 0; i < aRoom.size; i++) {
+                    int customerId = aRoom.customerId(i);
+                    if (customerId >= 0) {
+                        keys.put(next[customerId]++, CustomerReservationIndex.key(aRoom.roomOrdinal,
+                                aRoom.checkInDay(i)));
+                    }
+                }
+            }
+            for (int i = 0; i < customerCount; i++) {
+                long[] range = new long[starts[i + 1] - starts[i]];
+                for (int j = 0; j < range.length; j++) {
+                    range[j] = keys.get(starts[i] + j);
+                }
+                Arrays.sort(range);
+                for (int j = 0; j < range.length; j++) {
+                    keys.put(starts[i] + j, range[j]);
+                }
+            }
+            long totalBytes = byteSize + (customerCount + 1) * 4L + keyCount * 8L;
+            return new StayArchive(offsets, keys, customerCount, stayCount, totalBytes);
+        }
+
+        /**
+         * Starts a new buffer and moves the stays already written for the current room into it, so that the slice
+         * of a room never spans two buffers.
+         */
+        private void newChunk() {
+            ByteBuffer next = ByteBuffer.allocateDirect(Math.max(chunkStays, 2 * (roomSize + 1)) * STAY_SIZE);
+            byteSize += next.capacity();
+            if (roomSize > 0) {
+                ByteBuffer slice = chunk.duplicate();
+                slice.position(roomStart).limit(roomStart + roomSize * STAY_SIZE);
+                next.put(slice);
+            }
+            chunk = next;
+            roomStart = 0;
+        }
+    }
+
+    /**
+     * Stays of one room, read in place from its slice of a direct buffer.
+     */
+    static final class RoomStays implements StayHistory {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int size;
+        private final int roomOrdinal;
+        private final IntFunction<Customer> customers;
+
+        private RoomStays(ByteBuffer buffer, int offset, int size, int roomOrdinal,
+                          IntFunction<Customer> customers) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.size = size;
+            this.roomOrdinal = roomOrdinal;
+            this.customers = customers;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long checkInDay(int index) {
+            return buffer.getInt(offset + index * STAY_SIZE + 4);
+        }
+
+        @Override
+        public long checkOutDay(int index) {
+            return buffer.getInt(offset + index * STAY_SIZE + 8);
+        }
+
+        int customerId(int index) {
+            return buffer.getInt(offset + index * STAY_SIZE);
+        }
+
+        @Override
+        public Customer customerAt(int index) {
+            int customerId = customerId(index);
+            return customerId < 0 ? null : customers.apply(customerId);
+        }
+
+        @Override
+        public Reservation toReservation(int index, IRoom room) {
+            return new Reservation(customerAt(index), room, DateUtils.fromEpochDay(checkInDay(index)),
+                    DateUtils.fromEpochDay(checkOutDay(index)));
+        }
+    }
+}
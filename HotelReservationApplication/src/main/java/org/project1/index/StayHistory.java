@@ -0,0 +1,63 @@
+package org.project1.index;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+
+/**
+ * Read-only, non-overlapping stays of one room sorted by check-in, typically backed by a loaded snapshot.
+ * <p>
+ * Stays are addressed by position, so a {@link RoomSchedule} can binary search them in place instead of copying
+ * them into its own index first.
+ */
+public interface StayHistory {
+    StayHistory EMPTY = new StayHistory() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public long checkInDay(int index) {
+            throw new IndexOutOfBoundsException("No stay at " + index);
+        }
+
+        @Override
+        public long checkOutDay(int index) {
+            throw new IndexOutOfBoundsException("No stay at " + index);
+        }
+
+        @Override
+        public Customer customerAt(int index) {
+            throw new IndexOutOfBoundsException("No stay at " + index);
+        }
+
+        @Override
+        public Reservation toReservation(int index, IRoom room) {
+            throw new IndexOutOfBoundsException("No stay at " + index);
+        }
+    };
+
+    int size();
+
+    long checkInDay(int index);
+
+    long checkOutDay(int index);
+
+    /**
+     * Returns the customer of the stay at the supplied position without building its reservation object.
+     *
+     * @param index position of the stay
+     * @return customer of the stay or null if it has none
+     */
+    Customer customerAt(int index);
+
+    /**
+     * Builds the reservation object of the stay at the supplied position.
+     *
+     * @param index position of the stay
+     * @param room  iRoom the stay belongs to
+     * @return reservation of the stay
+     */
+    Reservation toReservation(int index, IRoom room);
+}
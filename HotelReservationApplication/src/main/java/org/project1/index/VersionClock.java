@@ -0,0 +1,88 @@
+package org.project1.index;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter of the stays of a set of rooms, so that a reader can see all of them as they were at one instant.
+ * <p>
+ * Every change of the stays of a room takes the next version while holding the lock of the room. A reader opens a
+ * {@link Snapshot} at the current version; a room changed after that keeps its stays as they were until the snapshot
+ * is closed. The copy is made by the first change of the room which needs it, so readers never hold writers up and
+ * writers only copy while a snapshot is open.
+ */
+public final class VersionClock {
+    private static final long OPENING = -1L;
+
+    private final AtomicLong version;
+    private final Set<Snapshot> openSnapshots;
+
+    public VersionClock() {
+        this.version = new AtomicLong();
+        this.openSnapshots = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Returns the version of the next change.
+     *
+     * @return version greater than that of every change so far
+     */
+    public long next() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Opens a snapshot of the current version. Changes which took their version before it are seen by the snapshot,
+     * all later ones are not.
+     *
+     * @return snapshot to close once it is no longer read
+     */
+    public Snapshot open() {
+        Snapshot snapshot = new Snapshot();
+        // Registered before the version is read, so a change taking a later version cannot miss it
+        openSnapshots.add(snapshot);
+        snapshot.version = version.get();
+        return snapshot;
+    }
+
+    /**
+     * Checks if an open snapshot may read the stays as they were from the first version up to, not including, the
+     * second one. A snapshot still being opened may read any of them.
+     *
+     * @param fromVersion version from which the stays were as read
+     * @param toVersion   version of the change after which they were not
+     * @return true if the stays have to be kept
+     */
+    public boolean isRead(long fromVersion, long toVersion) {
+        for (Snapshot aSnapshot : openSnapshots) {
+            long snapshotVersion = aSnapshot.version;
+            if (snapshotVersion == OPENING || (snapshotVersion >= fromVersion && snapshotVersion < toVersion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version at which a reader sees the stays, open until closed.
+     */
+    public final class Snapshot implements AutoCloseable {
+        private volatile long version = OPENING;
+
+        private Snapshot() {
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Closes this snapshot, so that the stays kept for it can be dropped by the next change of their room.
+         */
+        @Override
+        public void close() {
+            openSnapshots.remove(this);
+        }
+    }
+}
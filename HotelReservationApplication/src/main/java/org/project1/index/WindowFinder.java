@@ -0,0 +1,87 @@
+package org.project1.index;
+
+import org.project1.model.AvailableWindow;
+import org.project1.model.IRoom;
+import org.project1.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the earliest check-in days on which at least one room is free for a whole stay.
+ * <p>
+ * Each room contributes runs of consecutive days a stay can check in on, one run per free gap long enough for the
+ * stay. The runs are swept forward day by day: runs not started yet wait in a queue ordered by their first day, runs
+ * covering the current day are active. A room is only asked for its next run once its current one ends, so the cost
+ * is bounded by the number of gaps passed over and the windows returned, not by the length of the searched period.
+ */
+public final class WindowFinder {
+
+    private WindowFinder() {
+    }
+
+    /**
+     * Returns the earliest windows, one per check-in day, in which some of the supplied rooms are free.
+     *
+     * @param rooms   free gaps of the candidate rooms
+     * @param fromDay epoch day the stay may check in on at the earliest
+     * @param nights  number of nights of the stay
+     * @param count   largest number of windows returned
+     * @return list of windows ordered by check-in, fewer than count only if there are not enough rooms
+     */
+    public static List<AvailableWindow> find(Collection<? extends RoomGaps> rooms, long fromDay, int nights,
+                                             int count) {
+        PriorityQueue<Run> pending = new PriorityQueue<>(Math.max(1, rooms.size()),
+                Comparator.comparingLong(run -> run.firstDay));
+        for (RoomGaps aRoom : rooms) {
+            pending.add(new Run(aRoom, aRoom.nextFit(fromDay, nights)));
+        }
+
+        List<AvailableWindow> windows = new ArrayList<>(count);
+        List<Run> active = new ArrayList<>();
+        long day = fromDay;
+        while (windows.size() < count && (!active.isEmpty() || !pending.isEmpty())) {
+            if (active.isEmpty()) {
+                day = Math.max(day, pending.peek().firstDay);
+            }
+            while (!pending.isEmpty() && pending.peek().firstDay <= day) {
+                active.add(pending.poll());
+            }
+            List<IRoom> freeRooms = new ArrayList<>(active.size());
+            for (Run aRun : active) {
+                freeRooms.add(aRun.gaps.getRoom());
+            }
+            windows.add(new AvailableWindow(DateUtils.fromEpochDay(day), DateUtils.fromEpochDay(day + nights),
+                    freeRooms));
+
+            day++;
+            for (Iterator<Run> iterator = active.iterator(); iterator.hasNext(); ) {
+                Run aRun = iterator.next();
+                if (aRun.lastDay < day) {
+                    iterator.remove();
+                    pending.add(new Run(aRun.gaps, aRun.gaps.nextFit(day, nights)));
+                }
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Consecutive check-in days of one room within one free gap.
+     */
+    private static final class Run {
+        private final RoomGaps gaps;
+        private final long firstDay;
+        private final long lastDay;
+
+        private Run(RoomGaps gaps, long[] fit) {
+            this.gaps = gaps;
+            this.firstDay = fit[0];
+            this.lastDay = fit[1];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.project1.model;
+
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stay of a requested length together with the rooms free for every night of it.
+ */
+@Getter
+public class AvailableWindow {
+    private final Date checkInDate;
+    private final Date checkOutDate;
+    private final List<IRoom> rooms;
+
+    public AvailableWindow(Date checkInDate, Date checkOutDate, List<IRoom> rooms) {
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.rooms = rooms;
+    }
+
+    @Override
+    public String toString() {
+        return "AvailableWindow{" +
+                "checkInDate=" + checkInDate +
+                ", checkOutDate=" + checkOutDate +
+                ", rooms=" + rooms +
+                '}';
+    }
+}
@@ -3,8 +3,7 @@ package org.project1.model;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import static org.project1.util.ValidationUtils.isValidEmail;
 
 @Getter
 @Setter
@@ -16,19 +15,13 @@ public class Customer {
     public Customer(String firstName, String lastName, String email) {
         this.firstName = firstName;
         this.lastName = lastName;
-        if (this.validateEmail(email)) {
+        if (isValidEmail(email)) {
             this.email = email;
         } else {
             throw new IllegalArgumentException("Email is invalid format!");
         }
     }
 
-    private boolean validateEmail(String email) {
-        Pattern p = Pattern.compile("\\b[a-zA-Z0-9._%-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,4}\\b");
-        Matcher m = p.matcher(email);
-        return m.find();
-    }
-
     @Override
     public String toString() {
         return "Customer{" +
@@ -0,0 +1,70 @@
+package org.project1.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk customer import. Counts cover every line; only the first few skipped emails and errors are
+ * listed, so the report stays small however large the file is.
+ */
+@Getter
+@Setter
+public class CustomerImportReport {
+    private static final int MAX_LISTED = 100;
+
+    private long linesRead;
+    private long imported;
+    private long skipped;
+    private long rejected;
+    private long elapsedMillis;
+    private final List<String> skippedEmails = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    /**
+     * Counts a customer who was not recorded because the email is already registered or repeated in the file.
+     *
+     * @param email string with the customer's email
+     */
+    public void addSkipped(String email) {
+        skipped++;
+        if (skippedEmails.size() < MAX_LISTED) {
+            skippedEmails.add(email);
+        }
+    }
+
+    /**
+     * Counts a line which does not describe a valid customer.
+     *
+     * @param lineNumber number of the line, starting with 1
+     * @param message    string explaining what is wrong
+     */
+    public void addRejected(long lineNumber, String message) {
+        rejected++;
+        if (errors.size() < MAX_LISTED) {
+            errors.add("Line " + lineNumber + ": " + message);
+        }
+    }
+
+    /**
+     * Returns the number of customers imported per second of the import.
+     *
+     * @return throughput of the import, 0 if nothing was imported
+     */
+    public long getCustomersPerSecond() {
+        return imported == 0 ? 0L : imported * 1000L / Math.max(1L, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + imported + " customers from " + linesRead + " lines in " + elapsedMillis + " ms ("
+                + getCustomersPerSecond() + " customers per second), skipped " + skipped
+                + " already registered, rejected " + rejected + " invalid";
+    }
+}
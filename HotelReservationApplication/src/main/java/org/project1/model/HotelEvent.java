@@ -0,0 +1,89 @@
+package org.project1.model;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Change of the hotel published to the subscribers of the event stream: a room was added, a customer registered, a
+ * room booked or a booking cancelled. Events of one room are numbered in the order its changes were made.
+ * <p>
+ * A subscriber which lets events be dropped on a full buffer receives an {@link Type#EVENTS_SKIPPED} event in their
+ * place, numbered like the first of them and counting how many were dropped.
+ */
+@Getter
+public class HotelEvent {
+    private final long sequence;
+    private final Type type;
+    private final Date time;
+    private final IRoom room;
+    private final Customer customer;
+    private final Reservation reservation;
+    private final long skippedEvents;
+
+    private HotelEvent(long sequence, Type type, IRoom room, Customer customer, Reservation reservation,
+            long skippedEvents) {
+        this.sequence = sequence;
+        this.type = type;
+        this.time = new Date();
+        this.room = room;
+        this.customer = customer;
+        this.reservation = reservation;
+        this.skippedEvents = skippedEvents;
+    }
+
+    private HotelEvent(long sequence, Type type, IRoom room, Customer customer, Reservation reservation) {
+        this(sequence, type, room, customer, reservation, 0);
+    }
+
+    public static HotelEvent roomAdded(long sequence, IRoom room) {
+        return new HotelEvent(sequence, Type.ROOM_ADDED, room, null, null);
+    }
+
+    public static HotelEvent customerCreated(long sequence, Customer customer) {
+        return new HotelEvent(sequence, Type.CUSTOMER_CREATED, null, customer, null);
+    }
+
+    public static HotelEvent reservationCreated(long sequence, Reservation reservation) {
+        return new HotelEvent(sequence, Type.RESERVATION_CREATED, reservation.getRoom(), reservation.getCustomer(),
+                reservation);
+    }
+
+    public static HotelEvent reservationCancelled(long sequence, Reservation reservation) {
+        return new HotelEvent(sequence, Type.RESERVATION_CANCELLED, reservation.getRoom(), reservation.getCustomer(),
+                reservation);
+    }
+
+    public static HotelEvent eventsSkipped(long firstSequence, long count) {
+        return new HotelEvent(firstSequence, Type.EVENTS_SKIPPED, null, null, null, count);
+    }
+
+    /**
+     * Gives the sequence number of the event following this one.
+     *
+     * @return sequence number after those this event stands for
+     */
+    public long getNextSequence() {
+        return sequence + Math.max(1, skippedEvents);
+    }
+
+    @Override
+    public String toString() {
+        return "HotelEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", time=" + time +
+                ", room=" + room +
+                ", customer=" + customer +
+                ", reservation=" + reservation +
+                ", skippedEvents=" + skippedEvents +
+                '}';
+    }
+
+    /**
+     * Kind of change an event describes.
+     */
+    public enum Type {
+        ROOM_ADDED, CUSTOMER_CREATED, RESERVATION_CREATED, RESERVATION_CANCELLED, EVENTS_SKIPPED
+    }
+}
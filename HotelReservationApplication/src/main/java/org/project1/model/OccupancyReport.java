@@ -0,0 +1,74 @@
+package org.project1.model;
+
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Occupancy and room revenue of the hotel over a period, from the first night up to, not including, the end date.
+ * Occupancy and RevPAR are relative to the rooms recorded when the report was made.
+ */
+@Getter
+public class OccupancyReport {
+    private final Date from;
+    private final Date to;
+    private final long nights;
+    private final long rooms;
+    private final long occupiedRoomNights;
+    private final double revenue;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param from               date of the first night of the period
+     * @param to                 date after the last night of the period
+     * @param nights             number of nights in the period
+     * @param rooms              number of rooms which could be booked
+     * @param occupiedRoomNights sum of the rooms occupied each night
+     * @param revenue            price of all occupied room-nights
+     */
+    public OccupancyReport(Date from, Date to, long nights, long rooms, long occupiedRoomNights, double revenue) {
+        this.from = from;
+        this.to = to;
+        this.nights = nights;
+        this.rooms = rooms;
+        this.occupiedRoomNights = occupiedRoomNights;
+        this.revenue = revenue;
+    }
+
+    /**
+     * Returns the share of the room-nights of the period which were occupied.
+     *
+     * @return occupancy between 0 and 1, 0 if there are no rooms
+     */
+    public double getOccupancy() {
+        long roomNights = rooms * nights;
+        return roomNights == 0 ? 0.0 : (double) occupiedRoomNights / roomNights;
+    }
+
+    /**
+     * Returns the average daily rate, the revenue per occupied room-night.
+     *
+     * @return average price of an occupied room-night, 0 if no room was occupied
+     */
+    public double getAverageDailyRate() {
+        return occupiedRoomNights == 0 ? 0.0 : revenue / occupiedRoomNights;
+    }
+
+    /**
+     * Returns the revenue per available room-night (RevPAR).
+     *
+     * @return revenue divided by all room-nights of the period, 0 if there are no rooms
+     */
+    public double getRevenuePerAvailableRoom() {
+        long roomNights = rooms * nights;
+        return roomNights == 0 ? 0.0 : revenue / roomNights;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("From %tD to %tD (%d nights, %d rooms): %d occupied room-nights, occupancy %.1f%%, "
+                        + "revenue %.2f, ADR %.2f, RevPAR %.2f", from, to, nights, rooms, occupiedRoomNights,
+                getOccupancy() * 100, revenue, getAverageDailyRate(), getRevenuePerAvailableRoom());
+    }
+}
@@ -0,0 +1,74 @@
+package org.project1.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing plus the cursor to request the next one.
+ * <p>
+ * A cursor is an opaque string which is only valid for the listing, and the filter, it was returned for. Pages are
+ * keyed by position in the listing's order rather than by offset, so turning a page never rescans the pages before
+ * it and items added meanwhile do not shift items between pages.
+ *
+ * @param <T> type of the listed items
+ */
+@Getter
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param items      items of this page
+     * @param nextCursor cursor of the next page, null if there are no more items
+     */
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page which has a next page if it is full.
+     *
+     * @param items    items of the page, at most limit
+     * @param limit    requested page size
+     * @param cursorOf returns the cursor pointing after an item
+     * @param <T>      type of the listed items
+     * @return page of the supplied items
+     */
+    public static <T> Page<T> of(List<T> items, int limit, Function<T, String> cursorOf) {
+        String nextCursor = items.size() < limit ? null : cursorOf.apply(items.get(items.size() - 1));
+        return new Page<>(items, nextCursor);
+    }
+
+    /**
+     * Converts the items of this page, keeping its cursor.
+     *
+     * @param converter returns the converted item
+     * @param <R>       type of the converted items
+     * @return page of the converted items
+     */
+    public <R> Page<R> map(Function<T, R> converter) {
+        List<R> converted = new ArrayList<>(items.size());
+        for (T anItem : items) {
+            converted.add(converter.apply(anItem));
+        }
+        return new Page<>(converted, nextCursor);
+    }
+
+    /**
+     * Checks a requested page size.
+     *
+     * @param limit requested page size
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size should be at least 1");
+        }
+    }
+}
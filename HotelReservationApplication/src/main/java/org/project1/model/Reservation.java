@@ -38,15 +38,16 @@ public class Reservation {
         if (!(o instanceof Reservation)) {
             return false;
         }
+        Reservation otherReservation = (Reservation) o;
         // Compare rooms
-        boolean roomsEquals = (room == null && this.getRoom() == null) ||
-                (room != null && room.equals(this.getRoom()));
+        boolean roomsEquals = (room == null && otherReservation.getRoom() == null) ||
+                (room != null && room.equals(otherReservation.getRoom()));
         // Compare check-in
-        boolean checkInEquals = (checkInDate == null && this.getCheckInDate() == null)
-                || (checkInDate != null && checkInDate.equals(this.getCheckInDate()));
+        boolean checkInEquals = (checkInDate == null && otherReservation.getCheckInDate() == null)
+                || (checkInDate != null && checkInDate.equals(otherReservation.getCheckInDate()));
         // Compare check-out
-        boolean checkOutEquals = (checkOutDate == null && this.getCheckOutDate() == null)
-                || (checkOutDate != null && checkOutDate.equals(this.getCheckOutDate()));
+        boolean checkOutEquals = (checkOutDate == null && otherReservation.getCheckOutDate() == null)
+                || (checkOutDate != null && checkOutDate.equals(otherReservation.getCheckOutDate()));
 
         return roomsEquals && checkInEquals && checkOutEquals;
     }
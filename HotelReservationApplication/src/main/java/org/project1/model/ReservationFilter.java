@@ -0,0 +1,22 @@
+package org.project1.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Restricts a reservation listing. Criteria left null do not restrict it.
+ */
+@Getter
+@Setter
+public class ReservationFilter {
+    // Only reservations of this room
+    private String roomNumber;
+    // Only reservations of the customer with this email
+    private String email;
+    // Only stays with a night on or after this date
+    private Date from;
+    // Only stays with a night before this date
+    private Date to;
+}
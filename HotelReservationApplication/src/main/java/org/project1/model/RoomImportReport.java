@@ -0,0 +1,60 @@
+package org.project1.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk room import. Counts cover every line; only the first few skipped room numbers and errors are
+ * listed, so the report stays small however large the file is.
+ */
+@Getter
+@Setter
+public class RoomImportReport {
+    private static final int MAX_LISTED = 100;
+
+    private long linesRead;
+    private long imported;
+    private long skipped;
+    private long rejected;
+    private long elapsedMillis;
+    private final List<String> skippedRoomNumbers = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    /**
+     * Counts a room which was not recorded because its number is already taken.
+     *
+     * @param roomNumber string with the room number
+     */
+    public void addSkipped(String roomNumber) {
+        skipped++;
+        if (skippedRoomNumbers.size() < MAX_LISTED) {
+            skippedRoomNumbers.add(roomNumber);
+        }
+    }
+
+    /**
+     * Counts a line which does not describe a valid room.
+     *
+     * @param lineNumber number of the line, starting with 1
+     * @param message    string explaining what is wrong
+     */
+    public void addRejected(long lineNumber, String message) {
+        rejected++;
+        if (errors.size() < MAX_LISTED) {
+            errors.add("Line " + lineNumber + ": " + message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + imported + " rooms from " + linesRead + " lines in " + elapsedMillis + " ms, skipped "
+                + skipped + " already recorded, rejected " + rejected + " invalid";
+    }
+}
@@ -0,0 +1,299 @@
+package org.project1.persistence;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.service.InMemoryReservationService;
+import org.project1.service.ReservationSnapshot;
+import org.project1.service.impl.CustomerServiceImpl;
+import org.project1.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Durable storage of the in-memory services: a write-ahead log of every change plus periodic compacted snapshots.
+ * <p>
+ * On startup the latest snapshot is loaded and the log records after it are replayed. A snapshot is only cut while
+ * no change stands between being made and having its record queued, so it holds exactly the records up to its
+ * sequence number.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.persistence.enabled", havingValue = "true")
+public class HotelJournal {
+    private static final Logger log = LoggerFactory.getLogger(HotelJournal.class);
+
+    private final InMemoryReservationService reservationService;
+    private final CustomerServiceImpl customerService;
+    private final Path directory;
+    private final long snapshotIntervalSeconds;
+    private final int maxBatchSize;
+    private final SnapshotStore snapshots;
+    private final AtomicLong changesSinceSnapshot;
+    private final ReadWriteLock cutLock;
+    private ScheduledExecutorService snapshotScheduler;
+    private WriteAheadLog writeAheadLog;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param reservationService      in-memory service holding rooms and reservations
+     * @param customerService         in-memory service holding customers
+     * @param directory               directory of the log segments and snapshots
+     * @param snapshotIntervalSeconds seconds between two snapshots
+     * @param maxBatchSize            largest number of log records written with one fsync
+     */
+    public HotelJournal(InMemoryReservationService reservationService,
+                        CustomerServiceImpl customerService,
+                        @Value("${hotel.persistence.directory:data}") String directory,
+                        @Value("${hotel.persistence.snapshot-interval-seconds:300}") long snapshotIntervalSeconds,
+                        @Value("${hotel.persistence.max-batch-size:512}") int maxBatchSize) {
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+        this.directory = Paths.get(directory);
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        this.maxBatchSize = maxBatchSize;
+        this.snapshots = new SnapshotStore(this.directory);
+        this.changesSinceSnapshot = new AtomicLong();
+        this.cutLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Loads the latest snapshot, replays the log tail and opens the log for new records.
+     *
+     * @throws IOException if the stored state cannot be read
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        long start = System.nanoTime();
+        long snapshotSequence = 0L;
+        SnapshotImage image = snapshots.openLatest();
+        if (image != null) {
+            for (Customer aCustomer : image.getRegisteredCustomers()) {
+                customerService.addCustomer(aCustomer.getEmail(), aCustomer.getFirstName(), aCustomer.getLastName());
+            }
+            for (int i = 0; i < image.getRoomCount(); i++) {
+                reservationService.addRoom(image.getRoom(i), image.getStayHistory(i));
+            }
+            snapshotSequence = image.getSequence();
+        }
+        long lastSequence = WriteAheadLog.replay(directory, snapshotSequence, this::apply);
+        writeAheadLog = new WriteAheadLog(directory, lastSequence + 1, maxBatchSize);
+        changesSinceSnapshot.set(lastSequence - snapshotSequence);
+        log.info("Recovered {} rooms and {} reservations in {} ms ({} log records replayed)",
+                reservationService.getRoomCount(), reservationService.getReservationCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lastSequence - snapshotSequence);
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSeconds,
+                snapshotIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Appends the supplied record to the log and waits until it is on disk.
+     *
+     * @param record record of a change already applied in memory
+     * @throws IllegalStateException if the record could not be written
+     */
+    public void append(JournalRecord record) {
+        await(writeAheadLog.append(record));
+    }
+
+    /**
+     * Makes a change of the stays which queues its record with {@link #queue(JournalRecord)} under the lock of its
+     * room. No snapshot is cut while the change runs.
+     *
+     * @param change change to make
+     * @param <T>    type of the result of the change
+     * @return result of the change
+     */
+    public <T> T applying(Supplier<T> change) {
+        cutLock.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            cutLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the supplied record without waiting for it to be written, so it can be called under the lock of the
+     * changed room. The record takes its place in the log at once.
+     *
+     * @param record record of a change just made in memory
+     * @return future to pass to {@link #await(CompletableFuture)}
+     */
+    public CompletableFuture<Long> queue(JournalRecord record) {
+        return writeAheadLog.append(record);
+    }
+
+    /**
+     * Waits until a record queued with {@link #queue(JournalRecord)} is on disk.
+     *
+     * @param written future of the record
+     * @throws IllegalStateException if the record could not be written, in which case the change should be taken
+     *                               back
+     */
+    public void await(CompletableFuture<Long> written) {
+        try {
+            written.join();
+            changesSinceSnapshot.incrementAndGet();
+        } catch (CompletionException ex) {
+            throw new IllegalStateException("Could not persist the change: " + ex.getCause().getMessage(), ex);
+        }
+    }
+
+    /**
+     * Appends the supplied records to the log and waits until they are all on disk. The records are queued together,
+     * so a large batch is written with a few fsyncs instead of one per record.
+     *
+     * @param records records of changes already applied in memory
+     * @throws IllegalStateException if a record could not be written
+     */
+    public void appendAll(List<JournalRecord> records) {
+        List<CompletableFuture<Long>> written = new ArrayList<>(records.size());
+        for (JournalRecord aRecord : records) {
+            written.add(writeAheadLog.append(aRecord));
+        }
+        for (CompletableFuture<Long> aWrite : written) {
+            await(aWrite);
+        }
+    }
+
+    /**
+     * Writes a compacted snapshot of the current state and drops the log segments it covers. Does nothing if
+     * nothing changed since the last snapshot.
+     * <p>
+     * Changes are held up only while the last queued record is looked up and the stays are versioned; the snapshot
+     * is written from that version while bookings go on.
+     *
+     * @throws IOException if the snapshot cannot be written, or the records it covers could not be
+     */
+    public synchronized void snapshot() throws IOException {
+        if (changesSinceSnapshot.get() == 0) {
+            return;
+        }
+        CompletableFuture<Long> covered;
+        ReservationSnapshot state;
+        cutLock.writeLock().lock();
+        try {
+            covered = writeAheadLog.lastQueued();
+            state = reservationService.openSnapshot();
+        } finally {
+            cutLock.writeLock().unlock();
+        }
+        long changes = changesSinceSnapshot.getAndSet(0);
+        try (ReservationSnapshot stays = state) {
+            long sequence;
+            try {
+                sequence = covered.join();
+            } catch (CompletionException ex) {
+                throw new IOException("Changes of the snapshot were not journaled", ex.getCause());
+            }
+            writeAheadLog.roll();
+            snapshots.write(sequence, stays.getRooms(), stays::getRoomStays, customerService.getAllCustomers());
+            writeAheadLog.purgeUpTo(sequence);
+        } catch (IOException ex) {
+            changesSinceSnapshot.addAndGet(changes);
+            throw ex;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (writeAheadLog == null) {
+            return;
+        }
+        snapshotScheduler.shutdownNow();
+        try {
+            snapshot();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException ex) {
+            log.error("Could not write snapshot", ex);
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        switch (record.getType()) {
+            case ROOM:
+                reservationService.addRoom(record.toRoom());
+                break;
+            case CUSTOMER:
+                if (customerService.getCustomer(record.getEmail()) == null) {
+                    customerService.addCustomer(record.getEmail(), record.getFirstName(), record.getLastName());
+                }
+                break;
+            case RESERVATION:
+                reservationService.reserveARoom(customerOf(record), roomOf(record),
+                        DateUtils.fromEpochDay(record.getCheckInDay()),
+                        DateUtils.fromEpochDay(record.getCheckOutDay()));
+                break;
+            case CANCELLATION:
+                reservationService.cancelReservation(customerOf(record), roomOf(record),
+                        DateUtils.fromEpochDay(record.getCheckInDay()));
+                break;
+            case CHANGE:
+                replayChange(record);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + record.getType());
+        }
+    }
+
+    /**
+     * Moves the stay to its new dates. The snapshot covers no record replayed after it, so the stay is at its former
+     * dates; a conflict or a missing stay means the journal is corrupt and is thrown rather than dropping a stay.
+     */
+    private void replayChange(JournalRecord record) {
+        reservationService.changeReservation(customerOf(record), roomOf(record),
+                DateUtils.fromEpochDay(record.getOriginalCheckInDay()), DateUtils.fromEpochDay(record.getCheckInDay()),
+                DateUtils.fromEpochDay(record.getCheckOutDay()));
+    }
+
+    /**
+     * Returns the room of a stay record, recording it first if the record of the room comes later in the log.
+     */
+    private IRoom roomOf(JournalRecord record) {
+        IRoom room = reservationService.findRoomByNumber(record.getRoomNumber());
+        if (room == null) {
+            reservationService.addRoom(record.toRoom());
+            room = reservationService.findRoomByNumber(record.getRoomNumber());
+        }
+        return room;
+    }
+
+    private Customer customerOf(JournalRecord record) {
+        Customer customer = customerService.getCustomer(record.getEmail());
+        return customer == null ? record.toCustomer() : customer;
+    }
+}
@@ -0,0 +1,197 @@
+package org.project1.persistence;
+
+import lombok.Getter;
+import org.project1.model.Customer;
+import org.project1.model.FreeRoom;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.util.DateUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * One state change recorded in the write-ahead log or in a snapshot.
+ * <p>
+ * Reservation records carry the customer and room data they refer to, so a reservation can be replayed even if the
+ * record of its customer or room was logged after it by a concurrent writer. Cancellation and change records carry
+ * the same data for the stay they cancel or the stay with its new dates; a change also carries the former check-in
+ * day, which identifies the stay.
+ */
+@Getter
+public class JournalRecord {
+    public enum Type {
+        ROOM, CUSTOMER, RESERVATION, CANCELLATION, CHANGE
+    }
+
+    private final Type type;
+    private final String roomNumber;
+    private final RoomType roomType;
+    private final double roomPrice;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final long checkInDay;
+    private final long checkOutDay;
+    private final long originalCheckInDay;
+
+    private JournalRecord(Type type, String roomNumber, RoomType roomType, double roomPrice, String email,
+                          String firstName, String lastName, long checkInDay, long checkOutDay,
+                          long originalCheckInDay) {
+        this.type = type;
+        this.roomNumber = roomNumber;
+        this.roomType = roomType;
+        this.roomPrice = roomPrice;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
+        this.originalCheckInDay = originalCheckInDay;
+    }
+
+    public static JournalRecord room(IRoom room) {
+        Double price = room.getRoomPrice();
+        return new JournalRecord(Type.ROOM, room.getRoomNumber(), room.getRoomType(), price == null ? 0.0 : price,
+                "", "", "", 0L, 0L, 0L);
+    }
+
+    public static JournalRecord customer(Customer customer) {
+        return new JournalRecord(Type.CUSTOMER, "", RoomType.SINGLE, 0.0, customer.getEmail(),
+                customer.getFirstName(), customer.getLastName(), 0L, 0L, 0L);
+    }
+
+    public static JournalRecord reservation(Reservation reservation) {
+        return stay(Type.RESERVATION, reservation, 0L);
+    }
+
+    public static JournalRecord cancellation(Reservation cancelled) {
+        return stay(Type.CANCELLATION, cancelled, 0L);
+    }
+
+    /**
+     * Builds the record of a stay moved to new dates.
+     *
+     * @param originalCheckInDay epoch day of check-in of the stay before the change
+     * @param changed            reservation with the new dates
+     * @return record of the change
+     */
+    public static JournalRecord change(long originalCheckInDay, Reservation changed) {
+        return stay(Type.CHANGE, changed, originalCheckInDay);
+    }
+
+    private static JournalRecord stay(Type type, Reservation reservation, long originalCheckInDay) {
+        IRoom room = reservation.getRoom();
+        Customer customer = reservation.getCustomer();
+        Double price = room.getRoomPrice();
+        return new JournalRecord(type, room.getRoomNumber(), room.getRoomType(),
+                price == null ? 0.0 : price,
+                customer == null ? "" : customer.getEmail(),
+                customer == null ? "" : customer.getFirstName(),
+                customer == null ? "" : customer.getLastName(),
+                DateUtils.toEpochDay(reservation.getCheckInDate()),
+                DateUtils.toEpochDay(reservation.getCheckOutDate()),
+                originalCheckInDay);
+    }
+
+    /**
+     * Rebuilds the room this record refers to.
+     *
+     * @return iRoom with the recorded number, type and price
+     */
+    public IRoom toRoom() {
+        if (RoomType.FREE.equals(roomType)) {
+            return new FreeRoom(roomNumber, roomType);
+        }
+        return new Room(roomNumber, roomPrice, roomType);
+    }
+
+    /**
+     * Rebuilds the customer this record refers to.
+     *
+     * @return customer with the recorded email and names, or null if the record has no customer
+     */
+    public Customer toCustomer() {
+        if (email.isEmpty()) {
+            return null;
+        }
+        return new Customer(firstName, lastName, email);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case ROOM:
+                writeRoom(out);
+                break;
+            case CUSTOMER:
+                writeCustomer(out);
+                break;
+            case RESERVATION:
+            case CANCELLATION:
+                writeStay(out);
+                break;
+            case CHANGE:
+                writeStay(out);
+                out.writeLong(originalCheckInDay);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    static JournalRecord readFrom(DataInput in) throws IOException {
+        Type type = Type.values()[in.readUnsignedByte()];
+        String roomNumber = "";
+        RoomType roomType = RoomType.SINGLE;
+        double roomPrice = 0.0;
+        String email = "";
+        String firstName = "";
+        String lastName = "";
+        long checkInDay = 0L;
+        long checkOutDay = 0L;
+        long originalCheckInDay = 0L;
+        boolean isStay = type == Type.RESERVATION || type == Type.CANCELLATION || type == Type.CHANGE;
+        if (type == Type.ROOM || isStay) {
+            roomNumber = in.readUTF();
+            roomType = RoomType.values()[in.readUnsignedByte()];
+            roomPrice = in.readDouble();
+        }
+        if (type == Type.CUSTOMER || isStay) {
+            email = in.readUTF();
+            firstName = in.readUTF();
+            lastName = in.readUTF();
+        }
+        if (isStay) {
+            checkInDay = in.readLong();
+            checkOutDay = in.readLong();
+        }
+        if (type == Type.CHANGE) {
+            originalCheckInDay = in.readLong();
+        }
+        return new JournalRecord(type, roomNumber, roomType, roomPrice, email, firstName, lastName, checkInDay,
+                checkOutDay, originalCheckInDay);
+    }
+
+    private void writeStay(DataOutput out) throws IOException {
+        writeRoom(out);
+        writeCustomer(out);
+        out.writeLong(checkInDay);
+        out.writeLong(checkOutDay);
+    }
+
+    private void writeRoom(DataOutput out) throws IOException {
+        out.writeUTF(roomNumber);
+        out.writeByte(roomType.ordinal());
+        out.writeDouble(roomPrice);
+    }
+
+    private void writeCustomer(DataOutput out) throws IOException {
+        out.writeUTF(email);
+        out.writeUTF(firstName == null ? "" : firstName);
+        out.writeUTF(lastName == null ? "" : lastName);
+    }
+}
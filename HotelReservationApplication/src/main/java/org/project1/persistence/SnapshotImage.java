@@ -0,0 +1,195 @@
+package org.project1.persistence;
+
+import org.project1.index.StayHistory;
+import org.project1.model.Customer;
+import org.project1.model.FreeRoom;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.util.DateUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped view of a snapshot written by {@link SnapshotStore}.
+ * <p>
+ * Opening an image only checks the header and trailer. Rooms and customers are decoded when asked for; the
+ * reservations are never copied out of the mapping, each room gets a {@link StayHistory} reading its slice of the
+ * reservation section in place.
+ */
+public class SnapshotImage {
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long sequence;
+    private final int roomCount;
+    private final int customerCount;
+    private final long reservationCount;
+    private final int reservationsOffset;
+    private final int roomsOffset;
+    private final int customersOffset;
+    private final int stringsOffset;
+    private Customer[] customers;
+
+    SnapshotImage(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < SnapshotStore.HEADER_SIZE + 8 || buffer.getInt(0) != SnapshotStore.MAGIC) {
+            throw new IOException("Not a snapshot file: " + path);
+        }
+        if (buffer.getInt(4) != SnapshotStore.VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + path);
+        }
+        if (buffer.getLong(buffer.capacity() - 8) != SnapshotStore.END_MARKER) {
+            throw new IOException("Snapshot is incomplete: " + path);
+        }
+        this.sequence = buffer.getLong(8);
+        this.roomCount = buffer.getInt(16);
+        this.customerCount = buffer.getInt(20);
+        this.reservationCount = buffer.getLong(24);
+        this.reservationsOffset = (int) buffer.getLong(32);
+        this.roomsOffset = (int) buffer.getLong(40);
+        this.customersOffset = (int) buffer.getLong(48);
+        this.stringsOffset = (int) buffer.getLong(56);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the sequence number of the last log record covered by this snapshot.
+     *
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    public long getReservationCount() {
+        return reservationCount;
+    }
+
+    /**
+     * Decodes the room at the supplied position.
+     *
+     * @param index position of the room
+     * @return iRoom with the recorded number, type and price
+     */
+    public IRoom getRoom(int index) {
+        int entry = roomsOffset + index * SnapshotStore.ROOM_SIZE;
+        String roomNumber = string(buffer.getInt(entry));
+        RoomType roomType = ROOM_TYPES[buffer.getInt(entry + 4)];
+        if (RoomType.FREE.equals(roomType)) {
+            return new FreeRoom(roomNumber, roomType);
+        }
+        return new Room(roomNumber, buffer.getDouble(entry + 8), roomType);
+    }
+
+    /**
+     * Returns the stays of the room at the supplied position, read in place from the mapping.
+     *
+     * @param index position of the room
+     * @return stays of the room ordered by check-in
+     */
+    public StayHistory getStayHistory(int index) {
+        int entry = roomsOffset + index * SnapshotStore.ROOM_SIZE;
+        long firstStay = buffer.getLong(entry + 16);
+        int stayCount = buffer.getInt(entry + 24);
+        if (stayCount == 0) {
+            return StayHistory.EMPTY;
+        }
+        return new MappedStayHistory(reservationsOffset + (int) firstStay * SnapshotStore.RESERVATION_SIZE,
+                stayCount);
+    }
+
+    /**
+     * Decodes the customers that were registered when the snapshot was taken.
+     *
+     * @return list of registered customers
+     */
+    public List<Customer> getRegisteredCustomers() {
+        Customer[] allCustomers = customers();
+        List<Customer> registered = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            if (buffer.getInt(customersOffset + i * SnapshotStore.CUSTOMER_SIZE + 12) == 1) {
+                registered.add(allCustomers[i]);
+            }
+        }
+        return registered;
+    }
+
+    private synchronized Customer[] customers() {
+        if (customers == null) {
+            Customer[] decoded = new Customer[customerCount];
+            for (int i = 0; i < customerCount; i++) {
+                int entry = customersOffset + i * SnapshotStore.CUSTOMER_SIZE;
+                decoded[i] = new Customer(string(buffer.getInt(entry + 4)), string(buffer.getInt(entry + 8)),
+                        string(buffer.getInt(entry)));
+            }
+            customers = decoded;
+        }
+        return customers;
+    }
+
+    private String string(int ref) {
+        int position = stringsOffset + ref;
+        int length = buffer.getInt(position);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stays of one room, read straight from the reservation section of the mapping.
+     */
+    private class MappedStayHistory implements StayHistory {
+        private final int offset;
+        private final int size;
+
+        private MappedStayHistory(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public long checkInDay(int index) {
+            return buffer.getInt(offset + index * SnapshotStore.RESERVATION_SIZE + 4);
+        }
+
+        @Override
+        public long checkOutDay(int index) {
+            return buffer.getInt(offset + index * SnapshotStore.RESERVATION_SIZE + 8);
+        }
+
+        @Override
+        public Customer customerAt(int index) {
+            int customerIndex = buffer.getInt(offset + index * SnapshotStore.RESERVATION_SIZE);
+            return customerIndex < 0 ? null : customers()[customerIndex];
+        }
+
+        @Override
+        public Reservation toReservation(int index, IRoom room) {
+            return new Reservation(customerAt(index), room, DateUtils.fromEpochDay(checkInDay(index)),
+                    DateUtils.fromEpochDay(checkOutDay(index)));
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.project1.persistence;
+
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compacted snapshots of all rooms, customers and reservations in a fixed-layout binary format.
+ * <p>
+ * A snapshot holds the current state only and is named after the sequence number of the last log record it covers.
+ * It is written to a temporary file, forced to disk and then renamed, so a crash while writing never leaves a
+ * partial snapshot behind. Layout, all numbers big-endian:
+ * <pre>
+ * header        64 bytes   magic, version, sequence, counts and section offsets
+ * reservations  16 bytes   customer index, check-in epoch day, check-out epoch day, unused
+ *                          grouped by room in room order, sorted by check-in within a room
+ * rooms         32 bytes   number string, type ordinal, price, first reservation, reservation count, unused
+ * customers     16 bytes   email string, first name string, last name string, registered flag
+ * strings                  length-prefixed UTF-8, referenced by offset from the start of the section
+ * trailer        8 bytes   end marker
+ * </pre>
+ * Snapshots are read through a {@link SnapshotImage}, which maps the file instead of parsing it.
+ */
+public class SnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    static final int MAGIC = 0x484f544c;
+    static final int VERSION = 2;
+    static final long END_MARKER = 0x454e442d484f544cL;
+    static final int HEADER_SIZE = 64;
+    static final int RESERVATION_SIZE = 16;
+    static final int ROOM_SIZE = 32;
+    static final int CUSTOMER_SIZE = 16;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Writes a new snapshot and deletes the older ones.
+     *
+     * @param sequence    sequence number of the last log record covered by the snapshot
+     * @param rooms       all recorded rooms
+     * @param staysOfRoom returns the stays of a room ordered by check-in
+     * @param customers   all registered customers
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(long sequence, Collection<IRoom> rooms, Function<IRoom, List<Reservation>> staysOfRoom,
+                      Collection<Customer> customers) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(nameOf(sequence));
+        Path temporary = directory.resolve(nameOf(sequence) + ".tmp");
+
+        StringPool strings = new StringPool();
+        Map<String, Integer> customerIndexes = new LinkedHashMap<>();
+        List<Customer> customerList = new ArrayList<>(customers.size());
+        for (Customer aCustomer : customers) {
+            if (customerIndexes.putIfAbsent(aCustomer.getEmail(), customerList.size()) == null) {
+                customerList.add(aCustomer);
+            }
+        }
+        int registeredCount = customerList.size();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+
+            // Reservations, remembering where the stays of each room start
+            List<IRoom> roomList = new ArrayList<>(rooms);
+            long[] firstStays = new long[roomList.size()];
+            int[] stayCounts = new int[roomList.size()];
+            long reservationCount = 0L;
+            for (int i = 0; i < roomList.size(); i++) {
+                List<Reservation> stays = staysOfRoom.apply(roomList.get(i));
+                firstStays[i] = reservationCount;
+                stayCounts[i] = stays.size();
+                for (Reservation aReservation : stays) {
+                    Customer customer = aReservation.getCustomer();
+                    int customerIndex = -1;
+                    if (customer != null) {
+                        Integer known = customerIndexes.get(customer.getEmail());
+                        if (known == null) {
+                            known = customerList.size();
+                            customerIndexes.put(customer.getEmail(), known);
+                            customerList.add(customer);
+                        }
+                        customerIndex = known;
+                    }
+                    out.writeInt(customerIndex);
+                    out.writeInt((int) DateUtils.toEpochDay(aReservation.getCheckInDate()));
+                    out.writeInt((int) DateUtils.toEpochDay(aReservation.getCheckOutDate()));
+                    out.writeInt(0);
+                }
+                reservationCount += stays.size();
+            }
+
+            long roomsOffset = HEADER_SIZE + reservationCount * RESERVATION_SIZE;
+            for (int i = 0; i < roomList.size(); i++) {
+                IRoom aRoom = roomList.get(i);
+                Double price = aRoom.getRoomPrice();
+                out.writeInt(strings.refOf(aRoom.getRoomNumber()));
+                out.writeInt(aRoom.getRoomType().ordinal());
+                out.writeDouble(price == null ? 0.0 : price);
+                out.writeLong(firstStays[i]);
+                out.writeInt(stayCounts[i]);
+                out.writeInt(0);
+            }
+
+            long customersOffset = roomsOffset + (long) roomList.size() * ROOM_SIZE;
+            for (int i = 0; i < customerList.size(); i++) {
+                Customer aCustomer = customerList.get(i);
+                out.writeInt(strings.refOf(aCustomer.getEmail()));
+                out.writeInt(strings.refOf(aCustomer.getFirstName()));
+                out.writeInt(strings.refOf(aCustomer.getLastName()));
+                out.writeInt(i < registeredCount ? 1 : 0);
+            }
+
+            long stringsOffset = customersOffset + (long) customerList.size() * CUSTOMER_SIZE;
+            strings.writeTo(out);
+            out.writeLong(END_MARKER);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(sequence)
+                    .putInt(roomList.size()).putInt(customerList.size()).putLong(reservationCount)
+                    .putLong(HEADER_SIZE).putLong(roomsOffset).putLong(customersOffset).putLong(stringsOffset);
+            header.flip();
+            long position = 0L;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        for (Path aSnapshot : snapshots()) {
+            if (!aSnapshot.equals(target)) {
+                try {
+                    Files.deleteIfExists(aSnapshot);
+                } catch (IOException ex) {
+                    // A snapshot still mapped by this process cannot be deleted on some platforms
+                    log.warn("Could not delete old snapshot {}", aSnapshot, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the latest snapshot, if there is one.
+     *
+     * @return image of the latest snapshot or null if there is no snapshot
+     * @throws IOException if the snapshot cannot be mapped or is incomplete
+     */
+    public SnapshotImage openLatest() throws IOException {
+        List<Path> snapshots = snapshots();
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        Path latest = snapshots.get(snapshots.size() - 1);
+        try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to be mapped: " + latest);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new SnapshotImage(latest, buffer);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path aSnapshot : stream) {
+                snapshots.add(aSnapshot);
+            }
+        }
+        snapshots.sort(null);
+        return snapshots;
+    }
+
+    private static String nameOf(long sequence) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Deduplicated strings of a snapshot, referenced by their offset in the strings section.
+     */
+    private static class StringPool {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private int refOf(String value) {
+            String text = value == null ? "" : value;
+            Integer ref = refs.get(text);
+            if (ref == null) {
+                ref = bytes.size();
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                bytes.write(encoded.length >>> 24);
+                bytes.write(encoded.length >>> 16);
+                bytes.write(encoded.length >>> 8);
+                bytes.write(encoded.length);
+                bytes.write(encoded, 0, encoded.length);
+                refs.put(text, ref);
+            }
+            return ref;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+}
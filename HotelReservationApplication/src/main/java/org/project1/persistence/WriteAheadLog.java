@@ -0,0 +1,377 @@
+package org.project1.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link JournalRecord}s with group commit.
+ * <p>
+ * Callers serialize their record on their own thread and hand it to a single flusher thread. The flusher drains
+ * every record queued so far, writes them with one call and forces them to disk with one fsync, then completes the
+ * futures of the whole batch. While one fsync is in progress the next batch builds up, so under load the cost of an
+ * fsync is shared by many bookings.
+ * <p>
+ * The log is split into segment files named after the sequence number of their first record. Each record is framed
+ * as {@code [length][crc32][sequence number][payload]}, which lets recovery detect and cut off a torn tail.
+ * <p>
+ * Records take their sequence numbers in the order they are queued. Once a write fails the log accepts no more
+ * records, so a record on disk is never followed by a lost one and a restart recovers an unbroken prefix.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingAppend> pending;
+    private final Object segmentLock;
+    private final Object queueLock;
+    private final Thread flusher;
+    private FileChannel segment;
+    private long nextSequence;
+    private CompletableFuture<Long> lastQueued;
+    private volatile boolean running;
+    private volatile IOException failure;
+
+    /**
+     * Constructor of this class. Opens a new segment starting at the supplied sequence number.
+     *
+     * @param directory    directory holding the segment files
+     * @param nextSequence sequence number of the next record
+     * @param maxBatchSize largest number of records written with one fsync
+     * @throws IOException if the segment cannot be created
+     */
+    public WriteAheadLog(Path directory, long nextSequence, int maxBatchSize) throws IOException {
+        this.directory = directory;
+        this.maxBatchSize = maxBatchSize;
+        this.pending = new LinkedBlockingQueue<>();
+        this.segmentLock = new Object();
+        this.queueLock = new Object();
+        this.nextSequence = nextSequence;
+        this.lastQueued = CompletableFuture.completedFuture(nextSequence - 1);
+        Files.createDirectories(directory);
+        openSegment(nextSequence);
+        this.running = true;
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the supplied record for writing.
+     *
+     * @param record record to append
+     * @return future completed with the record's sequence number once the record is on disk
+     */
+    public CompletableFuture<Long> append(JournalRecord record) {
+        CompletableFuture<Long> written = new CompletableFuture<>();
+        if (!running) {
+            written.completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+            return written;
+        }
+        if (failure != null) {
+            written.completeExceptionally(failure);
+            return written;
+        }
+        try {
+            PendingAppend append = new PendingAppend(encode(record), written);
+            synchronized (queueLock) {
+                pending.add(append);
+                lastQueued = written;
+            }
+        } catch (IOException ex) {
+            written.completeExceptionally(ex);
+        }
+        return written;
+    }
+
+    /**
+     * Returns the future of the last record queued so far. As records are written in the order they are queued and
+     * none is written after a failed one, it completes once that record and every record queued before it are on
+     * disk.
+     *
+     * @return future completed with the sequence number of the last queued record, or with the sequence number
+     * before the first record if none was queued
+     */
+    public CompletableFuture<Long> lastQueued() {
+        synchronized (queueLock) {
+            return lastQueued;
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Records written before the call all have a sequence number
+     * not greater than the returned one.
+     *
+     * @return sequence number of the last record in the closed segments
+     * @throws IOException if the new segment cannot be created
+     */
+    public long roll() throws IOException {
+        synchronized (segmentLock) {
+            long lastSequence = nextSequence - 1;
+            segment.force(true);
+            segment.close();
+            openSegment(nextSequence);
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence number not greater than the supplied one.
+     *
+     * @param sequence sequence number covered by a snapshot
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void purgeUpTo(long sequence) throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstSequenceOf(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reads all intact records with a sequence number greater than the supplied one, in log order. A torn record at
+     * the end of a segment and everything after it in that segment is cut off.
+     *
+     * @param directory     directory holding the segment files
+     * @param afterSequence records up to this sequence number are skipped
+     * @param consumer      receives the records
+     * @return sequence number of the last intact record, or {@code afterSequence} if there is none
+     * @throws IOException           if a segment cannot be read
+     * @throws IllegalStateException if the consumer fails on a record
+     */
+    public static long replay(Path directory, long afterSequence, Consumer<JournalRecord> consumer)
+            throws IOException {
+        long lastSequence = afterSequence;
+        if (!Files.isDirectory(directory)) {
+            return lastSequence;
+        }
+        for (Path aSegment : segments(directory)) {
+            long validLength = 0L;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(aSegment))) {
+                DataInputStream data = new DataInputStream(in);
+                while (true) {
+                    int length;
+                    try {
+                        length = data.readInt();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    int crc;
+                    long sequence;
+                    byte[] payload;
+                    try {
+                        crc = data.readInt();
+                        sequence = data.readLong();
+                        if (length < 0 || length > MAX_RECORD_SIZE) {
+                            break;
+                        }
+                        payload = new byte[length];
+                        data.readFully(payload);
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    if (crc != checksum(sequence, payload, length)) {
+                        break;
+                    }
+                    validLength += HEADER_SIZE + length;
+                    if (sequence > afterSequence) {
+                        JournalRecord record = JournalRecord.readFrom(
+                                new DataInputStream(new ByteArrayInputStream(payload)));
+                        try {
+                            consumer.accept(record);
+                        } catch (RuntimeException ex) {
+                            throw new IllegalStateException("Could not replay record " + sequence + " of "
+                                    + aSegment + ": " + ex.getMessage(), ex);
+                        }
+                        lastSequence = Math.max(lastSequence, sequence);
+                    }
+                }
+            }
+            if (validLength < Files.size(aSegment)) {
+                log.warn("Cutting off torn tail of {} at byte {}", aSegment, validLength);
+                try (FileChannel channel = FileChannel.open(aSegment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Writes out every queued record, stops the flusher and closes the current segment.
+     *
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        PendingAppend notWritten;
+        while ((notWritten = pending.poll()) != null) {
+            notWritten.written.completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+        }
+        synchronized (segmentLock) {
+            segment.close();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                PendingAppend first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, maxBatchSize - 1);
+                if (failure != null) {
+                    fail(batch, failure);
+                } else {
+                    write(batch);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException ex) {
+                log.error("Could not write {} journal records, no more records are accepted", batch.size(), ex);
+                failure = ex;
+                fail(batch, ex);
+            }
+            batch.clear();
+        }
+    }
+
+    private static void fail(List<PendingAppend> batch, IOException cause) {
+        for (PendingAppend anAppend : batch) {
+            anAppend.written.completeExceptionally(cause);
+        }
+    }
+
+    private void write(List<PendingAppend> batch) throws IOException {
+        long[] sequences = new long[batch.size()];
+        synchronized (segmentLock) {
+            long start = segment.size();
+            int size = 0;
+            for (PendingAppend anAppend : batch) {
+                size += HEADER_SIZE + anAppend.payload.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] payload = batch.get(i).payload;
+                long sequence = nextSequence + i;
+                buffer.putInt(payload.length);
+                buffer.putInt(checksum(sequence, payload, payload.length));
+                buffer.putLong(sequence);
+                buffer.put(payload);
+                sequences[i] = sequence;
+            }
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segment.force(false);
+            } catch (IOException ex) {
+                // The callers are told the batch failed, so it should not come back on recovery either
+                truncateQuietly(start);
+                throw ex;
+            }
+            nextSequence += batch.size();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).written.complete(sequences[i]);
+        }
+    }
+
+    private void truncateQuietly(long length) {
+        try {
+            segment.truncate(length);
+        } catch (IOException ex) {
+            log.warn("Could not cut off the failed batch at byte {}", length, ex);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static byte[] encode(JournalRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            record.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int checksum(long sequence, byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer sequenceBytes = ByteBuffer.allocate(8).putLong(sequence);
+        crc.update(sequenceBytes.array(), 0, 8);
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path aSegment : stream) {
+                segments.add(aSegment);
+            }
+        }
+        segments.sort((a, b) -> Long.compare(firstSequenceOf(a), firstSequenceOf(b)));
+        return segments;
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class PendingAppend {
+        private final byte[] payload;
+        private final CompletableFuture<Long> written;
+
+        private PendingAppend(byte[] payload, CompletableFuture<Long> written) {
+            this.payload = payload;
+            this.written = written;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.project1.persistence.jpa;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.project1.model.Customer;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Table row of a customer, keyed by email.
+ */
+@Entity
+@Table(name = "customer")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CustomerEntity {
+    @Id
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "first_name")
+    private String firstName;
+
+    @Column(name = "last_name")
+    private String lastName;
+
+    public CustomerEntity(Customer customer) {
+        this.email = customer.getEmail();
+        this.firstName = customer.getFirstName();
+        this.lastName = customer.getLastName();
+    }
+
+    /**
+     * Builds the customer object of this row.
+     *
+     * @return customer with the stored names and email
+     */
+    public Customer toCustomer() {
+        return new Customer(firstName, lastName, email);
+    }
+}
@@ -0,0 +1,12 @@
+package org.project1.persistence.jpa;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CustomerRepository extends JpaRepository<CustomerEntity, String> {
+    List<CustomerEntity> findAllByOrderByEmailAsc(Pageable pageable);
+
+    List<CustomerEntity> findByEmailGreaterThanOrderByEmailAsc(String email, Pageable pageable);
+}
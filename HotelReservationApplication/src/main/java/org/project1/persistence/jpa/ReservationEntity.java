@@ -0,0 +1,75 @@
+package org.project1.persistence.jpa;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.project1.model.Reservation;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * Table row of a reservation.
+ * <p>
+ * The index on room, check-in and check-out answers the overlap checks of a room with a range scan. Ids come from a
+ * pooled sequence rather than an identity column, so Hibernate can send inserts in JDBC batches.
+ */
+@Entity
+@Table(name = "reservation", indexes = {
+        @Index(name = "idx_reservation_room_stay", columnList = "room_number, check_in, check_out"),
+        @Index(name = "idx_reservation_customer", columnList = "customer_email")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReservationEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "room_number", nullable = false)
+    private RoomEntity room;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_email")
+    private CustomerEntity customer;
+
+    @Temporal(TemporalType.DATE)
+    @Column(name = "check_in", nullable = false)
+    private Date checkIn;
+
+    @Temporal(TemporalType.DATE)
+    @Column(name = "check_out", nullable = false)
+    private Date checkOut;
+
+    public ReservationEntity(RoomEntity room, CustomerEntity customer, Date checkIn, Date checkOut) {
+        this.room = room;
+        this.customer = customer;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+
+    /**
+     * Builds the reservation object of this row. Room and customer must already be loaded.
+     *
+     * @return reservation with the stored room, customer and dates
+     */
+    public Reservation toReservation() {
+        return new Reservation(customer == null ? null : customer.toCustomer(), room.toRoom(),
+                new Date(checkIn.getTime()), new Date(checkOut.getTime()));
+    }
+}
@@ -0,0 +1,81 @@
+package org.project1.persistence.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReservationRepository extends JpaRepository<ReservationEntity, Long> {
+    /**
+     * Checks if a reservation of the supplied room overlaps the supplied dates.
+     *
+     * @param roomNumber string with the room number
+     * @param checkIn    date of check-in
+     * @param checkOut   date of check-out
+     * @return true if at least one night of the stay is already reserved
+     */
+    @Query("select case when count(s) > 0 then true else false end from ReservationEntity s"
+            + " where s.room.roomNumber = :roomNumber and s.checkIn < :checkOut and s.checkOut > :checkIn")
+    boolean existsOverlapping(@Param("roomNumber") String roomNumber,
+                              @Param("checkIn") @Temporal(TemporalType.DATE) Date checkIn,
+                              @Param("checkOut") @Temporal(TemporalType.DATE) Date checkOut);
+
+    /**
+     * Checks if a reservation of the supplied room other than the supplied one overlaps the supplied dates.
+     *
+     * @param roomNumber string with the room number
+     * @param checkIn    date of check-in
+     * @param checkOut   date of check-out
+     * @param id         id of the reservation left out of the check
+     * @return true if at least one night of the stay is reserved by another reservation
+     */
+    @Query("select case when count(s) > 0 then true else false end from ReservationEntity s"
+            + " where s.room.roomNumber = :roomNumber and s.checkIn < :checkOut and s.checkOut > :checkIn"
+            + " and s.id <> :id")
+    boolean existsOtherOverlapping(@Param("roomNumber") String roomNumber,
+                                   @Param("checkIn") @Temporal(TemporalType.DATE) Date checkIn,
+                                   @Param("checkOut") @Temporal(TemporalType.DATE) Date checkOut,
+                                   @Param("id") Long id);
+
+    /**
+     * Finds the reservation of the supplied customer in the supplied room checking in on the supplied date, through
+     * the index on room and stay.
+     *
+     * @param roomNumber string with the room number
+     * @param checkIn    date of check-in
+     * @param email      string with the customer's email, null for a reservation without customer
+     * @return reservation with its room and customer, if there is one
+     */
+    @Query("select s from ReservationEntity s join fetch s.room left join fetch s.customer c"
+            + " where s.room.roomNumber = :roomNumber and s.checkIn = :checkIn"
+            + " and (c.email = :email or (:email is null and c is null))")
+    Optional<ReservationEntity> findStay(@Param("roomNumber") String roomNumber,
+                                         @Param("checkIn") @Temporal(TemporalType.DATE) Date checkIn,
+                                         @Param("email") String email);
+
+    @Query("select s from ReservationEntity s join fetch s.room left join fetch s.customer"
+            + " where s.customer.email = :email order by s.checkIn, s.room.roomNumber")
+    List<ReservationEntity> findByCustomerEmail(@Param("email") String email);
+
+    @Query("select s from ReservationEntity s join fetch s.room left join fetch s.customer")
+    List<ReservationEntity> findAllWithRoomAndCustomer();
+
+    /**
+     * Returns the room number, check-in and check-out of every stay with a night on or after the supplied date,
+     * grouped by room and ordered by check-in, without loading customers.
+     *
+     * @param from first night of interest
+     * @return rows of room number, check-in date and check-out date
+     */
+    @Query("select s.room.roomNumber, s.checkIn, s.checkOut from ReservationEntity s"
+            + " where s.checkOut > :from order by s.room.roomNumber, s.checkIn")
+    List<Object[]> findStaySpansEndingAfter(@Param("from") @Temporal(TemporalType.DATE) Date from);
+
+    @Query("select min(s.checkOut) from ReservationEntity s")
+    Date findMinCheckOut();
+}
@@ -0,0 +1,56 @@
+package org.project1.persistence.jpa;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.project1.model.FreeRoom;
+import org.project1.model.IRoom;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Table row of a room, keyed by its room number.
+ */
+@Entity
+@Table(name = "room", indexes = @Index(name = "idx_room_type_price", columnList = "room_type, price"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class RoomEntity {
+    @Id
+    @Column(name = "room_number", length = 64)
+    private String roomNumber;
+
+    @Column(name = "price")
+    private Double price;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "room_type", length = 16, nullable = false)
+    private RoomType roomType;
+
+    public RoomEntity(IRoom room) {
+        this.roomNumber = room.getRoomNumber();
+        this.price = room.getRoomPrice();
+        this.roomType = room.getRoomType();
+    }
+
+    /**
+     * Builds the room object of this row.
+     *
+     * @return iRoom with the stored number, type and price
+     */
+    public IRoom toRoom() {
+        if (RoomType.FREE.equals(roomType)) {
+            return new FreeRoom(roomNumber, roomType);
+        }
+        return new Room(roomNumber, price, roomType);
+    }
+}
@@ -0,0 +1,69 @@
+package org.project1.persistence.jpa;
+
+import org.project1.model.RoomType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface RoomRepository extends JpaRepository<RoomEntity, String> {
+    List<RoomEntity> findByRoomType(RoomType roomType);
+
+    List<RoomEntity> findByPriceLessThanEqualOrderByPriceAsc(Double maxPrice);
+
+    List<RoomEntity> findAllByOrderByRoomNumberAsc(Pageable pageable);
+
+    List<RoomEntity> findByRoomNumberGreaterThanOrderByRoomNumberAsc(String roomNumber, Pageable pageable);
+
+    /**
+     * Loads a room and locks its row until the end of the transaction, so bookings of the same room are serialized.
+     *
+     * @param roomNumber string with the room number
+     * @return locked room, if there is one with that number
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RoomEntity r where r.roomNumber = :roomNumber")
+    Optional<RoomEntity> findForUpdate(@Param("roomNumber") String roomNumber);
+
+    /**
+     * Finds the rooms without a reservation overlapping the supplied dates. A single anti-join: each room is probed
+     * through the (room, check-in, check-out) index, no reservation rows are loaded.
+     *
+     * @param checkIn  date of check-in
+     * @param checkOut date of check-out
+     * @return rooms free for every night of the stay
+     */
+    @Query("select r from RoomEntity r where not exists (select s.id from ReservationEntity s"
+            + " where s.room = r and s.checkIn < :checkOut and s.checkOut > :checkIn)")
+    List<RoomEntity> findFree(@Param("checkIn") @Temporal(TemporalType.DATE) Date checkIn,
+                              @Param("checkOut") @Temporal(TemporalType.DATE) Date checkOut);
+
+    /**
+     * Finds the cheapest rooms without a reservation overlapping the supplied dates. The database walks the rooms in
+     * price order and stops once a page of free rooms is found.
+     *
+     * @param checkIn  date of check-in
+     * @param checkOut date of check-out
+     * @param roomType type of the rooms, null for any type
+     * @param maxPrice highest accepted price
+     * @param pageable first page, sized to the number of rooms wanted
+     * @return free rooms ordered by price and then by room number
+     */
+    @Query("select r from RoomEntity r where (:roomType is null or r.roomType = :roomType)"
+            + " and coalesce(r.price, 0) <= :maxPrice and not exists (select s.id from ReservationEntity s"
+            + " where s.room = r and s.checkIn < :checkOut and s.checkOut > :checkIn)"
+            + " order by coalesce(r.price, 0), r.roomNumber")
+    List<RoomEntity> findCheapestFree(@Param("checkIn") @Temporal(TemporalType.DATE) Date checkIn,
+                                      @Param("checkOut") @Temporal(TemporalType.DATE) Date checkOut,
+                                      @Param("roomType") RoomType roomType,
+                                      @Param("maxPrice") double maxPrice,
+                                      Pageable pageable);
+}
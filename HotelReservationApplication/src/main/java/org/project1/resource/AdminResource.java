@@ -1,13 +1,29 @@
 package org.project1.resource;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.project1.model.Customer;
+import org.project1.model.CustomerImportReport;
 import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
 import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomImportReport;
 import org.project1.service.CustomerService;
+import org.project1.service.HotelEventStream;
 import org.project1.service.ReservationService;
+import org.project1.service.ReservationSnapshot;
+import org.project1.service.impl.CustomerImporter;
+import org.project1.service.impl.HotelEventPublisher;
+import org.project1.service.impl.RoomImporter;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * API which serves as intermediary between the admin UI and the services.
@@ -18,6 +34,15 @@ import java.util.*;
 public class AdminResource {
     private final CustomerService customerService;
     private final ReservationService reservationService;
+    private final RoomImporter roomImporter;
+    private final CustomerImporter customerImporter;
+    private final HotelEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Timer roomAddTimer;
+    private final Timer roomImportTimer;
+    private final Timer customerImportTimer;
+    private final Timer listingTimer;
+    private final Timer reportTimer;
 
     /**
      * Constructor of this class.
@@ -25,53 +50,178 @@ public class AdminResource {
      * @param customerService       customerService object that handles {@link Customer}s
      * @param reservationService    reservationService object that handles {@link IRoom}s and
      *                              {@link Reservation}s
+     * @param roomImporter          roomImporter object that reads rooms from a file
+     * @param customerImporter      customerImporter object that reads customers from a file
+     * @param eventPublisher        eventPublisher object that tells subscribers about the changes
+     * @param meterRegistry         registry of the timers of this API
      */
     public AdminResource(CustomerService customerService,
-                         ReservationService reservationService) {
+                         ReservationService reservationService,
+                         RoomImporter roomImporter,
+                         CustomerImporter customerImporter,
+                         HotelEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry) {
         this.customerService = customerService;
         this.reservationService = reservationService;
+        this.roomImporter = roomImporter;
+        this.customerImporter = customerImporter;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.roomAddTimer = HotelResource.timer(meterRegistry, "hotel.rooms.add", "Recording a batch of rooms");
+        this.roomImportTimer = HotelResource.timer(meterRegistry, "hotel.rooms.import",
+                "Importing rooms from a file");
+        this.customerImportTimer = HotelResource.timer(meterRegistry, "hotel.customers.import",
+                "Importing customers from a file");
+        this.listingTimer = HotelResource.timer(meterRegistry, "hotel.admin.listing",
+                "Reading one page of an admin listing");
+        this.reportTimer = HotelResource.timer(meterRegistry, "hotel.admin.report",
+                "Reporting occupancy and revenue over a period");
     }
 
     /**
      * Calls a service to record a collection of new rooms.
      *
      * @param rooms list of new rooms to record
+     * @return      list of the rooms which were not recorded because a room with the same number already exists
      */
-    public void addRoom(List<IRoom> rooms) {
+    public List<IRoom> addRoom(List<IRoom> rooms) {
+        List<IRoom> skipped = roomAddTimer.record(() -> reservationService.addRooms(rooms));
+        eventPublisher.roomsAdded(rooms, skipped);
+        return skipped;
+    }
+
+    /**
+     * Subscribes to the events of new rooms, customers and reservations.
+     *
+     * @param subscriber subscriber receiving the events published from now on
+     * @param overflow   what to do with an event which finds the buffer of the subscriber full
+     */
+    public void subscribeToEvents(HotelEventStream.Subscriber subscriber, HotelEventStream.Overflow overflow) {
+        eventPublisher.subscribe(subscriber, overflow);
+    }
+
+    /**
+     * Calls the importer to record the rooms listed in a CSV or NDJSON file.
+     *
+     * @param reader content of the file
+     * @return report of the imported, skipped and rejected rooms
+     * @throws IOException if the file cannot be read
+     */
+    public RoomImportReport importRooms(Reader reader) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return roomImporter.importRooms(reader);
+        } finally {
+            sample.stop(roomImportTimer);
+        }
+    }
 
-        for (IRoom newRoom: rooms) {
-            if (!reservationService.addRoom(newRoom)) {
-                System.out.println("You have already added a room with room number " + newRoom.getRoomNumber());
-            };
+    /**
+     * Calls the importer to register the customers listed in a CSV or NDJSON file.
+     *
+     * @param reader content of the file
+     * @return report of the imported, skipped and rejected customers
+     * @throws IOException if the file cannot be read
+     */
+    public CustomerImportReport importCustomers(Reader reader) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return customerImporter.importCustomers(reader);
+        } finally {
+            sample.stop(customerImportTimer);
         }
     }
 
     /**
-     * Calls a service to get all recorded rooms.
+     * Calls a service to get one page of the recorded rooms, in room number order.
      *
-     * @return collection of all recorded rooms
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of rooms on the page
+     * @return page of rooms
      */
-    public Collection<IRoom> getAllRooms() {
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        return listingTimer.record(() -> reservationService.getRooms(cursor, limit));
+    }
 
-        Set<IRoom> allRooms = reservationService.getRooms();
-        return new ArrayList<>(allRooms);
+    /**
+     * Gets one page of the rooms of a snapshot, in room number order.
+     *
+     * @param snapshot snapshot the listing is read from
+     * @param cursor   string returned with the previous page, null for the first page
+     * @param limit    largest number of rooms on the page
+     * @return page of rooms
+     */
+    public Page<IRoom> getRooms(ReservationSnapshot snapshot, String cursor, int limit) {
+        return listingTimer.record(() -> snapshot.getRooms(cursor, limit));
+    }
+
+    /**
+     * Calls a service to get one page of the customers, in email order.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of customers on the page
+     * @return page of customers
+     */
+    public Page<Customer> getCustomers(String cursor, int limit) {
+        return listingTimer.record(() -> customerService.getCustomers(cursor, limit));
+    }
+
+    /**
+     * Calls a service to get one page of the reservations matching the supplied filter.
+     *
+     * @param filter criteria of the reservations
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of reservations on the page
+     * @return page of reservations
+     */
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        return listingTimer.record(() -> reservationService.getReservations(filter, cursor, limit));
+    }
+
+    /**
+     * Gets one page of the reservations of a snapshot matching the supplied filter.
+     *
+     * @param snapshot snapshot the listing is read from
+     * @param filter   criteria of the reservations
+     * @param cursor   string returned with the previous page, null for the first page
+     * @param limit    largest number of reservations on the page
+     * @return page of reservations
+     */
+    public Page<Reservation> getReservations(ReservationSnapshot snapshot, ReservationFilter filter, String cursor,
+                                             int limit) {
+        return listingTimer.record(() -> snapshot.getReservations(filter, cursor, limit));
+    }
+
+    /**
+     * Calls a service to open a view of the rooms and reservations as they are now, so that a listing going through
+     * many pages, however long it takes, reads them all at the same instant.
+     *
+     * @return snapshot to close once the listing is done
+     */
+    public ReservationSnapshot openSnapshot() {
+        return reservationService.openSnapshot();
     }
 
     /**
-     * Calls a service to get all customers.
+     * Calls a service to report occupancy and room revenue over the supplied period.
      *
-     * @return  collection of all recorded customers
+     * @param from date of the first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
      */
-    public Collection<Customer> getAllCustomers() {
-        return customerService.getAllCustomers();
+    public OccupancyReport getOccupancyReport(Date from, Date to) {
+        return reportTimer.record(() -> reservationService.getOccupancyReport(from, to));
     }
 
     /**
-     * Calls a service to get all recorded reservations
+     * Calls a service to stream all reservations matching the supplied filter, without holding them all at once.
+     * They are read from a snapshot, ordered by room number then check-in, which is closed with the stream.
      *
-     * @return  set of all reservations
+     * @param filter criteria of the reservations
+     * @return lazy stream of reservations
      */
-    public Set<Reservation> getAllReservations() {
-        return reservationService.getAllReservations();
+    public Stream<Reservation> streamReservations(ReservationFilter filter) {
+        ReservationSnapshot snapshot = reservationService.openSnapshot();
+        return snapshot.streamReservations(filter).onClose(snapshot::close);
     }
 }
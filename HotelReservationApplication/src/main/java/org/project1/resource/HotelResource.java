@@ -1,23 +1,48 @@
 package org.project1.resource;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.project1.model.AvailableWindow;
 import org.project1.model.Customer;
 import org.project1.model.IRoom;
 import org.project1.model.Reservation;
+import org.project1.model.RoomType;
 import org.project1.service.CustomerService;
+import org.project1.service.ReservationConflictException;
 import org.project1.service.ReservationService;
+import org.project1.service.impl.HotelEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 /**
  * API which serves as intermediary between the customer UI and the services.
+ * <p>
+ * Every call is timed, so the latency of searches, bookings and lookups can be watched through the actuator
+ * metrics endpoint whether they come from the console or over HTTP. New customers are published to the
+ * {@link HotelEventPublisher} once the service has recorded them; bookings, cancellations and changes are published
+ * by the reservation service itself, while the room is locked.
  *  @author Chu Nguyen Linh
  */
 @Component
 public class HotelResource {
     private final CustomerService customerService;
     private final ReservationService reservationService;
+    private final HotelEventPublisher eventPublisher;
+    private final Timer customerLookupTimer;
+    private final Timer customerAddTimer;
+    private final Timer roomLookupTimer;
+    private final Timer searchTimer;
+    private final Timer windowSearchTimer;
+    private final Timer cheapestSearchTimer;
+    private final Timer bookingTimer;
+    private final Timer cancellationTimer;
+    private final Timer changeTimer;
+    private final Timer reservationLookupTimer;
+    private final Counter bookingConflicts;
 
     /**
      * Constructor of this class.
@@ -25,11 +50,42 @@ public class HotelResource {
      * @param customerService       customerService object that handles {@link Customer}s
      * @param reservationService    reservationService object that handles {@link IRoom}s and
      *                              {@link Reservation}s
+     * @param eventPublisher        eventPublisher object that tells subscribers about the changes
+     * @param meterRegistry         registry of the timers and counters of this API
      */
     public HotelResource(CustomerService customerService,
-                         ReservationService reservationService) {
+                         ReservationService reservationService,
+                         HotelEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry) {
         this.customerService = customerService;
         this.reservationService = reservationService;
+        this.eventPublisher = eventPublisher;
+        this.customerLookupTimer = timer(meterRegistry, "hotel.customers.lookup", "Finding a customer by email");
+        this.customerAddTimer = timer(meterRegistry, "hotel.customers.add", "Registering a customer");
+        this.roomLookupTimer = timer(meterRegistry, "hotel.rooms.lookup", "Finding rooms by number, type or price");
+        this.searchTimer = timer(meterRegistry, "hotel.rooms.search", "Finding rooms free for a stay");
+        this.windowSearchTimer = timer(meterRegistry, "hotel.rooms.windows",
+                "Finding the earliest stays some room is free for");
+        this.cheapestSearchTimer = timer(meterRegistry, "hotel.rooms.cheapest",
+                "Finding the cheapest rooms free for a stay");
+        this.bookingTimer = timer(meterRegistry, "hotel.reservations.book", "Booking a room");
+        this.cancellationTimer = timer(meterRegistry, "hotel.reservations.cancel", "Cancelling a reservation");
+        this.changeTimer = timer(meterRegistry, "hotel.reservations.change", "Changing the dates of a reservation");
+        this.reservationLookupTimer = timer(meterRegistry, "hotel.reservations.lookup",
+                "Finding the reservations of a customer");
+        this.bookingConflicts = Counter.builder("hotel.reservations.conflicts")
+                .description("Bookings and changes refused because the room was already reserved")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds a timer publishing a percentile histogram, so latency percentiles can be aggregated across instances.
+     */
+    static Timer timer(MeterRegistry meterRegistry, String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
@@ -39,7 +95,7 @@ public class HotelResource {
      * @return      customer object which has the supplied email
      */
     public Customer getCustomer(String email) {
-        return customerService.getCustomer(email);
+        return customerLookupTimer.record(() -> customerService.getCustomer(email));
     }
 
     /**
@@ -50,7 +106,8 @@ public class HotelResource {
      * @param lasName   string with customer's last name
      */
     public void createACustomer(String email, String firstName, String lasName) {
-        customerService.addCustomer(email, firstName, lasName);
+        customerAddTimer.record(() -> customerService.addCustomer(email, firstName, lasName));
+        eventPublisher.customerCreated(new Customer(firstName, lasName, email));
     }
 
     /**
@@ -60,7 +117,27 @@ public class HotelResource {
      * @return              iRoom object of the room with the supplied number
      */
     public IRoom getRoom(String roomNumber) throws Exception {
-        return reservationService.getARoom(roomNumber);
+        return roomLookupTimer.recordCallable(() -> reservationService.getARoom(roomNumber));
+    }
+
+    /**
+     * Calls a service to get all rooms of the supplied type.
+     *
+     * @param roomType  type of the required rooms
+     * @return          collection of rooms of that type
+     */
+    public Collection<IRoom> getRoomsByType(RoomType roomType) {
+        return roomLookupTimer.record(() -> reservationService.getRoomsByType(roomType));
+    }
+
+    /**
+     * Calls a service to get all rooms priced at most the supplied price.
+     *
+     * @param maxPrice  highest accepted price
+     * @return          collection of matching rooms, cheapest first
+     */
+    public Collection<IRoom> getRoomsByMaxPrice(double maxPrice) {
+        return roomLookupTimer.record(() -> reservationService.getRoomsByMaxPrice(maxPrice));
     }
 
     /**
@@ -77,8 +154,50 @@ public class HotelResource {
                                  Date checkOutDate) {
 
         Customer customer = getCustomer(customerEmail);
-        return reservationService.reserveARoom(customer, room, checkInDate,
-                checkOutDate);
+        try {
+            return bookingTimer.record(() -> reservationService.reserveARoom(customer, room, checkInDate,
+                    checkOutDate));
+        } catch (ReservationConflictException ex) {
+            bookingConflicts.increment();
+            throw ex;
+        }
+    }
+
+    /**
+     * Calls a service to get a {@link Customer} with the supplied email and cancel their reservation of the supplied
+     * room checking in on the supplied date.
+     *
+     * @param customerEmail string with the email of the customer of the reservation
+     * @param room          iRoom object of the reserved room
+     * @param checkInDate   date object of check-in of the reservation
+     * @return              reservation object which was cancelled
+     */
+    public Reservation cancelReservation(String customerEmail, IRoom room, Date checkInDate) {
+        Customer customer = getCustomer(customerEmail);
+        return cancellationTimer.record(() -> reservationService.cancelReservation(customer, room, checkInDate));
+    }
+
+    /**
+     * Calls a service to get a {@link Customer} with the supplied email and move their reservation of the supplied
+     * room checking in on the supplied date to new dates.
+     *
+     * @param customerEmail   string with the email of the customer of the reservation
+     * @param room            iRoom object of the reserved room
+     * @param checkInDate     date object of check-in of the reservation
+     * @param newCheckInDate  date object of the new check-in
+     * @param newCheckOutDate date object of the new check-out
+     * @return                reservation object with the new dates
+     */
+    public Reservation changeReservation(String customerEmail, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate) {
+        Customer customer = getCustomer(customerEmail);
+        try {
+            return changeTimer.record(() -> reservationService.changeReservation(customer, room, checkInDate,
+                    newCheckInDate, newCheckOutDate));
+        } catch (ReservationConflictException ex) {
+            bookingConflicts.increment();
+            throw ex;
+        }
     }
 
     /**
@@ -90,7 +209,7 @@ public class HotelResource {
     public Collection<Reservation> getCustomersReservations(String customerEmail) {
 
         Customer customer = getCustomer(customerEmail);
-        return reservationService.getCustomersReservation(customer);
+        return reservationLookupTimer.record(() -> reservationService.getCustomersReservation(customer));
     }
 
     /**
@@ -101,7 +220,37 @@ public class HotelResource {
      * @return          collection of rooms available for booking
      */
     public Collection<IRoom> findARoom(Date checkIn, Date checkOut) {
-        return reservationService.findRooms(checkIn, checkOut);
+        return searchTimer.record(() -> reservationService.findRooms(checkIn, checkOut));
+    }
+
+    /**
+     * Calls a service to find the earliest check-in days, on or after the supplied date, on which some room is free
+     * for the whole stay.
+     *
+     * @param checkIn   earliest date of check-in
+     * @param nights    number of nights of the stay
+     * @param roomType  type of the rooms, null for any type
+     * @param count     largest number of windows returned
+     * @return          list of windows ordered by check-in, each with the rooms free for it
+     */
+    public List<AvailableWindow> findAvailableWindows(Date checkIn, int nights, RoomType roomType, int count) {
+        return windowSearchTimer.record(() -> reservationService.findAvailableWindows(checkIn, nights, roomType,
+                count));
+    }
+
+    /**
+     * Calls a service to find the cheapest rooms available for booking for the supplied dates.
+     *
+     * @param checkIn   date object of check-in
+     * @param checkOut  date object of check-out
+     * @param roomType  type of the rooms, null for any type
+     * @param maxPrice  highest accepted price, null for any price
+     * @param count     largest number of rooms returned
+     * @return          list of available rooms, cheapest first
+     */
+    public List<IRoom> findCheapestRooms(Date checkIn, Date checkOut, RoomType roomType, Double maxPrice, int count) {
+        return cheapestSearchTimer.record(() -> reservationService.findCheapestRooms(checkIn, checkOut, roomType,
+                maxPrice, count));
     }
 
     public Date findMinAvailableDay() {
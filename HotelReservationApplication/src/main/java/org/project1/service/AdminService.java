@@ -6,4 +6,7 @@ public interface AdminService {
     void showAllRooms();
     void showAllReservations();
     void addARoom();
+    void importRooms();
+    void importCustomers();
+    void showOccupancyReport();
 }
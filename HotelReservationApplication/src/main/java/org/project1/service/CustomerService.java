@@ -1,11 +1,36 @@
 package org.project1.service;
 
 import org.project1.model.Customer;
+import org.project1.model.Page;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public interface CustomerService {
     void addCustomer(String email, String firstName, String lastName);
+
+    /**
+     * Records the supplied customers whose email is not registered yet. Of several customers with the same email,
+     * only the first is recorded.
+     *
+     * @param customers customers to record
+     * @return customers who were not recorded because their email is already registered
+     */
+    default List<Customer> addCustomers(Collection<Customer> customers) {
+        List<Customer> duplicates = new ArrayList<>();
+        for (Customer aCustomer : customers) {
+            if (getCustomer(aCustomer.getEmail()) != null) {
+                duplicates.add(aCustomer);
+            } else {
+                addCustomer(aCustomer.getEmail(), aCustomer.getFirstName(), aCustomer.getLastName());
+            }
+        }
+        return duplicates;
+    }
+
     Customer getCustomer(String customerEmail);
     Collection<Customer> getAllCustomers();
+    long getCustomerCount();
+    Page<Customer> getCustomers(String cursor, int limit);
 }
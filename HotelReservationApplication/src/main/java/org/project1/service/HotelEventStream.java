@@ -0,0 +1,99 @@
+package org.project1.service;
+
+import org.project1.model.HotelEvent;
+
+/**
+ * In-process stream of {@link HotelEvent}s, so reporting, cache or audit consumers learn about new rooms, customers
+ * and bookings as they happen instead of rescanning all reservations.
+ * <p>
+ * The protocol is that of {@code java.util.concurrent.Flow}: a subscriber receives events only as far as it has
+ * requested them, and the events published meanwhile wait in a bounded buffer of its own. Publishing never waits for
+ * a subscriber. What happens to an event which finds the buffer full is up to the {@link Overflow} policy the
+ * subscriber was added with; either way it never silently misses an event.
+ */
+public interface HotelEventStream {
+
+    /**
+     * Adds the supplied subscriber, which is cut off once its buffer overflows. It receives the events published from
+     * now on, once it has been handed its subscription and has requested them.
+     *
+     * @param subscriber subscriber to add
+     */
+    void subscribe(Subscriber subscriber);
+
+    /**
+     * Adds the supplied subscriber. It receives the events published from now on, once it has been handed its
+     * subscription and has requested them.
+     *
+     * @param subscriber subscriber to add
+     * @param overflow   what to do with an event which finds the buffer of the subscriber full
+     */
+    void subscribe(Subscriber subscriber, Overflow overflow);
+
+    /**
+     * Policy for an event published while the buffer of a subscriber is full.
+     */
+    enum Overflow {
+        /**
+         * End the subscription with {@link Subscriber#onError}.
+         */
+        FAIL,
+        /**
+         * Drop the event; the subscriber is handed an {@link HotelEvent.Type#EVENTS_SKIPPED} event in place of each
+         * run of dropped events, telling how many it missed.
+         */
+        SKIP
+    }
+
+    /**
+     * Receiver of the events of the stream. Its methods are called one at a time, never concurrently.
+     */
+    interface Subscriber {
+
+        /**
+         * Called first, with the subscription through which events are requested.
+         *
+         * @param subscription subscription of this subscriber
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next event, only as far as events have been requested.
+         *
+         * @param event next event of the stream
+         */
+        void onNext(HotelEvent event);
+
+        /**
+         * Called when the subscription ended because of a failure, such as an overflow of the buffer. No other method
+         * is called afterwards.
+         *
+         * @param failure cause of the end of the subscription
+         */
+        void onError(Throwable failure);
+
+        /**
+         * Called when the stream was closed and all buffered events have been delivered. No other method is called
+         * afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between the stream and one subscriber.
+     */
+    interface Subscription {
+
+        /**
+         * Allows the supplied number of further events to be delivered.
+         *
+         * @param n number of events, a request which is not positive ends the subscription with an error
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of events and drops those still buffered.
+         */
+        void cancel();
+    }
+}
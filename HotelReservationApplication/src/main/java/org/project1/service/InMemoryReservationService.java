@@ -0,0 +1,99 @@
+package org.project1.service;
+
+import org.project1.index.StayArchive;
+import org.project1.index.StayHistory;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link ReservationService} holding its rooms and stays in memory, which the journal and the stay archiver work on.
+ */
+public interface InMemoryReservationService extends ReservationService {
+
+    /**
+     * Returns a room if one was already recorded with the supplied ID.
+     *
+     * @param roomId string for room's ID
+     * @return iRoom corresponding to supplied ID
+     * @throws IllegalArgumentException if there is no room with supplied ID
+     */
+    @Override
+    IRoom getARoom(String roomId);
+
+    /**
+     * Books a room as {@link #reserveARoom(Customer, IRoom, Date, Date)} does, telling the supplied listener under
+     * the lock of the room.
+     *
+     * @param customer     customer of the reservation
+     * @param room         iRoom which is reserved
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @param listener     told of the booking before the lock of the room is released
+     * @return reservation newly created
+     */
+    Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate,
+                             StayListener listener);
+
+    /**
+     * Cancels a stay as {@link #cancelReservation(Customer, IRoom, Date)} does, telling the supplied listener under
+     * the lock of the room.
+     *
+     * @param customer    customer of the reservation
+     * @param room        iRoom which is reserved
+     * @param checkInDate date object of check-in of the reservation
+     * @param listener    told of the cancellation before the lock of the room is released
+     * @return reservation cancelled
+     */
+    Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate, StayListener listener);
+
+    /**
+     * Moves a stay as {@link #changeReservation(Customer, IRoom, Date, Date, Date)} does, telling the supplied
+     * listener under the lock of the room.
+     *
+     * @param customer        customer of the reservation
+     * @param room            iRoom which is reserved
+     * @param checkInDate     date object of check-in of the reservation
+     * @param newCheckInDate  date object of the new check-in
+     * @param newCheckOutDate date object of the new check-out
+     * @param listener        told of the change before the lock of the room is released
+     * @return reservation with the new dates
+     */
+    Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                  Date newCheckOutDate, StayListener listener);
+
+    /**
+     * Records the supplied room together with stays already booked for it, typically read from a snapshot.
+     *
+     * @param room    iRoom, an object of a room to add
+     * @param history stays of the room ordered by check-in
+     * @return true if the room was recorded, false if a room with the same number already exists
+     */
+    boolean addRoom(IRoom room, StayHistory history);
+
+    /**
+     * Returns all stays of the supplied room.
+     *
+     * @param room iRoom whose stays are returned
+     * @return list of reservations ordered by check-in, empty if the room is unknown
+     */
+    List<Reservation> getRoomStays(IRoom room);
+
+    /**
+     * Moves the stays checking out on or before the supplied day off the heap.
+     *
+     * @param cutoffDay epoch day on or before which archived stays check out
+     * @return the new archives, together holding all archived stays
+     */
+    List<StayArchive> archiveStays(long cutoffDay);
+
+    /**
+     * Writes the stay histories holding cancelled stays again without them, so reads no longer skip over them.
+     *
+     * @return number of cancelled stays dropped
+     */
+    int compactCancelledStays();
+}
@@ -3,6 +3,7 @@ package org.project1.service;
 public interface MenuService {
     void printMenu();
     void showCustomersReservations();
+    void cancelOrChangeReservation();
     void findAndReserveARoom() throws Exception;
     void createNewAccount();
 }
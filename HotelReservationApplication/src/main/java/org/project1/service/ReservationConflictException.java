@@ -0,0 +1,13 @@
+package org.project1.service;
+
+/**
+ * Thrown when a booking is refused because the room is already reserved for at least one night of the stay. It is
+ * still an {@link IllegalArgumentException}, so callers handling bad input keep working, while callers interested in
+ * conflicts, such as the booking metrics, can tell them apart from other refusals.
+ */
+public class ReservationConflictException extends IllegalArgumentException {
+
+    public ReservationConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package org.project1.service;
+
+import lombok.Getter;
+import org.project1.model.Reservation;
+import org.project1.util.DateUtils;
+
+/**
+ * Position in a reservation listing: the check-in day and room number of the last reservation returned.
+ * Listings filtered by customer are ordered by check-in then room number, all others by room number then check-in.
+ */
+@Getter
+public class ReservationCursor {
+    private final long checkInDay;
+    private final String roomNumber;
+
+    private ReservationCursor(long checkInDay, String roomNumber) {
+        this.checkInDay = checkInDay;
+        this.roomNumber = roomNumber;
+    }
+
+    /**
+     * Returns the cursor pointing after the supplied reservation.
+     *
+     * @param reservation last reservation of a page
+     * @return string of the cursor
+     */
+    public static String encode(Reservation reservation) {
+        return DateUtils.toEpochDay(reservation.getCheckInDate()) + ":" + reservation.getRoom().getRoomNumber();
+    }
+
+    /**
+     * Reads a cursor returned by {@link #encode(Reservation)}.
+     *
+     * @param cursor string of the cursor, null or empty for the first page
+     * @return position after which the page starts, null for the first page
+     * @throws IllegalArgumentException if the cursor was not returned by a listing
+     */
+    public static ReservationCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            return new ReservationCursor(Long.parseLong(cursor.substring(0, separator)),
+                    cursor.substring(separator + 1));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+    }
+}
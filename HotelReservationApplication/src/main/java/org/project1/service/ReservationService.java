@@ -1,21 +1,96 @@
 package org.project1.service;
 
+import org.project1.model.AvailableWindow;
 import org.project1.model.Customer;
 import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
 import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomType;
+import org.project1.util.PageIterator;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface ReservationService {
     boolean addRoom(IRoom room);
+
+    /**
+     * Records the supplied rooms whose number is not taken yet.
+     *
+     * @param rooms rooms to record
+     * @return rooms which were not recorded because a room with the same number already exists
+     */
+    default List<IRoom> addRooms(Collection<IRoom> rooms) {
+        List<IRoom> duplicates = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            if (!addRoom(aRoom)) {
+                duplicates.add(aRoom);
+            }
+        }
+        return duplicates;
+    }
+
     IRoom getARoom(String roomId) throws Exception;
+    IRoom findRoomByNumber(String roomNumber);
+    Collection<IRoom> getRoomsByType(RoomType roomType);
+    Collection<IRoom> getRoomsByMaxPrice(double maxPrice);
     Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate);
+    Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate);
+    Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                  Date newCheckOutDate);
     Collection<IRoom> findRooms(Date checkInDate, Date checkOutDate);
+    List<AvailableWindow> findAvailableWindows(Date checkInDate, int nights, RoomType roomType, int count);
+    List<IRoom> findCheapestRooms(Date checkInDate, Date checkOutDate, RoomType roomType, Double maxPrice, int count);
     Collection<Reservation> getCustomersReservation(Customer customer);
     Set<IRoom> getRooms();
     Set<Reservation> getAllReservations();
     Date findMinAvailableDay();
+    long getRoomCount();
+    long getReservationCount();
+    Page<IRoom> getRooms(String cursor, int limit);
+    Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit);
+
+    /**
+     * Streams the reservations matching the supplied filter in listing order, fetching them page by page.
+     *
+     * @param filter criteria of the reservations
+     * @return lazy stream of the matching reservations
+     */
+    default Stream<Reservation> streamReservations(ReservationFilter filter) {
+        PageIterator<Reservation> reservations = new PageIterator<>(cursor -> getReservations(filter, cursor, 512));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reservations,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Reports occupancy and room revenue over the supplied period, going through every reservation overlapping it.
+     *
+     * @param from date of the first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    default OccupancyReport getOccupancyReport(Date from, Date to) {
+        return ReservationSnapshot.scanOccupancy(from, to, this::streamReservations, getRoomCount());
+    }
+
+    /**
+     * Opens a view of the rooms and reservations as they are now, which changes made meanwhile do not show in. The
+     * default copies all of them.
+     *
+     * @return snapshot to close once it is no longer read
+     */
+    default ReservationSnapshot openSnapshot() {
+        return ReservationSnapshot.copyOf(getRooms(), getAllReservations());
+    }
 }
@@ -0,0 +1,320 @@
+package org.project1.service;
+
+import org.project1.index.ListStayHistory;
+import org.project1.index.RoomCatalog;
+import org.project1.index.RoomSchedule;
+import org.project1.index.VersionClock;
+import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.util.DateUtils;
+import org.project1.util.PageIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rooms and reservations as they were at one instant, for admin listings, exports and reports which go through many
+ * of them while bookings go on.
+ * <p>
+ * A snapshot of an in-memory service reads the stays of its rooms in place, at the version of the snapshot: bookings,
+ * cancellations and changes made since neither wait for it nor show in it, and rooms recorded since are left out.
+ * Other services copy their rooms and reservations when the snapshot is opened. Either way, the pages of a listing
+ * read from one snapshot fit together. A snapshot should be closed once it is no longer read, as rooms changed after
+ * it keep their former stays until then.
+ * <p>
+ * Reservations are listed by room number then check-in, whatever the filter.
+ */
+public final class ReservationSnapshot implements AutoCloseable {
+    private static final Comparator<RoomSchedule> BY_NUMBER = Comparator.comparing(s -> s.getRoom().getRoomNumber());
+
+    private final VersionClock.Snapshot version;
+    private final long atVersion;
+    private final RoomSchedule[] schedules;
+
+    /**
+     * Constructor of a snapshot reading the supplied schedules in place.
+     *
+     * @param version   open snapshot of the clock of the schedules, closed with this snapshot
+     * @param schedules schedules of the rooms recorded at or before the version of the snapshot
+     */
+    public ReservationSnapshot(VersionClock.Snapshot version, Collection<RoomSchedule> schedules) {
+        this(version, version.getVersion(), schedules);
+    }
+
+    private ReservationSnapshot(VersionClock.Snapshot version, long atVersion, Collection<RoomSchedule> schedules) {
+        this.version = version;
+        this.atVersion = atVersion;
+        this.schedules = schedules.toArray(new RoomSchedule[0]);
+        Arrays.sort(this.schedules, BY_NUMBER);
+    }
+
+    /**
+     * Builds a snapshot holding copies of the supplied rooms and reservations.
+     *
+     * @param rooms        rooms of the snapshot
+     * @param reservations reservations of the snapshot, of these rooms
+     * @return snapshot of the copies
+     */
+    public static ReservationSnapshot copyOf(Collection<IRoom> rooms, Collection<Reservation> reservations) {
+        Map<String, IRoom> roomsByNumber = new LinkedHashMap<>();
+        for (IRoom aRoom : rooms) {
+            roomsByNumber.put(aRoom.getRoomNumber(), aRoom);
+        }
+        Map<String, List<Reservation>> staysByNumber = new LinkedHashMap<>();
+        for (Reservation aReservation : reservations) {
+            // A room recorded after the rooms were read still gets its reservations
+            IRoom room = roomsByNumber.computeIfAbsent(aReservation.getRoom().getRoomNumber(),
+                    number -> aReservation.getRoom());
+            staysByNumber.computeIfAbsent(room.getRoomNumber(), number -> new ArrayList<>()).add(aReservation);
+        }
+        List<RoomSchedule> schedules = new ArrayList<>(roomsByNumber.size());
+        long today = DateUtils.today();
+        for (IRoom aRoom : roomsByNumber.values()) {
+            List<Reservation> stays = staysByNumber.getOrDefault(aRoom.getRoomNumber(), new ArrayList<>());
+            stays.sort(Comparator.comparing(Reservation::getCheckInDate));
+            schedules.add(new RoomSchedule(aRoom, today, 0, new ListStayHistory(stays)));
+        }
+        // The copies are never changed, their current stays are those of the snapshot
+        return new ReservationSnapshot(null, Long.MAX_VALUE, schedules);
+    }
+
+    /**
+     * Returns the rooms of this snapshot.
+     *
+     * @return list of rooms in room number order
+     */
+    public List<IRoom> getRooms() {
+        List<IRoom> rooms = new ArrayList<>(schedules.length);
+        for (RoomSchedule aSchedule : schedules) {
+            rooms.add(aSchedule.getRoom());
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns all reservations of this snapshot. Reservation objects are built for every stay, so prefer
+     * {@link #getReservations(ReservationFilter, String, int)} for large listings.
+     *
+     * @return list of reservations ordered by room number then check-in
+     */
+    public List<Reservation> getAllReservations() {
+        List<Reservation> reservations = new ArrayList<>();
+        for (RoomSchedule aSchedule : schedules) {
+            reservations.addAll(aSchedule.stays(atVersion, null, null, Long.MIN_VALUE, Integer.MAX_VALUE));
+        }
+        return reservations;
+    }
+
+    /**
+     * Returns the reservations of the supplied room in this snapshot.
+     *
+     * @param room room whose reservations are returned
+     * @return list of reservations ordered by check-in, empty if the room is not in this snapshot
+     */
+    public List<Reservation> getRoomStays(IRoom room) {
+        int position = positionOf(room.getRoomNumber(), false);
+        if (position == schedules.length || !schedules[position].getRoom().getRoomNumber().equals(
+                room.getRoomNumber())) {
+            return new ArrayList<>();
+        }
+        return schedules[position].stays(atVersion, null, null, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public long getRoomCount() {
+        return schedules.length;
+    }
+
+    /**
+     * Returns the number of reservations of this snapshot without building reservation objects.
+     *
+     * @return number of reservations
+     */
+    public long getReservationCount() {
+        long count = 0L;
+        for (RoomSchedule aSchedule : schedules) {
+            count += aSchedule.size(atVersion);
+        }
+        return count;
+    }
+
+    /**
+     * Returns one page of the rooms in room number order.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of rooms on the page
+     * @return page of rooms
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        Page.checkLimit(limit);
+        int first = cursor == null || cursor.isEmpty() ? 0 : positionOf(cursor, true);
+        List<IRoom> page = new ArrayList<>(Math.min(limit, schedules.length - first));
+        for (int i = first; i < schedules.length && page.size() < limit; i++) {
+            page.add(schedules[i].getRoom());
+        }
+        return Page.of(page, limit, IRoom::getRoomNumber);
+    }
+
+    /**
+     * Returns one page of the reservations matching the supplied filter. A page only reads the stays it returns,
+     * unless the filter is by customer, in which case the stays of the rooms are read until the page is full.
+     *
+     * @param filter criteria of the reservations
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of reservations on the page
+     * @return page of reservations
+     * @throws IllegalArgumentException if the page size is not positive or the cursor is invalid
+     */
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        Page.checkLimit(limit);
+        ReservationCursor position = ReservationCursor.decode(cursor);
+        String fromNumber = position == null ? null : position.getRoomNumber();
+        int first = fromNumber == null ? 0 : positionOf(fromNumber, false);
+        int end = schedules.length;
+        if (filter.getRoomNumber() != null) {
+            int roomPosition = positionOf(filter.getRoomNumber(), false);
+            boolean known = roomPosition < schedules.length
+                    && schedules[roomPosition].getRoom().getRoomNumber().equals(filter.getRoomNumber());
+            first = Math.max(first, roomPosition);
+            end = known ? roomPosition + 1 : roomPosition;
+        }
+
+        List<Reservation> page = new ArrayList<>();
+        for (int i = first; i < end && page.size() < limit; i++) {
+            // Only the stays of the cursor's room are resumed after its check-in day
+            long afterDay = schedules[i].getRoom().getRoomNumber().equals(fromNumber)
+                    ? position.getCheckInDay()
+                    : Long.MIN_VALUE;
+            addStays(page, schedules[i], filter, afterDay, limit);
+        }
+        return Page.of(page, limit, ReservationCursor::encode);
+    }
+
+    /**
+     * Streams the reservations matching the supplied filter in listing order, fetching them page by page.
+     *
+     * @param filter criteria of the reservations
+     * @return lazy stream of the matching reservations
+     */
+    public Stream<Reservation> streamReservations(ReservationFilter filter) {
+        PageIterator<Reservation> reservations = new PageIterator<>(cursor -> getReservations(filter, cursor, 512));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reservations,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Reports occupancy and room revenue over the supplied period, going through every reservation of this snapshot
+     * overlapping it.
+     *
+     * @param from date of the first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    public OccupancyReport getOccupancyReport(Date from, Date to) {
+        return scanOccupancy(from, to, this::streamReservations, getRoomCount());
+    }
+
+    /**
+     * Closes this snapshot, so that the stays kept for it are dropped. Does nothing for a snapshot of copies.
+     */
+    @Override
+    public void close() {
+        if (version != null) {
+            version.close();
+        }
+    }
+
+    /**
+     * Reports occupancy and room revenue over a period from the reservations overlapping it.
+     *
+     * @param from         date of the first night of the period
+     * @param to           date after the last night of the period
+     * @param reservations returns the reservations matching a filter
+     * @param roomCount    number of rooms which could be booked
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    static OccupancyReport scanOccupancy(Date from, Date to,
+                                         Function<ReservationFilter, Stream<Reservation>> reservations,
+                                         long roomCount) {
+        long fromDay = DateUtils.toEpochDay(from);
+        long toDay = DateUtils.toEpochDay(to);
+        if (fromDay >= toDay) {
+            throw new IllegalArgumentException("End date should be at least one day after start date");
+        }
+        ReservationFilter filter = new ReservationFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+        long roomNights = 0;
+        long revenueCents = 0;
+        try (Stream<Reservation> overlapping = reservations.apply(filter)) {
+            Iterator<Reservation> iterator = overlapping.iterator();
+            while (iterator.hasNext()) {
+                Reservation aReservation = iterator.next();
+                long nights = Math.min(DateUtils.toEpochDay(aReservation.getCheckOutDate()), toDay)
+                        - Math.max(DateUtils.toEpochDay(aReservation.getCheckInDate()), fromDay);
+                roomNights += nights;
+                revenueCents += nights * Math.round(RoomCatalog.priceOf(aReservation.getRoom()) * 100);
+            }
+        }
+        return new OccupancyReport(DateUtils.fromEpochDay(fromDay), DateUtils.fromEpochDay(toDay), toDay - fromDay,
+                roomCount, roomNights, revenueCents / 100.0);
+    }
+
+    /**
+     * Adds the stays of a room matching the filter and checking in after the supplied day to the page, until it
+     * holds limit reservations.
+     */
+    private void addStays(List<Reservation> page, RoomSchedule schedule, ReservationFilter filter, long afterDay,
+                          int limit) {
+        long lastDay = afterDay;
+        while (page.size() < limit) {
+            int wanted = limit - page.size();
+            List<Reservation> stays = schedule.stays(atVersion, filter.getFrom(), filter.getTo(), lastDay, wanted);
+            for (Reservation aStay : stays) {
+                if (filter.getEmail() == null || (aStay.getCustomer() != null
+                        && filter.getEmail().equals(aStay.getCustomer().getEmail()))) {
+                    page.add(aStay);
+                }
+            }
+            if (stays.size() < wanted) {
+                return;
+            }
+            lastDay = DateUtils.toEpochDay(stays.get(stays.size() - 1).getCheckInDate());
+        }
+    }
+
+    /**
+     * Returns the position of the first room whose number is not before the supplied one, or after it if so asked.
+     */
+    private int positionOf(String roomNumber, boolean after) {
+        int low = 0;
+        int high = schedules.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = schedules[middle].getRoom().getRoomNumber().compareTo(roomNumber);
+            if (comparison < 0 || (after && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,38 @@
+package org.project1.service;
+
+import org.project1.model.Reservation;
+
+/**
+ * Told of a change of the stays of a room while the change still holds the lock of the room, so the changes of one
+ * room reach it in the order they were made. It runs on the thread making the change and holds up every other change
+ * of the room meanwhile, so it should be quick, should not block and should not throw.
+ */
+public interface StayListener {
+    StayListener NONE = new StayListener() {
+    };
+
+    /**
+     * Called once the supplied stay is booked.
+     *
+     * @param reservation reservation just recorded
+     */
+    default void booked(Reservation reservation) {
+    }
+
+    /**
+     * Called once the supplied stay is cancelled.
+     *
+     * @param cancelled reservation just cancelled
+     */
+    default void cancelled(Reservation cancelled) {
+    }
+
+    /**
+     * Called once a stay is moved to new dates.
+     *
+     * @param original reservation with its former dates
+     * @param changed  reservation with its new dates
+     */
+    default void changed(Reservation original, Reservation changed) {
+    }
+}
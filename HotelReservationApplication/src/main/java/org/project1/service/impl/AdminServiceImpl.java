@@ -4,9 +4,21 @@ package org.project1.service.impl;
 import org.project1.model.*;
 import org.project1.resource.AdminResource;
 import org.project1.service.AdminService;
+import org.project1.service.ReservationSnapshot;
+import org.project1.util.DateUtils;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Function;
 
 import static org.project1.util.NumberUtils.isNumber;
 
@@ -14,6 +26,8 @@ import static org.project1.util.NumberUtils.isNumber;
 public class AdminServiceImpl implements AdminService {
 
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int CONSOLE_PAGE_SIZE = 20;
+    private static final DateFormat simpleDateFormat = new SimpleDateFormat("MM/dd/yyyy");
 
     private final AdminResource adminResource;
 
@@ -32,56 +46,84 @@ public class AdminServiceImpl implements AdminService {
         System.out.println("2. See all Rooms");
         System.out.println("3. See all Reservations");
         System.out.println("4. Add a room");
-        System.out.println("5. Back to Main Menu");
+        System.out.println("5. Import rooms from a file");
+        System.out.println("6. Import customers from a file");
+        System.out.println("7. Occupancy and revenue report");
+        System.out.println("8. Back to Main Menu");
         System.out.println("----------------------------------------");
         System.out.println("Select a menu option");
     }
 
     /**
-     * Gets all customers using admin resource and if any present, prints them to the console.
+     * Gets customers page by page using admin resource and if any present, prints them to the console.
      */
     @Override
     public void showAllCustomers() {
-        Collection<Customer> allCustomers = adminResource.getAllCustomers();
-        if (allCustomers.isEmpty()) {
-            System.out.println("There are no registered customers yet. You can add one in main menu");
-            return;
-        }
-        for (Customer aCustomer : allCustomers) {
-            System.out.println(aCustomer);
-        }
+        printPages(cursor -> adminResource.getCustomers(cursor, CONSOLE_PAGE_SIZE),
+                "There are no registered customers yet. You can add one in main menu");
     }
 
     /**
-     * Gets all rooms using admin resource and if any present, prints them to the console.
+     * Gets rooms page by page from a snapshot using admin resource and if any present, prints them to the console.
      */
     @Override
     public void showAllRooms() {
-        Collection<IRoom> allRooms = adminResource.getAllRooms();
-        if (allRooms.isEmpty()) {
-            System.out.println("There are no rooms yet. Please add some");
-            return;
-        }
-        for (IRoom aRoom : allRooms) {
-            System.out.println(aRoom);
+        try (ReservationSnapshot snapshot = adminResource.openSnapshot()) {
+            printPages(cursor -> adminResource.getRooms(snapshot, cursor, CONSOLE_PAGE_SIZE),
+                    "There are no rooms yet. Please add some");
         }
     }
 
     /**
-     * Gets all reservations using admin resource and if any present, prints them to the console.
+     * Asks for optional room and customer filters, then gets matching reservations page by page from a snapshot
+     * using admin resource and if any present, prints them to the console. Bookings made while the pages are read
+     * do not shift reservations between them.
      */
     @Override
     public void showAllReservations() {
-        Set<Reservation> allReservations = adminResource.getAllReservations();
-        if (allReservations.isEmpty()) {
-            System.out.println("There are still no reservations");
+        ReservationFilter filter = new ReservationFilter();
+        System.out.println("Enter room number to see only its reservations or leave empty for all rooms");
+        filter.setRoomNumber(emptyToNull(scanner.nextLine()));
+        System.out.println("Enter customer email to see only their reservations or leave empty for all customers");
+        filter.setEmail(emptyToNull(scanner.nextLine()));
+        try (ReservationSnapshot snapshot = adminResource.openSnapshot()) {
+            printPages(cursor -> adminResource.getReservations(snapshot, filter, cursor, CONSOLE_PAGE_SIZE),
+                    "There are still no reservations");
+        }
+    }
+
+    /**
+     * Prints a listing one page at a time, asking before fetching each following page.
+     */
+    private <T> void printPages(Function<String, Page<T>> pages, String emptyMessage) {
+        Page<T> page = pages.apply(null);
+        if (page.getItems().isEmpty()) {
+            System.out.println(emptyMessage);
             return;
         }
-        for (Reservation reservation : allReservations) {
-            System.out.println(reservation);
+        while (true) {
+            for (T anItem : page.getItems()) {
+                System.out.println(anItem);
+            }
+            if (page.getNextCursor() == null) {
+                return;
+            }
+            System.out.println("Press Enter to see more or \"q\" to stop");
+            if ("q".equalsIgnoreCase(scanner.nextLine().trim())) {
+                return;
+            }
+            page = pages.apply(page.getNextCursor());
+            if (page.getItems().isEmpty()) {
+                return;
+            }
         }
     }
 
+    private static String emptyToNull(String input) {
+        String trimmed = input.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
     /**
      * Creates multiple or a single new room with properties from administrator's input and records it.
      */
@@ -100,10 +142,73 @@ public class AdminServiceImpl implements AdminService {
             }
             keepAddingRooms = readAddingAnotherRoom();
         }
-        adminResource.addRoom(newRooms);
+        for (IRoom aDuplicate : adminResource.addRoom(newRooms)) {
+            System.out.println("You have already added a room with room number " + aDuplicate.getRoomNumber());
+        }
         System.out.println("Rooms were successfully added");
     }
 
+    /**
+     * Asks for the path of a CSV or NDJSON file of rooms, imports it using admin resource and prints the summary.
+     */
+    @Override
+    public void importRooms() {
+        System.out.println("Enter the path of a CSV or NDJSON file of rooms");
+        Path path = Paths.get(scanner.nextLine().trim());
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            RoomImportReport report = adminResource.importRooms(reader);
+            System.out.println(report);
+            for (String anError : report.getErrors()) {
+                System.out.println(anError);
+            }
+        } catch (IOException ex) {
+            System.out.println("Could not read the file: " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Asks for the path of a CSV or NDJSON file of customers, imports it using admin resource and prints the summary.
+     */
+    @Override
+    public void importCustomers() {
+        System.out.println("Enter the path of a CSV or NDJSON file of customers");
+        Path path = Paths.get(scanner.nextLine().trim());
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            CustomerImportReport report = adminResource.importCustomers(reader);
+            System.out.println(report);
+            for (String anError : report.getErrors()) {
+                System.out.println(anError);
+            }
+        } catch (IOException ex) {
+            System.out.println("Could not read the file: " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Asks for the first and the last night of a period, reports occupancy and revenue over it using admin resource
+     * and prints the report.
+     */
+    @Override
+    public void showOccupancyReport() {
+        System.out.println("Enter the first night of the report mm/dd/yyyy example 02/01/2020");
+        Date from = readDate();
+        System.out.println("Enter the last night of the report mm/dd/yyyy example 02/29/2020");
+        Date lastNight = readDate();
+        Date to = DateUtils.fromEpochDay(DateUtils.toEpochDay(lastNight) + 1);
+        System.out.println(adminResource.getOccupancyReport(from, to));
+    }
+
+    private Date readDate() {
+        simpleDateFormat.setLenient(false);
+        while (true) {
+            try {
+                return simpleDateFormat.parse(scanner.nextLine().trim());
+            } catch (ParseException ex) {
+                System.out.println("Renter the date in format mm/dd/yyyy");
+            }
+        }
+    }
+
     private String readRoomNumber() {
         System.out.println("Enter room number");
         String input = "";
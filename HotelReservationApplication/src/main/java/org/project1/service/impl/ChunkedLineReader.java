@@ -0,0 +1,175 @@
+package org.project1.service.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Streams the lines of an import file through parallel parsing.
+ * <p>
+ * The calling thread reads the file in chunks of lines, the chunks are parsed and validated in parallel, and the
+ * parsed chunks are handed back to the calling thread in file order. Only a few chunks per parsing thread are in
+ * flight at once, so the file is never held in memory as a whole. Blank lines and lines starting with {@code #} are
+ * skipped.
+ */
+final class ChunkedLineReader {
+    private static final int CHUNK_LINES = 1000;
+    private static final int CHUNKS_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+    private ChunkedLineReader() {
+    }
+
+    /**
+     * Parses the lines of the supplied file and passes each parsed chunk to the supplied recorder.
+     *
+     * @param reader   content of the file
+     * @param parser   parser of the header and the lines of the file, called from several threads
+     * @param recorder receiver of the parsed chunks, called on the calling thread in file order
+     * @param <T>      type of the parsed items
+     * @return number of lines read
+     * @throws IOException if the file cannot be read
+     */
+    static <T> long read(Reader reader, LineParser<T> parser, Consumer<ParsedChunk<T>> recorder)
+            throws IOException {
+        BufferedReader lines = new BufferedReader(reader, 1 << 16);
+        Deque<CompletableFuture<ParsedChunk<T>>> inFlight = new ArrayDeque<>();
+        List<String> chunk = new ArrayList<>(CHUNK_LINES);
+        long lineNumber = 0L;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1L) {
+                line = stripByteOrderMark(line);
+                if (parser.readHeader(line.trim())) {
+                    continue;
+                }
+            }
+            chunk.add(line);
+            if (chunk.size() == CHUNK_LINES) {
+                submit(chunk, lineNumber - chunk.size() + 1, parser, inFlight, recorder);
+                chunk = new ArrayList<>(CHUNK_LINES);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            submit(chunk, lineNumber - chunk.size() + 1, parser, inFlight, recorder);
+        }
+        while (!inFlight.isEmpty()) {
+            recorder.accept(inFlight.poll().join());
+        }
+        return lineNumber;
+    }
+
+    private static <T> void submit(List<String> chunk, long firstLine, LineParser<T> parser,
+                                   Deque<CompletableFuture<ParsedChunk<T>>> inFlight,
+                                   Consumer<ParsedChunk<T>> recorder) {
+        if (inFlight.size() >= CHUNKS_IN_FLIGHT) {
+            recorder.accept(inFlight.poll().join());
+        }
+        inFlight.add(CompletableFuture.supplyAsync(() -> parse(chunk, firstLine, parser)));
+    }
+
+    private static <T> ParsedChunk<T> parse(List<String> chunk, long firstLine, LineParser<T> parser) {
+        ParsedChunk<T> parsed = new ParsedChunk<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String line = chunk.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                parsed.items.add(parser.parse(line));
+            } catch (IllegalArgumentException ex) {
+                parsed.errorLines.add(firstLine + i);
+                parsed.errors.add(ex.getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the positions of the supplied columns in a CSV header. Column names are matched ignoring case and
+     * underscores.
+     *
+     * @param header  fields of the header line
+     * @param columns names of the expected columns
+     * @return position in the header of each expected column
+     * @throws IllegalArgumentException if the header names an unknown column or misses one
+     */
+    static int[] columnIndexes(String[] header, String[] columns) {
+        int[] indexes = new int[columns.length];
+        Arrays.fill(indexes, -1);
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].trim().replace("_", "");
+            int column = -1;
+            for (int j = 0; j < columns.length; j++) {
+                if (columns[j].equalsIgnoreCase(name)) {
+                    column = j;
+                }
+            }
+            if (column < 0) {
+                throw new IllegalArgumentException("Unknown column " + header[i].trim() + ", expected "
+                        + String.join(", ", columns));
+            }
+            indexes[column] = i;
+        }
+        for (int anIndex : indexes) {
+            if (anIndex < 0) {
+                throw new IllegalArgumentException("The header should name the " + String.join(", ", columns)
+                        + " columns");
+            }
+        }
+        return indexes;
+    }
+
+    private static String stripByteOrderMark(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    /**
+     * Parser of the lines of one import file.
+     *
+     * @param <T> type of the parsed items
+     */
+    interface LineParser<T> {
+        /**
+         * Reads the first line of the file if it is a header. Called before any other line is parsed.
+         *
+         * @param line first line, trimmed
+         * @return true if the line is a header and should not be parsed as an item
+         * @throws IllegalArgumentException if the header is not valid
+         */
+        boolean readHeader(String line);
+
+        /**
+         * Parses and validates one line.
+         *
+         * @param line line, trimmed and not empty
+         * @return item described by the line
+         * @throws IllegalArgumentException if the line does not describe a valid item
+         */
+        T parse(String line);
+    }
+
+    /**
+     * Items of one chunk of lines, and the lines which do not describe a valid item.
+     *
+     * @param <T> type of the parsed items
+     */
+    static final class ParsedChunk<T> {
+        final List<T> items;
+        final List<Long> errorLines;
+        final List<String> errors;
+
+        private ParsedChunk(int lines) {
+            this.items = new ArrayList<>(lines);
+            this.errorLines = new ArrayList<>();
+            this.errors = new ArrayList<>();
+        }
+    }
+}
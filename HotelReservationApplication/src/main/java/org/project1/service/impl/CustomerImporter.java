@@ -0,0 +1,126 @@
+package org.project1.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.project1.model.Customer;
+import org.project1.model.CustomerImportReport;
+import org.project1.service.CustomerService;
+import org.project1.service.impl.ChunkedLineReader.LineParser;
+import org.project1.service.impl.ChunkedLineReader.ParsedChunk;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import static org.project1.util.ValidationUtils.hasLetter;
+
+/**
+ * Bulk import of customers from a CSV or NDJSON file.
+ * <p>
+ * The file is streamed through a {@link ChunkedLineReader}, which validates chunks of lines in parallel, and the valid
+ * customers of each chunk are recorded as one batch, in file order. A customer whose email is already registered, or
+ * appears earlier in the file, is skipped. Every problem ends up in a single {@link CustomerImportReport}.
+ * <p>
+ * A CSV line holds an email, a first name and a last name; a header line naming the columns may put them in another
+ * order. An NDJSON line is an object with the {@code email}, {@code firstName} and {@code lastName} fields of a
+ * customer. Blank lines and lines starting with {@code #} are skipped.
+ */
+@Service
+public class CustomerImporter {
+    private static final String[] COLUMNS = {"email", "firstName", "lastName"};
+
+    private final CustomerService customerService;
+    private final HotelEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public CustomerImporter(CustomerService customerService, HotelEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
+        this.customerService = customerService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads customers from the supplied file and records those which are valid and whose email is not registered
+     * yet.
+     *
+     * @param reader content of the file
+     * @return report of the imported, skipped and rejected customers
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the header line names an unknown column
+     */
+    public CustomerImportReport importCustomers(Reader reader) throws IOException {
+        long start = System.nanoTime();
+        CustomerImportReport report = new CustomerImportReport();
+        report.setLinesRead(ChunkedLineReader.read(reader, new CustomerLineParser(),
+                parsed -> record(parsed, report)));
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000L);
+        return report;
+    }
+
+    private void record(ParsedChunk<Customer> parsed, CustomerImportReport report) {
+        for (int i = 0; i < parsed.errorLines.size(); i++) {
+            report.addRejected(parsed.errorLines.get(i), parsed.errors.get(i));
+        }
+        List<Customer> duplicates = customerService.addCustomers(parsed.items);
+        eventPublisher.customersCreated(parsed.items, duplicates);
+        report.addImported(parsed.items.size() - duplicates.size());
+        for (Customer aDuplicate : duplicates) {
+            report.addSkipped(aDuplicate.getEmail());
+        }
+    }
+
+    /**
+     * Validates the supplied fields like the console does and builds the customer they describe.
+     */
+    private static Customer toCustomer(String email, String firstName, String lastName) {
+        if (!hasLetter(firstName)) {
+            throw new IllegalArgumentException("First name should have at least one letter");
+        }
+        if (!hasLetter(lastName)) {
+            throw new IllegalArgumentException("Last name should have at least one letter");
+        }
+        return new Customer(firstName, lastName, email);
+    }
+
+    /**
+     * Parser of the lines of one file, which knows the column order given by its header.
+     */
+    private final class CustomerLineParser implements LineParser<Customer> {
+        private int[] columns = {0, 1, 2};
+
+        @Override
+        public boolean readHeader(String line) {
+            if (line.isEmpty() || line.startsWith("{") || line.indexOf('@') >= 0) {
+                return false;
+            }
+            columns = ChunkedLineReader.columnIndexes(line.split(","), COLUMNS);
+            return true;
+        }
+
+        @Override
+        public Customer parse(String line) {
+            return line.startsWith("{") ? parseJson(line) : parseCsv(line);
+        }
+
+        private Customer parseCsv(String line) {
+            String[] fields = line.split(",", -1);
+            if (fields.length < COLUMNS.length) {
+                throw new IllegalArgumentException("Expected an email, a first name and a last name");
+            }
+            return toCustomer(fields[columns[0]].trim(), fields[columns[1]].trim(), fields[columns[2]].trim());
+        }
+
+        private Customer parseJson(String line) {
+            JsonNode customer;
+            try {
+                customer = objectMapper.readTree(line);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Not a valid JSON object");
+            }
+            return toCustomer(customer.path("email").asText(null), customer.path("firstName").asText(null),
+                    customer.path("lastName").asText(null));
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package org.project1.service.impl;
 
 import org.project1.model.Customer;
+import org.project1.model.Page;
 import org.project1.service.CustomerService;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 @Service
 public class CustomerServiceImpl implements CustomerService {
-    private final Map<String, Customer> customers;
+    private final ConcurrentMap<String, Customer> customers;
+    private final NavigableSet<String> emails;
 
-    private CustomerServiceImpl() {
-        this.customers = new HashMap<>();
+    CustomerServiceImpl() {
+        this.customers = new ConcurrentHashMap<>();
+        this.emails = new ConcurrentSkipListSet<>();
     }
 
     /**
@@ -27,11 +34,40 @@ public class CustomerServiceImpl implements CustomerService {
     @Override
     public void addCustomer(String email, String firstName, String lastName) {
         Customer newCustomer = new Customer(firstName, lastName, email);
-        if (customers.containsKey(email)) {
+        if (customers.putIfAbsent(email, newCustomer) != null) {
             throw new IllegalArgumentException("Customer with this email is already registered.");
-        } else {
-            customers.put(email, newCustomer);
         }
+        emails.add(email);
+    }
+
+    /**
+     * Forgets the customer registered with the supplied email. Only meant for taking back a registration which could
+     * not be made durable.
+     *
+     * @param email string, email of the customer
+     */
+    void removeCustomer(String email) {
+        emails.remove(email);
+        customers.remove(email);
+    }
+
+    /**
+     * Records the supplied customers whose email is not registered yet, without building them again.
+     *
+     * @param newCustomers customers to record
+     * @return customers who were not recorded because their email is already registered
+     */
+    @Override
+    public List<Customer> addCustomers(Collection<Customer> newCustomers) {
+        List<Customer> duplicates = new ArrayList<>();
+        for (Customer aCustomer : newCustomers) {
+            if (customers.putIfAbsent(aCustomer.getEmail(), aCustomer) != null) {
+                duplicates.add(aCustomer);
+            } else {
+                emails.add(aCustomer.getEmail());
+            }
+        }
+        return duplicates;
     }
 
     /**
@@ -42,10 +78,10 @@ public class CustomerServiceImpl implements CustomerService {
      */
     @Override
     public Customer getCustomer(String customerEmail) {
-        if (this.customers.containsKey(customerEmail)) {
-            return this.customers.get(customerEmail);
+        if (customerEmail == null) {
+            return null;
         }
-        return null;
+        return this.customers.get(customerEmail);
     }
 
     /**
@@ -57,4 +93,36 @@ public class CustomerServiceImpl implements CustomerService {
     public Collection<Customer> getAllCustomers() {
         return customers.values();
     }
+
+    /**
+     * Returns the number of customers registered in the app.
+     *
+     * @return number of customers
+     */
+    @Override
+    public long getCustomerCount() {
+        return customers.size();
+    }
+
+    /**
+     * Returns one page of the registered customers in email order.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of customers on the page
+     * @return page of customers
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    @Override
+    public Page<Customer> getCustomers(String cursor, int limit) {
+        Page.checkLimit(limit);
+        NavigableSet<String> remaining = cursor == null || cursor.isEmpty() ? emails : emails.tailSet(cursor, false);
+        List<Customer> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String anEmail : remaining) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(customers.get(anEmail));
+        }
+        return Page.of(page, limit, Customer::getEmail);
+    }
 }
@@ -0,0 +1,91 @@
+package org.project1.service.impl;
+
+import org.project1.model.Customer;
+import org.project1.model.Page;
+import org.project1.persistence.HotelJournal;
+import org.project1.persistence.JournalRecord;
+import org.project1.service.CustomerService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link CustomerService} which records every new customer in the {@link HotelJournal} before returning, so
+ * accounts survive a restart. A customer whose record could not be written is forgotten again before the error is
+ * thrown. Reads go straight to the in-memory service.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "hotel.persistence.enabled", havingValue = "true")
+public class DurableCustomerService implements CustomerService {
+    private final CustomerServiceImpl delegate;
+    private final HotelJournal journal;
+
+    public DurableCustomerService(CustomerServiceImpl delegate, HotelJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public void addCustomer(String email, String firstName, String lastName) {
+        delegate.addCustomer(email, firstName, lastName);
+        try {
+            journal.append(JournalRecord.customer(delegate.getCustomer(email)));
+        } catch (IllegalStateException ex) {
+            delegate.removeCustomer(email);
+            throw ex;
+        }
+    }
+
+    /**
+     * Records the supplied customers and journals the new ones as one group, waiting for a single flush of the log.
+     */
+    @Override
+    public List<Customer> addCustomers(Collection<Customer> customers) {
+        List<Customer> duplicates = delegate.addCustomers(customers);
+        Set<Customer> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        skipped.addAll(duplicates);
+        List<JournalRecord> records = new ArrayList<>(customers.size() - duplicates.size());
+        for (Customer aCustomer : customers) {
+            if (!skipped.contains(aCustomer)) {
+                records.add(JournalRecord.customer(aCustomer));
+            }
+        }
+        try {
+            journal.appendAll(records);
+        } catch (IllegalStateException ex) {
+            for (JournalRecord aRecord : records) {
+                delegate.removeCustomer(aRecord.getEmail());
+            }
+            throw ex;
+        }
+        return duplicates;
+    }
+
+    @Override
+    public Customer getCustomer(String customerEmail) {
+        return delegate.getCustomer(customerEmail);
+    }
+
+    @Override
+    public Collection<Customer> getAllCustomers() {
+        return delegate.getAllCustomers();
+    }
+
+    @Override
+    public long getCustomerCount() {
+        return delegate.getCustomerCount();
+    }
+
+    @Override
+    public Page<Customer> getCustomers(String cursor, int limit) {
+        return delegate.getCustomers(cursor, limit);
+    }
+}
@@ -0,0 +1,250 @@
+package org.project1.service.impl;
+
+import org.project1.model.AvailableWindow;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomType;
+import org.project1.persistence.HotelJournal;
+import org.project1.persistence.JournalRecord;
+import org.project1.service.InMemoryReservationService;
+import org.project1.service.ReservationService;
+import org.project1.service.ReservationSnapshot;
+import org.project1.service.StayListener;
+import org.project1.util.DateUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ReservationService} which records every added room and every reservation, cancellation and change in the
+ * {@link HotelJournal} before returning, so they survive a restart. Reads go straight to the in-memory service.
+ * <p>
+ * The record of a change of the stays is queued under the lock of its room and waited for once the lock is released,
+ * so bookings of a room reach the log in the order they were made without holding the room during the fsync. A
+ * change whose record could not be written is taken back before the error is thrown. A room cannot be taken back, so
+ * it is only recorded once its record is on disk.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "hotel.persistence.enabled", havingValue = "true")
+public class DurableReservationService implements ReservationService {
+    private final InMemoryReservationService delegate;
+    private final HotelJournal journal;
+    private final Object roomLock;
+
+    public DurableReservationService(InMemoryReservationService delegate, HotelJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.roomLock = new Object();
+    }
+
+    @Override
+    public boolean addRoom(IRoom room) {
+        return addRooms(Collections.singletonList(room)).isEmpty();
+    }
+
+    /**
+     * Journals the supplied rooms whose number is not taken yet as one group, waiting for a single flush of the log,
+     * and then records them. Rooms are added one group at a time, so the numbers checked stay free until then; no
+     * snapshot is cut meanwhile, as it could miss rooms whose records it covers.
+     *
+     * @throws IllegalStateException if the records could not be written, in which case no room was recorded
+     */
+    @Override
+    public List<IRoom> addRooms(Collection<IRoom> rooms) {
+        synchronized (roomLock) {
+            return journal.applying(() -> {
+                Set<String> numbers = new HashSet<>();
+                List<JournalRecord> records = new ArrayList<>(rooms.size());
+                for (IRoom aRoom : rooms) {
+                    if (delegate.findRoomByNumber(aRoom.getRoomNumber()) == null
+                            && numbers.add(aRoom.getRoomNumber())) {
+                        records.add(JournalRecord.room(aRoom));
+                    }
+                }
+                journal.appendAll(records);
+                return delegate.addRooms(rooms);
+            });
+        }
+    }
+
+    @Override
+    public IRoom getARoom(String roomId) {
+        return delegate.getARoom(roomId);
+    }
+
+    @Override
+    public IRoom findRoomByNumber(String roomNumber) {
+        return delegate.findRoomByNumber(roomNumber);
+    }
+
+    @Override
+    public Collection<IRoom> getRoomsByType(RoomType roomType) {
+        return delegate.getRoomsByType(roomType);
+    }
+
+    @Override
+    public Collection<IRoom> getRoomsByMaxPrice(double maxPrice) {
+        return delegate.getRoomsByMaxPrice(maxPrice);
+    }
+
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
+        JournalingListener journaling = new JournalingListener();
+        Reservation newReservation = journal.applying(
+                () -> delegate.reserveARoom(customer, room, checkInDate, checkOutDate, journaling));
+        try {
+            journal.await(journaling.written);
+        } catch (IllegalStateException ex) {
+            takeBack(() -> delegate.cancelReservation(customer, room, checkInDate));
+            throw ex;
+        }
+        return newReservation;
+    }
+
+    @Override
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate) {
+        JournalingListener journaling = new JournalingListener();
+        Reservation cancelled = journal.applying(
+                () -> delegate.cancelReservation(customer, room, checkInDate, journaling));
+        try {
+            journal.await(journaling.written);
+        } catch (IllegalStateException ex) {
+            takeBack(() -> delegate.reserveARoom(customer, room, cancelled.getCheckInDate(),
+                    cancelled.getCheckOutDate()));
+            throw ex;
+        }
+        return cancelled;
+    }
+
+    @Override
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate) {
+        JournalingListener journaling = new JournalingListener();
+        Reservation changed = journal.applying(() -> delegate.changeReservation(customer, room, checkInDate,
+                newCheckInDate, newCheckOutDate, journaling));
+        try {
+            journal.await(journaling.written);
+        } catch (IllegalStateException ex) {
+            takeBack(() -> delegate.changeReservation(customer, room, newCheckInDate, checkInDate,
+                    journaling.originalCheckOutDate));
+            throw ex;
+        }
+        return changed;
+    }
+
+    /**
+     * Takes back a change whose record could not be written. The journal accepts no more records then, so taking it
+     * back is not journaled either.
+     */
+    private static void takeBack(Runnable undo) {
+        try {
+            undo.run();
+        } catch (IllegalArgumentException ex) {
+            // Another change of the stay made meanwhile failed as well and was taken back first
+        }
+    }
+
+    @Override
+    public Collection<IRoom> findRooms(Date checkInDate, Date checkOutDate) {
+        return delegate.findRooms(checkInDate, checkOutDate);
+    }
+
+    @Override
+    public List<AvailableWindow> findAvailableWindows(Date checkInDate, int nights, RoomType roomType, int count) {
+        return delegate.findAvailableWindows(checkInDate, nights, roomType, count);
+    }
+
+    @Override
+    public List<IRoom> findCheapestRooms(Date checkInDate, Date checkOutDate, RoomType roomType, Double maxPrice,
+                                         int count) {
+        return delegate.findCheapestRooms(checkInDate, checkOutDate, roomType, maxPrice, count);
+    }
+
+    @Override
+    public OccupancyReport getOccupancyReport(Date from, Date to) {
+        return delegate.getOccupancyReport(from, to);
+    }
+
+    @Override
+    public Collection<Reservation> getCustomersReservation(Customer customer) {
+        return delegate.getCustomersReservation(customer);
+    }
+
+    @Override
+    public Set<IRoom> getRooms() {
+        return delegate.getRooms();
+    }
+
+    @Override
+    public Set<Reservation> getAllReservations() {
+        return delegate.getAllReservations();
+    }
+
+    @Override
+    public Date findMinAvailableDay() {
+        return delegate.findMinAvailableDay();
+    }
+
+    @Override
+    public long getRoomCount() {
+        return delegate.getRoomCount();
+    }
+
+    @Override
+    public long getReservationCount() {
+        return delegate.getReservationCount();
+    }
+
+    @Override
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        return delegate.getRooms(cursor, limit);
+    }
+
+    @Override
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        return delegate.getReservations(filter, cursor, limit);
+    }
+
+    @Override
+    public ReservationSnapshot openSnapshot() {
+        return delegate.openSnapshot();
+    }
+
+    /**
+     * Queues the record of a change under the lock of its room.
+     */
+    private final class JournalingListener implements StayListener {
+        private CompletableFuture<Long> written;
+        private Date originalCheckOutDate;
+
+        @Override
+        public void booked(Reservation reservation) {
+            written = journal.queue(JournalRecord.reservation(reservation));
+        }
+
+        @Override
+        public void cancelled(Reservation cancelled) {
+            written = journal.queue(JournalRecord.cancellation(cancelled));
+        }
+
+        @Override
+        public void changed(Reservation original, Reservation changed) {
+            originalCheckOutDate = original.getCheckOutDate();
+            written = journal.queue(JournalRecord.change(DateUtils.toEpochDay(original.getCheckInDate()), changed));
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package org.project1.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.project1.model.Customer;
+import org.project1.model.HotelEvent;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.service.HotelEventStream;
+import org.project1.service.StayListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link HotelEventStream} fed by the reservation service under the lock of the changed room, and by the resources
+ * once rooms or customers are added.
+ * <p>
+ * An event of a booking, cancellation or change takes its sequence number while its room is locked, so the events of
+ * a room are numbered in the order the changes were made. Publishing never waits: it numbers the event from an
+ * atomic counter and puts it in the buffer of every subscriber, where events are kept in sequence order. Delivery
+ * runs on a pool of daemon threads, one task per subscriber at a time, and hands the events over in sequence order,
+ * holding back an event until the ones numbered before it have been put in the buffer. Rather than holding up the
+ * thread making the change, an event which finds a buffer full cuts its subscriber off or, if the subscriber skips
+ * overflowing events, is dropped; the numbers of dropped events are kept as runs, so a delivery which has fallen far
+ * behind costs little memory. Without subscribers publishing costs a single check.
+ */
+@Service
+public class HotelEventPublisher implements HotelEventStream, StayListener {
+    private static final Comparator<HotelEvent> BY_SEQUENCE = Comparator.comparingLong(HotelEvent::getSequence);
+
+    private final int bufferSize;
+    private final List<EventSubscription> subscriptions;
+    private final ExecutorService deliveryPool;
+    private final Counter overflows;
+    private final Counter skippedEvents;
+    private final AtomicLong lastSequence;
+    private volatile boolean closed;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param bufferSize    number of events buffered for each subscriber
+     * @param meterRegistry registry of the subscriber gauge and the overflow counter
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public HotelEventPublisher(@Value("${hotel.events.buffer-size:1024}") int bufferSize,
+                               MeterRegistry meterRegistry) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Event buffer size should be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.lastSequence = new AtomicLong();
+        this.deliveryPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "event-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("hotel.events.subscribers", subscriptions, List::size)
+                .description("Number of subscribers of the event stream")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("hotel.events.overflows")
+                .description("Subscribers cut off because their buffer was full")
+                .register(meterRegistry);
+        this.skippedEvents = Counter.builder("hotel.events.skipped")
+                .description("Events dropped because the buffer of a subscriber was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribe(subscriber, Overflow.FAIL);
+    }
+
+    @Override
+    public synchronized void subscribe(Subscriber subscriber, Overflow overflow) {
+        EventSubscription subscription = new EventSubscription(subscriber, overflow);
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+            // Read once it is added: an event numbered after this is published to it
+            subscription.nextSequence = lastSequence.get() + 1;
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Publishes an event for each of the supplied rooms which was recorded.
+     *
+     * @param rooms   rooms passed to the service
+     * @param skipped rooms the service did not record
+     */
+    public void roomsAdded(Collection<IRoom> rooms, List<IRoom> skipped) {
+        if (subscriptions.isEmpty() || rooms.size() == skipped.size()) {
+            return;
+        }
+        Set<IRoom> notAdded = Collections.newSetFromMap(new IdentityHashMap<>());
+        notAdded.addAll(skipped);
+        for (IRoom aRoom : rooms) {
+            if (!notAdded.contains(aRoom)) {
+                publish(HotelEvent.roomAdded(lastSequence.incrementAndGet(), aRoom));
+            }
+        }
+    }
+
+    /**
+     * Publishes an event for each of the supplied customers who was registered.
+     *
+     * @param customers customers passed to the service
+     * @param skipped   customers the service did not register
+     */
+    public void customersCreated(Collection<Customer> customers, List<Customer> skipped) {
+        if (subscriptions.isEmpty() || customers.size() == skipped.size()) {
+            return;
+        }
+        Set<Customer> notCreated = Collections.newSetFromMap(new IdentityHashMap<>());
+        notCreated.addAll(skipped);
+        for (Customer aCustomer : customers) {
+            if (!notCreated.contains(aCustomer)) {
+                publish(HotelEvent.customerCreated(lastSequence.incrementAndGet(), aCustomer));
+            }
+        }
+    }
+
+    /**
+     * Publishes the registration of the supplied customer.
+     *
+     * @param customer customer just registered
+     */
+    public void customerCreated(Customer customer) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publish(HotelEvent.customerCreated(lastSequence.incrementAndGet(), customer));
+    }
+
+    /**
+     * Publishes the supplied booking.
+     *
+     * @param reservation reservation just recorded
+     */
+    @Override
+    public void booked(Reservation reservation) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publish(HotelEvent.reservationCreated(lastSequence.incrementAndGet(), reservation));
+    }
+
+    /**
+     * Publishes the cancellation of the supplied reservation.
+     *
+     * @param cancelled reservation just cancelled
+     */
+    @Override
+    public void cancelled(Reservation cancelled) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publish(HotelEvent.reservationCancelled(lastSequence.incrementAndGet(), cancelled));
+    }
+
+    /**
+     * Publishes the change of a reservation as the cancellation of the stay at its former dates directly followed by
+     * the booking at its new dates, so subscribers keeping counts need no third kind of event.
+     *
+     * @param original reservation with its former dates
+     * @param changed  reservation with its new dates
+     */
+    @Override
+    public void changed(Reservation original, Reservation changed) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long cancelSequence = lastSequence.addAndGet(2) - 1;
+        publish(HotelEvent.reservationCancelled(cancelSequence, original));
+        publish(HotelEvent.reservationCreated(cancelSequence + 1, changed));
+    }
+
+    /**
+     * Hands the event to every subscriber. A numbered event is always handed to the subscribers, as they wait for
+     * it before delivering the events numbered after it.
+     */
+    private void publish(HotelEvent event) {
+        for (EventSubscription aSubscription : subscriptions) {
+            aSubscription.offer(event);
+        }
+    }
+
+    /**
+     * Stops accepting events; the subscribers receive the events already buffered and are then completed.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        for (EventSubscription aSubscription : subscriptions) {
+            aSubscription.complete();
+            aSubscription.schedule();
+        }
+        // The delivery pool keeps running, subscribers may still be draining their buffers
+        subscriptions.clear();
+    }
+
+    /**
+     * Buffer and demand of one subscriber. Delivery runs as a task which drains the buffer in sequence order as far
+     * as the demand allows; a counter of pending signals makes sure only one such task runs at a time.
+     */
+    private final class EventSubscription implements Subscription, Runnable {
+        private final Subscriber subscriber;
+        private final Overflow overflow;
+        private final BlockingQueue<HotelEvent> buffer;
+        /**
+         * Runs of dropped sequence numbers, from the first to the last number of each run.
+         */
+        private final TreeMap<Long, Long> skipped;
+        private final AtomicLong demand;
+        private final AtomicInteger pendingSignals;
+        /**
+         * Sequence number of the next event to deliver; earlier events were numbered before the subscription.
+         */
+        private volatile long nextSequence;
+        private volatile boolean subscribed;
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        EventSubscription(Subscriber subscriber, Overflow overflow) {
+            this.subscriber = subscriber;
+            this.overflow = overflow;
+            this.buffer = new PriorityBlockingQueue<>(Math.min(bufferSize, 64), BY_SEQUENCE);
+            this.skipped = new TreeMap<>();
+            this.demand = new AtomicLong();
+            this.pendingSignals = new AtomicInteger();
+        }
+
+        void offer(HotelEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (buffer.size() < bufferSize) {
+                buffer.offer(event);
+                if (demand.get() > 0) {
+                    schedule();
+                }
+            } else if (overflow == Overflow.SKIP) {
+                skip(event.getSequence());
+                skippedEvents.increment();
+                if (demand.get() > 0) {
+                    schedule();
+                }
+            } else if (failure == null) {
+                overflows.increment();
+                fail(new IllegalStateException("Subscriber fell more than " + bufferSize + " events behind"));
+            }
+        }
+
+        /**
+         * Records the supplied sequence number as dropped, joining it to the runs next to it.
+         */
+        private void skip(long sequence) {
+            synchronized (skipped) {
+                long first = sequence;
+                long last = sequence;
+                Map.Entry<Long, Long> before = skipped.floorEntry(sequence);
+                if (before != null && before.getValue() >= sequence - 1) {
+                    first = before.getKey();
+                    last = Math.max(before.getValue(), sequence);
+                }
+                Long after = skipped.remove(last + 1);
+                if (after != null) {
+                    last = after;
+                }
+                skipped.put(first, last);
+            }
+        }
+
+        /**
+         * Gives the first dropped sequence number still to be delivered as such.
+         *
+         * @return first such number, {@link Long#MAX_VALUE} if there is none
+         */
+        private long firstSkipped() {
+            synchronized (skipped) {
+                Map.Entry<Long, Long> first;
+                while ((first = skipped.firstEntry()) != null && first.getValue() < nextSequence) {
+                    skipped.pollFirstEntry();
+                }
+                return first == null ? Long.MAX_VALUE : Math.max(first.getKey(), nextSequence);
+            }
+        }
+
+        /**
+         * Removes the first run of dropped sequence numbers, which starts at the next sequence number.
+         *
+         * @return event standing for the run
+         */
+        private HotelEvent takeSkipped() {
+            synchronized (skipped) {
+                long last = skipped.pollFirstEntry().getValue();
+                return HotelEvent.eventsSkipped(nextSequence, last - nextSequence + 1);
+            }
+        }
+
+        void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Number of requested events should be positive"));
+                return;
+            }
+            long current;
+            do {
+                current = demand.get();
+            } while (!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            end();
+        }
+
+        private void fail(Throwable cause) {
+            if (failure == null) {
+                failure = cause;
+            }
+            subscriptions.remove(this);
+            schedule();
+        }
+
+        void schedule() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                deliveryPool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int signals = pendingSignals.get();
+            do {
+                deliver();
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        /**
+         * Delivers the buffered events the subscriber asked for, then the end of the subscription if it is due.
+         */
+        private void deliver() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            if (cancelled) {
+                buffer.clear();
+                return;
+            }
+            if (failure != null) {
+                end();
+                subscriber.onError(failure);
+                return;
+            }
+            long requested = demand.get();
+            long delivered = 0;
+            while (delivered < requested && !cancelled) {
+                HotelEvent event = buffer.peek();
+                long firstSkipped = firstSkipped();
+                long next = Math.min(event == null ? Long.MAX_VALUE : event.getSequence(), firstSkipped);
+                if (next == Long.MAX_VALUE) {
+                    break;
+                }
+                if (next > nextSequence) {
+                    if (!completed) {
+                        // An event numbered before it is still on its way to the buffer
+                        break;
+                    }
+                    // Publishing has stopped, the missing events are not coming
+                    nextSequence = next;
+                }
+                if (firstSkipped == nextSequence) {
+                    event = takeSkipped();
+                } else {
+                    buffer.poll();
+                    if (event.getSequence() < nextSequence) {
+                        continue;
+                    }
+                }
+                nextSequence = event.getNextSequence();
+                try {
+                    subscriber.onNext(event);
+                } catch (RuntimeException ex) {
+                    end();
+                    subscriber.onError(ex);
+                    return;
+                }
+                delivered++;
+            }
+            if (delivered > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-delivered);
+            }
+            if (completed && buffer.isEmpty() && firstSkipped() == Long.MAX_VALUE && !cancelled) {
+                end();
+                subscriber.onComplete();
+            }
+        }
+
+        private void end() {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+            synchronized (skipped) {
+                skipped.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.project1.service.impl;
+
+import org.project1.model.Customer;
+import org.project1.model.Page;
+import org.project1.persistence.jpa.CustomerEntity;
+import org.project1.persistence.jpa.CustomerRepository;
+import org.project1.service.CustomerService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link CustomerService} backed by the database, active with the {@code jpa} profile.
+ */
+@Service
+@Primary
+@Profile("jpa")
+@Transactional(readOnly = true)
+public class JpaCustomerService implements CustomerService {
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+
+    public JpaCustomerService(CustomerRepository customerRepository, EntityManager entityManager) {
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Creates a new {@link Customer} and stores it if no customer is already stored with the provided email.
+     *
+     * @param email     string, email of the customer
+     * @param firstName string, first name of the customer
+     * @param lastName  string, last name of the customer
+     * @throws IllegalArgumentException if the email is invalid or a customer with it was already stored
+     */
+    @Override
+    @Transactional
+    public void addCustomer(String email, String firstName, String lastName) {
+        Customer newCustomer = new Customer(firstName, lastName, email);
+        if (customerRepository.existsById(email)) {
+            throw new IllegalArgumentException("Customer with this email is already registered.");
+        }
+        entityManager.persist(new CustomerEntity(newCustomer));
+    }
+
+    /**
+     * Records the supplied customers whose email is not registered yet in one transaction. Registered emails are
+     * looked up with one query and the new rows are inserted in JDBC batches.
+     *
+     * @param customers customers to record
+     * @return customers who were not recorded because their email is already registered
+     */
+    @Override
+    @Transactional
+    public List<Customer> addCustomers(Collection<Customer> customers) {
+        List<String> emails = new ArrayList<>(customers.size());
+        for (Customer aCustomer : customers) {
+            emails.add(aCustomer.getEmail());
+        }
+        Set<String> registeredEmails = new HashSet<>();
+        for (CustomerEntity anEntity : customerRepository.findAllById(emails)) {
+            registeredEmails.add(anEntity.getEmail());
+        }
+        List<Customer> duplicates = new ArrayList<>();
+        for (Customer aCustomer : customers) {
+            if (registeredEmails.add(aCustomer.getEmail())) {
+                entityManager.persist(new CustomerEntity(aCustomer));
+            } else {
+                duplicates.add(aCustomer);
+            }
+        }
+        return duplicates;
+    }
+
+    @Override
+    public Customer getCustomer(String customerEmail) {
+        if (customerEmail == null) {
+            return null;
+        }
+        return customerRepository.findById(customerEmail).map(CustomerEntity::toCustomer).orElse(null);
+    }
+
+    @Override
+    public Collection<Customer> getAllCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        for (CustomerEntity anEntity : customerRepository.findAll()) {
+            customers.add(anEntity.toCustomer());
+        }
+        return customers;
+    }
+
+    @Override
+    public long getCustomerCount() {
+        return customerRepository.count();
+    }
+
+    /**
+     * Returns one page of the customers in email order. Pages are read by key, so no page costs more than its rows.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of customers on the page
+     * @return page of customers
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    @Override
+    public Page<Customer> getCustomers(String cursor, int limit) {
+        Page.checkLimit(limit);
+        PageRequest firstRows = PageRequest.of(0, limit);
+        List<CustomerEntity> entities = cursor == null || cursor.isEmpty()
+                ? customerRepository.findAllByOrderByEmailAsc(firstRows)
+                : customerRepository.findByEmailGreaterThanOrderByEmailAsc(cursor, firstRows);
+        List<Customer> customers = new ArrayList<>(entities.size());
+        for (CustomerEntity anEntity : entities) {
+            customers.add(anEntity.toCustomer());
+        }
+        return Page.of(customers, limit, Customer::getEmail);
+    }
+}
@@ -0,0 +1,469 @@
+package org.project1.service.impl;
+
+import org.project1.index.ListStayHistory;
+import org.project1.index.RoomSchedule;
+import org.project1.index.WindowFinder;
+import org.project1.model.AvailableWindow;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomType;
+import org.project1.persistence.jpa.CustomerEntity;
+import org.project1.persistence.jpa.CustomerRepository;
+import org.project1.persistence.jpa.ReservationEntity;
+import org.project1.persistence.jpa.ReservationRepository;
+import org.project1.persistence.jpa.RoomEntity;
+import org.project1.persistence.jpa.RoomRepository;
+import org.project1.service.ReservationConflictException;
+import org.project1.service.ReservationCursor;
+import org.project1.service.ReservationService;
+import org.project1.service.StayListener;
+import org.project1.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link ReservationService} backed by the database, active with the {@code jpa} profile.
+ * <p>
+ * Searches are answered by queries instead of loading every row: availability is one anti-join against the
+ * reservations of each room. Bookings lock the row of the reserved room, so the overlap check and the insert are
+ * atomic with respect to other bookings of that room only. The {@link StayListener} is told of a change before its
+ * transaction commits, while the row is still locked.
+ */
+@Service
+@Primary
+@Profile("jpa")
+@Transactional(readOnly = true)
+public class JpaReservationService implements ReservationService {
+    private final RoomRepository roomRepository;
+    private final ReservationRepository reservationRepository;
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private volatile StayListener stayListener;
+
+    public JpaReservationService(RoomRepository roomRepository,
+                                 ReservationRepository reservationRepository,
+                                 CustomerRepository customerRepository,
+                                 EntityManager entityManager) {
+        this.roomRepository = roomRepository;
+        this.reservationRepository = reservationRepository;
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+        this.stayListener = StayListener.NONE;
+    }
+
+    /**
+     * Sets the listener told of every booking, cancellation and change while the row of the room is locked.
+     *
+     * @param stayListener listener of all the changes of the stays
+     */
+    @Autowired(required = false)
+    public void setStayListener(StayListener stayListener) {
+        this.stayListener = stayListener;
+    }
+
+    /**
+     * Records the supplied room if a room with the same number was not recorded yet.
+     *
+     * @param room iRoom, an object of a room to add
+     * @return true if the room was recorded, false if a room with the same number already exists
+     */
+    @Override
+    @Transactional
+    public boolean addRoom(IRoom room) {
+        if (roomRepository.existsById(room.getRoomNumber())) {
+            return false;
+        }
+        entityManager.persist(new RoomEntity(room));
+        return true;
+    }
+
+    /**
+     * Records the supplied rooms whose number is not taken yet in one transaction. Taken numbers are looked up with
+     * one query and the new rows are inserted in JDBC batches.
+     *
+     * @param rooms rooms to record
+     * @return rooms which were not recorded because a room with the same number already exists
+     */
+    @Override
+    @Transactional
+    public List<IRoom> addRooms(Collection<IRoom> rooms) {
+        List<String> roomNumbers = new ArrayList<>(rooms.size());
+        for (IRoom aRoom : rooms) {
+            roomNumbers.add(aRoom.getRoomNumber());
+        }
+        Set<String> takenNumbers = new HashSet<>();
+        for (RoomEntity anEntity : roomRepository.findAllById(roomNumbers)) {
+            takenNumbers.add(anEntity.getRoomNumber());
+        }
+        List<IRoom> duplicates = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            if (takenNumbers.add(aRoom.getRoomNumber())) {
+                entityManager.persist(new RoomEntity(aRoom));
+            } else {
+                duplicates.add(aRoom);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Returns a room if one was already recorded with the supplied ID.
+     *
+     * @param roomId string for room's ID
+     * @return iRoom corresponding to supplied ID
+     * @throws IllegalArgumentException if there is no room with supplied ID
+     */
+    @Override
+    public IRoom getARoom(String roomId) {
+        IRoom room = findRoomByNumber(roomId);
+        if (room == null) {
+            throw new IllegalArgumentException("There is no room with number " + roomId);
+        }
+        return room;
+    }
+
+    @Override
+    public IRoom findRoomByNumber(String roomNumber) {
+        if (roomNumber == null) {
+            return null;
+        }
+        return roomRepository.findById(roomNumber).map(RoomEntity::toRoom).orElse(null);
+    }
+
+    @Override
+    public Collection<IRoom> getRoomsByType(RoomType roomType) {
+        return toRooms(roomRepository.findByRoomType(roomType));
+    }
+
+    @Override
+    public Collection<IRoom> getRoomsByMaxPrice(double maxPrice) {
+        return toRooms(roomRepository.findByPriceLessThanEqualOrderByPriceAsc(maxPrice));
+    }
+
+    /**
+     * Creates a new reservation and stores it if the room is free for all nights of the stay.
+     *
+     * @param customer     customer for whom the reservation is made
+     * @param room         iRoom which is reserved
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @return reservation newly created
+     * @throws IllegalArgumentException     if the stay has no nights or the room or customer is unknown
+     * @throws ReservationConflictException if the room is already reserved for any of the nights
+     */
+    @Override
+    @Transactional
+    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
+        Date checkIn = toDay(checkInDate);
+        Date checkOut = toDay(checkOutDate);
+        if (!checkIn.before(checkOut)) {
+            throw new IllegalArgumentException("Check-out date should be at least one day after check-in date");
+        }
+        RoomEntity roomEntity = roomRepository.findForUpdate(room.getRoomNumber())
+                .orElseThrow(() -> new IllegalArgumentException("There is no room with number "
+                        + room.getRoomNumber()));
+        if (reservationRepository.existsOverlapping(roomEntity.getRoomNumber(), checkIn, checkOut)) {
+            throw new ReservationConflictException("This room is already reserved for these days");
+        }
+        CustomerEntity customerEntity = null;
+        if (customer != null) {
+            customerEntity = customerRepository.findById(customer.getEmail())
+                    .orElseThrow(() -> new IllegalArgumentException("There is no customer with email "
+                            + customer.getEmail()));
+        }
+        ReservationEntity newReservation = new ReservationEntity(roomEntity, customerEntity, checkIn, checkOut);
+        entityManager.persist(newReservation);
+        Reservation booked = newReservation.toReservation();
+        stayListener.booked(booked);
+        return booked;
+    }
+
+    /**
+     * Deletes the reservation of the supplied customer in the supplied room checking in on the supplied date. The
+     * row of the room is locked first, as for a booking, so the cancellation is serialized with the bookings of that
+     * room.
+     *
+     * @param customer    customer of the reservation
+     * @param room        iRoom which is reserved
+     * @param checkInDate date object of check-in of the reservation
+     * @return reservation cancelled
+     * @throws IllegalArgumentException if the room is unknown or the customer has no stay in it checking in on that
+     *                                  date
+     */
+    @Override
+    @Transactional
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate) {
+        ReservationEntity stay = findStayForUpdate(customer, room, checkInDate);
+        Reservation cancelled = stay.toReservation();
+        reservationRepository.delete(stay);
+        stayListener.cancelled(cancelled);
+        return cancelled;
+    }
+
+    /**
+     * Moves the reservation of the supplied customer in the supplied room checking in on the supplied date to new
+     * dates, if no other reservation of the room overlaps them. The row of the room stays locked until the update is
+     * committed.
+     *
+     * @param customer        customer of the reservation
+     * @param room            iRoom which is reserved
+     * @param checkInDate     date object of check-in of the reservation
+     * @param newCheckInDate  date object of the new check-in
+     * @param newCheckOutDate date object of the new check-out
+     * @return reservation with the new dates
+     * @throws IllegalArgumentException     if the new stay has no nights, the room is unknown or the customer has no
+     *                                      stay in it checking in on that date
+     * @throws ReservationConflictException if another reservation overlaps the new dates
+     */
+    @Override
+    @Transactional
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate) {
+        Date checkIn = toDay(newCheckInDate);
+        Date checkOut = toDay(newCheckOutDate);
+        if (!checkIn.before(checkOut)) {
+            throw new IllegalArgumentException("Check-out date should be at least one day after check-in date");
+        }
+        ReservationEntity stay = findStayForUpdate(customer, room, checkInDate);
+        if (reservationRepository.existsOtherOverlapping(room.getRoomNumber(), checkIn, checkOut, stay.getId())) {
+            throw new ReservationConflictException("This room is already reserved for these days");
+        }
+        Reservation original = stay.toReservation();
+        stay.setCheckIn(checkIn);
+        stay.setCheckOut(checkOut);
+        Reservation changed = stay.toReservation();
+        stayListener.changed(original, changed);
+        return changed;
+    }
+
+    /**
+     * Locks the row of the supplied room and finds the reservation of the supplied customer checking in on the
+     * supplied date.
+     */
+    private ReservationEntity findStayForUpdate(Customer customer, IRoom room, Date checkInDate) {
+        roomRepository.findForUpdate(room.getRoomNumber())
+                .orElseThrow(() -> new IllegalArgumentException("There is no room with number "
+                        + room.getRoomNumber()));
+        return reservationRepository.findStay(room.getRoomNumber(), toDay(checkInDate),
+                customer == null ? null : customer.getEmail())
+                .orElseThrow(() -> new IllegalArgumentException(ReservationServiceImpl.NO_SUCH_RESERVATION));
+    }
+
+    /**
+     * Finds rooms available for booking withing the supplied dates.
+     *
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @return collection of rooms available for the supplied dates
+     */
+    @Override
+    public Collection<IRoom> findRooms(Date checkInDate, Date checkOutDate) {
+        return toRooms(roomRepository.findFree(toDay(checkInDate), toDay(checkOutDate)));
+    }
+
+    /**
+     * Finds the cheapest rooms free for every night of a stay, letting the database order and limit them.
+     *
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @param roomType     type of the rooms, null for any type
+     * @param maxPrice     highest accepted price, null for any price
+     * @param count        largest number of rooms returned
+     * @return list of at most count free rooms, ordered by price and then by room number
+     * @throws IllegalArgumentException if no room is requested
+     */
+    @Override
+    public List<IRoom> findCheapestRooms(Date checkInDate, Date checkOutDate, RoomType roomType, Double maxPrice,
+                                         int count) {
+        ReservationServiceImpl.checkCheapestSearch(count);
+        return toRooms(roomRepository.findCheapestFree(toDay(checkInDate), toDay(checkOutDate), roomType,
+                maxPrice == null ? Double.MAX_VALUE : maxPrice, PageRequest.of(0, count)));
+    }
+
+    /**
+     * Finds the earliest check-in days, on or after the supplied date, on which some room is free for the whole
+     * stay. The stays still to come are read in one query and each room's free gaps are scanned in memory.
+     *
+     * @param checkInDate earliest date of check-in
+     * @param nights      number of nights of the stay
+     * @param roomType    type of the rooms, null for any type
+     * @param count       largest number of windows returned
+     * @return list of windows ordered by check-in, each with the rooms free for it
+     * @throws IllegalArgumentException if the stay has no nights or no window is requested
+     */
+    @Override
+    public List<AvailableWindow> findAvailableWindows(Date checkInDate, int nights, RoomType roomType, int count) {
+        ReservationServiceImpl.checkWindowSearch(nights, count);
+        Date from = toDay(checkInDate);
+        Map<String, List<Reservation>> staysByRoom = new HashMap<>();
+        for (Object[] aSpan : reservationRepository.findStaySpansEndingAfter(from)) {
+            staysByRoom.computeIfAbsent((String) aSpan[0], roomNumber -> new ArrayList<>())
+                    .add(new Reservation(null, null, (Date) aSpan[1], (Date) aSpan[2]));
+        }
+        long fromDay = DateUtils.toEpochDay(from);
+        List<RoomSchedule> candidates = new ArrayList<>();
+        for (IRoom aRoom : roomType == null ? getRooms() : getRoomsByType(roomType)) {
+            List<Reservation> stays = staysByRoom.getOrDefault(aRoom.getRoomNumber(), new ArrayList<>());
+            candidates.add(new RoomSchedule(aRoom, fromDay, 0, new ListStayHistory(stays)));
+        }
+        return WindowFinder.find(candidates, fromDay, nights, count);
+    }
+
+    /**
+     * Finds all reservations for the supplied customer.
+     *
+     * @param customer customer for whom reservations are searched
+     * @return collection for reservations for the supplied customer, ordered by check-in
+     */
+    @Override
+    public Collection<Reservation> getCustomersReservation(Customer customer) {
+        if (customer == null) {
+            return new ArrayList<>();
+        }
+        return toReservations(reservationRepository.findByCustomerEmail(customer.getEmail()));
+    }
+
+    @Override
+    public Set<IRoom> getRooms() {
+        return new HashSet<>(toRooms(roomRepository.findAll()));
+    }
+
+    @Override
+    public Set<Reservation> getAllReservations() {
+        return new HashSet<>(toReservations(reservationRepository.findAllWithRoomAndCustomer()));
+    }
+
+    @Override
+    public Date findMinAvailableDay() {
+        Date minCheckOut = reservationRepository.findMinCheckOut();
+        return minCheckOut == null ? null : new Date(minCheckOut.getTime());
+    }
+
+    @Override
+    public long getRoomCount() {
+        return roomRepository.count();
+    }
+
+    @Override
+    public long getReservationCount() {
+        return reservationRepository.count();
+    }
+
+    /**
+     * Returns one page of the rooms in room number order.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of rooms on the page
+     * @return page of rooms
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    @Override
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        Page.checkLimit(limit);
+        PageRequest firstRows = PageRequest.of(0, limit);
+        List<RoomEntity> entities = cursor == null || cursor.isEmpty()
+                ? roomRepository.findAllByOrderByRoomNumberAsc(firstRows)
+                : roomRepository.findByRoomNumberGreaterThanOrderByRoomNumberAsc(cursor, firstRows);
+        return Page.of(toRooms(entities), limit, IRoom::getRoomNumber);
+    }
+
+    /**
+     * Returns one page of the reservations matching the supplied filter, in the same order as the in-memory
+     * service. The cursor becomes a key condition on the ordering columns, so the database seeks to the page
+     * through the (room, check-in, check-out) or customer index instead of skipping the rows before it.
+     *
+     * @param filter criteria of the reservations
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of reservations on the page
+     * @return page of reservations
+     * @throws IllegalArgumentException if the page size is not positive or the cursor is invalid
+     */
+    @Override
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        Page.checkLimit(limit);
+        ReservationCursor position = ReservationCursor.decode(cursor);
+        boolean byCustomer = filter.getEmail() != null;
+        StringBuilder jpql = new StringBuilder("select s from ReservationEntity s join fetch s.room r"
+                + " left join fetch s.customer c where 1 = 1");
+        if (filter.getRoomNumber() != null) {
+            jpql.append(" and r.roomNumber = :roomNumber");
+        }
+        if (byCustomer) {
+            jpql.append(" and c.email = :email");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" and s.checkOut > :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" and s.checkIn < :to");
+        }
+        if (position != null) {
+            jpql.append(byCustomer
+                    ? " and (s.checkIn > :afterCheckIn or (s.checkIn = :afterCheckIn and r.roomNumber > :afterRoom))"
+                    : " and (r.roomNumber > :afterRoom or (r.roomNumber = :afterRoom and s.checkIn > :afterCheckIn))");
+        }
+        jpql.append(byCustomer ? " order by s.checkIn, r.roomNumber" : " order by r.roomNumber, s.checkIn");
+
+        TypedQuery<ReservationEntity> query = entityManager.createQuery(jpql.toString(), ReservationEntity.class);
+        if (filter.getRoomNumber() != null) {
+            query.setParameter("roomNumber", filter.getRoomNumber());
+        }
+        if (byCustomer) {
+            query.setParameter("email", filter.getEmail());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", toDay(filter.getFrom()), TemporalType.DATE);
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", toDay(filter.getTo()), TemporalType.DATE);
+        }
+        if (position != null) {
+            query.setParameter("afterCheckIn", DateUtils.fromEpochDay(position.getCheckInDay()), TemporalType.DATE);
+            query.setParameter("afterRoom", position.getRoomNumber());
+        }
+        query.setMaxResults(limit);
+        return Page.of(toReservations(query.getResultList()), limit, ReservationCursor::encode);
+    }
+
+    /**
+     * Drops the time of day, so stored stays follow the same whole-day semantics as the in-memory service.
+     */
+    private static Date toDay(Date date) {
+        return DateUtils.fromEpochDay(DateUtils.toEpochDay(date));
+    }
+
+    private static List<IRoom> toRooms(List<RoomEntity> entities) {
+        List<IRoom> rooms = new ArrayList<>(entities.size());
+        for (RoomEntity anEntity : entities) {
+            rooms.add(anEntity.toRoom());
+        }
+        return rooms;
+    }
+
+    private static List<Reservation> toReservations(List<ReservationEntity> entities) {
+        List<Reservation> reservations = new ArrayList<>(entities.size());
+        for (ReservationEntity anEntity : entities) {
+            reservations.add(anEntity.toReservation());
+        }
+        return reservations;
+    }
+}
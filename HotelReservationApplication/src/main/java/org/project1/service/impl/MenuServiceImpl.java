@@ -1,21 +1,25 @@
 package org.project1.service.impl;
 
 import org.project1.resource.HotelResource;
+import org.project1.model.AvailableWindow;
 import org.project1.model.IRoom;
 import org.project1.model.Reservation;
 import org.project1.service.MenuService;
+import org.project1.util.DateUtils;
 import org.springframework.stereotype.Service;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
-import java.util.regex.Pattern;
 
 import static org.project1.util.NumberUtils.isNumber;
+import static org.project1.util.ValidationUtils.hasLetter;
+import static org.project1.util.ValidationUtils.looksLikeEmail;
 
 @Service
 public class MenuServiceImpl implements MenuService {
@@ -24,6 +28,8 @@ public class MenuServiceImpl implements MenuService {
     private static final DateFormat simpleDateFormat = new SimpleDateFormat("MM/dd/yyyy");
 
     private static final Scanner scanner = new Scanner(System.in);
+    // Number of alternative stays offered when the requested dates are fully booked
+    private static final int SUGGESTED_WINDOWS = 3;
 
     public MenuServiceImpl(HotelResource hotelResource) {
         this.hotelResource = hotelResource;
@@ -35,9 +41,10 @@ public class MenuServiceImpl implements MenuService {
         System.out.println("----------------------------------------");
         System.out.println("1. Find and reserve a room");
         System.out.println("2. See my reservations");
-        System.out.println("3. Create an account");
-        System.out.println("4. Admin");
-        System.out.println("5. Exit");
+        System.out.println("3. Cancel or change a reservation");
+        System.out.println("4. Create an account");
+        System.out.println("5. Admin");
+        System.out.println("6. Exit");
         System.out.println("----------------------------------------");
         System.out.println("Please enter a number to select a menu option");
     }
@@ -71,13 +78,81 @@ public class MenuServiceImpl implements MenuService {
         }
     }
 
+    /**
+     * Lists the reservations of the customer identified by the email from user's input, then cancels the one the
+     * user picks or moves it to new dates from user's input.
+     */
+    @Override
+    public void cancelOrChangeReservation() {
+        // Read customer's email
+        System.out.println("Please enter your email");
+        String email = readEmail();
+        if (!customerAlreadyExists(email)) {
+            System.out.println("You are still not registered with this email. Please create an account");
+            return;
+        }
+
+        // Display customer's reservations
+        List<Reservation> customerReservations = new ArrayList<>(hotelResource.getCustomersReservations(email));
+        if (customerReservations.isEmpty()) {
+            System.out.println("You still have no reservations with us");
+            return;
+        }
+        for (int i = 0; i < customerReservations.size(); i++) {
+            System.out.println((i + 1) + ". " + customerReservations.get(i));
+        }
+
+        // Read which reservation to cancel or change
+        Reservation picked = customerReservations.get(readReservationIndex(customerReservations.size()));
+        System.out.println("Enter \"c\" to cancel this reservation or \"d\" to change its dates");
+        while (true) {
+            String input = scanner.nextLine();
+            if ("c".equalsIgnoreCase(input)) {
+                hotelResource.cancelReservation(email, picked.getRoom(), picked.getCheckInDate());
+                System.out.println("Your reservation was cancelled");
+                return;
+            }
+            if ("d".equalsIgnoreCase(input)) {
+                break;
+            }
+            System.out.println("Enter \"c\" to cancel or \"d\" to change dates");
+        }
+
+        // Read the new dates
+        System.out.println("Enter new check-in date in format mm/dd/yyyy. Example: 05/13/2023");
+        Date checkIn = readDate();
+        System.out.println("Enter new check-out date in format mm/dd/yyyy Example: 05/13/2023");
+        Date checkOut = readDate();
+        if (!checkIn.before(checkOut)) {
+            System.out.println("Your check-out date should be later than check-in date. Your reservation is unchanged");
+            return;
+        }
+        System.out.println(hotelResource.changeReservation(email, picked.getRoom(), picked.getCheckInDate(), checkIn,
+                checkOut));
+    }
+
+    private int readReservationIndex(int reservationCount) {
+        System.out.println("Please enter the number of the reservation in the list above");
+        while (true) {
+            try {
+                int number = Integer.parseInt(scanner.nextLine().trim());
+                if (number >= 1 && number <= reservationCount) {
+                    return number - 1;
+                }
+            } catch (NumberFormatException ex) {
+                // Asked again below
+            }
+            System.out.println("Enter a number from 1 to " + reservationCount);
+        }
+    }
+
     private String readEmail() {
         boolean keepReadingEmail = true;
         String email = "";
         while (keepReadingEmail) {
             String input = scanner.nextLine();
             // Validate email
-            if (!isValidEmail(input)) {
+            if (!looksLikeEmail(input)) {
                 System.out.println("It is not a valid email. Please enter like example@mail.com");
                 continue;
             }
@@ -88,12 +163,6 @@ public class MenuServiceImpl implements MenuService {
         return email;
     }
 
-    private boolean isValidEmail(String input) {
-        String emailRegex = "^(.+)@(.+).(.+)$";
-        Pattern emailPattern = Pattern.compile(emailRegex);
-        return emailPattern.matcher(input).matches();
-    }
-
     private boolean customerAlreadyExists(String email) {
         return hotelResource.getCustomer(email) != null;
     }
@@ -141,7 +210,7 @@ public class MenuServiceImpl implements MenuService {
         boolean keepReadingName = true;
         while (keepReadingName) {
             input = scanner.nextLine();
-            if (!hasCharacters(input)) {
+            if (!hasLetter(input)) {
                 System.out.println("Your " + nameType + " name should have at least one letter.");
                 continue;
             }
@@ -153,10 +222,6 @@ public class MenuServiceImpl implements MenuService {
         return name;
     }
 
-    private boolean hasCharacters(String input) {
-        return input.matches(".*[a-zA-Z]+.*");
-    }
-
     /**
      * Searches available rooms for the dates from user's input and if one found, books it for the customer. If no
      * rooms found for the provided dates, searches rooms for the next seven days. While booking also checks that
@@ -176,8 +241,8 @@ public class MenuServiceImpl implements MenuService {
             Date checkOut = readDate();
 
             // Check that check-in is before check-out
-            if (checkIn.after(checkOut)) {
-                System.out.println("Your check-in date is later than checkout date. Please reenter dates");
+            if (!checkIn.before(checkOut)) {
+                System.out.println("Your check-out date should be later than check-in date. Please reenter dates");
                 continue;
             }
 
@@ -280,40 +345,28 @@ public class MenuServiceImpl implements MenuService {
                 checkOut);
 
         if (availableRooms.isEmpty()) {
-            System.out.println("No rooms found for selected dates. Trying to find a room in the next 7 days");
-
-            // Shift dates
-            checkIn = shiftDate(checkIn);
-            checkOut = shiftDate(checkOut);
+            System.out.println("No rooms found for selected dates. Looking for the earliest dates with a free room");
 
-            // Find rooms available for shifted dates
-            Collection<IRoom> incomingRooms = hotelResource.findARoom(checkIn, checkOut);
+            // Earliest stays of the same length, checking in after the requested day
+            int nights = (int) (DateUtils.toEpochDay(checkOut) - DateUtils.toEpochDay(checkIn));
+            List<AvailableWindow> windows = hotelResource.findAvailableWindows(checkIn, nights, null,
+                    SUGGESTED_WINDOWS);
 
-            if (incomingRooms.isEmpty()) {
-                System.out.println("No free rooms in the next 7 days found. Try different dates");
+            if (windows.isEmpty()) {
+                System.out.println("There are no rooms to book. Try again later");
             } else {
-                // Print shifted dates and available rooms
-                Date minAvailableDay = hotelResource.findMinAvailableDay();
-                if (minAvailableDay.before(checkIn)) {
-                    checkOut = new Date(checkOut.getTime() - checkIn.getTime() + minAvailableDay.getTime());
-                    checkIn = minAvailableDay;
-                }
-                System.out.println("You can book following rooms from " + checkIn + " to " + checkOut + ":");
-                for (IRoom aRoom : incomingRooms) {
-                    System.out.println(aRoom);
+                for (AvailableWindow aWindow : windows) {
+                    System.out.println("You can book following rooms from " + aWindow.getCheckInDate() + " to "
+                            + aWindow.getCheckOutDate() + ":");
+                    for (IRoom aRoom : aWindow.getRooms()) {
+                        System.out.println(aRoom);
+                    }
                 }
             }
         }
         return availableRooms;
     }
 
-    private Date shiftDate(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.DATE, 7);
-        return cal.getTime();
-    }
-
     private boolean stopBooking() {
         System.out.println("Would you like to book one of the rooms above? (y/n)");
         boolean stopBooking = false;
@@ -1,21 +1,139 @@
 package org.project1.service.impl;
 
+import org.project1.index.AvailabilityCache;
+import org.project1.index.CustomerReservationIndex;
+import org.project1.index.FreeRoomScan;
+import org.project1.index.PriceIndex;
+import org.project1.index.RoomCatalog;
+import org.project1.index.RoomSchedule;
+import org.project1.index.StayAnalytics;
+import org.project1.index.StayArchive;
+import org.project1.index.StayHistory;
+import org.project1.index.VersionClock;
+import org.project1.index.WindowFinder;
+import org.project1.model.AvailableWindow;
 import org.project1.model.Customer;
 import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
 import org.project1.model.Reservation;
-import org.project1.service.ReservationService;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomType;
+import org.project1.service.InMemoryReservationService;
+import org.project1.service.ReservationConflictException;
+import org.project1.service.ReservationCursor;
+import org.project1.service.ReservationSnapshot;
+import org.project1.service.StayListener;
+import org.project1.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
-public class ReservationServiceImpl implements ReservationService {
-    private final Set<IRoom> rooms;
-    private final Set<Reservation> reservations;
+@ConditionalOnProperty(name = "hotel.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class ReservationServiceImpl implements InMemoryReservationService {
+    /**
+     * Number of nights, starting today, whose availability is kept in the per-room occupancy bitmaps.
+     */
+    private static final int CALENDAR_HORIZON = 1024;
+    /**
+     * Number of room references, over all cached search results, kept by the availability cache.
+     */
+    static final long AVAILABILITY_CACHE_ROOMS = 1L << 20;
+    /**
+     * Number of rooms from which a search checks chunks of the inventory in parallel.
+     */
+    static final int PARALLEL_SEARCH_ROOMS = 50_000;
+    static final String NO_SUCH_RESERVATION =
+            "There is no reservation of this customer for this room and check-in date";
+    static final Comparator<Reservation> BY_CHECK_IN = Comparator
+            .comparing(Reservation::getCheckInDate)
+            .thenComparing(r -> r.getRoom().getRoomNumber());
+
+    private final RoomCatalog rooms;
+    private final ConcurrentMap<IRoom, RoomSchedule> schedules;
+    private final CustomerReservationIndex customerReservations;
+    private final AvailabilityCache availability;
+    private final StayAnalytics analytics;
+    private final VersionClock versions;
+    private final Queue<RoomSchedule> unindexedHistories;
+    private final Set<RoomSchedule> tombstonedSchedules;
+    private final int parallelSearchThreshold;
+    private volatile RoomSchedule[] schedulesByOrdinal;
+    private volatile PriceIndex priceIndex;
+    private int scheduleCount;
+    private volatile long calendarFirstDay;
+    private volatile StayListener stayListener;
 
     public ReservationServiceImpl() {
-        this.rooms = new HashSet<>();
-        reservations = new HashSet<>();
+        this(PARALLEL_SEARCH_ROOMS);
+    }
+
+    /**
+     * Constructor of this class.
+     *
+     * @param parallelSearchThreshold number of rooms from which searches run in parallel
+     */
+    @Autowired
+    public ReservationServiceImpl(
+            @Value("${hotel.search.parallel-threshold:" + PARALLEL_SEARCH_ROOMS + "}") int parallelSearchThreshold) {
+        this(AVAILABILITY_CACHE_ROOMS, parallelSearchThreshold);
+    }
+
+    /**
+     * Constructor of this class.
+     *
+     * @param availabilityCacheRooms  number of room references kept by the availability cache
+     * @param parallelSearchThreshold number of rooms from which searches run in parallel
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    ReservationServiceImpl(long availabilityCacheRooms, int parallelSearchThreshold) {
+        this(availabilityCacheRooms, parallelSearchThreshold, new StayAnalytics(), new VersionClock());
+    }
+
+    /**
+     * Constructor of this class.
+     *
+     * @param availabilityCacheRooms  number of room references kept by the availability cache
+     * @param parallelSearchThreshold number of rooms from which searches run in parallel
+     * @param analytics               per-day counters the stays of this service are added to
+     * @param versions                version counter of the changes of the stays of this service
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    ReservationServiceImpl(long availabilityCacheRooms, int parallelSearchThreshold, StayAnalytics analytics,
+                           VersionClock versions) {
+        if (parallelSearchThreshold < 1) {
+            throw new IllegalArgumentException("Parallel search threshold should be at least 1");
+        }
+        this.parallelSearchThreshold = parallelSearchThreshold;
+        this.rooms = new RoomCatalog();
+        schedules = new ConcurrentHashMap<>();
+        customerReservations = new CustomerReservationIndex();
+        availability = new AvailabilityCache(availabilityCacheRooms);
+        this.analytics = analytics;
+        this.versions = versions;
+        unindexedHistories = new ConcurrentLinkedQueue<>();
+        tombstonedSchedules = ConcurrentHashMap.newKeySet();
+        schedulesByOrdinal = new RoomSchedule[16];
+        calendarFirstDay = DateUtils.today();
+        stayListener = StayListener.NONE;
+    }
+
+    /**
+     * Sets the listener told of every booking, cancellation and change of this service under the lock of the room,
+     * besides the listener passed to the call.
+     *
+     * @param stayListener listener of all the changes of the stays
+     */
+    @Autowired(required = false)
+    public void setStayListener(StayListener stayListener) {
+        this.stayListener = stayListener;
     }
 
     /**
@@ -26,12 +144,164 @@ public class ReservationServiceImpl implements ReservationService {
      */
     @Override
     public boolean addRoom(IRoom room) {
-        if (rooms.contains(room)) {
+        if (!rooms.add(room)) {
+            return false;
+        }
+        addSchedule(room, StayHistory.EMPTY);
+        availability.invalidateAll();
+        return true;
+    }
+
+    /**
+     * Records the supplied rooms whose number is not taken yet. Their schedules are created under one lock and the
+     * search cache is invalidated once for the whole batch.
+     *
+     * @param rooms rooms to record
+     * @return rooms which were not recorded because a room with the same number already exists
+     */
+    @Override
+    public List<IRoom> addRooms(Collection<IRoom> rooms) {
+        List<IRoom> added = new ArrayList<>(rooms.size());
+        List<IRoom> duplicates = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            if (this.rooms.add(aRoom)) {
+                added.add(aRoom);
+            } else {
+                duplicates.add(aRoom);
+            }
+        }
+        if (!added.isEmpty()) {
+            addSchedules(added);
+            availability.invalidateAll();
+        }
+        return duplicates;
+    }
+
+    /**
+     * Records the supplied room together with stays already booked for it, typically read from a snapshot. The
+     * stays are searched in place; reservation objects for them are only built once a caller needs them.
+     *
+     * @param room    iRoom, an object of a room to add
+     * @param history stays of the room ordered by check-in
+     * @return true if the room was recorded, false if a room with the same number already exists
+     */
+    @Override
+    public boolean addRoom(IRoom room, StayHistory history) {
+        if (!rooms.add(room)) {
             return false;
-        } else {
-            rooms.add(room);
-            return true;
         }
+        addSchedule(room, history);
+        availability.invalidateAll();
+        return true;
+    }
+
+    /**
+     * Records the supplied rooms whose number is not taken yet in the catalog alone, for a caller creating their
+     * schedules itself with {@link #addSchedule(IRoom)} and then invalidating the search cache.
+     *
+     * @param rooms rooms to record
+     * @return rooms which were recorded
+     */
+    List<IRoom> addToCatalog(Collection<IRoom> rooms) {
+        List<IRoom> added = new ArrayList<>(rooms.size());
+        for (IRoom aRoom : rooms) {
+            if (this.rooms.add(aRoom)) {
+                added.add(aRoom);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Creates the schedule of a room recorded by {@link #addToCatalog(Collection)}.
+     *
+     * @param room iRoom recorded in the catalog
+     */
+    void addSchedule(IRoom room) {
+        addSchedule(room, StayHistory.EMPTY);
+    }
+
+    /**
+     * Drops all cached searches, once new rooms have their schedules.
+     */
+    void invalidateSearches() {
+        availability.invalidateAll();
+    }
+
+    private synchronized void addSchedules(List<IRoom> newRooms) {
+        for (IRoom aRoom : newRooms) {
+            addSchedule(aRoom, StayHistory.EMPTY);
+        }
+    }
+
+    /**
+     * Creates the schedule of a newly recorded room and gives it the next room ordinal.
+     */
+    private synchronized void addSchedule(IRoom room, StayHistory history) {
+        RoomSchedule schedule = new RoomSchedule(room, scheduleCount, calendarFirstDay, CALENDAR_HORIZON, history,
+                customerReservations::customer, versions);
+        RoomSchedule[] byOrdinal = schedulesByOrdinal;
+        if (scheduleCount == byOrdinal.length) {
+            byOrdinal = Arrays.copyOf(byOrdinal, byOrdinal.length * 2);
+        }
+        byOrdinal[scheduleCount++] = schedule;
+        schedulesByOrdinal = byOrdinal;
+        schedules.put(room, schedule);
+        priceIndex = null;
+        if (history.size() > 0) {
+            unindexedHistories.add(schedule);
+        }
+        double price = RoomCatalog.priceOf(room);
+        for (int i = 0; i < history.size(); i++) {
+            analytics.addStay(history.checkInDay(i), history.checkOutDay(i), price);
+        }
+    }
+
+    /**
+     * Moves the stays checking out on or before the supplied day off the heap into a new {@link StayArchive}, room
+     * by room. Rooms cannot be added until it is done.
+     *
+     * @param cutoffDay epoch day on or before which archived stays check out
+     * @return list with the new archive, holding all archived stays
+     */
+    @Override
+    public synchronized List<StayArchive> archiveStays(long cutoffDay) {
+        StayArchive.Writer writer = new StayArchive.Writer();
+        for (int i = 0; i < scheduleCount; i++) {
+            schedulesByOrdinal[i].archive(cutoffDay, writer, customerReservations);
+        }
+        StayArchive archive = writer.finish();
+        customerReservations.setArchive(archive);
+        // Archived stays are indexed by the archive, the others were added to the index while archiving
+        unindexedHistories.clear();
+        // Cancelled stays were left out of the new histories
+        tombstonedSchedules.clear();
+        return Collections.singletonList(archive);
+    }
+
+    /**
+     * Writes the histories holding cancelled stays again without them, into one new off-heap slice per room. Only
+     * the rooms with cancellations since the last compaction are visited.
+     *
+     * @return number of cancelled stays dropped
+     */
+    @Override
+    public synchronized int compactCancelledStays() {
+        if (tombstonedSchedules.isEmpty()) {
+            return 0;
+        }
+        List<RoomSchedule> tombstoned = new ArrayList<>(tombstonedSchedules);
+        tombstonedSchedules.removeAll(tombstoned);
+        int keptStays = 0;
+        for (RoomSchedule aSchedule : tombstoned) {
+            keptStays += aSchedule.size();
+        }
+        StayArchive.Writer writer = new StayArchive.Writer(keptStays);
+        int dropped = 0;
+        for (RoomSchedule aSchedule : tombstoned) {
+            dropped += aSchedule.compact(writer, customerReservations);
+        }
+        return dropped;
     }
 
     /**
@@ -42,80 +312,379 @@ public class ReservationServiceImpl implements ReservationService {
      * @throws IllegalArgumentException if there is no room with supplied ID
      */
     @Override
-    public IRoom getARoom(String roomId) throws Exception {
-        try {
-            return rooms.stream()
-                    .filter(r -> roomId.equals(r.getRoomNumber()))
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalArgumentException("There is no room with number " + roomId));
-        } catch (Exception ex) {
-            throw new Exception(ex.getMessage());
+    public IRoom getARoom(String roomId) {
+        IRoom room = rooms.get(roomId);
+        if (room == null) {
+            throw new IllegalArgumentException("There is no room with number " + roomId);
         }
+        return room;
+    }
+
+    /**
+     * Returns a room if one was already recorded with the supplied number. Unlike {@link #getARoom(String)} a miss
+     * costs no exception.
+     *
+     * @param roomNumber string with the room number
+     * @return iRoom with the supplied number or null if there is none
+     */
+    @Override
+    public IRoom findRoomByNumber(String roomNumber) {
+        return rooms.get(roomNumber);
+    }
+
+    /**
+     * Returns all rooms of the supplied type.
+     *
+     * @param roomType type of the rooms
+     * @return collection of rooms of that type
+     */
+    @Override
+    public Collection<IRoom> getRoomsByType(RoomType roomType) {
+        return new ArrayList<>(rooms.getByType(roomType));
+    }
+
+    /**
+     * Returns all rooms whose price is at most the supplied price.
+     *
+     * @param maxPrice highest accepted price
+     * @return collection of matching rooms, cheapest first and then by room number
+     */
+    @Override
+    public Collection<IRoom> getRoomsByMaxPrice(double maxPrice) {
+        return rooms.getByMaxPrice(maxPrice);
+    }
 
+    /**
+     * Returns the version at which the supplied room was recorded. Services sharing a version clock record their
+     * rooms in the order of these versions.
+     *
+     * @param room iRoom recorded by this service
+     * @return version of the recording of the room
+     */
+    long recordedVersionOf(IRoom room) {
+        return schedules.get(room).getCreatedVersion();
     }
 
     /**
-     * Creates a new reservation and if the same reservation was not recorded yet, records it.
+     * Creates a new reservation and records it if the room is free for all nights of the stay. The check and the
+     * insert are one atomic step under the lock of the reserved room.
      *
      * @param customer     customer for whom the reservation is made
      * @param room         iRoom which is reserved
      * @param checkInDate  date object of check-in
      * @param checkOutDate date object of check-out
      * @return reservation newly created
-     * @throws IllegalArgumentException if the supplied room is already reserved for exactly the same supplied days
+     * @throws IllegalArgumentException     if the stay has no nights or the room is unknown
+     * @throws ReservationConflictException if the room is already reserved for any of the nights
      */
     @Override
     public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
-        Reservation newReservation = new Reservation(customer, room, checkInDate,
-                checkOutDate);
-        if (reservations.contains(newReservation)) {
-            throw new IllegalArgumentException("This room is already reserved for these days");
+        return reserveARoom(customer, room, checkInDate, checkOutDate, StayListener.NONE);
+    }
+
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate,
+                                   StayListener listener) {
+        long fromDay = DateUtils.toEpochDay(checkInDate);
+        long toDay = DateUtils.toEpochDay(checkOutDate);
+        if (fromDay >= toDay) {
+            throw new IllegalArgumentException("Check-out date should be at least one day after check-in date");
+        }
+        RoomSchedule schedule = scheduleOf(room);
+        advanceCalendars();
+        int customerId = customerReservations.idOf(customer);
+        Reservation newReservation = new Reservation(customer, room, checkInDate, checkOutDate);
+        if (!schedule.tryAdd(fromDay, toDay, customerId, customerReservations,
+                checkOutDay -> {
+                    listener.booked(newReservation);
+                    stayListener.booked(newReservation);
+                })) {
+            throw new ReservationConflictException("This room is already reserved for these days");
         }
-        reservations.add(newReservation);
+        availability.invalidate(fromDay, toDay);
+        analytics.addStay(fromDay, toDay, RoomCatalog.priceOf(room));
         return newReservation;
     }
 
     /**
-     * Finds rooms available for booking withing the supplied dates.
+     * Cancels the stay of the supplied customer in the supplied room checking in on the supplied date.
+     *
+     * @param customer    customer of the reservation
+     * @param room        iRoom which is reserved
+     * @param checkInDate date object of check-in of the reservation
+     * @return reservation cancelled
+     * @throws IllegalArgumentException if the room is unknown or the customer has no stay in it checking in on that
+     *                                  date
+     */
+    @Override
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate) {
+        return cancelReservation(customer, room, checkInDate, StayListener.NONE);
+    }
+
+    @Override
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate, StayListener listener) {
+        long fromDay = DateUtils.toEpochDay(checkInDate);
+        RoomSchedule schedule = scheduleOf(room);
+        advanceCalendars();
+        // Loaded stays get their customer keys before one of them is removed
+        indexHistory();
+        long toDay = schedule.cancel(fromDay, customerReservations.idOf(customer), customerReservations,
+                checkOutDay -> {
+                    Reservation cancelled = stayOf(customer, room, fromDay, checkOutDay);
+                    listener.cancelled(cancelled);
+                    stayListener.cancelled(cancelled);
+                });
+        if (toDay == RoomSchedule.NO_STAY) {
+            throw new IllegalArgumentException(NO_SUCH_RESERVATION);
+        }
+        stayRemoved(schedule, fromDay, toDay);
+        return stayOf(customer, room, fromDay, toDay);
+    }
+
+    /**
+     * Moves the stay of the supplied customer in the supplied room checking in on the supplied date to new dates, if
+     * the room is free for them apart from the stay itself. The change is atomic under the lock of the room: either
+     * the stay has its new dates or it is left as it was.
+     *
+     * @param customer        customer of the reservation
+     * @param room            iRoom which is reserved
+     * @param checkInDate     date object of check-in of the reservation
+     * @param newCheckInDate  date object of the new check-in
+     * @param newCheckOutDate date object of the new check-out
+     * @return reservation with the new dates
+     * @throws IllegalArgumentException     if the new stay has no nights, the room is unknown or the customer has no
+     *                                      stay in it checking in on that date
+     * @throws ReservationConflictException if another stay overlaps the new dates
+     */
+    @Override
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate) {
+        return changeReservation(customer, room, checkInDate, newCheckInDate, newCheckOutDate, StayListener.NONE);
+    }
+
+    @Override
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate, StayListener listener) {
+        long fromDay = DateUtils.toEpochDay(checkInDate);
+        long newFromDay = DateUtils.toEpochDay(newCheckInDate);
+        long newToDay = DateUtils.toEpochDay(newCheckOutDate);
+        if (newFromDay >= newToDay) {
+            throw new IllegalArgumentException("Check-out date should be at least one day after check-in date");
+        }
+        RoomSchedule schedule = scheduleOf(room);
+        advanceCalendars();
+        indexHistory();
+        Reservation changed = new Reservation(customer, room, newCheckInDate, newCheckOutDate);
+        long toDay = schedule.tryMove(fromDay, customerReservations.idOf(customer), newFromDay, newToDay,
+                customerReservations,
+                checkOutDay -> {
+                    Reservation original = stayOf(customer, room, fromDay, checkOutDay);
+                    listener.changed(original, changed);
+                    stayListener.changed(original, changed);
+                });
+        if (toDay == RoomSchedule.NO_STAY) {
+            throw new IllegalArgumentException(NO_SUCH_RESERVATION);
+        }
+        if (toDay == RoomSchedule.CONFLICT) {
+            throw new ReservationConflictException("This room is already reserved for these days");
+        }
+        stayRemoved(schedule, fromDay, toDay);
+        availability.invalidate(newFromDay, newToDay);
+        analytics.addStay(newFromDay, newToDay, RoomCatalog.priceOf(room));
+        return changed;
+    }
+
+    private static Reservation stayOf(Customer customer, IRoom room, long fromDay, long toDay) {
+        return new Reservation(customer, room, DateUtils.fromEpochDay(fromDay), DateUtils.fromEpochDay(toDay));
+    }
+
+    /**
+     * Updates the search cache and the counters for a stay taken out of the supplied schedule, and remembers the
+     * schedule for compaction if the stay came from its history.
+     */
+    private void stayRemoved(RoomSchedule schedule, long fromDay, long toDay) {
+        availability.invalidate(fromDay, toDay);
+        analytics.removeStay(fromDay, toDay, RoomCatalog.priceOf(schedule.getRoom()));
+        if (schedule.getCancelledCount() > 0) {
+            tombstonedSchedules.add(schedule);
+        }
+    }
+
+    private RoomSchedule scheduleOf(IRoom room) {
+        RoomSchedule schedule = schedules.get(room);
+        if (schedule == null) {
+            throw new IllegalArgumentException("There is no room with number " + room.getRoomNumber());
+        }
+        return schedule;
+    }
+
+    /**
+     * Finds rooms available for booking withing the supplied dates. Results are cached per stay until a booking
+     * sharing a night with it, or a new room, makes them stale.
      *
      * @param checkInDate  date object of check-in
      * @param checkOutDate date object of check-out
-     * @return collection of rooms available for the supplied dates
+     * @return unmodifiable collection of rooms available for the supplied dates, in the order they were recorded
      */
     @Override
     public Collection<IRoom> findRooms(Date checkInDate, Date checkOutDate) {
-        // Copy all rooms
-        Set<IRoom> availableRooms = new HashSet<>(this.rooms);
-
-        // Compare with dates of existing reservations
-        for (Reservation aReservation : this.reservations) {
-            boolean checkResult = checkDates(aReservation, checkInDate,
-                    checkOutDate);
-            if (!checkResult) {
-                // Remove the room from the list of available rooms
-                availableRooms.remove(aReservation.getRoom());
+        long fromDay = DateUtils.toEpochDay(checkInDate);
+        long toDay = DateUtils.toEpochDay(checkOutDate);
+        return availability.get(fromDay, toDay, () -> scanRooms(fromDay, toDay));
+    }
+
+    /**
+     * Finds the earliest check-in days, on or after the supplied date, on which some room is free for the whole
+     * stay. Each room's free gaps are scanned forward from stay to stay instead of searching every day.
+     *
+     * @param checkInDate earliest date of check-in
+     * @param nights      number of nights of the stay
+     * @param roomType    type of the rooms, null for any type
+     * @param count       largest number of windows returned
+     * @return list of windows ordered by check-in, each with the rooms free for it
+     * @throws IllegalArgumentException if the stay has no nights or no window is requested
+     */
+    @Override
+    public List<AvailableWindow> findAvailableWindows(Date checkInDate, int nights, RoomType roomType, int count) {
+        checkWindowSearch(nights, count);
+        List<RoomSchedule> candidates = new ArrayList<>();
+        for (IRoom aRoom : roomType == null ? rooms.getAll() : rooms.getByType(roomType)) {
+            RoomSchedule schedule = schedules.get(aRoom);
+            if (schedule != null) {
+                candidates.add(schedule);
             }
         }
+        return WindowFinder.find(candidates, DateUtils.toEpochDay(checkInDate), nights, count);
+    }
+
+    /**
+     * Finds the cheapest rooms free for every night of a stay. The price index is built again on the first search
+     * after rooms were added.
+     *
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @param roomType     type of the rooms, null for any type
+     * @param maxPrice     highest accepted price, null for any price
+     * @param count        largest number of rooms returned
+     * @return list of at most count free rooms, ordered by price and then by room number
+     * @throws IllegalArgumentException if no room is requested
+     */
+    @Override
+    public List<IRoom> findCheapestRooms(Date checkInDate, Date checkOutDate, RoomType roomType, Double maxPrice,
+                                         int count) {
+        checkCheapestSearch(count);
+        PriceIndex index = priceIndex;
+        if (index == null) {
+            index = buildPriceIndex();
+        }
+        advanceCalendars();
+        return index.findCheapest(DateUtils.toEpochDay(checkInDate), DateUtils.toEpochDay(checkOutDate), roomType,
+                maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice, count);
+    }
+
+    /**
+     * Builds the price index of the rooms which have a schedule. Runs under the lock rooms get their schedule with,
+     * so a room added meanwhile either is in the index or discards it when its schedule is created.
+     */
+    private synchronized PriceIndex buildPriceIndex() {
+        if (priceIndex == null) {
+            priceIndex = PriceIndex.build(rooms.getAll(), schedules::get);
+        }
+        return priceIndex;
+    }
+
+    /**
+     * Reports occupancy and room revenue over the supplied period from the per-day counters.
+     *
+     * @param from date of the first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    @Override
+    public OccupancyReport getOccupancyReport(Date from, Date to) {
+        return report(analytics, DateUtils.toEpochDay(from), DateUtils.toEpochDay(to), rooms.size());
+    }
+
+    /**
+     * Builds the report of the supplied period from the supplied counters.
+     *
+     * @param analytics per-day counters of the stays
+     * @param fromDay   epoch day of the first night of the period
+     * @param toDay     epoch day after the last night of the period
+     * @param roomCount number of rooms which could be booked
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    static OccupancyReport report(StayAnalytics analytics, long fromDay, long toDay, long roomCount) {
+        if (fromDay >= toDay) {
+            throw new IllegalArgumentException("End date should be at least one day after start date");
+        }
+        return new OccupancyReport(DateUtils.fromEpochDay(fromDay), DateUtils.fromEpochDay(toDay), toDay - fromDay,
+                roomCount, analytics.getRoomNights(fromDay, toDay), analytics.getRevenueCents(fromDay, toDay) / 100.0);
+    }
+
+    /**
+     * Checks the arguments of a search for the cheapest rooms.
+     *
+     * @param count number of rooms requested
+     * @throws IllegalArgumentException if no room is requested
+     */
+    static void checkCheapestSearch(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Number of rooms should be at least 1");
+        }
+    }
+
+    /**
+     * Checks the arguments of a window search.
+     *
+     * @param nights number of nights of the stay
+     * @param count  number of windows requested
+     * @throws IllegalArgumentException if the stay has no nights or no window is requested
+     */
+    static void checkWindowSearch(int nights, int count) {
+        if (nights < 1) {
+            throw new IllegalArgumentException("Stay should be at least one night");
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Number of windows should be at least 1");
+        }
+    }
 
-        return new ArrayList<>(availableRooms);
+    /**
+     * Checks every room for the supplied nights. A large inventory is checked in chunks on the fork-join pool, a
+     * small one sequentially, where splitting would cost more than it saves.
+     */
+    private List<IRoom> scanRooms(long fromDay, long toDay) {
+        advanceCalendars();
+        RoomSchedule[] byOrdinal = schedulesByOrdinal;
+        return rooms.size() >= parallelSearchThreshold
+                ? FreeRoomScan.parallel(byOrdinal, fromDay, toDay)
+                : FreeRoomScan.sequential(byOrdinal, fromDay, toDay);
     }
 
     /**
      * Finds all reservations for the supplied customer.
      *
      * @param customer customer for whom reservations are searched
-     * @return collection for reservations for the supplied customer
+     * @return collection for reservations for the supplied customer, ordered by check-in
      */
     @Override
     public Collection<Reservation> getCustomersReservation(Customer customer) {
-        List<Reservation> customersReservations = new ArrayList<>();
-        for (Reservation aReservation : this.reservations) {
-            if (aReservation.getCustomer().equals(customer)) {
-                customersReservations.add(aReservation);
+        if (customer == null) {
+            return new ArrayList<>();
+        }
+        indexHistory();
+        List<Reservation> reservations = new ArrayList<>();
+        for (long aKey : customerReservations.getFrom(customer.getEmail(), Long.MIN_VALUE)) {
+            Reservation reservation = toReservation(aKey, customer.getEmail());
+            if (reservation != null) {
+                reservations.add(reservation);
             }
         }
-
-        return customersReservations;
+        reservations.sort(BY_CHECK_IN);
+        return reservations;
     }
 
     /**
@@ -125,43 +694,244 @@ public class ReservationServiceImpl implements ReservationService {
      */
     @Override
     public Set<IRoom> getRooms() {
-        return rooms;
+        return new HashSet<>(rooms.getAll());
     }
 
     /**
-     * Returns all reservations recorded so far.
+     * Returns all reservations recorded so far, as they were at one instant. Reservation objects are built for every
+     * stay, so prefer {@link #getReservations(ReservationFilter, String, int)} for large listings.
      *
-     * @return map of reservations
+     * @return set of reservations
      */
     @Override
     public Set<Reservation> getAllReservations() {
-        return reservations;
+        try (ReservationSnapshot snapshot = openSnapshot()) {
+            return new HashSet<>(snapshot.getAllReservations());
+        }
     }
 
+    /**
+     * Opens a view of the rooms and stays as they are now. The stays are read in place; a room changed while the
+     * snapshot is open keeps a copy of its former stays until the snapshot is closed.
+     *
+     * @return snapshot to close once it is no longer read
+     */
     @Override
-    public Date findMinAvailableDay() {
-        if (!reservations.isEmpty()) {
-            Reservation min = reservations.stream()
-                    .min((o1, o2) -> (int) (o1.getCheckOutDate().getTime() - o2.getCheckOutDate().getTime()))
-                    .get();
-            return min.getCheckOutDate();
+    public ReservationSnapshot openSnapshot() {
+        VersionClock.Snapshot snapshot = versions.open();
+        return new ReservationSnapshot(snapshot, schedulesAt(snapshot.getVersion()));
+    }
+
+    /**
+     * Returns the schedules of the rooms recorded at or before the supplied version. Holding the lock of room
+     * creation, it does not miss a room which took its version before but was not published yet.
+     *
+     * @param version version of an open snapshot
+     * @return list of schedules in ordinal order
+     */
+    synchronized List<RoomSchedule> schedulesAt(long version) {
+        List<RoomSchedule> recorded = new ArrayList<>(scheduleCount);
+        for (int i = 0; i < scheduleCount; i++) {
+            if (schedulesByOrdinal[i].getCreatedVersion() <= version) {
+                recorded.add(schedulesByOrdinal[i]);
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Returns one page of the rooms in room number order.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of rooms on the page
+     * @return page of rooms
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    @Override
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        Page.checkLimit(limit);
+        String afterNumber = cursor == null || cursor.isEmpty() ? null : cursor;
+        return Page.of(rooms.getAfter(afterNumber, limit), limit, IRoom::getRoomNumber);
+    }
+
+    /**
+     * Returns one page of the reservations matching the supplied filter. Reservations of one customer are listed by
+     * check-in then room number, all others by room number then check-in, so a page only reads the stays it returns.
+     *
+     * @param filter criteria of the reservations
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of reservations on the page
+     * @return page of reservations
+     * @throws IllegalArgumentException if the page size is not positive or the cursor is invalid
+     */
+    @Override
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        Page.checkLimit(limit);
+        ReservationCursor position = ReservationCursor.decode(cursor);
+        if (filter.getEmail() != null) {
+            return Page.of(customerReservationsAfter(filter, position, limit), limit, ReservationCursor::encode);
         }
-        return null;
+
+        List<Reservation> page = new ArrayList<>();
+        String fromNumber = position == null ? null : position.getRoomNumber();
+        Collection<String> roomNumbers = filter.getRoomNumber() == null
+                ? rooms.getNumbersFrom(fromNumber, true)
+                : Collections.singletonList(filter.getRoomNumber());
+        for (String aNumber : roomNumbers) {
+            IRoom room = rooms.get(aNumber);
+            RoomSchedule schedule = room == null ? null : schedules.get(room);
+            if (schedule == null || (fromNumber != null && aNumber.compareTo(fromNumber) < 0)) {
+                continue;
+            }
+            // Only the stays of the cursor's room are resumed after its check-in day
+            long afterDay = aNumber.equals(fromNumber) ? position.getCheckInDay() : Long.MIN_VALUE;
+            page.addAll(schedule.stays(filter.getFrom(), filter.getTo(), afterDay, limit - page.size()));
+            if (page.size() == limit) {
+                break;
+            }
+        }
+        return Page.of(page, limit, ReservationCursor::encode);
+    }
+
+    /**
+     * Returns all stays of the supplied room.
+     *
+     * @param room iRoom whose stays are returned
+     * @return list of reservations ordered by check-in, empty if the room is unknown
+     */
+    @Override
+    public List<Reservation> getRoomStays(IRoom room) {
+        RoomSchedule schedule = schedules.get(room);
+        if (schedule == null) {
+            return new ArrayList<>();
+        }
+        return schedule.stays();
+    }
+
+    /**
+     * Returns the number of rooms recorded so far.
+     *
+     * @return number of rooms
+     */
+    @Override
+    public long getRoomCount() {
+        return rooms.size();
     }
 
     /**
-     * Checks if the supplied reservation conflicts with the supplied check-in and check-out dates.
+     * Returns the number of reservations recorded so far without building reservation objects for stays loaded
+     * from a snapshot.
      *
-     * @param reservation reservation to compare with the supplied dates
-     * @param checkIn     date object of check-in
-     * @param checkOut    date object of check-out
-     * @return datesCheckResult object of a helper class containing a check result for each date
+     * @return number of reservations
      */
-    boolean checkDates(Reservation reservation, Date checkIn, Date checkOut) {
-        boolean isCheckInOK = checkIn.before(reservation.getCheckInDate()) ||
-                checkIn.compareTo(reservation.getCheckOutDate()) >= 0;
-        boolean isCheckOutOK = checkOut.compareTo(reservation.getCheckInDate()) <= 0 ||
-                checkOut.after(reservation.getCheckOutDate());
-        return isCheckInOK && isCheckOutOK;
+    @Override
+    public long getReservationCount() {
+        long count = 0L;
+        for (RoomSchedule schedule : schedules.values()) {
+            count += schedule.size();
+        }
+        return count;
+    }
+
+    @Override
+    public Date findMinAvailableDay() {
+        long minDay = Long.MAX_VALUE;
+        for (RoomSchedule schedule : schedules.values()) {
+            minDay = Math.min(minDay, schedule.firstCheckOutDay());
+        }
+        return minDay == Long.MAX_VALUE ? null : DateUtils.fromEpochDay(minDay);
+    }
+
+    private List<Reservation> customerReservationsAfter(ReservationFilter filter, ReservationCursor position,
+                                                       int limit) {
+        indexHistory();
+        long fromDay = filter.getFrom() == null ? Long.MIN_VALUE : DateUtils.toEpochDay(filter.getFrom());
+        long toDay = filter.getTo() == null ? Long.MAX_VALUE : DateUtils.toEpochDay(filter.getTo());
+        int roomOrdinal = -1;
+        if (filter.getRoomNumber() != null) {
+            IRoom room = rooms.get(filter.getRoomNumber());
+            RoomSchedule schedule = room == null ? null : schedules.get(room);
+            if (schedule == null) {
+                return new ArrayList<>();
+            }
+            roomOrdinal = schedule.getOrdinal();
+        }
+
+        List<Reservation> page = new ArrayList<>();
+        long[] keys = customerReservations.getFrom(filter.getEmail(),
+                position == null ? Long.MIN_VALUE : position.getCheckInDay());
+        int index = 0;
+        while (index < keys.length && page.size() < limit) {
+            long checkInDay = CustomerReservationIndex.checkInDay(keys[index]);
+            if (checkInDay >= toDay) {
+                break;
+            }
+            // Keys of one day are ordered by room ordinal, the page by room number
+            List<Reservation> sameDay = new ArrayList<>();
+            for (; index < keys.length && CustomerReservationIndex.checkInDay(keys[index]) == checkInDay; index++) {
+                if (roomOrdinal < 0 || CustomerReservationIndex.roomOrdinal(keys[index]) == roomOrdinal) {
+                    Reservation reservation = toReservation(keys[index], filter.getEmail());
+                    if (reservation != null && DateUtils.toEpochDay(reservation.getCheckOutDate()) > fromDay) {
+                        sameDay.add(reservation);
+                    }
+                }
+            }
+            sameDay.sort(BY_CHECK_IN);
+            for (Reservation aReservation : sameDay) {
+                if (position != null && checkInDay == position.getCheckInDay()
+                        && aReservation.getRoom().getRoomNumber().compareTo(position.getRoomNumber()) <= 0) {
+                    continue;
+                }
+                page.add(aReservation);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Builds the reservation object of the stay with the supplied customer index key, or returns null if the stay is
+     * gone. An archived key outlives a cancelled stay, and the nights may have been booked again by someone else.
+     */
+    private Reservation toReservation(long key, String email) {
+        RoomSchedule schedule = schedulesByOrdinal[CustomerReservationIndex.roomOrdinal(key)];
+        Reservation reservation = schedule.stayCheckingInOn(CustomerReservationIndex.checkInDay(key));
+        if (reservation == null || reservation.getCustomer() == null
+                || !email.equals(reservation.getCustomer().getEmail())) {
+            return null;
+        }
+        return reservation;
+    }
+
+    /**
+     * Adds the stays loaded with {@link #addRoom(IRoom, StayHistory)} to the customer index. Runs on the first call
+     * that needs them, without building reservation objects.
+     */
+    private void indexHistory() {
+        if (unindexedHistories.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            List<RoomSchedule> histories = new ArrayList<>(unindexedHistories);
+            customerReservations.addAll(histories);
+            for (int i = 0; i < histories.size(); i++) {
+                unindexedHistories.poll();
+            }
+        }
+    }
+
+    /**
+     * Rolls the occupancy bitmaps forward so that their horizon starts today.
+     */
+    private void advanceCalendars() {
+        long today = DateUtils.today();
+        if (today > calendarFirstDay) {
+            for (RoomSchedule schedule : schedules.values()) {
+                schedule.advanceCalendarTo(today);
+            }
+            calendarFirstDay = today;
+        }
     }
 }
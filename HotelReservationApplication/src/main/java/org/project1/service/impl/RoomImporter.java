@@ -0,0 +1,148 @@
+package org.project1.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.project1.model.FreeRoom;
+import org.project1.model.IRoom;
+import org.project1.model.Room;
+import org.project1.model.RoomImportReport;
+import org.project1.model.RoomType;
+import org.project1.service.ReservationService;
+import org.project1.service.impl.ChunkedLineReader.LineParser;
+import org.project1.service.impl.ChunkedLineReader.ParsedChunk;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import static org.project1.util.NumberUtils.isNumber;
+
+/**
+ * Bulk import of rooms from a CSV or NDJSON file.
+ * <p>
+ * The file is streamed through a {@link ChunkedLineReader}, which parses and validates chunks of lines in parallel,
+ * and the valid rooms of each chunk are recorded as one batch, in file order. Every problem ends up in a single
+ * {@link RoomImportReport}.
+ * <p>
+ * A CSV line holds a room number, a price and a room type ({@code SINGLE}, {@code DOUBLE} or {@code FREE}, or just
+ * {@code s}, {@code d} or {@code f}); a header line naming the columns may put them in another order. An NDJSON line
+ * is an object with the {@code roomNumber}, {@code price} and {@code roomType} fields of the REST API. Blank lines and
+ * lines starting with {@code #} are skipped.
+ */
+@Service
+public class RoomImporter {
+    private static final String[] COLUMNS = {"roomNumber", "price", "roomType"};
+
+    private final ReservationService reservationService;
+    private final HotelEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public RoomImporter(ReservationService reservationService, HotelEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
+        this.reservationService = reservationService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads rooms from the supplied file and records those which are valid and whose number is not taken yet.
+     *
+     * @param reader content of the file
+     * @return report of the imported, skipped and rejected rooms
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the header line names an unknown column
+     */
+    public RoomImportReport importRooms(Reader reader) throws IOException {
+        long start = System.nanoTime();
+        RoomImportReport report = new RoomImportReport();
+        report.setLinesRead(ChunkedLineReader.read(reader, new RoomLineParser(), parsed -> record(parsed, report)));
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000L);
+        return report;
+    }
+
+    private void record(ParsedChunk<IRoom> parsed, RoomImportReport report) {
+        for (int i = 0; i < parsed.errorLines.size(); i++) {
+            report.addRejected(parsed.errorLines.get(i), parsed.errors.get(i));
+        }
+        List<IRoom> duplicates = reservationService.addRooms(parsed.items);
+        eventPublisher.roomsAdded(parsed.items, duplicates);
+        report.addImported(parsed.items.size() - duplicates.size());
+        for (IRoom aDuplicate : duplicates) {
+            report.addSkipped(aDuplicate.getRoomNumber());
+        }
+    }
+
+    /**
+     * Validates the supplied fields like the console does and builds the room they describe.
+     */
+    private static IRoom toRoom(String roomNumber, String price, String roomType) {
+        if (!isNumber(roomNumber)) {
+            throw new IllegalArgumentException("Room number should be an integer number");
+        }
+        RoomType type = parseRoomType(roomType);
+        if (RoomType.FREE.equals(type)) {
+            return new FreeRoom(roomNumber, type);
+        }
+        if (!isNumber(price)) {
+            throw new IllegalArgumentException("Room price should be a decimal number");
+        }
+        return new Room(roomNumber, Double.parseDouble(price), type);
+    }
+
+    private static RoomType parseRoomType(String roomType) {
+        switch (roomType == null ? "" : roomType.toLowerCase()) {
+            case "s":
+            case "single":
+                return RoomType.SINGLE;
+            case "d":
+            case "double":
+                return RoomType.DOUBLE;
+            case "f":
+            case "free":
+                return RoomType.FREE;
+            default:
+                throw new IllegalArgumentException("Room type should be SINGLE, DOUBLE or FREE");
+        }
+    }
+
+    /**
+     * Parser of the lines of one file, which knows the column order given by its header.
+     */
+    private final class RoomLineParser implements LineParser<IRoom> {
+        private int[] columns = {0, 1, 2};
+
+        @Override
+        public boolean readHeader(String line) {
+            if (line.isEmpty() || line.startsWith("{") || isNumber(line.split(",")[0].trim())) {
+                return false;
+            }
+            columns = ChunkedLineReader.columnIndexes(line.split(","), COLUMNS);
+            return true;
+        }
+
+        @Override
+        public IRoom parse(String line) {
+            return line.startsWith("{") ? parseJson(line) : parseCsv(line);
+        }
+
+        private IRoom parseCsv(String line) {
+            String[] fields = line.split(",", -1);
+            if (fields.length < COLUMNS.length) {
+                throw new IllegalArgumentException("Expected a room number, a price and a room type");
+            }
+            return toRoom(fields[columns[0]].trim(), fields[columns[1]].trim(), fields[columns[2]].trim());
+        }
+
+        private IRoom parseJson(String line) {
+            JsonNode room;
+            try {
+                room = objectMapper.readTree(line);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Not a valid JSON object");
+            }
+            return toRoom(room.path("roomNumber").asText(null), room.path("price").asText(null),
+                    room.path("roomType").asText(null));
+        }
+    }
+}
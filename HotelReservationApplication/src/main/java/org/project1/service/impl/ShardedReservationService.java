@@ -0,0 +1,577 @@
+package org.project1.service.impl;
+
+import org.project1.index.PriceIndex;
+import org.project1.index.RoomSchedule;
+import org.project1.index.StayAnalytics;
+import org.project1.index.StayArchive;
+import org.project1.index.StayHistory;
+import org.project1.index.VersionClock;
+import org.project1.model.AvailableWindow;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.OccupancyReport;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.RoomType;
+import org.project1.service.InMemoryReservationService;
+import org.project1.service.ReservationConflictException;
+import org.project1.service.ReservationCursor;
+import org.project1.service.ReservationSnapshot;
+import org.project1.service.StayListener;
+import org.project1.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * In-memory {@link org.project1.service.ReservationService} partitioned into shards by room number, active when
+ * {@code hotel.sharding.enabled} is set.
+ * <p>
+ * Each shard is a {@link ReservationServiceImpl} owning its rooms, their stays, its own customer index and its own
+ * search cache. Adding or booking a room only touches the shard owning it, so a booking invalidates the cached
+ * searches of that shard alone. Searches and customer lookups fan out to all shards in parallel on a dedicated
+ * {@link ForkJoinPool} and merge the shard results in the order the single service returns them.
+ */
+@Service
+@ConditionalOnProperty(name = "hotel.sharding.enabled", havingValue = "true")
+public class ShardedReservationService implements InMemoryReservationService {
+    private static final Comparator<IRoom> BY_NUMBER = Comparator.comparing(IRoom::getRoomNumber);
+    private static final Comparator<Reservation> BY_ROOM_NUMBER = Comparator
+            .comparing((Reservation r) -> r.getRoom().getRoomNumber())
+            .thenComparing(Reservation::getCheckInDate);
+
+    private final ReservationServiceImpl[] shards;
+    private final StayAnalytics analytics;
+    private final VersionClock versions;
+    private final ForkJoinPool fanOutPool;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param shardCount              number of shards
+     * @param parallelSearchThreshold number of rooms of a shard from which its searches run in parallel
+     * @throws IllegalArgumentException if there is not at least one shard or the threshold is not positive
+     */
+    public ShardedReservationService(@Value("${hotel.sharding.shards:8}") int shardCount,
+            @Value("${hotel.search.parallel-threshold:50000}") int parallelSearchThreshold) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Number of shards should be at least 1");
+        }
+        this.shards = new ReservationServiceImpl[shardCount];
+        this.analytics = new StayAnalytics();
+        this.versions = new VersionClock();
+        for (int i = 0; i < shardCount; i++) {
+            // The cache budget is shared, each shard only caches references to its own rooms
+            // All shards add their stays to the same counters, which take concurrent updates
+            // and version their changes on the same clock, so a snapshot sees all of them at one instant
+            shards[i] = new ReservationServiceImpl(ReservationServiceImpl.AVAILABILITY_CACHE_ROOMS / shardCount,
+                    parallelSearchThreshold, analytics, versions);
+        }
+        this.fanOutPool = new ForkJoinPool(Math.min(shardCount, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Sets the listener told of every booking, cancellation and change of all shards under the lock of the room.
+     *
+     * @param stayListener listener of all the changes of the stays
+     */
+    @Autowired(required = false)
+    public void setStayListener(StayListener stayListener) {
+        for (ReservationServiceImpl aShard : shards) {
+            aShard.setStayListener(stayListener);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        fanOutPool.shutdown();
+    }
+
+    @Override
+    public boolean addRoom(IRoom room) {
+        return shardOf(room.getRoomNumber()).addRoom(room);
+    }
+
+    @Override
+    public boolean addRoom(IRoom room, StayHistory history) {
+        return shardOf(room.getRoomNumber()).addRoom(room, history);
+    }
+
+    /**
+     * Records the supplied rooms whose number is not taken yet, each shard its own part of the batch in parallel.
+     * The schedules of the new rooms are then created in the order of the batch, which is the order searches list
+     * the rooms in, as they are in the single service.
+     *
+     * @param rooms rooms to record
+     * @return rooms which were not recorded because a room with the same number already exists
+     */
+    @Override
+    public List<IRoom> addRooms(Collection<IRoom> rooms) {
+        Map<ReservationServiceImpl, List<IRoom>> roomsByShard = new IdentityHashMap<>();
+        for (ReservationServiceImpl aShard : shards) {
+            roomsByShard.put(aShard, new ArrayList<>());
+        }
+        for (IRoom aRoom : rooms) {
+            roomsByShard.get(shardOf(aRoom.getRoomNumber())).add(aRoom);
+        }
+        List<List<IRoom>> addedByShard = fanOut(shard -> shard.addToCatalog(roomsByShard.get(shard)));
+        Set<IRoom> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<IRoom> aShardAdded : addedByShard) {
+            added.addAll(aShardAdded);
+        }
+        List<IRoom> duplicates = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            // A room passed twice is only added once
+            if (added.remove(aRoom)) {
+                shardOf(aRoom.getRoomNumber()).addSchedule(aRoom);
+            } else {
+                duplicates.add(aRoom);
+            }
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (!addedByShard.get(i).isEmpty()) {
+                shards[i].invalidateSearches();
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Returns a room if one was already recorded with the supplied ID.
+     *
+     * @param roomId string for room's ID
+     * @return iRoom corresponding to supplied ID
+     * @throws IllegalArgumentException if there is no room with supplied ID
+     */
+    @Override
+    public IRoom getARoom(String roomId) {
+        IRoom room = findRoomByNumber(roomId);
+        if (room == null) {
+            throw new IllegalArgumentException("There is no room with number " + roomId);
+        }
+        return room;
+    }
+
+    @Override
+    public IRoom findRoomByNumber(String roomNumber) {
+        return roomNumber == null ? null : shardOf(roomNumber).findRoomByNumber(roomNumber);
+    }
+
+    @Override
+    public Collection<IRoom> getRoomsByType(RoomType roomType) {
+        return concat(fanOut(shard -> shard.getRoomsByType(roomType)));
+    }
+
+    /**
+     * Returns all rooms whose price is at most the supplied price.
+     *
+     * @param maxPrice highest accepted price
+     * @return collection of matching rooms, cheapest first and then by room number
+     */
+    @Override
+    public Collection<IRoom> getRoomsByMaxPrice(double maxPrice) {
+        List<IRoom> matchingRooms = concat(fanOut(shard -> shard.getRoomsByMaxPrice(maxPrice)));
+        matchingRooms.sort(PriceIndex.BY_PRICE);
+        return matchingRooms;
+    }
+
+    /**
+     * Books the supplied room in the shard owning it. Bookings of rooms in other shards never wait for it.
+     *
+     * @param customer     customer for whom the reservation is made
+     * @param room         iRoom which is reserved
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @return reservation newly created
+     * @throws IllegalArgumentException     if the stay has no nights or the room is unknown
+     * @throws ReservationConflictException if the room is already reserved for any of the nights
+     */
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate) {
+        return shardOf(room.getRoomNumber()).reserveARoom(customer, room, checkInDate, checkOutDate);
+    }
+
+    @Override
+    public Reservation reserveARoom(Customer customer, IRoom room, Date checkInDate, Date checkOutDate,
+                                   StayListener listener) {
+        return shardOf(room.getRoomNumber()).reserveARoom(customer, room, checkInDate, checkOutDate, listener);
+    }
+
+    /**
+     * Cancels a stay in the shard owning its room.
+     *
+     * @param customer    customer of the reservation
+     * @param room        iRoom which is reserved
+     * @param checkInDate date object of check-in of the reservation
+     * @return reservation cancelled
+     * @throws IllegalArgumentException if the room is unknown or the customer has no stay in it checking in on that
+     *                                  date
+     */
+    @Override
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate) {
+        return shardOf(room.getRoomNumber()).cancelReservation(customer, room, checkInDate);
+    }
+
+    @Override
+    public Reservation cancelReservation(Customer customer, IRoom room, Date checkInDate, StayListener listener) {
+        return shardOf(room.getRoomNumber()).cancelReservation(customer, room, checkInDate, listener);
+    }
+
+    /**
+     * Moves a stay to new dates in the shard owning its room.
+     *
+     * @param customer        customer of the reservation
+     * @param room            iRoom which is reserved
+     * @param checkInDate     date object of check-in of the reservation
+     * @param newCheckInDate  date object of the new check-in
+     * @param newCheckOutDate date object of the new check-out
+     * @return reservation with the new dates
+     * @throws IllegalArgumentException     if the new stay has no nights, the room is unknown or the customer has no
+     *                                      stay in it checking in on that date
+     * @throws ReservationConflictException if another stay overlaps the new dates
+     */
+    @Override
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate) {
+        return shardOf(room.getRoomNumber()).changeReservation(customer, room, checkInDate, newCheckInDate,
+                newCheckOutDate);
+    }
+
+    @Override
+    public Reservation changeReservation(Customer customer, IRoom room, Date checkInDate, Date newCheckInDate,
+                                         Date newCheckOutDate, StayListener listener) {
+        return shardOf(room.getRoomNumber()).changeReservation(customer, room, checkInDate, newCheckInDate,
+                newCheckOutDate, listener);
+    }
+
+    /**
+     * Finds rooms available for booking within the supplied dates, searching the shards in parallel.
+     *
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @return unmodifiable collection of rooms available for the supplied dates, in the order they were recorded
+     */
+    @Override
+    public Collection<IRoom> findRooms(Date checkInDate, Date checkOutDate) {
+        return Collections.unmodifiableList(inRecordingOrder(fanOut(shard -> shard.findRooms(checkInDate,
+                checkOutDate))));
+    }
+
+    /**
+     * Finds the earliest check-in days on which some room is free for the whole stay. Every check-in day among the
+     * first count overall is also among the first count of each shard with a room free on it, so merging the windows
+     * of the shards by day gives the same windows as one search over all rooms.
+     *
+     * @param checkInDate earliest date of check-in
+     * @param nights      number of nights of the stay
+     * @param roomType    type of the rooms, null for any type
+     * @param count       largest number of windows returned
+     * @return list of windows ordered by check-in, each with the rooms free for it
+     * @throws IllegalArgumentException if the stay has no nights or no window is requested
+     */
+    @Override
+    public List<AvailableWindow> findAvailableWindows(Date checkInDate, int nights, RoomType roomType, int count) {
+        ReservationServiceImpl.checkWindowSearch(nights, count);
+        Map<Long, List<IRoom>> roomsByDay = new TreeMap<>();
+        for (List<AvailableWindow> aShardResult
+                : fanOut(shard -> shard.findAvailableWindows(checkInDate, nights, roomType, count))) {
+            for (AvailableWindow aWindow : aShardResult) {
+                roomsByDay.computeIfAbsent(DateUtils.toEpochDay(aWindow.getCheckInDate()), day -> new ArrayList<>())
+                        .addAll(aWindow.getRooms());
+            }
+        }
+        List<AvailableWindow> windows = new ArrayList<>(count);
+        for (Map.Entry<Long, List<IRoom>> aDay : roomsByDay.entrySet()) {
+            if (windows.size() == count) {
+                break;
+            }
+            windows.add(new AvailableWindow(DateUtils.fromEpochDay(aDay.getKey()),
+                    DateUtils.fromEpochDay(aDay.getKey() + nights), aDay.getValue()));
+        }
+        return windows;
+    }
+
+    /**
+     * Finds the cheapest rooms free for a stay. Each shard returns its own count cheapest, which include every room
+     * of that shard among the count cheapest overall, and the shard results are merged by price.
+     *
+     * @param checkInDate  date object of check-in
+     * @param checkOutDate date object of check-out
+     * @param roomType     type of the rooms, null for any type
+     * @param maxPrice     highest accepted price, null for any price
+     * @param count        largest number of rooms returned
+     * @return list of at most count free rooms, ordered by price and then by room number
+     * @throws IllegalArgumentException if no room is requested
+     */
+    @Override
+    public List<IRoom> findCheapestRooms(Date checkInDate, Date checkOutDate, RoomType roomType, Double maxPrice,
+                                         int count) {
+        ReservationServiceImpl.checkCheapestSearch(count);
+        return firstOf(concat(fanOut(shard -> shard.findCheapestRooms(checkInDate, checkOutDate, roomType, maxPrice,
+                count))), PriceIndex.BY_PRICE, count);
+    }
+
+    /**
+     * Reports occupancy and room revenue over the supplied period from the per-day counters all shards update.
+     *
+     * @param from date of the first night of the period
+     * @param to   date after the last night of the period
+     * @return report of the period
+     * @throws IllegalArgumentException if the period has no nights
+     */
+    @Override
+    public OccupancyReport getOccupancyReport(Date from, Date to) {
+        return ReservationServiceImpl.report(analytics, DateUtils.toEpochDay(from), DateUtils.toEpochDay(to),
+                getRoomCount());
+    }
+
+    /**
+     * Finds all reservations for the supplied customer, looking them up in all shards in parallel.
+     *
+     * @param customer customer for whom reservations are searched
+     * @return collection for reservations for the supplied customer, ordered by check-in
+     */
+    @Override
+    public Collection<Reservation> getCustomersReservation(Customer customer) {
+        if (customer == null) {
+            return new ArrayList<>();
+        }
+        List<Reservation> reservations = concat(fanOut(shard -> shard.getCustomersReservation(customer)));
+        reservations.sort(ReservationServiceImpl.BY_CHECK_IN);
+        return reservations;
+    }
+
+    @Override
+    public Set<IRoom> getRooms() {
+        return new HashSet<>(concat(fanOut(ReservationServiceImpl::getRooms)));
+    }
+
+    /**
+     * Returns all reservations recorded so far, as they were at one instant in all shards.
+     *
+     * @return set of reservations
+     */
+    @Override
+    public Set<Reservation> getAllReservations() {
+        try (ReservationSnapshot snapshot = openSnapshot()) {
+            return new HashSet<>(snapshot.getAllReservations());
+        }
+    }
+
+    /**
+     * Opens a view of the rooms and stays of all shards as they are now. The shards share the version clock, so the
+     * snapshot reads every shard at the same version.
+     *
+     * @return snapshot to close once it is no longer read
+     */
+    @Override
+    public ReservationSnapshot openSnapshot() {
+        VersionClock.Snapshot snapshot = versions.open();
+        List<RoomSchedule> schedules = new ArrayList<>();
+        for (ReservationServiceImpl aShard : shards) {
+            schedules.addAll(aShard.schedulesAt(snapshot.getVersion()));
+        }
+        return new ReservationSnapshot(snapshot, schedules);
+    }
+
+    @Override
+    public Date findMinAvailableDay() {
+        Date minDay = null;
+        for (ReservationServiceImpl aShard : shards) {
+            Date shardMinDay = aShard.findMinAvailableDay();
+            if (shardMinDay != null && (minDay == null || shardMinDay.before(minDay))) {
+                minDay = shardMinDay;
+            }
+        }
+        return minDay;
+    }
+
+    @Override
+    public long getRoomCount() {
+        long count = 0L;
+        for (ReservationServiceImpl aShard : shards) {
+            count += aShard.getRoomCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getReservationCount() {
+        long count = 0L;
+        for (ReservationServiceImpl aShard : shards) {
+            count += aShard.getReservationCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns one page of the rooms in room number order, merged from the same page of every shard.
+     *
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of rooms on the page
+     * @return page of rooms
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    @Override
+    public Page<IRoom> getRooms(String cursor, int limit) {
+        Page.checkLimit(limit);
+        List<IRoom> page = firstOf(concat(fanOut(shard -> shard.getRooms(cursor, limit).getItems())), BY_NUMBER,
+                limit);
+        return Page.of(page, limit, IRoom::getRoomNumber);
+    }
+
+    /**
+     * Returns one page of the reservations matching the supplied filter, in the order of
+     * {@link ReservationServiceImpl#getReservations(ReservationFilter, String, int)}. The reservations of one room
+     * are read from its shard only, with the customer index of that shard; other listings merge the same page of
+     * every shard.
+     *
+     * @param filter criteria of the reservations
+     * @param cursor string returned with the previous page, null for the first page
+     * @param limit  largest number of reservations on the page
+     * @return page of reservations
+     * @throws IllegalArgumentException if the page size is not positive or the cursor is invalid
+     */
+    @Override
+    public Page<Reservation> getReservations(ReservationFilter filter, String cursor, int limit) {
+        Page.checkLimit(limit);
+        if (filter.getRoomNumber() != null) {
+            return shardOf(filter.getRoomNumber()).getReservations(filter, cursor, limit);
+        }
+        List<Reservation> page = firstOf(concat(fanOut(shard -> shard.getReservations(filter, cursor, limit)
+                .getItems())), filter.getEmail() == null ? BY_ROOM_NUMBER : ReservationServiceImpl.BY_CHECK_IN, limit);
+        return Page.of(page, limit, ReservationCursor::encode);
+    }
+
+    @Override
+    public List<Reservation> getRoomStays(IRoom room) {
+        return shardOf(room.getRoomNumber()).getRoomStays(room);
+    }
+
+    /**
+     * Moves the stays checking out on or before the supplied day off the heap, one archive per shard.
+     *
+     * @param cutoffDay epoch day on or before which archived stays check out
+     * @return the new archives of the shards
+     */
+    @Override
+    public List<StayArchive> archiveStays(long cutoffDay) {
+        return concat(fanOut(shard -> shard.archiveStays(cutoffDay)));
+    }
+
+    /**
+     * Drops the cancelled stays from the histories of all shards in parallel.
+     *
+     * @return number of cancelled stays dropped
+     */
+    @Override
+    public int compactCancelledStays() {
+        int dropped = 0;
+        for (int aShardCount : fanOut(ReservationServiceImpl::compactCancelledStays)) {
+            dropped += aShardCount;
+        }
+        return dropped;
+    }
+
+    private ReservationServiceImpl shardOf(String roomNumber) {
+        return shards[Math.floorMod(roomNumber.hashCode(), shards.length)];
+    }
+
+    /**
+     * Runs the supplied query on every shard in parallel and returns the results in shard order. Exceptions thrown
+     * by a shard are rethrown as they are.
+     */
+    private <T> List<T> fanOut(Function<ReservationServiceImpl, T> query) {
+        List<CompletableFuture<T>> tasks = new ArrayList<>(shards.length);
+        for (ReservationServiceImpl aShard : shards) {
+            tasks.add(CompletableFuture.supplyAsync(() -> query.apply(aShard), fanOutPool));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            for (CompletableFuture<T> aTask : tasks) {
+                results.add(aTask.join());
+            }
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+        return results;
+    }
+
+    private static <T> List<T> concat(List<? extends Collection<T>> shardResults) {
+        int size = 0;
+        for (Collection<T> aShardResult : shardResults) {
+            size += aShardResult.size();
+        }
+        List<T> merged = new ArrayList<>(size);
+        for (Collection<T> aShardResult : shardResults) {
+            merged.addAll(aShardResult);
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the rooms of the shards, each in the order its shard recorded them, into the order all of them were
+     * recorded. The shards take the versions of new rooms from the same clock, so these versions give that order.
+     */
+    private List<IRoom> inRecordingOrder(List<Collection<IRoom>> shardRooms) {
+        List<Iterator<IRoom>> iterators = new ArrayList<>(shards.length);
+        IRoom[] heads = new IRoom[shards.length];
+        long[] headVersions = new long[shards.length];
+        int size = 0;
+        for (int i = 0; i < shards.length; i++) {
+            iterators.add(shardRooms.get(i).iterator());
+            size += shardRooms.get(i).size();
+            advance(i, iterators.get(i), heads, headVersions);
+        }
+        List<IRoom> merged = new ArrayList<>(size);
+        while (merged.size() < size) {
+            int next = 0;
+            for (int i = 1; i < shards.length; i++) {
+                if (headVersions[i] < headVersions[next]) {
+                    next = i;
+                }
+            }
+            merged.add(heads[next]);
+            advance(next, iterators.get(next), heads, headVersions);
+        }
+        return merged;
+    }
+
+    private void advance(int shard, Iterator<IRoom> rooms, IRoom[] heads, long[] headVersions) {
+        if (rooms.hasNext()) {
+            heads[shard] = rooms.next();
+            headVersions[shard] = shards[shard].recordedVersionOf(heads[shard]);
+        } else {
+            heads[shard] = null;
+            headVersions[shard] = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Sorts the supplied items and keeps the first limit of them.
+     */
+    private static <T> List<T> firstOf(List<T> items, Comparator<? super T> order, int limit) {
+        items.sort(order);
+        return items.size() <= limit ? items : new ArrayList<>(items.subList(0, limit));
+    }
+}
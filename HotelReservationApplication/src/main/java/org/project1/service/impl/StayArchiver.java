@@ -0,0 +1,93 @@
+package org.project1.service.impl;
+
+import org.project1.index.StayArchive;
+import org.project1.service.InMemoryReservationService;
+import org.project1.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves the stays which checked out more than a number of days ago off the heap of the in-memory
+ * reservation service, into a {@link StayArchive}. The first run starts once the application is ready, after the
+ * stored state has been recovered.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.archive.enabled", havingValue = "true")
+public class StayArchiver {
+    private static final Logger log = LoggerFactory.getLogger(StayArchiver.class);
+
+    private final InMemoryReservationService reservationService;
+    private final long keepDays;
+    private final long intervalHours;
+    private ScheduledExecutorService archiveScheduler;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param reservationService in-memory service whose stays are archived
+     * @param keepDays           number of days past stays are kept on the heap after their check-out
+     * @param intervalHours      hours between two archiving runs
+     */
+    public StayArchiver(InMemoryReservationService reservationService,
+                        @Value("${hotel.archive.keep-days:30}") long keepDays,
+                        @Value("${hotel.archive.interval-hours:24}") long intervalHours) {
+        this.reservationService = reservationService;
+        this.keepDays = keepDays;
+        this.intervalHours = intervalHours;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        archiveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stay-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiveScheduler.scheduleWithFixedDelay(this::archiveQuietly, 0L, intervalHours, TimeUnit.HOURS);
+    }
+
+    /**
+     * Archives the stays which checked out at least keepDays days ago.
+     *
+     * @return the new archives
+     */
+    public List<StayArchive> archive() {
+        long start = System.nanoTime();
+        List<StayArchive> archives = reservationService.archiveStays(DateUtils.today() - keepDays);
+        long stayCount = 0L;
+        long byteSize = 0L;
+        for (StayArchive anArchive : archives) {
+            stayCount += anArchive.getStayCount();
+            byteSize += anArchive.getByteSize();
+        }
+        log.info("Archived {} stays in {} MB off the heap in {} ms", stayCount, byteSize >> 20,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return archives;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (archiveScheduler != null) {
+            archiveScheduler.shutdownNow();
+        }
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (RuntimeException ex) {
+            log.error("Could not archive stays", ex);
+        }
+    }
+}
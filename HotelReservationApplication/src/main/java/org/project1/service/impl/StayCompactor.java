@@ -0,0 +1,83 @@
+package org.project1.service.impl;
+
+import org.project1.service.InMemoryReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically drops the cancelled stays from the stay histories of the in-memory reservation service. Cancelling a
+ * stay loaded from a snapshot or an archive only leaves a tombstone, which every read of that room skips until the
+ * history is written again without it.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.compaction.enabled", havingValue = "true")
+public class StayCompactor {
+    private static final Logger log = LoggerFactory.getLogger(StayCompactor.class);
+
+    private final InMemoryReservationService reservationService;
+    private final long intervalSeconds;
+    private ScheduledExecutorService compactionScheduler;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param reservationService in-memory service whose cancelled stays are dropped
+     * @param intervalSeconds    seconds between two compaction runs
+     */
+    public StayCompactor(InMemoryReservationService reservationService,
+                         @Value("${hotel.compaction.interval-seconds:60}") long intervalSeconds) {
+        this.reservationService = reservationService;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        compactionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stay-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionScheduler.scheduleWithFixedDelay(this::compactQuietly, intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Drops the cancelled stays from the histories.
+     *
+     * @return number of cancelled stays dropped
+     */
+    public int compact() {
+        long start = System.nanoTime();
+        int dropped = reservationService.compactCancelledStays();
+        if (dropped > 0) {
+            log.info("Dropped {} cancelled stays in {} ms", dropped,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return dropped;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (compactionScheduler != null) {
+            compactionScheduler.shutdownNow();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException ex) {
+            log.error("Could not compact cancelled stays", ex);
+        }
+    }
+}
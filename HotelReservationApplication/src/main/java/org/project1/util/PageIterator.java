@@ -0,0 +1,48 @@
+package org.project1.util;
+
+import org.project1.model.Page;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Iterates over all items of a paged listing, fetching the next page only when the current one is used up, so at
+ * most one page is held at a time.
+ *
+ * @param <T> type of the listed items
+ */
+public class PageIterator<T> implements Iterator<T> {
+    private final Function<String, Page<T>> pages;
+    private Iterator<T> items;
+    private String nextCursor;
+    private boolean lastPage;
+
+    /**
+     * Constructor of this class.
+     *
+     * @param pages returns the page after the supplied cursor, the first page for null
+     */
+    public PageIterator(Function<String, Page<T>> pages) {
+        this.pages = pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ((items == null || !items.hasNext()) && !lastPage) {
+            Page<T> page = pages.apply(nextCursor);
+            items = page.getItems().iterator();
+            nextCursor = page.getNextCursor();
+            lastPage = nextCursor == null;
+        }
+        return items.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return items.next();
+    }
+}
@@ -0,0 +1,51 @@
+package org.project1.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Checks of customer input shared by the console, the model and the bulk imports. Patterns are compiled once.
+ */
+public class ValidationUtils {
+    private static final Pattern EMAIL = Pattern.compile("\\b[a-zA-Z0-9._%-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,4}\\b");
+    private static final Pattern EMAIL_SHAPE = Pattern.compile("^(.+)@(.+).(.+)$");
+
+    /**
+     * Returns true if the supplied string contains a valid email address.
+     *
+     * @param email string to check
+     * @return true if a customer can be registered with the email
+     */
+    public static boolean isValidEmail(String email) {
+        return email != null && EMAIL.matcher(email).find();
+    }
+
+    /**
+     * Returns true if the supplied string has the shape of an email address, a looser check than
+     * {@link #isValidEmail(String)} used to prompt again on typos.
+     *
+     * @param input string to check
+     * @return true if the string looks like an email address
+     */
+    public static boolean looksLikeEmail(String input) {
+        return input != null && EMAIL_SHAPE.matcher(input).matches();
+    }
+
+    /**
+     * Returns true if the supplied string contains at least one latin letter, as a customer name should.
+     *
+     * @param input string to check
+     * @return true if the string has a letter
+     */
+    public static boolean hasLetter(String input) {
+        if (input == null) {
+            return false;
+        }
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,130 @@
+package org.project1.index;
+
+import org.junit.jupiter.api.Test;
+import org.project1.model.IRoom;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Invalidation of cached searches by the nights of bookings, and the ring of recent invalidations deciding whether a
+ * search which raced a booking may be cached.
+ */
+class AvailabilityCacheTest {
+    private final AtomicInteger searches = new AtomicInteger();
+    private final List<IRoom> rooms = Collections.singletonList(new Room("101", 50.0, RoomType.SINGLE));
+
+    @Test
+    void repeatedSearchIsAnsweredFromTheCache() {
+        AvailabilityCache cache = new AvailabilityCache(1_000);
+
+        List<IRoom> first = cache.get(10, 12, search());
+        List<IRoom> second = cache.get(10, 12, search());
+
+        assertThat(second).isSameAs(first).isEqualTo(rooms);
+        assertThat(searches).hasValue(1);
+    }
+
+    @Test
+    void bookingOnlyDropsTheStaysSharingANightWithIt() {
+        AvailabilityCache cache = new AvailabilityCache(1_000);
+        cache.get(8, 10, search());
+        cache.get(12, 14, search());
+        cache.get(9, 11, search());
+        // A long stay checking in well before the booking
+        cache.get(0, 30, search());
+        cache.get(40, 41, search());
+
+        cache.invalidate(10, 12);
+
+        assertThat(cache.size()).isEqualTo(3);
+        searches.set(0);
+        cache.get(8, 10, search());
+        cache.get(12, 14, search());
+        cache.get(40, 41, search());
+        assertThat(searches).hasValue(0);
+        cache.get(9, 11, search());
+        cache.get(0, 30, search());
+        assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void searchRacingAnOverlappingBookingIsNotCached() {
+        AvailabilityCache cache = new AvailabilityCache(1_000);
+
+        cache.get(10, 12, searchDuring(() -> cache.invalidate(11, 13)));
+        assertThat(cache.size()).isZero();
+
+        cache.get(10, 12, searchDuring(() -> cache.invalidate(12, 13)));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void searchOutlastingTheRingOfRecentInvalidationsIsNotCached() {
+        AvailabilityCache cache = new AvailabilityCache(1_000);
+
+        cache.get(10, 12, searchDuring(() -> {
+            for (int i = 0; i < 64; i++) {
+                cache.invalidate(100 + i, 101 + i);
+            }
+        }));
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.invalidateAll();
+        cache.get(10, 12, searchDuring(() -> {
+            for (int i = 0; i < 65; i++) {
+                cache.invalidate(100 + i, 101 + i);
+            }
+        }));
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void evictedStaysAreSearchedAgain() {
+        // Room for two results of one room each
+        AvailabilityCache cache = new AvailabilityCache(4);
+        for (int i = 0; i < 10; i++) {
+            cache.get(10 + i, 12 + i, search());
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+
+        cache.get(10, 12, search());
+        assertThat(searches).hasValue(11);
+        cache.invalidate(0, 100);
+        assertThat(cache.size()).isZero();
+        cache.get(10, 12, search());
+        assertThat(searches).hasValue(12);
+    }
+
+    @Test
+    void invalidatingAllDropsEveryStay() {
+        AvailabilityCache cache = new AvailabilityCache(1_000);
+        cache.get(10, 12, search());
+        cache.get(500, 501, search());
+
+        cache.invalidateAll();
+
+        assertThat(cache.size()).isZero();
+        cache.get(500, 501, searchDuring(cache::invalidateAll));
+        assertThat(cache.size()).isZero();
+    }
+
+    private Supplier<List<IRoom>> search() {
+        return searchDuring(() -> {
+        });
+    }
+
+    private Supplier<List<IRoom>> searchDuring(Runnable booking) {
+        return () -> {
+            searches.incrementAndGet();
+            booking.run();
+            return rooms;
+        };
+    }
+}
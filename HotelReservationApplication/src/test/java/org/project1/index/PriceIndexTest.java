@@ -0,0 +1,105 @@
+package org.project1.index;
+
+import org.junit.jupiter.api.Test;
+import org.project1.model.IRoom;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Searches for the cheapest free rooms, checked against sorting all rooms and filtering them.
+ */
+class PriceIndexTest {
+    private static final long FIRST_DAY = 20_000;
+
+    private final Map<IRoom, RoomSchedule> schedules = new HashMap<>();
+    private final CustomerReservationIndex customerIndex = new CustomerReservationIndex();
+
+    @Test
+    void findsTheCheapestFreeRoomsInPriceAndNumberOrder() {
+        IRoom suite = room("301", 200.0, RoomType.DOUBLE);
+        IRoom cheap = room("102", 40.0, RoomType.SINGLE);
+        IRoom sameBelow = room("201", 80.0, RoomType.DOUBLE);
+        IRoom sameAbove = room("202", 80.0, RoomType.SINGLE);
+        IRoom booked = room("101", 30.0, RoomType.SINGLE);
+        book(booked, 2, 5);
+        PriceIndex index = PriceIndex.build(schedules.keySet(), schedules::get);
+
+        assertThat(index.findCheapest(FIRST_DAY + 3, FIRST_DAY + 4, null, Double.MAX_VALUE, 10))
+                .containsExactly(cheap, sameBelow, sameAbove, suite);
+        assertThat(index.findCheapest(FIRST_DAY + 5, FIRST_DAY + 6, null, Double.MAX_VALUE, 2))
+                .containsExactly(booked, cheap);
+        // The price limit is inclusive
+        assertThat(index.findCheapest(FIRST_DAY + 3, FIRST_DAY + 4, null, 80.0, 10))
+                .containsExactly(cheap, sameBelow, sameAbove);
+        assertThat(index.findCheapest(FIRST_DAY + 3, FIRST_DAY + 4, RoomType.DOUBLE, Double.MAX_VALUE, 10))
+                .containsExactly(sameBelow, suite);
+        assertThat(index.findCheapest(FIRST_DAY, FIRST_DAY + 1, null, 10.0, 10)).isEmpty();
+    }
+
+    @Test
+    void roomWithoutPriceCostsNothingAndRoomWithoutScheduleIsLeftOut() {
+        IRoom free = room("100", null, null);
+        IRoom single = room("101", 50.0, RoomType.SINGLE);
+        List<IRoom> all = new ArrayList<>(schedules.keySet());
+        // Not recorded yet, so it has no schedule
+        all.add(new Room("999", 1.0, RoomType.SINGLE));
+        PriceIndex index = PriceIndex.build(all, schedules::get);
+
+        assertThat(index.findCheapest(FIRST_DAY, FIRST_DAY + 1, null, Double.MAX_VALUE, 10))
+                .containsExactly(free, single);
+        assertThat(index.findCheapest(FIRST_DAY, FIRST_DAY + 1, RoomType.SINGLE, Double.MAX_VALUE, 10))
+                .containsExactly(single);
+    }
+
+    @Test
+    void agreesWithSortingAndFilteringAllRooms() {
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            IRoom aRoom = room(String.valueOf(1_000 + i), (double) (10 * random.nextInt(20)),
+                    random.nextBoolean() ? RoomType.SINGLE : RoomType.DOUBLE);
+            for (int day = random.nextInt(4); day < 60; day += 2 + random.nextInt(6)) {
+                book(aRoom, day, day + 1 + random.nextInt(2));
+            }
+        }
+        PriceIndex index = PriceIndex.build(schedules.keySet(), schedules::get);
+
+        for (int i = 0; i < 500; i++) {
+            long fromDay = FIRST_DAY + random.nextInt(60);
+            long toDay = fromDay + 1 + random.nextInt(4);
+            RoomType type = random.nextInt(3) == 0 ? null : RoomType.values()[random.nextInt(2)];
+            double maxPrice = 10 * random.nextInt(21);
+            int count = 1 + random.nextInt(50);
+            List<IRoom> expected = schedules.values().stream()
+                    .filter(schedule -> schedule.isFree(fromDay, toDay))
+                    .map(RoomSchedule::getRoom)
+                    .filter(aRoom -> type == null || aRoom.getRoomType() == type)
+                    .filter(aRoom -> aRoom.getRoomPrice() <= maxPrice)
+                    .sorted(PriceIndex.BY_PRICE)
+                    .limit(count)
+                    .collect(Collectors.toList());
+
+            assertThat(index.findCheapest(fromDay, toDay, type, maxPrice, count)).isEqualTo(expected);
+        }
+    }
+
+    private IRoom room(String number, Double price, RoomType type) {
+        IRoom room = new Room(number, price, type);
+        schedules.put(room, new RoomSchedule(room, schedules.size(), FIRST_DAY, 90, StayHistory.EMPTY,
+                customerId -> null, null));
+        return room;
+    }
+
+    private void book(IRoom room, int first, int last) {
+        assertThat(schedules.get(room).tryAdd(FIRST_DAY + first, FIRST_DAY + last, -1, customerIndex, day -> {
+        })).isTrue();
+    }
+}
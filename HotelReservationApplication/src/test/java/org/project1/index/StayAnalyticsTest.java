@@ -0,0 +1,77 @@
+package org.project1.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range updates and range queries of the Fenwick trees, checked against counting every night one by one.
+ */
+class StayAnalyticsTest {
+    private static final int FIRST_DAY = 20_000;
+    private static final int DAYS = 400;
+
+    @Test
+    void rangeSumsMatchCountingEveryNight() {
+        Random random = new Random(11);
+        StayAnalytics analytics = new StayAnalytics();
+        long[] nights = new long[DAYS];
+        long[] cents = new long[DAYS];
+        List<long[]> stays = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            if (!stays.isEmpty() && random.nextInt(4) == 0) {
+                long[] stay = stays.remove(random.nextInt(stays.size()));
+                analytics.removeStay(FIRST_DAY + stay[0], FIRST_DAY + stay[1], stay[2] / 100.0);
+                count(nights, cents, stay, -1);
+            } else {
+                int first = random.nextInt(DAYS - 1);
+                long[] stay = {first, first + 1 + random.nextInt(Math.min(30, DAYS - first - 1) + 1),
+                        2_500 + random.nextInt(20_000)};
+                analytics.addStay(FIRST_DAY + stay[0], FIRST_DAY + stay[1], stay[2] / 100.0);
+                count(nights, cents, stay, 1);
+                stays.add(stay);
+            }
+            int from = random.nextInt(DAYS);
+            int to = from + random.nextInt(DAYS - from + 1);
+            assertThat(analytics.getRoomNights(FIRST_DAY + from, FIRST_DAY + to)).isEqualTo(sum(nights, from, to));
+            assertThat(analytics.getRevenueCents(FIRST_DAY + from, FIRST_DAY + to)).isEqualTo(sum(cents, from, to));
+        }
+        for (long[] aStay : stays) {
+            analytics.removeStay(FIRST_DAY + aStay[0], FIRST_DAY + aStay[1], aStay[2] / 100.0);
+        }
+        assertThat(analytics.getRoomNights(0, 1 << 16)).isZero();
+        assertThat(analytics.getRevenueCents(0, 1 << 16)).isZero();
+    }
+
+    @Test
+    void nightsBefore1970AndEmptyPeriodsAreNotCounted() {
+        StayAnalytics analytics = new StayAnalytics();
+        analytics.addStay(-5, 3, 10.0);
+        analytics.addStay(FIRST_DAY, FIRST_DAY, 10.0);
+
+        assertThat(analytics.getRoomNights(-100, 100)).isEqualTo(3);
+        assertThat(analytics.getRevenueCents(0, 2)).isEqualTo(2_000);
+        assertThat(analytics.getRoomNights(2, 2)).isZero();
+        assertThat(analytics.getRoomNights(3, 1)).isZero();
+        assertThat(analytics.getRoomNights(FIRST_DAY - 1, FIRST_DAY + 1)).isZero();
+    }
+
+    private static void count(long[] nights, long[] cents, long[] stay, int sign) {
+        for (int day = (int) stay[0]; day < stay[1]; day++) {
+            nights[day] += sign;
+            cents[day] += sign * stay[2];
+        }
+    }
+
+    private static long sum(long[] perNight, int from, int to) {
+        long sum = 0;
+        for (int day = from; day < to; day++) {
+            sum += perNight[day];
+        }
+        return sum;
+    }
+}
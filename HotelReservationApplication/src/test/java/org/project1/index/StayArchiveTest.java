@@ -0,0 +1,94 @@
+package org.project1.index;
+
+import org.junit.jupiter.api.Test;
+import org.project1.model.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Room slices and the customer index, built by counting sort, of archives written in small buffers.
+ */
+class StayArchiveTest {
+    private static final IntFunction<Customer> CUSTOMERS =
+            id -> new Customer("Guest", String.valueOf(id), "guest" + id + "@example.com");
+
+    @Test
+    void customerIndexListsTheKeysOfEachCustomerInOrder() {
+        Random random = new Random(7);
+        // Small buffers, so rooms are moved to a new buffer while they are written
+        StayArchive.Writer writer = new StayArchive.Writer(16);
+        Map<Integer, TreeSet<Long>> expected = new TreeMap<>();
+        List<StayHistory> histories = new ArrayList<>();
+        List<long[]> written = new ArrayList<>();
+        long stays = 0;
+        for (int room = 0; room < 40; room++) {
+            writer.beginRoom();
+            long day = 20_000 + random.nextInt(10);
+            int count = random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                // Some stays have no customer and are left out of the index
+                int customerId = random.nextInt(12) - 1;
+                long checkOut = day + 1 + random.nextInt(5);
+                writer.write(customerId, day, checkOut);
+                written.add(new long[]{room, customerId, day, checkOut});
+                if (customerId >= 0) {
+                    expected.computeIfAbsent(customerId, id -> new TreeSet<>())
+                            .add(CustomerReservationIndex.key(room, day));
+                }
+                day = checkOut + random.nextInt(3);
+            }
+            histories.add(writer.endRoom(room, CUSTOMERS));
+            stays += count;
+        }
+        StayArchive archive = writer.finish();
+
+        assertThat(archive.getStayCount()).isEqualTo(stays);
+        for (Map.Entry<Integer, TreeSet<Long>> aCustomer : expected.entrySet()) {
+            assertThat(archive.keys(aCustomer.getKey(), Long.MIN_VALUE))
+                    .containsExactly(aCustomer.getValue().stream().mapToLong(Long::longValue).toArray());
+            long middle = aCustomer.getValue().toArray(new Long[0])[aCustomer.getValue().size() / 2];
+            assertThat(archive.keys(aCustomer.getKey(), middle)).containsExactly(
+                    aCustomer.getValue().tailSet(middle).stream().mapToLong(Long::longValue).toArray());
+        }
+        assertThat(archive.keys(-1, Long.MIN_VALUE)).isEmpty();
+        assertThat(archive.keys(1_000, Long.MIN_VALUE)).isEmpty();
+
+        int[] next = new int[histories.size()];
+        for (long[] aStay : written) {
+            StayHistory history = histories.get((int) aStay[0]);
+            int index = next[(int) aStay[0]]++;
+            assertThat(history.checkInDay(index)).isEqualTo(aStay[2]);
+            assertThat(history.checkOutDay(index)).isEqualTo(aStay[3]);
+            if (aStay[1] >= 0) {
+                assertThat(history.customerAt(index).getEmail()).isEqualTo("guest" + aStay[1] + "@example.com");
+            }
+        }
+        for (int room = 0; room < histories.size(); room++) {
+            assertThat(histories.get(room).size()).isEqualTo(next[room]);
+        }
+    }
+
+    @Test
+    void roomWithoutStaysGetsTheEmptyHistory() {
+        StayArchive.Writer writer = new StayArchive.Writer();
+        writer.beginRoom();
+        assertThat(writer.endRoom(0, CUSTOMERS)).isSameAs(StayHistory.EMPTY);
+        writer.beginRoom();
+        writer.write(3, 20_000, 20_002);
+        StayHistory history = writer.endRoom(1, CUSTOMERS);
+        StayArchive archive = writer.finish();
+
+        assertThat(history.size()).isEqualTo(1);
+        assertThat(archive.getStayCount()).isEqualTo(1);
+        assertThat(archive.keys(3, Long.MIN_VALUE)).containsExactly(CustomerReservationIndex.key(1, 20_000));
+        assertThat(archive.keys(2, Long.MIN_VALUE)).isEmpty();
+    }
+}
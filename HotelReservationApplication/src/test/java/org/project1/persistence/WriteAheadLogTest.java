@@ -0,0 +1,134 @@
+package org.project1.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replay of the write-ahead log, including torn tails and rolled and purged segments.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheRecordsAfterTheSuppliedSequenceInLogOrder() throws IOException {
+        writeRooms(1, 100);
+
+        List<String> all = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 0, record -> all.add(record.getRoomNumber()))).isEqualTo(100);
+        assertThat(all).isEqualTo(roomNumbers(1, 100));
+
+        List<String> tail = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 40, record -> tail.add(record.getRoomNumber()))).isEqualTo(100);
+        assertThat(tail).isEqualTo(roomNumbers(41, 100));
+    }
+
+    @Test
+    void cutsOffATornTailAndAppendsAfterIt() throws IOException {
+        writeRooms(1, 10);
+        Path segment = onlySegment();
+        long intactLength = Files.size(segment);
+        // A header announcing 64 bytes of which only a few made it to disk
+        Files.write(segment, new byte[]{0, 0, 0, 64, 1, 2, 3, 4, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        List<String> replayed = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 0, record -> replayed.add(record.getRoomNumber()))).isEqualTo(10);
+        assertThat(replayed).isEqualTo(roomNumbers(1, 10));
+        assertThat(Files.size(segment)).isEqualTo(intactLength);
+
+        writeRooms(11, 15);
+        List<String> again = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 0, record -> again.add(record.getRoomNumber()))).isEqualTo(15);
+        assertThat(again).isEqualTo(roomNumbers(1, 15));
+    }
+
+    @Test
+    void stopsAtARecordWhoseChecksumDoesNotMatch() throws IOException {
+        writeRooms(1, 10);
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        // Last byte of the payload of the last record
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        List<String> replayed = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 0, record -> replayed.add(record.getRoomNumber()))).isEqualTo(9);
+        assertThat(replayed).isEqualTo(roomNumbers(1, 9));
+        assertThat(Files.size(segment)).isLessThan(bytes.length);
+    }
+
+    @Test
+    void purgesTheRolledSegmentsASnapshotCovers() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1, 16)) {
+            append(log, 1, 5);
+            assertThat(log.roll()).isEqualTo(5);
+            append(log, 6, 10);
+            assertThat(log.roll()).isEqualTo(10);
+            append(log, 11, 12);
+            assertThat(segments()).hasSize(3);
+
+            log.purgeUpTo(5);
+            assertThat(segments()).hasSize(2);
+            // The segment holding 6 to 10 is still needed by a snapshot up to 7
+            log.purgeUpTo(7);
+            assertThat(segments()).hasSize(2);
+            log.purgeUpTo(10);
+            assertThat(segments()).hasSize(1);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        assertThat(WriteAheadLog.replay(directory, 10, record -> replayed.add(record.getRoomNumber()))).isEqualTo(12);
+        assertThat(replayed).isEqualTo(roomNumbers(11, 12));
+    }
+
+    private void writeRooms(int first, int last) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, first, 16)) {
+            append(log, first, last);
+        }
+    }
+
+    private static void append(WriteAheadLog log, int first, int last) {
+        List<CompletableFuture<Long>> written = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            written.add(log.append(JournalRecord.room(new Room(String.valueOf(i), 50.0, RoomType.SINGLE))));
+        }
+        for (int i = 0; i < written.size(); i++) {
+            assertThat(written.get(i).join()).isEqualTo(first + i);
+        }
+    }
+
+    private static List<String> roomNumbers(int first, int last) {
+        List<String> numbers = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            numbers.add(String.valueOf(i));
+        }
+        return numbers;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-")).collect(Collectors.toList());
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+}
@@ -0,0 +1,143 @@
+package org.project1.service;
+
+import org.junit.jupiter.api.Test;
+import org.project1.index.VersionClock;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.service.impl.ReservationServiceImpl;
+import org.project1.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Snapshots of the in-memory service: changes made after a snapshot was opened do not show in it.
+ */
+class ReservationSnapshotTest {
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+
+    private final Customer alice = new Customer("Alice", "Smith", "alice@example.com");
+    private final Customer bob = new Customer("Bob", "Jones", "bob@example.com");
+    private final IRoom single = new Room("101", 50.0, RoomType.SINGLE);
+    private final IRoom twin = new Room("102", 70.0, RoomType.DOUBLE);
+
+    @Test
+    void snapshotKeepsTheStaysAsTheyWereWhenItWasOpened() {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        service.addRoom(single);
+        service.addRoom(twin);
+        Reservation cancelled = service.reserveARoom(alice, single, day(0), day(2));
+        Reservation moved = service.reserveARoom(bob, twin, day(0), day(3));
+
+        try (ReservationSnapshot snapshot = service.openSnapshot()) {
+            service.cancelReservation(alice, single, day(0));
+            service.changeReservation(bob, twin, day(0), day(5), day(6));
+            Reservation booked = service.reserveARoom(alice, single, day(10), day(12));
+            IRoom added = new Room("103", 90.0, RoomType.DOUBLE);
+            service.addRoom(added);
+            service.reserveARoom(bob, added, day(0), day(1));
+
+            assertThat(snapshot.getAllReservations()).containsExactly(cancelled, moved);
+            assertThat(snapshot.getRoomStays(single)).containsExactly(cancelled);
+            assertThat(snapshot.getRoomStays(added)).isEmpty();
+            assertThat(snapshot.getReservationCount()).isEqualTo(2);
+            assertThat(snapshot.getRooms()).containsExactly(single, twin);
+
+            try (ReservationSnapshot after = service.openSnapshot()) {
+                assertThat(after.getRoomStays(single)).containsExactly(booked);
+                assertThat(after.getRoomStays(twin)).containsExactly(new Reservation(bob, twin, day(5), day(6)));
+                assertThat(after.getReservationCount()).isEqualTo(3);
+                assertThat(after.getRooms()).containsExactly(single, twin, added);
+            }
+        }
+    }
+
+    @Test
+    void snapshotKeepsCancelledArchivedStaysThroughCompaction() {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        service.addRoom(single);
+        Reservation first = service.reserveARoom(alice, single, day(0), day(2));
+        Reservation second = service.reserveARoom(bob, single, day(2), day(4));
+        service.archiveStays(FIRST_DAY + 10);
+
+        try (ReservationSnapshot snapshot = service.openSnapshot()) {
+            service.cancelReservation(alice, single, day(0));
+            assertThat(service.compactCancelledStays()).isEqualTo(1);
+
+            assertThat(snapshot.getRoomStays(single)).containsExactly(first, second);
+            assertThat(snapshot.getReservationCount()).isEqualTo(2);
+        }
+        try (ReservationSnapshot snapshot = service.openSnapshot()) {
+            assertThat(snapshot.getRoomStays(single)).containsExactly(second);
+        }
+    }
+
+    @Test
+    void snapshotsOpenedWhileStaysMoveSeeEveryStayOnce() throws Exception {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        List<IRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            IRoom room = new Room(String.valueOf(300 + i), 60.0, RoomType.SINGLE);
+            service.addRoom(room);
+            service.reserveARoom(alice, room, day(0), day(1));
+            rooms.add(room);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Moves each stay to a later night, so a snapshot reading a room twice would see it at both
+            Future<?> moving = pool.submit(() -> {
+                Random random = new Random(5);
+                int[] nights = new int[rooms.size()];
+                for (int i = 0; i < 20_000; i++) {
+                    int room = random.nextInt(rooms.size());
+                    service.changeReservation(alice, rooms.get(room), day(nights[room]), day(nights[room] + 1),
+                            day(nights[room] + 2));
+                    nights[room]++;
+                }
+                done.set(true);
+            });
+            while (!done.get()) {
+                try (ReservationSnapshot snapshot = service.openSnapshot()) {
+                    assertThat(snapshot.getReservationCount()).isEqualTo(rooms.size());
+                    List<Reservation> stays = snapshot.getAllReservations();
+                    assertThat(stays).hasSize(rooms.size());
+                    assertThat(stays).extracting(Reservation::getRoom).containsExactlyElementsOf(rooms);
+                }
+            }
+            moving.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void clockKeepsTheVersionsAnOpenSnapshotReads() {
+        VersionClock clock = new VersionClock();
+        long created = clock.next();
+        VersionClock.Snapshot snapshot = clock.open();
+        long changed = clock.next();
+
+        assertThat(snapshot.getVersion()).isEqualTo(created);
+        assertThat(clock.isRead(created, changed)).isTrue();
+        assertThat(clock.isRead(changed, clock.next())).isFalse();
+
+        snapshot.close();
+        assertThat(clock.isRead(created, changed)).isFalse();
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+}
@@ -0,0 +1,123 @@
+package org.project1.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.service.ReservationService;
+import org.project1.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bookings of many threads racing for the same rooms. Each test checks that no two stays of a room overlap and that
+ * every successful booking was kept, and logs the throughput of the attempts.
+ */
+class ContendedBookingTest {
+    private static final Logger log = LoggerFactory.getLogger(ContendedBookingTest.class);
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int ATTEMPTS_PER_THREAD = 20_000;
+
+    @Test
+    void bookingsOfFewRoomsNeverOverlap() throws Exception {
+        runContended(new ReservationServiceImpl(), 4, "4 rooms");
+    }
+
+    @Test
+    void bookingsOfManyRoomsNeverOverlap() throws Exception {
+        runContended(new ReservationServiceImpl(), 512, "512 rooms");
+    }
+
+    @Test
+    void bookingsOfShardedRoomsNeverOverlap() throws Exception {
+        ShardedReservationService service = new ShardedReservationService(4, 50_000);
+        try {
+            runContended(service, 64, "64 rooms in 4 shards");
+        } finally {
+            service.close();
+        }
+    }
+
+    static void runContended(ReservationService service, int roomCount, String label) throws Exception {
+        List<IRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            IRoom room = new Room(String.valueOf(100 + i), 50.0, RoomType.DOUBLE);
+            service.addRoom(room);
+            rooms.add(room);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> booked = new ArrayList<>();
+        long startNanos;
+        int total = 0;
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                Random random = new Random(t);
+                Customer customer = new Customer("Guest", String.valueOf(t), "guest" + t + "@example.com");
+                Callable<Integer> booking = () -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        IRoom room = rooms.get(random.nextInt(rooms.size()));
+                        int first = random.nextInt(365);
+                        try {
+                            service.reserveARoom(customer, room, day(first), day(first + 1 + random.nextInt(7)));
+                            count++;
+                        } catch (IllegalArgumentException ex) {
+                            // Another thread got some of these nights first
+                        }
+                    }
+                    return count;
+                };
+                booked.add(pool.submit(booking));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> aCount : booked) {
+                total += aCount.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        log.info("{}: {} threads, {} attempts/s, {} booked", label, THREADS,
+                (long) (THREADS * ATTEMPTS_PER_THREAD / seconds), total);
+
+        Map<String, List<Reservation>> staysByRoom = new HashMap<>();
+        for (Reservation aReservation : service.getAllReservations()) {
+            staysByRoom.computeIfAbsent(aReservation.getRoom().getRoomNumber(), number -> new ArrayList<>())
+                    .add(aReservation);
+        }
+        int kept = 0;
+        for (List<Reservation> stays : staysByRoom.values()) {
+            stays.sort(Comparator.comparing(Reservation::getCheckInDate));
+            for (int i = 1; i < stays.size(); i++) {
+                assertThat(stays.get(i).getCheckInDate()).isAfterOrEqualTo(stays.get(i - 1).getCheckOutDate());
+            }
+            kept += stays.size();
+        }
+        assertThat(kept).isEqualTo(total);
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+}
@@ -0,0 +1,162 @@
+package org.project1.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.persistence.HotelJournal;
+import org.project1.persistence.JournalRecord;
+import org.project1.persistence.WriteAheadLog;
+import org.project1.util.DateUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Changes whose journal record cannot be written: changes of the stays have to be taken back in memory, rooms must
+ * not be recorded at all.
+ */
+class DurableReservationServiceTest {
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+
+    @TempDir
+    Path directory;
+
+    private final Customer alice = new Customer("Alice", "Smith", "alice@example.com");
+    private final IRoom room = new Room("101", 80.0, RoomType.DOUBLE);
+    private ReservationServiceImpl memory;
+    private FailingJournal journal;
+    private DurableReservationService service;
+
+    @BeforeEach
+    void open() throws IOException {
+        memory = new ReservationServiceImpl();
+        journal = new FailingJournal(memory, new CustomerServiceImpl(), directory);
+        journal.recover();
+        service = new DurableReservationService(memory, journal);
+        service.addRoom(room);
+        service.reserveARoom(alice, room, day(0), day(3));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        journal.failing = false;
+        journal.close();
+    }
+
+    @Test
+    void failedBookingIsTakenBack() {
+        journal.failing = true;
+
+        assertThatThrownBy(() -> service.reserveARoom(alice, room, day(5), day(7)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memory.getRoomStays(room)).containsExactly(stay(0, 3));
+        assertThat(memory.findRooms(day(5), day(7))).contains(room);
+    }
+
+    @Test
+    void failedCancellationIsTakenBack() {
+        journal.failing = true;
+
+        assertThatThrownBy(() -> service.cancelReservation(alice, room, day(0)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memory.getRoomStays(room)).containsExactly(stay(0, 3));
+        assertThat(memory.getCustomersReservation(alice)).containsExactly(stay(0, 3));
+        assertThat(memory.findRooms(day(0), day(3))).doesNotContain(room);
+    }
+
+    @Test
+    void failedChangeIsTakenBack() {
+        journal.failing = true;
+
+        assertThatThrownBy(() -> service.changeReservation(alice, room, day(0), day(10), day(14)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memory.getRoomStays(room)).containsExactly(stay(0, 3));
+        assertThat(memory.getCustomersReservation(alice)).containsExactly(stay(0, 3));
+        assertThat(memory.findRooms(day(10), day(14))).contains(room);
+    }
+
+    @Test
+    void roomWhoseRecordFailedIsNotRecorded() {
+        journal.failing = true;
+
+        assertThatThrownBy(() -> service.addRoom(new Room("102", 90.0, RoomType.SINGLE)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(memory.findRoomByNumber("102")).isNull();
+        assertThat(memory.getRoomCount()).isEqualTo(1);
+    }
+
+    @Test
+    void roomsAreJournaledOncePerNumber() throws IOException {
+        IRoom first = new Room("103", 90.0, RoomType.SINGLE);
+        IRoom sameNumber = new Room("103", 95.0, RoomType.DOUBLE);
+        IRoom taken = new Room("101", 70.0, RoomType.SINGLE);
+
+        List<IRoom> skipped = service.addRooms(Arrays.asList(first, sameNumber, taken));
+
+        assertThat(skipped).containsExactly(sameNumber, taken);
+        assertThat(memory.findRoomByNumber("103").getRoomPrice()).isEqualTo(90.0);
+        List<JournalRecord> rooms = new ArrayList<>();
+        WriteAheadLog.replay(directory, 0, record -> {
+            if (record.getType() == JournalRecord.Type.ROOM) {
+                rooms.add(record);
+            }
+        });
+        assertThat(rooms).extracting(JournalRecord::getRoomNumber).containsExactly("101", "103");
+    }
+
+    private Reservation stay(int first, int last) {
+        return new Reservation(alice, room, day(first), day(last));
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+
+    /**
+     * Journal whose records fail to be written while {@link #failing} is set, as after a full disk.
+     */
+    private static final class FailingJournal extends HotelJournal {
+        private volatile boolean failing;
+
+        private FailingJournal(ReservationServiceImpl reservationService, CustomerServiceImpl customerService,
+                               Path directory) {
+            super(reservationService, customerService, directory.toString(), 3600, 64);
+        }
+
+        @Override
+        public CompletableFuture<Long> queue(JournalRecord record) {
+            if (!failing) {
+                return super.queue(record);
+            }
+            CompletableFuture<Long> written = new CompletableFuture<>();
+            written.completeExceptionally(new IOException("No space left on device"));
+            return written;
+        }
+
+        @Override
+        public void appendAll(List<JournalRecord> records) {
+            if (failing) {
+                throw new IllegalStateException("Could not persist the change: No space left on device");
+            }
+            super.appendAll(records);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.project1.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.project1.model.HotelEvent;
+import org.project1.model.RoomImportReport;
+import org.project1.service.HotelEventStream;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk imports of rooms published to subscribers whose buffer is much smaller than the import.
+ */
+class HotelEventPublisherTest {
+    private static final int BUFFER_SIZE = 64;
+    private static final int ROOMS = 5_000;
+
+    @Test
+    void skippingSubscriberIsToldHowManyEventsItMissed() throws Exception {
+        HotelEventPublisher publisher = new HotelEventPublisher(BUFFER_SIZE, new SimpleMeterRegistry());
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber, HotelEventStream.Overflow.SKIP);
+
+        assertThat(importRooms(publisher).getImported()).isEqualTo(ROOMS);
+        assertThat(subscriber.subscribed.await(10, TimeUnit.SECONDS)).isTrue();
+        subscriber.subscription.request(Long.MAX_VALUE);
+        publisher.close();
+
+        assertThat(subscriber.ended.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.failure).isNull();
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscriber.events).hasSize(BUFFER_SIZE + 1);
+        HotelEvent marker = subscriber.events.get(BUFFER_SIZE);
+        assertThat(marker.getType()).isEqualTo(HotelEvent.Type.EVENTS_SKIPPED);
+        assertThat(marker.getSequence()).isEqualTo(BUFFER_SIZE + 1);
+        assertThat(marker.getSkippedEvents()).isEqualTo(ROOMS - BUFFER_SIZE);
+        assertAccountsFor(subscriber.events, ROOMS);
+    }
+
+    @Test
+    void slowSkippingSubscriberKeepsItsStreamThroughTheImport() throws Exception {
+        HotelEventPublisher publisher = new HotelEventPublisher(BUFFER_SIZE, new SimpleMeterRegistry());
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber, HotelEventStream.Overflow.SKIP);
+
+        importRooms(publisher);
+        publisher.close();
+
+        assertThat(subscriber.ended.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.failure).isNull();
+        assertThat(subscriber.completed).isTrue();
+        assertAccountsFor(subscriber.events, ROOMS);
+    }
+
+    @Test
+    void failingSubscriberIsCutOffWhenItsBufferOverflows() throws Exception {
+        HotelEventPublisher publisher = new HotelEventPublisher(BUFFER_SIZE, new SimpleMeterRegistry());
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        importRooms(publisher);
+
+        assertThat(subscriber.ended.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.failure).isInstanceOf(IllegalStateException.class);
+        assertThat(subscriber.events).isEmpty();
+        publisher.close();
+    }
+
+    @Test
+    void subscriberWithRoomForTheImportReceivesEveryRoomInFileOrder() throws Exception {
+        HotelEventPublisher publisher = new HotelEventPublisher(ROOMS, new SimpleMeterRegistry());
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber, HotelEventStream.Overflow.SKIP);
+
+        importRooms(publisher);
+        publisher.close();
+
+        assertThat(subscriber.ended.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.events).hasSize(ROOMS);
+        for (int i = 0; i < ROOMS; i++) {
+            assertThat(subscriber.events.get(i).getType()).isEqualTo(HotelEvent.Type.ROOM_ADDED);
+            assertThat(subscriber.events.get(i).getRoom().getRoomNumber()).isEqualTo(String.valueOf(1000 + i));
+        }
+    }
+
+    private static RoomImportReport importRooms(HotelEventPublisher publisher) throws Exception {
+        StringBuilder file = new StringBuilder("roomNumber,price,roomType\n");
+        for (int i = 0; i < ROOMS; i++) {
+            file.append(1000 + i).append(",80.0,").append(i % 2 == 0 ? "s" : "d").append('\n');
+        }
+        RoomImporter importer = new RoomImporter(new ReservationServiceImpl(), publisher, new ObjectMapper());
+        return importer.importRooms(new StringReader(file.toString()));
+    }
+
+    /**
+     * Checks that the events follow each other without a gap and stand for the supplied number of events in all.
+     */
+    private static void assertAccountsFor(List<HotelEvent> events, long count) {
+        long next = 1;
+        for (HotelEvent anEvent : events) {
+            assertThat(anEvent.getSequence()).isEqualTo(next);
+            next = anEvent.getNextSequence();
+        }
+        assertThat(next - 1).isEqualTo(count);
+    }
+
+    /**
+     * Subscriber keeping the events it receives, which asks for the supplied number of events at first and, if that
+     * is one, for one more after each event, taking a moment over each.
+     */
+    private static final class RecordingSubscriber implements HotelEventStream.Subscriber {
+        private final long initialDemand;
+        private final List<HotelEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch ended = new CountDownLatch(1);
+        private volatile HotelEventStream.Subscription subscription;
+        private volatile Throwable failure;
+        private volatile boolean completed;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(HotelEventStream.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(HotelEvent event) {
+            events.add(event);
+            if (initialDemand == 1) {
+                try {
+                    Thread.sleep(0, 100_000);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            this.failure = failure;
+            ended.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            ended.countDown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.project1.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.persistence.HotelJournal;
+import org.project1.service.CustomerService;
+import org.project1.service.ReservationService;
+import org.project1.util.DateUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recovery of the hotel from the journal directory after the process was killed, without the final snapshot of an
+ * orderly shutdown. A killed hotel is simply left behind with its journal open.
+ */
+class HotelRecoveryTest {
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversFromTheLogAlone() throws IOException {
+        Hotel hotel = open();
+        Set<Reservation> stays = book(hotel, 0);
+        // Killed
+
+        Hotel recovered = open();
+        assertSameState(recovered, hotel, stays);
+        assertThat(snapshots()).isEmpty();
+    }
+
+    @Test
+    void recoversFromTheSnapshotAndTheLogTail() throws IOException {
+        Hotel hotel = open();
+        Set<Reservation> stays = book(hotel, 0);
+        hotel.journal.snapshot();
+        stays.addAll(book(hotel, 100));
+        Customer alice = hotel.customers.getCustomer("guest0@example.com");
+        IRoom room = hotel.reservations.findRoomByNumber("100");
+        // A stay of the snapshot is cancelled and one is moved, both in the tail
+        stays.remove(hotel.reservations.cancelReservation(alice, room, day(0)));
+        Reservation original = hotel.reservations.getCustomersReservation(alice).iterator().next();
+        stays.remove(original);
+        stays.add(hotel.reservations.changeReservation(alice, original.getRoom(), original.getCheckInDate(),
+                day(300), day(302)));
+        // Killed
+
+        Hotel recovered = open();
+        assertSameState(recovered, hotel, stays);
+        assertThat(snapshots()).hasSize(1);
+    }
+
+    @Test
+    void dropsTheTornRecordOfAWriteCutShort() throws IOException {
+        Hotel hotel = open();
+        Set<Reservation> stays = book(hotel, 0);
+        // Killed
+        List<Path> segments = segments();
+        Files.write(segments.get(segments.size() - 1), new byte[]{0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);
+
+        Hotel recovered = open();
+        assertSameState(recovered, hotel, stays);
+        IRoom room = recovered.reservations.findRoomByNumber("101");
+        Customer guest = recovered.customers.getCustomer("guest1@example.com");
+        recovered.reservations.reserveARoom(guest, room, day(500), day(501));
+
+        assertThat(open().reservations.getReservationCount()).isEqualTo(stays.size() + 1);
+    }
+
+    private Hotel open() throws IOException {
+        return new Hotel(directory);
+    }
+
+    /**
+     * Registers four guests and books each of them four two-night stays, in rooms 100 to 103.
+     */
+    private static Set<Reservation> book(Hotel hotel, int firstDay) {
+        Set<Reservation> stays = new HashSet<>();
+        List<IRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rooms.add(new Room(String.valueOf(100 + i), 50.0 + i, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE));
+            String email = "guest" + i + "@example.com";
+            if (hotel.customers.getCustomer(email) == null) {
+                hotel.customers.addCustomer(email, "Guest", String.valueOf(i));
+            }
+        }
+        hotel.reservations.addRooms(rooms);
+        for (int i = 0; i < 4; i++) {
+            Customer guest = hotel.customers.getCustomer("guest" + i + "@example.com");
+            for (int j = 0; j < 4; j++) {
+                IRoom room = hotel.reservations.findRoomByNumber(String.valueOf(100 + j));
+                int first = firstDay + 10 * i + 2 * j;
+                stays.add(hotel.reservations.reserveARoom(guest, room, day(first), day(first + 2)));
+            }
+        }
+        return stays;
+    }
+
+    private static void assertSameState(Hotel recovered, Hotel original, Set<Reservation> stays) {
+        assertThat(recovered.reservations.getRooms()).isEqualTo(original.reservations.getRooms());
+        assertThat(new HashSet<>(recovered.customers.getAllCustomers()))
+                .isEqualTo(new HashSet<>(original.customers.getAllCustomers()));
+        assertThat(recovered.reservations.getAllReservations()).isEqualTo(stays);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        return files("snapshot-");
+    }
+
+    private List<Path> segments() throws IOException {
+        return files("wal-");
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+
+    /**
+     * In-memory services of a hotel recovered from the directory, behind their durable services.
+     */
+    private static final class Hotel {
+        private final HotelJournal journal;
+        private final ReservationService reservations;
+        private final CustomerService customers;
+
+        private Hotel(Path directory) throws IOException {
+            ReservationServiceImpl memory = new ReservationServiceImpl();
+            CustomerServiceImpl customerMemory = new CustomerServiceImpl();
+            journal = new HotelJournal(memory, customerMemory, directory.toString(), 3600, 64);
+            journal.recover();
+            reservations = new DurableReservationService(memory, journal);
+            customers = new DurableCustomerService(customerMemory, journal);
+        }
+    }
+}
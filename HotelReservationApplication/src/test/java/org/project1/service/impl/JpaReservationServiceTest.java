@@ -0,0 +1,286 @@
+package org.project1.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Page;
+import org.project1.model.Reservation;
+import org.project1.model.ReservationFilter;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.persistence.jpa.ReservationRepository;
+import org.project1.persistence.jpa.RoomEntity;
+import org.project1.persistence.jpa.RoomRepository;
+import org.project1.service.ReservationConflictException;
+import org.project1.util.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link JpaReservationService} on an embedded H2 database. Tests do not run in a transaction, so every call commits
+ * as it does in the application and concurrent bookings compete for the lock of the room row.
+ */
+@DataJpaTest
+@ActiveProfiles("jpa")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaReservationServiceTest {
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+
+    @Autowired
+    private JpaReservationService reservationService;
+    @Autowired
+    private JpaCustomerService customerService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private Customer guest;
+    private Customer otherGuest;
+
+    /**
+     * Only the database services and their repositories, not the whole application with its console.
+     */
+    @Configuration
+    @EntityScan(basePackageClasses = RoomEntity.class)
+    @EnableJpaRepositories(basePackageClasses = RoomRepository.class)
+    @Import({JpaReservationService.class, JpaCustomerService.class})
+    static class DatabaseServices {
+    }
+
+    @BeforeEach
+    void addCustomers() {
+        guest = customerOf("guest@example.com");
+        otherGuest = customerOf("other@example.com");
+    }
+
+    @AfterEach
+    void deleteRoomsAndReservations() {
+        reservationRepository.deleteAll();
+        roomRepository.deleteAll();
+    }
+
+    @Test
+    void findRoomsLeavesOutRoomsWithAnOverlappingStay() {
+        IRoom booked = addRoom("101", 100.0);
+        addRoom("102", 100.0);
+        reservationService.reserveARoom(guest, booked, day(2), day(5));
+
+        assertThat(numbersOf(reservationService.findRooms(day(4), day(6)))).containsExactly("102");
+        assertThat(numbersOf(reservationService.findRooms(day(3), day(4)))).containsExactly("102");
+        assertThat(numbersOf(reservationService.findRooms(day(1), day(7)))).containsExactly("102");
+        assertThat(numbersOf(reservationService.findRooms(day(0), day(2)))).containsExactlyInAnyOrder("101", "102");
+        assertThat(numbersOf(reservationService.findRooms(day(5), day(7)))).containsExactlyInAnyOrder("101", "102");
+    }
+
+    @Test
+    void reserveARoomRejectsAnOverlappingStay() {
+        IRoom room = addRoom("201", 80.0);
+        reservationService.reserveARoom(guest, room, day(2), day(5));
+
+        assertThatThrownBy(() -> reservationService.reserveARoom(otherGuest, room, day(4), day(6)))
+                .isInstanceOf(ReservationConflictException.class);
+        assertThatThrownBy(() -> reservationService.reserveARoom(otherGuest, room, day(1), day(8)))
+                .isInstanceOf(ReservationConflictException.class);
+        reservationService.reserveARoom(otherGuest, room, day(5), day(6));
+
+        assertThat(stayDaysOf(room)).containsExactly("2-5", "5-6");
+    }
+
+    @Test
+    void changeReservationRejectsNightsOfAnotherStayAndKeepsTheStay() {
+        IRoom room = addRoom("301", 80.0);
+        reservationService.reserveARoom(guest, room, day(2), day(5));
+        reservationService.reserveARoom(otherGuest, room, day(6), day(8));
+
+        assertThatThrownBy(() -> reservationService.changeReservation(otherGuest, room, day(6), day(4), day(7)))
+                .isInstanceOf(ReservationConflictException.class);
+        assertThat(stayDaysOf(room)).containsExactly("2-5", "6-8");
+
+        // Its own nights do not get in the way of a stay being moved
+        reservationService.changeReservation(otherGuest, room, day(6), day(5), day(9));
+        assertThat(stayDaysOf(room)).containsExactly("2-5", "5-9");
+    }
+
+    @Test
+    void cancelReservationDeletesOnlyThatStay() {
+        IRoom room = addRoom("311", 80.0);
+        reservationService.reserveARoom(guest, room, day(2), day(5));
+        reservationService.reserveARoom(otherGuest, room, day(5), day(7));
+
+        Reservation cancelled = reservationService.cancelReservation(guest, room, day(2));
+
+        assertThat(DateUtils.toEpochDay(cancelled.getCheckOutDate())).isEqualTo(FIRST_DAY + 5);
+        assertThat(stayDaysOf(room)).containsExactly("5-7");
+        assertThat(numbersOf(reservationService.findRooms(day(2), day(5)))).containsExactly("311");
+        // Only the customer of a stay can cancel it, and only once
+        assertThatThrownBy(() -> reservationService.cancelReservation(guest, room, day(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> reservationService.cancelReservation(guest, room, day(2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void getReservationsPagesThroughAllMatchingStaysInKeyOrder() {
+        IRoom first = addRoom("601", 50.0);
+        IRoom second = addRoom("602", 50.0);
+        reservationService.reserveARoom(guest, second, day(1), day(3));
+        reservationService.reserveARoom(otherGuest, first, day(4), day(6));
+        reservationService.reserveARoom(guest, first, day(1), day(2));
+        reservationService.reserveARoom(guest, second, day(4), day(5));
+        reservationService.reserveARoom(otherGuest, first, day(8), day(9));
+
+        assertThat(allPages(new ReservationFilter()))
+                .containsExactly("601:1-2", "601:4-6", "601:8-9", "602:1-3", "602:4-5");
+        ReservationFilter byGuest = new ReservationFilter();
+        byGuest.setEmail(guest.getEmail());
+        assertThat(allPages(byGuest)).containsExactly("601:1-2", "602:1-3", "602:4-5");
+        ReservationFilter byNights = new ReservationFilter();
+        byNights.setFrom(day(4));
+        byNights.setTo(day(8));
+        assertThat(allPages(byNights)).containsExactly("601:4-6", "602:4-5");
+    }
+
+    @Test
+    void findCheapestRoomsOrdersByPriceThenRoomNumber() {
+        addRoom("401", 30.0);
+        addRoom("402", 10.0);
+        addRoom("403", 20.0);
+        addRoom("404", 10.0);
+        IRoom booked = addRoom("405", 5.0);
+        reservationService.reserveARoom(guest, booked, day(0), day(3));
+
+        assertThat(numbersOf(reservationService.findCheapestRooms(day(1), day(2), null, null, 10)))
+                .containsExactly("402", "404", "403", "401");
+        assertThat(numbersOf(reservationService.findCheapestRooms(day(1), day(2), null, 20.0, 2)))
+                .containsExactly("402", "404");
+        assertThat(numbersOf(reservationService.findCheapestRooms(day(3), day(4), null, null, 1)))
+                .containsExactly("405");
+    }
+
+    @Test
+    void concurrentBookingsOfOneRoomNeverOverlap() throws Exception {
+        IRoom room = addRoom("501", 60.0);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> booked = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                Customer customer = t % 2 == 0 ? guest : otherGuest;
+                Callable<Integer> booking = () -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < 25; i++) {
+                        int first = random.nextInt(20);
+                        try {
+                            reservationService.reserveARoom(customer, room, day(first),
+                                    day(first + 1 + random.nextInt(3)));
+                            count++;
+                        } catch (IllegalArgumentException ex) {
+                            // Another thread got some of these nights first
+                        }
+                    }
+                    return count;
+                };
+                booked.add(pool.submit(booking));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> aCount : booked) {
+                total += aCount.get();
+            }
+
+            List<Reservation> stays = staysOf(room);
+            assertThat(stays).hasSize(total);
+            for (int i = 1; i < stays.size(); i++) {
+                assertThat(stays.get(i).getCheckInDate()).isAfterOrEqualTo(stays.get(i - 1).getCheckOutDate());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Customer customerOf(String email) {
+        if (customerService.getCustomer(email) == null) {
+            customerService.addCustomer(email, "First", "Last");
+        }
+        return customerService.getCustomer(email);
+    }
+
+    private IRoom addRoom(String number, double price) {
+        IRoom room = new Room(number, price, RoomType.DOUBLE);
+        assertThat(reservationService.addRoom(room)).isTrue();
+        return room;
+    }
+
+    private List<Reservation> staysOf(IRoom room) {
+        return reservationService.getAllReservations().stream()
+                .filter(r -> r.getRoom().getRoomNumber().equals(room.getRoomNumber()))
+                .sorted(Comparator.comparing(Reservation::getCheckInDate))
+                .collect(Collectors.toList());
+    }
+
+    private List<String> stayDaysOf(IRoom room) {
+        return staysOf(room).stream()
+                .map(r -> (DateUtils.toEpochDay(r.getCheckInDate()) - FIRST_DAY) + "-"
+                        + (DateUtils.toEpochDay(r.getCheckOutDate()) - FIRST_DAY))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reads all pages of the reservations matching the filter, two at a time, as room:check-in-check-out days.
+     */
+    private List<String> allPages(ReservationFilter filter) {
+        List<String> stays = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Reservation> page = reservationService.getReservations(filter, cursor, 2);
+            assertThat(page.getItems().size()).isLessThanOrEqualTo(2);
+            for (Reservation aReservation : page.getItems()) {
+                stays.add(aReservation.getRoom().getRoomNumber() + ":"
+                        + (DateUtils.toEpochDay(aReservation.getCheckInDate()) - FIRST_DAY) + "-"
+                        + (DateUtils.toEpochDay(aReservation.getCheckOutDate()) - FIRST_DAY));
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return stays;
+    }
+
+    private static List<String> numbersOf(Iterable<IRoom> rooms) {
+        List<String> numbers = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            numbers.add(aRoom.getRoomNumber());
+        }
+        return numbers;
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+}
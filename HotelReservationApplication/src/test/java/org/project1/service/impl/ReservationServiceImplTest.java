@@ -0,0 +1,179 @@
+package org.project1.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.project1.model.Customer;
+import org.project1.model.IRoom;
+import org.project1.model.Reservation;
+import org.project1.model.Room;
+import org.project1.model.RoomType;
+import org.project1.service.ReservationConflictException;
+import org.project1.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cancellations and moves of stays, alone and racing bookings and compaction.
+ */
+class ReservationServiceImplTest {
+    private static final long FIRST_DAY = DateUtils.today() + 30;
+
+    private final Customer alice = new Customer("Alice", "Smith", "alice@example.com");
+    private final Customer bob = new Customer("Bob", "Jones", "bob@example.com");
+
+    @Test
+    void cancelRacingABookingOfTheSameNightsLeavesOneConsistentOutcome() throws Exception {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                IRoom room = new Room(String.valueOf(100 + i), 50.0, RoomType.SINGLE);
+                service.addRoom(room);
+                service.reserveARoom(alice, room, day(0), day(3));
+                CountDownLatch start = new CountDownLatch(1);
+                Future<Reservation> cancel = pool.submit(() -> {
+                    start.await();
+                    return service.cancelReservation(alice, room, day(0));
+                });
+                Future<Boolean> booking = pool.submit(() -> {
+                    start.await();
+                    try {
+                        service.reserveARoom(bob, room, day(1), day(4));
+                        return true;
+                    } catch (ReservationConflictException ex) {
+                        return false;
+                    }
+                });
+                start.countDown();
+
+                assertThat(cancel.get().getCheckOutDate()).isEqualTo(day(3));
+                boolean booked = booking.get();
+                List<Reservation> stays = service.getRoomStays(room);
+                if (booked) {
+                    assertThat(stays).hasSize(1);
+                    assertThat(stays.get(0).getCustomer()).isEqualTo(bob);
+                    assertThat(service.findRooms(day(1), day(2))).doesNotContain(room);
+                } else {
+                    assertThat(stays).isEmpty();
+                    assertThat(service.findRooms(day(1), day(2))).contains(room);
+                }
+                assertThat(service.findRooms(day(0), day(1))).contains(room);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(service.getCustomersReservation(alice)).isEmpty();
+    }
+
+    @Test
+    void conflictingMoveKeepsTheOriginalStay() {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        IRoom room = new Room("101", 80.0, RoomType.DOUBLE);
+        service.addRoom(room);
+        service.reserveARoom(alice, room, day(0), day(3));
+        service.reserveARoom(bob, room, day(5), day(8));
+
+        assertThatThrownBy(() -> service.changeReservation(alice, room, day(0), day(4), day(6)))
+                .isInstanceOf(ReservationConflictException.class);
+
+        Collection<Reservation> stays = service.getCustomersReservation(alice);
+        assertThat(stays).hasSize(1);
+        Reservation stay = stays.iterator().next();
+        assertThat(stay.getCheckInDate()).isEqualTo(day(0));
+        assertThat(stay.getCheckOutDate()).isEqualTo(day(3));
+        assertThat(service.findRooms(day(0), day(3))).doesNotContain(room);
+        assertThat(service.findRooms(day(3), day(5))).contains(room);
+        assertThat(service.getReservationCount()).isEqualTo(2);
+
+        // The nights the stay holds itself do not conflict with its move
+        Reservation moved = service.changeReservation(alice, room, day(0), day(1), day(5));
+        assertThat(moved.getCheckInDate()).isEqualTo(day(1));
+        assertThat(service.findRooms(day(0), day(1))).contains(room);
+        assertThat(service.findRooms(day(4), day(5))).doesNotContain(room);
+    }
+
+    @Test
+    void compactionWhileBookingsRunKeepsTheCustomerIndex() throws Exception {
+        ReservationServiceImpl service = new ReservationServiceImpl();
+        List<IRoom> rooms = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            IRoom room = new Room(String.valueOf(200 + i), 60.0, RoomType.SINGLE);
+            service.addRoom(room);
+            rooms.add(room);
+        }
+        // Two-night stays of alice in the first 200 days, moved off the heap so cancelling them leaves tombstones
+        List<Reservation> archived = new ArrayList<>();
+        for (IRoom aRoom : rooms) {
+            for (int first = 0; first < 200; first += 4) {
+                archived.add(service.reserveARoom(alice, aRoom, day(first), day(first + 2)));
+            }
+        }
+        service.archiveStays(FIRST_DAY + 200);
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Set<Reservation> kept = new HashSet<>();
+        List<Reservation> booked;
+        try {
+            Future<?> compacting = pool.submit(() -> {
+                while (!done.get()) {
+                    service.compactCancelledStays();
+                }
+            });
+            Future<List<Reservation>> booking = pool.submit(() -> {
+                List<Reservation> made = new ArrayList<>();
+                Random random = new Random(1);
+                for (int i = 0; i < 5_000; i++) {
+                    IRoom room = rooms.get(random.nextInt(rooms.size()));
+                    // The free night between two archived stays, or a night after them
+                    int first = random.nextBoolean() ? 4 * random.nextInt(50) + 2 : 200 + random.nextInt(100);
+                    try {
+                        made.add(service.reserveARoom(bob, room, day(first), day(first + 1)));
+                    } catch (ReservationConflictException ex) {
+                        // Booked before
+                    }
+                }
+                return made;
+            });
+            Future<?> cancelling = pool.submit(() -> {
+                for (int i = 0; i < archived.size(); i++) {
+                    Reservation stay = archived.get(i);
+                    if (i % 2 == 0) {
+                        service.cancelReservation(alice, stay.getRoom(), stay.getCheckInDate());
+                    } else {
+                        kept.add(stay);
+                    }
+                }
+            });
+            cancelling.get();
+            booked = booking.get();
+            done.set(true);
+            compacting.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        service.compactCancelledStays();
+
+        assertThat(new HashSet<>(service.getCustomersReservation(alice))).isEqualTo(kept);
+        assertThat(new HashSet<>(service.getCustomersReservation(bob))).isEqualTo(new HashSet<>(booked));
+        assertThat(service.getReservationCount()).isEqualTo(kept.size() + booked.size());
+        assertThat(service.compactCancelledStays()).isZero();
+    }
+
+    private static Date day(int offset) {
+        return DateUtils.fromEpochDay(FIRST_DAY + offset);
+    }
+}